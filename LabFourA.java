@@ -1,10 +1,32 @@
+import cs2030.simulator.Checkpoint;
+import cs2030.simulator.CompactReport;
+import cs2030.simulator.CompactSimulator;
 import cs2030.simulator.Simulator;
-import cs2030.simulator.SimState;
 import cs2030.simulator.Event;
+import cs2030.simulator.JobServer;
+import cs2030.simulator.LogSink;
+import cs2030.simulator.MergedArrivalSource;
+import cs2030.simulator.PrecisionReport;
+import cs2030.simulator.QueuePolicy;
+import cs2030.simulator.ReaderArrivalSource;
+import cs2030.simulator.ReorderingArrivalSource;
+import cs2030.simulator.SimMetrics;
+import cs2030.simulator.StoppingRule;
+import cs2030.simulator.TeeLogSink;
+import cs2030.simulator.TraceLogSink;
+import cs2030.util.ArrivalReader;
+import cs2030.util.ConstantDistribution;
+import cs2030.util.Distribution;
+import cs2030.util.EventList;
+import cs2030.util.ExternalSorter;
+import cs2030.util.RandomStream;
+import cs2030.util.SortedRuns;
 
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import javax.management.JMException;
+import java.util.Arrays;
 import java.util.Optional;
 import java.lang.Double;
 
@@ -16,63 +38,719 @@ import java.lang.Double;
  * @version CS2030 AY17/18 Sem 2 Lab 4a
  */
 class LabFourA {
+  /** The number of arrivals the reorder buffer holds, unless told otherwise. */
+  private static final int DEFAULT_REORDER_BUFFER = 1 << 16;
+
+  /** The wall-clock seconds between reports online, unless told otherwise. */
+  private static final double DEFAULT_ONLINE_REPORT_SECONDS = 10;
+
+  /** The wall-clock seconds between checkpoints, unless told otherwise. */
+  private static final double DEFAULT_CHECKPOINT_SECONDS = 60;
+
+  /** The options of a run, as {@code main} lists them. */
+  private static class Options {
+    /** The name of the text log mode. */
+    String logMode = "buffered";
+    /** The file to write a binary trace to, if any. */
+    Optional<String> traceFile = Optional.empty();
+    /** Whether arrivals are read as the simulation reaches them. */
+    boolean sorted;
+    /** Whether the simulation runs on primitive arrays. */
+    boolean compact;
+    /** Whether the percentiles of the waiting time are printed. */
+    boolean percentiles;
+    /** The file to write live metrics to, if any. */
+    Optional<String> metricsFile = Optional.empty();
+    /** How many customers can wait, and where. */
+    QueuePolicy policy = QueuePolicy.DEFAULT;
+    /** The distribution of the service times. */
+    Distribution service = new ConstantDistribution(Simulator.SERVICE_TIME);
+    /** The seed of the service times. */
+    long seed = 1;
+    /** The kind of event list, if given. */
+    Optional<String> eventListKind = Optional.empty();
+    /** The empty list that orders the events. */
+    EventList eventList;
+    /** The file to save the state to, if any. */
+    Optional<String> checkpointFile = Optional.empty();
+    /** The simulated time between checkpoints, or 0. */
+    double checkpointEvery;
+    /** The wall-clock seconds between checkpoints, or 0. */
+    double checkpointSeconds;
+    /** The file of a saved state to carry on from, if any. */
+    Optional<String> resumeFile = Optional.empty();
+    /** When to stop before the arrivals run out, if ever. */
+    Optional<StoppingRule> stoppingRule = Optional.empty();
+    /** Whether the warm-up is kept in the precision reached. */
+    boolean keepWarmUp;
+    /** The simulated time between reports, or 0. */
+    double reportEvery;
+    /** The wall-clock seconds between reports, or 0. */
+    double reportSeconds;
+    /** Whether the input keeps coming and is put in order as it is read. */
+    boolean online;
+    /** How much later than an arrival its reorder buffer waits for. */
+    double lateness;
+    /** The number of arrivals the reorder buffer holds. */
+    int reorderBuffer = DEFAULT_REORDER_BUFFER;
+    /** The bytes an external sort may use, or 0 to sort in memory. */
+    long sortMemory;
+    /** The number of threads an external sort uses. */
+    int sortThreads = Runtime.getRuntime().availableProcessors();
+    /** The directory an external sort spills its runs to. */
+    String sortDir = System.getProperty("java.io.tmpdir");
+    /** The port to serve jobs on instead of running, if any. */
+    Optional<String> servePort = Optional.empty();
+    /** The arguments left after the options. */
+    String[] files;
+
+    /**
+     * Return a new stream of the service times.
+     *
+     * @return The stream.
+     */
+    RandomStream serviceTimes() {
+      return new RandomStream(service, seed, RandomStream.SERVICE_TIMES);
+    }
+
+    /**
+     * Parse the options at the start of the arguments, and check that
+     * they can be used together.
+     *
+     * @param args The arguments provided for simulation.
+     * @return The options, or {@code Optional.empty()} if they are
+     *     invalid, in which case why has been printed.
+     */
+    static Optional<Options> parse(String[] args) {
+      Options options = new Options();
+      while (args.length > 0 && args[0].startsWith("--")) {
+        if (!options.parseOne(args[0])) {
+          return Optional.empty();
+        }
+        if (options.servePort.isPresent()) {
+          return Optional.of(options);
+        }
+        args = Arrays.copyOfRange(args, 1, args.length);
+      }
+      options.files = args;
+      return options.check() ? Optional.of(options) : Optional.empty();
+    }
+
+    /**
+     * Parse one option.
+     *
+     * @param arg The option.
+     * @return true if the option is valid; false otherwise, in which case
+     *     why has been printed.
+     */
+    private boolean parseOne(String arg) {
+      if (arg.startsWith("--log=")) {
+        logMode = arg.substring("--log=".length());
+      } else if (arg.startsWith("--trace=")) {
+        traceFile = Optional.of(arg.substring("--trace=".length()));
+      } else if (arg.equals("--sorted")) {
+        sorted = true;
+      } else if (arg.equals("--compact")) {
+        compact = true;
+      } else if (arg.equals("--percentiles")) {
+        percentiles = true;
+      } else if (arg.startsWith("--metrics=")) {
+        metricsFile = Optional.of(arg.substring("--metrics=".length()));
+      } else if (arg.startsWith("--queue=")) {
+        Optional<Integer> capacity = parseCapacity(arg.substring("--queue=".length()));
+        if (!capacity.isPresent()) {
+          return false;
+        }
+        policy = QueuePolicy.perServer(capacity.get());
+      } else if (arg.startsWith("--shared-queue=")) {
+        Optional<Integer> capacity = parseCapacity(arg.substring("--shared-queue=".length()));
+        if (!capacity.isPresent()) {
+          return false;
+        }
+        policy = QueuePolicy.shared(capacity.get());
+      } else if (arg.startsWith("--service=")) {
+        try {
+          service = Distribution.parse(arg.substring("--service=".length()));
+        } catch (IllegalArgumentException exception) {
+          System.err.println(exception.getMessage());
+          return false;
+        }
+      } else if (arg.startsWith("--events=")) {
+        eventListKind = Optional.of(arg.substring("--events=".length()));
+      } else if (arg.startsWith("--checkpoint=")) {
+        checkpointFile = Optional.of(arg.substring("--checkpoint=".length()));
+      } else if (arg.startsWith("--checkpoint-every=")
+          || arg.startsWith("--checkpoint-seconds=")
+          || arg.startsWith("--report-every=")
+          || arg.startsWith("--report-seconds=")) {
+        String text = arg.substring(arg.indexOf('=') + 1);
+        double interval;
+        try {
+          interval = Double.parseDouble(text);
+        } catch (NumberFormatException exception) {
+          interval = -1;
+        }
+        if (!(interval > 0) || Double.isInfinite(interval)) {
+          System.err.println("Invalid " + arg.substring(2, arg.indexOf('-', 2))
+              + " interval " + text);
+          return false;
+        }
+        if (arg.startsWith("--checkpoint-every=")) {
+          checkpointEvery = interval;
+        } else if (arg.startsWith("--checkpoint-seconds=")) {
+          checkpointSeconds = interval;
+        } else if (arg.startsWith("--report-every=")) {
+          reportEvery = interval;
+        } else {
+          reportSeconds = interval;
+        }
+      } else if (arg.startsWith("--external-sort=") || arg.startsWith("--sort-threads=")) {
+        String text = arg.substring(arg.indexOf('=') + 1);
+        int value;
+        try {
+          value = Integer.parseInt(text);
+        } catch (NumberFormatException exception) {
+          value = 0;
+        }
+        if (value < 1) {
+          System.err.println("Invalid " + arg.substring(2, arg.indexOf('=')) + " " + text);
+          return false;
+        }
+        if (arg.startsWith("--external-sort=")) {
+          sortMemory = (long) value << 20;
+        } else {
+          sortThreads = value;
+        }
+      } else if (arg.startsWith("--sort-dir=")) {
+        sortDir = arg.substring("--sort-dir=".length());
+      } else if (arg.equals("--online")) {
+        online = true;
+      } else if (arg.startsWith("--lateness=")) {
+        String text = arg.substring("--lateness=".length());
+        try {
+          lateness = Double.parseDouble(text);
+        } catch (NumberFormatException exception) {
+          lateness = -1;
+        }
+        if (!(lateness >= 0)) {
+          System.err.println("Invalid lateness " + text);
+          return false;
+        }
+      } else if (arg.startsWith("--reorder-buffer=")) {
+        String text = arg.substring("--reorder-buffer=".length());
+        try {
+          reorderBuffer = Integer.parseInt(text);
+        } catch (NumberFormatException exception) {
+          reorderBuffer = 0;
+        }
+        if (reorderBuffer < 1) {
+          System.err.println("Invalid reorder buffer " + text);
+          return false;
+        }
+      } else if (arg.startsWith("--precision=")) {
+        String text = arg.substring("--precision=".length());
+        try {
+          stoppingRule = Optional.of(StoppingRule.precision(Double.parseDouble(text)));
+        } catch (IllegalArgumentException exception) {
+          System.err.println("Invalid precision " + text);
+          return false;
+        }
+      } else if (arg.equals("--keep-warm-up")) {
+        keepWarmUp = true;
+      } else if (arg.startsWith("--resume=")) {
+        resumeFile = Optional.of(arg.substring("--resume=".length()));
+      } else if (arg.startsWith("--serve=")) {
+        servePort = Optional.of(arg.substring("--serve=".length()));
+      } else if (arg.startsWith("--seed=")) {
+        try {
+          seed = Long.parseLong(arg.substring("--seed=".length()));
+        } catch (NumberFormatException exception) {
+          System.err.println("Invalid seed " + arg.substring("--seed=".length()));
+          return false;
+        }
+      } else {
+        System.err.println("Unknown option " + arg);
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Check that the options can be used together, fill in the intervals
+     * they imply, and create the event list.
+     *
+     * @return true if they can; false otherwise, in which case why has
+     *     been printed.
+     */
+    private boolean check() {
+      if (compact && !policy.equals(QueuePolicy.DEFAULT)) {
+        System.err.println("--compact only supports one waiting customer per server");
+        return false;
+      }
+      if (compact && !(service instanceof ConstantDistribution)) {
+        System.err.println("--compact only supports a constant service time");
+        return false;
+      }
+      if (compact && (checkpointFile.isPresent() || resumeFile.isPresent())) {
+        System.err.println("--compact does not support checkpoints");
+        return false;
+      }
+      if (stoppingRule.isPresent() && (compact || resumeFile.isPresent())) {
+        System.err.println("--precision does not support --compact or --resume");
+        return false;
+      }
+      if (compact && (reportEvery > 0 || reportSeconds > 0)) {
+        System.err.println("--compact does not support reports");
+        return false;
+      }
+      if (compact && eventListKind.isPresent()) {
+        System.err.println("--compact keeps its own event list, and does not support --events");
+        return false;
+      }
+      if (online && (sorted || compact || checkpointFile.isPresent()
+          || resumeFile.isPresent())) {
+        System.err.println("--online does not support --sorted, --compact or checkpoints");
+        return false;
+      }
+      if (sortMemory > 0 && (sorted || online || compact || checkpointFile.isPresent()
+          || resumeFile.isPresent())) {
+        System.err.println("--external-sort does not support --sorted, --online, --compact"
+            + " or checkpoints");
+        return false;
+      }
+      if (!online && (lateness > 0 || reorderBuffer != DEFAULT_REORDER_BUFFER)) {
+        System.err.println("A lateness or reorder buffer needs --online");
+        return false;
+      }
+      if (online && reportEvery == 0 && reportSeconds == 0) {
+        reportSeconds = DEFAULT_ONLINE_REPORT_SECONDS;
+      }
+      if (keepWarmUp && !stoppingRule.isPresent()) {
+        System.err.println("--keep-warm-up needs --precision=R");
+        return false;
+      }
+      if (keepWarmUp) {
+        stoppingRule = Optional.of(stoppingRule.get().withoutWarmUp());
+      }
+      if (!checkpointFile.isPresent() && (checkpointEvery > 0 || checkpointSeconds > 0)) {
+        System.err.println("A checkpoint interval needs --checkpoint=FILE");
+        return false;
+      }
+      if (checkpointFile.isPresent() && checkpointEvery == 0 && checkpointSeconds == 0) {
+        checkpointSeconds = DEFAULT_CHECKPOINT_SECONDS;
+      }
+      try {
+        eventList = EventList.create(eventListKind.orElse("heap"));
+      } catch (IllegalArgumentException exception) {
+        System.err.println(exception.getMessage());
+        return false;
+      }
+      return true;
+    }
+  }
+
   /**
    * The main method for Lab 4a. Reads data from file and
    * then run a simulation based on the input data.
    *
-   * @param args two arguments, first an integer specifying number of servers
-   *     in the shop. Second a file containing a sequence of double values, each
-   *     being the arrival time of a customer (in any order).
+   * <p>The input is an integer specifying number of servers in the shop,
+   * followed by a sequence of double values, each being the arrival time
+   * of a customer (in any order).  It is read from the file given, or from
+   * standard input if none is.  The file may be preceded by these options:
+   * <ul>
+   * <li>{@code --log=MODE} writes the event log by MODE: {@code buffered}
+   *     (the default), {@code printf}, {@code async} or {@code quiet}
+   *     (statistics only).
+   * <li>{@code --trace=FILE} also writes a binary trace to the file.
+   * <li>{@code --sorted} reads arrivals as the simulation reaches them,
+   *     which needs the arrival times to be in non-decreasing order.
+   * <li>{@code --compact} runs the simulation on primitive arrays, which
+   *     takes less memory per customer.
+   * <li>{@code --percentiles} also prints the percentiles of the waiting
+   *     time.
+   * <li>{@code --metrics=FILE} publishes live metrics through JMX and
+   *     writes them to the file every second.
+   * <li>{@code --queue=N} lets N customers wait for each server, and
+   *     {@code --shared-queue=N} lets N wait in one line for any server,
+   *     where N may be {@code unbounded}.
+   * <li>{@code --service=DIST} draws service times from a distribution as
+   *     {@code Distribution.parse} reads it, seeded by {@code --seed=N}.
+   * <li>{@code --events=KIND} keeps the pending events in a {@code heap}
+   *     (the default), a {@code calendar} queue or a {@code persistent}
+   *     heap.
+   * <li>{@code --checkpoint=FILE} saves the state of the simulation to the
+   *     file every {@code --checkpoint-every=T} of simulated time or every
+   *     {@code --checkpoint-seconds=S} of wall-clock time (every 60
+   *     seconds if neither is given).
+   * <li>{@code --resume=FILE} carries on from a saved state, given the
+   *     same options and input as the saved run, printing the log from
+   *     there on.
+   * <li>{@code --precision=R} stops as soon as the 95% confidence interval
+   *     of the mean waiting time is within R of the mean, such as 0.05 for
+   *     5%, with the warm-up cut by MSER unless {@code --keep-warm-up} is
+   *     given, and prints the precision reached.
+   * <li>{@code --report-every=T} or {@code --report-seconds=S} prints the
+   *     statistics so far every T of simulated time or every S seconds of
+   *     wall-clock time.
+   * <li>{@code --online} follows input that keeps coming, such as a pipe
+   *     from {@code tail -f}, reading arrivals only as the simulation
+   *     reaches them and putting them in order through a buffer of
+   *     {@code --reorder-buffer=N} arrivals (65536 by default), which holds
+   *     each one back until a time {@code --lateness=L} (0 by default)
+   *     later has been read and drops those that come later still.  It
+   *     reports every 10 seconds unless told otherwise, and prints how the
+   *     buffer fared.
+   * <li>{@code --external-sort=MB} sorts arrivals too many for memory
+   *     within a budget of MB megabytes, spilling sorted runs to
+   *     {@code --sort-dir=DIR} (the temporary directory by default) from
+   *     {@code --sort-threads=N} threads (one per core by default, and
+   *     fewer if the budget cannot hold a chunk and a buffer for each),
+   *     and merges them as the simulation reaches them.
+   * </ul>
+   * Alternatively, {@code --serve=PORT} alone starts a {@code JobServer}
+   * on the port, which runs such simulations sent to it until the process
+   * is killed.
+   *
+   * @param args The options, then the name of the input file, if any.
    */
   public static void main(String[] args) {
-    Optional<Scanner> opScanner = createScanner(args);
-    if (!opScanner.isPresent()) {
+    Optional<Options> opOptions = Options.parse(args);
+    if (!opOptions.isPresent()) {
+      return;
+    }
+    Options options = opOptions.get();
+    if (options.servePort.isPresent()) {
+      JobServer.main(new String[] {options.servePort.get()});
+      return;
+    }
+    Optional<LogSink> opLog = createLogSink(options.logMode, options.traceFile);
+    if (!opLog.isPresent()) {
+      return;
+    }
+    LogSink log = opLog.get();
+
+    Optional<ArrivalReader> opReader = createReader(options.files);
+    if (!opReader.isPresent()) {
       return;
     }
 
     // Read the first line of input as number of servers in the shop
-    opScanner.map(
-      scanner -> {
-        int numOfServers = scanner.nextInt();
-        Simulator sim = new Simulator(numOfServers);
-        scanner.tokens() 
-            .map(x -> Double.parseDouble(x)) 
-            .forEach(arrivalTime -> 
-            sim.state.addEvent(arrivalTime, 
-              s -> s.simulateArrival(arrivalTime)));
-        opScanner.get().close();
-        return sim.run();
+    try (ArrivalReader reader = opReader.get()) {
+      int numOfServers = reader.nextInt();
+      Optional<SimMetrics> metrics = options.metricsFile.isPresent()
+          ? createMetrics(numOfServers, options.metricsFile.get()) : Optional.empty();
+      LogSink simLog = metrics.isPresent() ? new TeeLogSink(log, metrics.get()) : log;
+      if (options.compact) {
+        runCompact(options, numOfServers, simLog, reader, metrics);
+      } else if (options.resumeFile.isPresent()) {
+        runResumed(options, simLog, reader, metrics);
+      } else if (options.online) {
+        runOnline(options, numOfServers, simLog, reader, metrics);
+      } else if (options.sortMemory > 0) {
+        runExternallySorted(options, numOfServers, simLog, reader, metrics);
+      } else if (options.sorted) {
+        runSorted(options, numOfServers, simLog, reader, metrics);
+      } else {
+        runInMemory(options, numOfServers, simLog, reader, metrics);
+      }
+    } catch (IOException exception) {
+      System.err.println(exception.getMessage());
+    } catch (UncheckedIOException exception) {
+      System.err.println(exception.getCause().getMessage());
+    } catch (IllegalArgumentException exception) {
+      System.err.println(exception.getMessage());
+    }
+    log.close();
+  }
+
+  /**
+   * Run the simulation on primitive arrays, with every arrival read up
+   * front, and print its results.
+   *
+   * @param options The options.
+   * @param numOfServers The number of servers in the shop.
+   * @param log The sink for the event logs.
+   * @param reader The reader, at the first arrival.
+   * @param metrics The live metrics, if any.
+   * @throws IOException if the reader fails or finds a malformed time.
+   */
+  private static void runCompact(Options options, int numOfServers, LogSink log,
+      ArrivalReader reader, Optional<SimMetrics> metrics) throws IOException {
+    CompactReport report = new CompactSimulator(numOfServers, options.service.mean(), log,
+        readAll(reader)).run();
+    metrics.ifPresent(SimMetrics::close);
+    printResults(options, report.toString(), report.waitingTimePercentiles());
+  }
+
+  /**
+   * Carry on from a saved state, reading the rest of the arrivals as the
+   * simulation reaches them if they are sorted, and print its results.
+   *
+   * @param options The options.
+   * @param log The sink for the event logs.
+   * @param reader The reader, at the first arrival.
+   * @param metrics The live metrics, if any.
+   * @throws IOException if the saved state cannot be read.
+   */
+  private static void runResumed(Options options, LogSink log, ArrivalReader reader,
+      Optional<SimMetrics> metrics) throws IOException {
+    run(options, new Simulator(Checkpoint.read(Paths.get(options.resumeFile.get()),
+        options.serviceTimes(), options.eventList, log,
+        options.sorted ? new ReaderArrivalSource(reader) : null)), metrics);
+  }
+
+  /**
+   * Run the simulation on input that keeps coming, putting the arrivals
+   * in order through a reorder buffer, and print its results and how the
+   * buffer fared.
+   *
+   * @param options The options.
+   * @param numOfServers The number of servers in the shop.
+   * @param log The sink for the event logs.
+   * @param reader The reader, at the first arrival.
+   * @param metrics The live metrics, if any.
+   */
+  private static void runOnline(Options options, int numOfServers, LogSink log,
+      ArrivalReader reader, Optional<SimMetrics> metrics) {
+    ReorderingArrivalSource reorder = new ReorderingArrivalSource(reader, options.lateness,
+        options.reorderBuffer);
+    run(options, builder(options, numOfServers, log).arrivals(reorder).build(), metrics);
+    System.out.println(reorder);
+  }
+
+  /**
+   * Sort the arrivals in runs on disk, run the simulation on the runs
+   * merged, print its results and delete the runs.
+   *
+   * @param options The options.
+   * @param numOfServers The number of servers in the shop.
+   * @param log The sink for the event logs.
+   * @param reader The reader, at the first arrival.
+   * @param metrics The live metrics, if any.
+   * @throws IOException if the arrivals cannot be read, or the runs
+   *     written.
+   */
+  private static void runExternallySorted(Options options, int numOfServers, LogSink log,
+      ArrivalReader reader, Optional<SimMetrics> metrics) throws IOException {
+    SortedRuns runs = new ExternalSorter(options.sortMemory, options.sortThreads,
+        Paths.get(options.sortDir)).sort(reader);
+    try {
+      run(options, builder(options, numOfServers, log)
+          .arrivals(new MergedArrivalSource(runs)).build(), metrics);
+    } finally {
+      try {
+        runs.close();
+      } catch (IOException exception) {
+        System.err.println("Unable to delete sorted runs " + exception);
       }
-    ).ifPresent(System.out::println);
+    }
+  }
+
+  /**
+   * Run the simulation, reading the sorted arrivals as it reaches them,
+   * and print its results.
+   *
+   * @param options The options.
+   * @param numOfServers The number of servers in the shop.
+   * @param log The sink for the event logs.
+   * @param reader The reader, at the first arrival.
+   * @param metrics The live metrics, if any.
+   */
+  private static void runSorted(Options options, int numOfServers, LogSink log,
+      ArrivalReader reader, Optional<SimMetrics> metrics) {
+    run(options, builder(options, numOfServers, log)
+        .arrivals(new ReaderArrivalSource(reader)).build(), metrics);
+  }
+
+  /**
+   * Run the simulation with every arrival read up front, in any order,
+   * and print its results.
+   *
+   * @param options The options.
+   * @param numOfServers The number of servers in the shop.
+   * @param log The sink for the event logs.
+   * @param reader The reader, at the first arrival.
+   * @param metrics The live metrics, if any.
+   * @throws IOException if the reader fails or finds a malformed time.
+   */
+  private static void runInMemory(Options options, int numOfServers, LogSink log,
+      ArrivalReader reader, Optional<SimMetrics> metrics) throws IOException {
+    Simulator sim = builder(options, numOfServers, log).build();
+    while (reader.hasNext()) {
+      sim.state = sim.state.addArrival(reader.nextDouble());
+    }
+    run(options, sim, metrics);
+  }
+
+  /**
+   * Return a builder of the simulator the options describe.
+   *
+   * @param options The options.
+   * @param numOfServers The number of servers in the shop.
+   * @param log The sink for the event logs.
+   * @return The builder, with no arrivals yet.
+   */
+  private static Simulator.Builder builder(Options options, int numOfServers, LogSink log) {
+    return Simulator.builder(numOfServers).serviceTimes(options.serviceTimes())
+        .policy(options.policy).eventList(options.eventList).log(log);
+  }
+
+  /**
+   * Run a simulation, saving checkpoints, printing reports and stopping
+   * as the options say, and print its results.
+   *
+   * @param options The options.
+   * @param sim The simulator.
+   * @param metrics The live metrics, if any.
+   */
+  private static void run(Options options, Simulator sim, Optional<SimMetrics> metrics) {
+    if (options.checkpointFile.isPresent()) {
+      sim.checkpointTo(Paths.get(options.checkpointFile.get()), options.checkpointEvery,
+          (long) (options.checkpointSeconds * 1000));
+    }
+    if (options.reportEvery > 0 || options.reportSeconds > 0) {
+      sim.reportTo(System.out, options.reportEvery, (long) (options.reportSeconds * 1000));
+    }
+    metrics.ifPresent(m -> m.watch(sim));
+    Optional<PrecisionReport> precision = Optional.empty();
+    if (options.stoppingRule.isPresent()) {
+      precision = Optional.of(sim.run(options.stoppingRule.get()));
+    } else {
+      sim.run();
+    }
+    metrics.ifPresent(SimMetrics::close);
+    printResults(options, sim.state.toString(), sim.state.waitingTimePercentiles());
+    precision.ifPresent(System.out::println);
+  }
+
+  /**
+   * Print the statistics of a run, and the percentiles of the waiting
+   * time if asked for.
+   *
+   * @param options The options.
+   * @param result The statistics.
+   * @param waitingTimes The percentiles of the waiting time.
+   */
+  private static void printResults(Options options, String result, String waitingTimes) {
+    System.out.println(result);
+    if (options.percentiles) {
+      System.out.println(waitingTimes);
+    }
+  }
+
+  /**
+   * Parse the capacity of a queue.
+   *
+   * @param text A non-negative number of customers, or {@code unbounded}.
+   * @return The capacity, or {@code Optional.empty()} if the text is not
+   *     a capacity.
+   */
+  private static Optional<Integer> parseCapacity(String text) {
+    if (text.equals("unbounded")) {
+      return Optional.of(QueuePolicy.UNBOUNDED);
+    }
+    try {
+      int capacity = Integer.parseInt(text);
+      if (capacity >= 0) {
+        return Optional.of(capacity);
+      }
+    } catch (NumberFormatException exception) {
+      // Reported below.
+    }
+    System.err.println("Invalid queue capacity " + text);
+    return Optional.empty();
+  }
+
+  /**
+   * Read every remaining arrival time.
+   *
+   * @param reader The reader.
+   * @return The arrival times, in the order read.
+   * @throws IOException if the reader fails or finds a malformed time.
+   */
+  private static double[] readAll(ArrivalReader reader) throws IOException {
+    double[] times = new double[1024];
+    int n = 0;
+    while (reader.hasNext()) {
+      if (n == times.length) {
+        times = Arrays.copyOf(times, n * 2);
+      }
+      times[n++] = reader.nextDouble();
+    }
+    return Arrays.copyOf(times, n);
+  }
+
+  /**
+   * Create the live metrics of a simulation, register them with JMX and
+   * start writing them to a file every second.
+   *
+   * @param numOfServers The number of servers in the shop.
+   * @param file The file to write the metrics to.
+   * @return The metrics, or {@code Optional.empty()} if they cannot be
+   *     registered, in which case the simulation runs without them.
+   */
+  private static Optional<SimMetrics> createMetrics(int numOfServers, String file) {
+    try {
+      return Optional.of(new SimMetrics(numOfServers).register(file)
+          .writeSnapshots(Paths.get(file), 1000));
+    } catch (JMException exception) {
+      System.err.println("Unable to register metrics " + exception);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Create and return the sink for the event logs.
+   *
+   * @param logMode The name of the text log mode.
+   * @param traceFile The file to write a binary trace to, if any.
+   * @return The sink, or {@code Optional.empty()} if the mode is unknown or
+   *     the trace file cannot be created.
+   */
+  private static Optional<LogSink> createLogSink(String logMode,
+      Optional<String> traceFile) {
+    try {
+      LogSink log = LogSink.of(logMode);
+      if (traceFile.isPresent()) {
+        LogSink trace = new TraceLogSink(Paths.get(traceFile.get()));
+        log = logMode.equals("quiet") ? trace : new TeeLogSink(log, trace);
+      }
+      return Optional.of(log);
+    } catch (IllegalArgumentException exception) {
+      System.err.println(exception.getMessage());
+    } catch (IOException exception) {
+      System.err.println("Unable to create trace " + traceFile.get() + " "
+          + exception);
+    }
+    return Optional.empty();
   }
 
   /**
-   * Create and return a scanner. If a command line argument is given,
-   * treat the argument as a file and open a scanner on the file. Else,
-   * create a scanner that reads from standard input.
+   * Create and return a reader. If a command line argument is given,
+   * treat the argument as a file and open a reader on the file. Else,
+   * create a reader that reads from standard input.
    *
    * @param args The arguments provided for simulation.
-   * @return A scanner or {@code Optional.empty()} if a filename is provided but the file
+   * @return A reader or {@code Optional.empty()} if a filename is provided but the file
    *     cannot be open.
    */
-  private static Optional<Scanner> createScanner(String[] args) {
-    Optional<Scanner> opScanner = Optional.empty();
+  private static Optional<ArrivalReader> createReader(String[] args) {
+    Optional<ArrivalReader> opReader = Optional.empty();
 
     try {
       // Read from stdin if no filename is given, otherwise read from the
       // given file.
       if (args.length == 0) {
         // If there is no argument, read from standard input.
-        opScanner = Optional.of((new Scanner(System.in)));
+        opReader = Optional.of(new ArrivalReader(System.in, "<stdin>"));
       } else {
         // Else read from file
-        FileReader fileReader = new FileReader(args[0]);
-        opScanner = Optional.of(new Scanner(fileReader));
+        opReader = Optional.of(new ArrivalReader(Paths.get(args[0])));
       }
-    } catch (FileNotFoundException exception) {
+    } catch (IOException exception) {
       System.err.println("Unable to open file " + args[0] + " "
           + exception);
     }
-    return opScanner;
+    return opReader;
   }
 }
@@ -0,0 +1,114 @@
+package cs2030.bench;
+
+import cs2030.util.ArrivalReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Compares the throughput of {@code ArrivalReader} with the
+ * {@code Scanner.tokens().map(Double::parseDouble)} path that
+ * {@code LabFourA} used to read arrivals.  A temporary arrival file is
+ * written, then parsed several times by each reader; the best time of
+ * each is reported in MB/s.
+ *
+ * <p>Usage: {@code java cs2030.bench.ArrivalParseBenchmark [numOfArrivals]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ArrivalParseBenchmark {
+  /** Number of timed rounds per reader. */
+  private static final int ROUNDS = 5;
+
+  /**
+   * Run the benchmark.
+   *
+   * @param args Optional number of arrivals in the file.
+   * @throws IOException if the temporary file cannot be written or read.
+   */
+  public static void main(String[] args) throws IOException {
+    int numOfArrivals = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+    Path file = Files.createTempFile("arrivals", ".txt");
+    try {
+      write(file, numOfArrivals);
+      double megabytes = Files.size(file) / 1e6;
+      System.out.printf("%d arrivals, %.1f MB\n", numOfArrivals, megabytes);
+
+      double scanner = Double.MAX_VALUE;
+      double reader = Double.MAX_VALUE;
+      double scannerSum = 0;
+      double readerSum = 0;
+      for (int i = 0; i < ROUNDS; i++) {
+        long start = System.nanoTime();
+        scannerSum = parseWithScanner(file);
+        scanner = Math.min(scanner, (System.nanoTime() - start) / 1e9);
+        start = System.nanoTime();
+        readerSum = parseWithReader(file);
+        reader = Math.min(reader, (System.nanoTime() - start) / 1e9);
+      }
+      if (scannerSum != readerSum) {
+        System.out.println("Readers disagree: " + scannerSum + " " + readerSum);
+      }
+      System.out.printf("%-14s %8.1f MB/s\n", "Scanner", megabytes / scanner);
+      System.out.printf("%-14s %8.1f MB/s\n", "ArrivalReader", megabytes / reader);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Write an arrival file with a server count and sorted arrival times.
+   *
+   * @param file The file to write.
+   * @param numOfArrivals Number of arrival times.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void write(Path file, int numOfArrivals) throws IOException {
+    Random random = new Random(2030);
+    try (BufferedWriter out = Files.newBufferedWriter(file)) {
+      out.write("100\n");
+      double time = 0;
+      for (int i = 0; i < numOfArrivals; i++) {
+        time += random.nextDouble() / 100;
+        out.write(String.format("%.6f\n", time));
+      }
+    }
+  }
+
+  /**
+   * Parse a file the way {@code LabFourA} used to.
+   *
+   * @param file The file to parse.
+   * @return The sum of the arrival times.
+   * @throws IOException if the file cannot be read.
+   */
+  private static double parseWithScanner(Path file) throws IOException {
+    try (Scanner scanner = new Scanner(new FileReader(file.toFile()))) {
+      scanner.nextInt();
+      return scanner.tokens().mapToDouble(Double::parseDouble).reduce(0, Double::sum);
+    }
+  }
+
+  /**
+   * Parse a file with {@code ArrivalReader}.
+   *
+   * @param file The file to parse.
+   * @return The sum of the arrival times.
+   * @throws IOException if the file cannot be read.
+   */
+  private static double parseWithReader(Path file) throws IOException {
+    try (ArrivalReader reader = new ArrivalReader(file)) {
+      reader.nextInt();
+      double sum = 0;
+      while (reader.hasNext()) {
+        sum += reader.nextDouble();
+      }
+      return sum;
+    }
+  }
+}
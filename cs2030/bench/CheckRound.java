@@ -0,0 +1,246 @@
+package cs2030.bench;
+
+import cs2030.simulator.ArrivalSource;
+import cs2030.simulator.LogSink;
+import cs2030.simulator.MergedArrivalSource;
+import cs2030.simulator.PoissonArrivalSource;
+import cs2030.simulator.ReaderArrivalSource;
+import cs2030.simulator.RenewalArrivalSource;
+import cs2030.simulator.ReorderingArrivalSource;
+import cs2030.simulator.Simulator;
+import cs2030.util.ArrivalReader;
+import cs2030.util.EventList;
+import cs2030.util.ExponentialDistribution;
+import cs2030.util.ExternalSorter;
+import cs2030.util.RandomStream;
+import cs2030.util.SortedRuns;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One round of a check that runs a shop several ways: a small shop
+ * loaded to 90%, with the same arrivals given by each kind of source, and
+ * the same service times drawn by each run.  The arrivals are written to
+ * a file in order and to another in random order, and the files, readers
+ * and sorted runs of the round are deleted or closed with it.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+class CheckRound implements Closeable {
+  /** The kinds of list checked, as {@code EventList.create} takes them. */
+  static final String[] KINDS = {"heap", "calendar", "persistent"};
+
+  /**
+   * The kinds of arrival source checked: arrivals added up front, drawn
+   * by a renewal or Poisson source, read in order from a file, read
+   * through a reorder buffer, or merged from the runs of an external
+   * sort.
+   */
+  static final String[] SOURCES = {
+      "up front", "renewal", "poisson", "file", "reordered", "merged"};
+
+  /** Number of servers in the shop. */
+  private static final int NUM_OF_SERVERS = 5;
+
+  /** Arrival rate, which loads the servers to 90%. */
+  private static final double RATE = 0.9 * NUM_OF_SERVERS;
+
+  /** A log sink that keeps every line logged. */
+  static class Recorder implements LogSink {
+    /** The lines logged. */
+    final StringBuilder lines = new StringBuilder();
+
+    @Override
+    public void arrives(double time, int customer) {
+      lines.append(time).append(' ').append(customer).append(" arrives\n");
+    }
+
+    @Override
+    public void waits(double time, int customer, int server, int waiting) {
+      lines.append(time).append(' ').append(customer).append(" waits ").append(server)
+          .append(' ').append(waiting).append('\n');
+    }
+
+    @Override
+    public void served(double time, int customer, int server, int waiting) {
+      lines.append(time).append(' ').append(customer).append(" served ").append(server)
+          .append(' ').append(waiting).append('\n');
+    }
+
+    @Override
+    public void done(double time, int customer, int server, int waiting) {
+      lines.append(time).append(' ').append(customer).append(" done ").append(server)
+          .append(' ').append(waiting).append('\n');
+    }
+
+    @Override
+    public void leaves(double time, int customer) {
+      lines.append(time).append(' ').append(customer).append(" leaves\n");
+    }
+  }
+
+  /** The seed of the arrivals and service times. */
+  private final long seed;
+
+  /** The number of arrivals. */
+  private final int n;
+
+  /** The directory the files and sorted runs are kept in. */
+  private final Path dir;
+
+  /** The file of arrivals in order. */
+  private final Path sorted;
+
+  /** The file of the same arrivals in random order. */
+  private final Path shuffled;
+
+  /** The readers and sorted runs opened, closed with the round. */
+  private final List<Closeable> open;
+
+  /**
+   * Create a round, writing its arrival files.
+   *
+   * @param seed The seed of the arrivals and service times.
+   * @param n The number of arrivals.
+   * @param dir The directory to keep the files and sorted runs in.
+   * @throws IOException if the files cannot be written.
+   */
+  CheckRound(long seed, int n, Path dir) throws IOException {
+    this.seed = seed;
+    this.n = n;
+    this.dir = dir;
+    this.open = new ArrayList<>();
+    Random random = new Random(seed);
+    List<String> times = new ArrayList<>();
+    double time = 0;
+    for (int i = 0; i < n; i++) {
+      time += -Math.log(1 - random.nextDouble()) / RATE;
+      times.add(String.format("%.4f", time));
+    }
+    this.sorted = write(dir.resolve("sorted" + seed), times);
+    Collections.shuffle(times, random);
+    this.shuffled = write(dir.resolve("shuffled" + seed), times);
+  }
+
+  /**
+   * Return the time by which about half the arrivals have come.
+   *
+   * @return The time.
+   */
+  double half() {
+    return n / 2 / RATE;
+  }
+
+  /**
+   * Return a new stream of the service times of the shop.
+   *
+   * @return The stream.
+   */
+  RandomStream serviceTimes() {
+    return new RandomStream(new ExponentialDistribution(1), seed,
+        RandomStream.SERVICE_TIMES);
+  }
+
+  /**
+   * Return a new source of the arrivals.
+   *
+   * @param source The kind of arrival source.
+   * @return The source, or null for arrivals added up front.
+   * @throws IOException if an arrival file cannot be read.
+   */
+  ArrivalSource source(String source) throws IOException {
+    switch (source) {
+      case "renewal":
+        return new RenewalArrivalSource(new ExponentialDistribution(RATE), seed, n);
+      case "poisson":
+        return new PoissonArrivalSource(RATE, seed, n);
+      case "file":
+        return new ReaderArrivalSource(reader(sorted));
+      case "reordered":
+        return new ReorderingArrivalSource(reader(sorted), 1, 64);
+      case "merged":
+        SortedRuns runs = new ExternalSorter(ExternalSorter.MIN_MEMORY, 2, dir)
+            .sort(reader(shuffled));
+        open.add(runs);
+        return new MergedArrivalSource(runs);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Create the shop with its arrivals.
+   *
+   * @param kind The kind of event list.
+   * @param source The kind of arrival source.
+   * @param log The sink of the event logs.
+   * @return The simulator.
+   * @throws IOException if an arrival file cannot be read.
+   */
+  Simulator simulator(String kind, String source, LogSink log) throws IOException {
+    ArrivalSource arrivals = source(source);
+    Simulator simulator = Simulator.builder(NUM_OF_SERVERS).serviceTimes(serviceTimes())
+        .eventList(EventList.create(kind)).log(log).arrivals(arrivals).build();
+    if (arrivals != null) {
+      return simulator;
+    }
+    ArrivalReader reader = reader(sorted);
+    while (reader.hasNext()) {
+      simulator.state.addArrival(reader.nextDouble());
+    }
+    return simulator;
+  }
+
+  /**
+   * Open a reader on an arrival file, closed with the round.
+   *
+   * @param path The file.
+   * @return The reader, at the first arrival.
+   * @throws IOException if the file cannot be read.
+   */
+  private ArrivalReader reader(Path path) throws IOException {
+    ArrivalReader reader = new ArrivalReader(path);
+    open.add(reader::close);
+    return reader;
+  }
+
+  /**
+   * Write an arrival file of the given times, with no number of servers
+   * before them.
+   *
+   * @param path The file.
+   * @param times The times, as text.
+   * @return The file.
+   * @throws IOException if the file cannot be written.
+   */
+  private static Path write(Path path, List<String> times) throws IOException {
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+      for (String time : times) {
+        out.println(time);
+      }
+    }
+    return path;
+  }
+
+  /**
+   * Close the readers and sorted runs of the round, and delete its files.
+   *
+   * @throws IOException if a file cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    for (Closeable closeable : open) {
+      closeable.close();
+    }
+    Files.deleteIfExists(sorted);
+    Files.deleteIfExists(shuffled);
+  }
+}
@@ -0,0 +1,104 @@
+package cs2030.bench;
+
+import cs2030.simulator.Checkpoint;
+import cs2030.simulator.QueuePolicy;
+import cs2030.simulator.QuietLogSink;
+import cs2030.simulator.SimState;
+import cs2030.simulator.Simulator;
+import cs2030.util.Distribution;
+import cs2030.util.EventHeap;
+import cs2030.util.RandomStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Measures how long a {@code Checkpoint} of a large event queue takes to
+ * write and to read back.  The state is a shop whose queue holds every
+ * arrival up front, as {@code LabFourA} builds it from an unsorted file,
+ * and the checkpoint is written to a temporary file.  The statistics of
+ * the state read back, run to the end, must match those of the original.
+ *
+ * <p>Usage: {@code java cs2030.bench.CheckpointBenchmark [events]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class CheckpointBenchmark {
+  /** Number of servers in the shop. */
+  private static final int NUM_OF_SERVERS = 100;
+
+  /** Number of untimed rounds run before measuring. */
+  private static final int WARMUP_ROUNDS = 2;
+
+  /**
+   * Run the benchmark and print the size and times.
+   *
+   * @param args Optional number of pending events.
+   * @throws IOException if the temporary file cannot be written or read.
+   */
+  public static void main(String[] args) throws IOException {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+    Path path = Files.createTempFile("checkpoint", ".bin");
+    try {
+      for (int i = 0; i < WARMUP_ROUNDS; i++) {
+        Checkpoint.write(state(n / 10), path);
+        read(path);
+      }
+      SimState state = state(n);
+      long start = System.nanoTime();
+      Checkpoint.write(state, path);
+      double write = (System.nanoTime() - start) / 1e9;
+      start = System.nanoTime();
+      SimState restored = read(path);
+      double read = (System.nanoTime() - start) / 1e9;
+      long bytes = Files.size(path);
+      System.out.printf("%d events, %.1f MB: write %.3f s (%.0f MB/s), read %.3f s\n",
+          n, bytes / 1e6, write, bytes / 1e6 / write, read);
+      String expected = new Simulator(state).run().toString();
+      String actual = new Simulator(restored).run().toString();
+      System.out.println(expected.equals(actual) ? "Resumed run matches: " + actual
+          : "Resumed run differs: " + actual + " against " + expected);
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /**
+   * Create a shop with n arrivals pending, at random times.
+   *
+   * @param n The number of arrivals.
+   * @return The state.
+   */
+  private static SimState state(int n) {
+    SimState state = new SimState(NUM_OF_SERVERS, serviceTimes(), QueuePolicy.DEFAULT,
+        QuietLogSink.INSTANCE);
+    SplittableRandom random = new SplittableRandom(2030);
+    for (int i = 0; i < n; i++) {
+      state = state.addArrival(random.nextDouble() * n / NUM_OF_SERVERS);
+    }
+    return state;
+  }
+
+  /**
+   * Read a checkpoint written from {@code state}.
+   *
+   * @param path The checkpoint file.
+   * @return The state.
+   * @throws IOException if the file cannot be read.
+   */
+  private static SimState read(Path path) throws IOException {
+    return Checkpoint.read(path, serviceTimes(), new EventHeap(), QuietLogSink.INSTANCE);
+  }
+
+  /**
+   * Return a new stream of the service times of the shop.
+   *
+   * @return The stream.
+   */
+  private static RandomStream serviceTimes() {
+    return new RandomStream(Distribution.parse("exponential:1.1"), 1,
+        RandomStream.SERVICE_TIMES);
+  }
+}
@@ -0,0 +1,173 @@
+package cs2030.bench;
+
+import cs2030.simulator.Checkpoint;
+import cs2030.simulator.SimState;
+import cs2030.simulator.Simulator;
+import cs2030.util.Distribution;
+import cs2030.util.EventList;
+import cs2030.util.RandomStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Checks that a {@code Checkpoint} round-trips a run: a run saved part
+ * way and read back simulates the rest as the run saved does.  Each
+ * round runs a shop on each kind of event list with arrivals from each
+ * kind of source, as {@code CheckRound} makes them, saves it half way and
+ * runs it to the end.  The checkpoint is read back into each kind of
+ * list, with a new stream of service times and a new arrival source, and
+ * run to three quarters of the way, saved again, read back and run to
+ * the end.  The log of each resumed run, and the statistics at the end,
+ * must be those of the run saved.  A checkpoint read with service times
+ * of another distribution or seed must be refused.
+ *
+ * <p>Prints one line and exits with status 1 at the first disagreement.
+ *
+ * <p>Usage: {@code java cs2030.bench.CheckpointCheck [rounds] [arrivals]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class CheckpointCheck {
+  /**
+   * Run the check.
+   *
+   * @param args Optionally the number of rounds and the number of
+   *     arrivals in each.
+   * @throws IOException if the arrival or checkpoint files cannot be
+   *     written or read.
+   */
+  public static void main(String[] args) throws IOException {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    int n = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    Path dir = Files.createTempDirectory("checkpointcheck");
+    Path path = dir.resolve("checkpoint");
+    String failure = null;
+    try {
+      for (int seed = 0; seed < rounds && failure == null; seed++) {
+        try (CheckRound round = new CheckRound(seed, n, dir)) {
+          failure = check(round, path);
+        }
+        if (failure != null) {
+          failure = "round " + seed + ": " + failure;
+        }
+      }
+    } finally {
+      Files.deleteIfExists(path);
+      Files.deleteIfExists(againPath(path));
+      Files.delete(dir);
+    }
+    if (failure != null) {
+      System.out.println("Checkpoints differ in " + failure);
+      System.exit(1);
+    }
+    System.out.printf("Checkpoints agree: %d rounds of %d arrivals on %s, from %s\n", rounds,
+        n, String.join(", ", CheckRound.KINDS), String.join(", ", CheckRound.SOURCES));
+  }
+
+  /**
+   * Run one round on every kind of list and source.
+   *
+   * @param round The round.
+   * @param path The checkpoint file.
+   * @return A description of the first disagreement, or null if none.
+   * @throws IOException if a file cannot be written or read.
+   */
+  private static String check(CheckRound round, Path path) throws IOException {
+    for (String source : CheckRound.SOURCES) {
+      for (String kind : CheckRound.KINDS) {
+        String failure = check(round, kind, source, path);
+        if (failure != null) {
+          return kind + ", " + source + ": " + failure;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Save one shop half way, and compare runs read back into each kind of
+   * list with the run saved.
+   *
+   * @param round The round.
+   * @param kind The kind of event list saved from.
+   * @param source The kind of arrival source.
+   * @param path The checkpoint file, and the stem of the one saved again.
+   * @return A description of the first disagreement, or null if none.
+   * @throws IOException if a file cannot be written or read.
+   */
+  private static String check(CheckRound round, String kind, String source, Path path)
+      throws IOException {
+    Path againPath = againPath(path);
+    CheckRound.Recorder log = new CheckRound.Recorder();
+    Simulator saved = round.simulator(kind, source, log);
+    saved.runUntil(round.half());
+    Checkpoint.write(saved.state, path);
+    int mark = log.lines.length();
+    saved.run();
+    String full = log.lines.toString();
+    String stats = saved.state.toString();
+    String percentiles = saved.state.waitingTimePercentiles();
+    if (mark == 0 || mark == full.length()) {
+      return "the checkpoint was not half way";
+    }
+
+    for (String readKind : CheckRound.KINDS) {
+      CheckRound.Recorder resumedLog = new CheckRound.Recorder();
+      Simulator resumed = new Simulator(Checkpoint.read(path, round.serviceTimes(),
+          EventList.create(readKind), resumedLog, round.source(source)));
+      resumed.runUntil(round.half() * 1.5);
+      Checkpoint.write(resumed.state, againPath);
+      int secondMark = resumedLog.lines.length();
+      resumed.run();
+      CheckRound.Recorder againLog = new CheckRound.Recorder();
+      SimState again = new Simulator(Checkpoint.read(againPath, round.serviceTimes(),
+          EventList.create(readKind), againLog, round.source(source))).run();
+
+      String name = "read into " + readKind + ", ";
+      if (!resumedLog.lines.toString().equals(full.substring(mark))) {
+        return name + "the resumed run logs differently";
+      }
+      if (!againLog.lines.toString().equals(full.substring(mark + secondMark))) {
+        return name + "the run resumed twice logs differently";
+      }
+      for (SimState state : new SimState[] {resumed.state, again}) {
+        if (!state.toString().equals(stats)) {
+          return name + "a resumed run ends with " + state + ", expected " + stats;
+        }
+        if (!state.waitingTimePercentiles().equals(percentiles)) {
+          return name + "a resumed run has waiting times " + state.waitingTimePercentiles()
+              + ", expected " + percentiles;
+        }
+      }
+    }
+
+    RandomStream[] others = {
+        new RandomStream(Distribution.parse("exponential:1.1"), round.serviceTimes().seed(),
+            RandomStream.SERVICE_TIMES),
+        new RandomStream(Distribution.parse("exponential:1"), round.serviceTimes().seed() + 1,
+            RandomStream.SERVICE_TIMES)};
+    for (RandomStream other : others) {
+      try {
+        Checkpoint.read(path, other, EventList.create(kind), new CheckRound.Recorder(),
+            round.source(source));
+        return "a checkpoint was read with service times " + other.distribution()
+            + " and seed " + other.seed();
+      } catch (IllegalArgumentException expected) {
+        // Refused, as it should be.
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Return the file a resumed run is saved to again.
+   *
+   * @param path The file of the first checkpoint.
+   * @return The file.
+   */
+  private static Path againPath(Path path) {
+    return path.resolveSibling(path.getFileName() + ".again");
+  }
+}
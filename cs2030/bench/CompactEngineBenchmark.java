@@ -0,0 +1,105 @@
+package cs2030.bench;
+
+import cs2030.simulator.CompactSimulator;
+import cs2030.simulator.QuietLogSink;
+import cs2030.simulator.Simulator;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Compares {@code Simulator} with {@code CompactSimulator} on a large
+ * arrival set loaded up front, as {@code LabFourA} loads a file: the heap
+ * each one holds per customer once loaded, and the time each takes to
+ * run.  The shop has 100 servers loaded to 90%, and nothing is logged.
+ * The two must print the same statistics.
+ *
+ * <p>Usage: {@code java cs2030.bench.CompactEngineBenchmark [numOfArrivals]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class CompactEngineBenchmark {
+  /** Number of servers in the shop. */
+  private static final int NUM_OF_SERVERS = 100;
+
+  /** Arrival rate; the shop is loaded to 90%. */
+  private static final double RATE = 90;
+
+  /**
+   * Run the benchmark and print one row per engine.
+   *
+   * @param args Optional number of arrivals.
+   */
+  public static void main(String[] args) {
+    int numOfArrivals = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+    System.out.printf("%-18s %12s %14s %10s %14s\n", "engine", "heap", "per customer",
+        "run", "per arrival");
+
+    long before = usedHeap();
+    Simulator sim = Simulator.builder(NUM_OF_SERVERS).log(QuietLogSink.INSTANCE).build();
+    double[] times = arrivalTimes(numOfArrivals);
+    for (double time : times) {
+      sim.state = sim.state.addArrival(time);
+    }
+    times = null;
+    long bytes = usedHeap() - before;
+    long start = System.nanoTime();
+    String expected = sim.run().toString();
+    print("Simulator", bytes, numOfArrivals, System.nanoTime() - start);
+    sim = null;
+
+    before = usedHeap();
+    CompactSimulator compact = new CompactSimulator(NUM_OF_SERVERS, QuietLogSink.INSTANCE,
+        arrivalTimes(numOfArrivals));
+    bytes = usedHeap() - before;
+    start = System.nanoTime();
+    String result = compact.run().toString();
+    print("CompactSimulator", bytes, numOfArrivals, System.nanoTime() - start);
+
+    if (!expected.equals(result)) {
+      System.out.println("Statistics differ: " + expected + " and " + result);
+    }
+  }
+
+  /**
+   * Return sorted Poisson arrival times.
+   *
+   * @param numOfArrivals Number of arrival times.
+   * @return The arrival times.
+   */
+  private static double[] arrivalTimes(int numOfArrivals) {
+    SplittableRandom random = new SplittableRandom(2030);
+    double[] times = new double[numOfArrivals];
+    double time = 0;
+    for (int i = 0; i < numOfArrivals; i++) {
+      time += -Math.log(1 - random.nextDouble()) / RATE;
+      times[i] = time;
+    }
+    return times;
+  }
+
+  /**
+   * Collect garbage and return the heap in use.
+   *
+   * @return Bytes of heap in use.
+   */
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * Print one row of the results.
+   *
+   * @param engine The name of the engine.
+   * @param bytes Heap held after loading.
+   * @param numOfArrivals Number of arrivals.
+   * @param nanos Time taken to run.
+   */
+  private static void print(String engine, long bytes, int numOfArrivals, long nanos) {
+    System.out.printf("%-18s %9.1f MB %12.1f B %8.3f s %11.1f ns\n", engine, bytes / 1e6,
+        (double) bytes / numOfArrivals, nanos / 1e9, (double) nanos / numOfArrivals);
+  }
+}
@@ -0,0 +1,127 @@
+package cs2030.bench;
+
+import cs2030.simulator.Event;
+import cs2030.util.EventHeap;
+import cs2030.util.Pair;
+import cs2030.util.PriorityQueue;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Compares the primitive {@code EventHeap} against the persistent
+ * {@code cs2030.util.PriorityQueue} and against a copy of
+ * {@code java.util.PriorityQueue} on every add, which is what
+ * {@code SimState} used to do.  For each size, n random timestamps are
+ * added and then all polled.  The copying queue is quadratic, so it is
+ * only run up to a size limit.
+ *
+ * <p>Usage: {@code java cs2030.bench.EventHeapBenchmark [maxCopySize]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class EventHeapBenchmark {
+  /** Number of untimed rounds run before measuring. */
+  private static final int WARMUP_ROUNDS = 3;
+
+  /**
+   * Run the benchmark for n = 10^4 to 10^7 and print one row per size.
+   *
+   * @param args Optional largest size to run the copying queue at.
+   */
+  public static void main(String[] args) {
+    int maxCopySize = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      runHeap(times(10000));
+      runPersistent(times(10000));
+      runCopying(times(2000));
+    }
+
+    System.out.printf("%10s %14s %14s %14s\n", "n", "EventHeap", "persistent", "copy-on-add");
+    for (int n = 10000; n <= 10000000; n *= 10) {
+      double[] t = times(n);
+      double heap = nsPerOp(n, () -> runHeap(t));
+      double persistent = nsPerOp(n, () -> runPersistent(t));
+      String copy = n <= maxCopySize
+          ? String.format("%11.1f ns", nsPerOp(n, () -> runCopying(t)))
+          : "skipped";
+      System.out.printf("%10d %11.1f ns %11.1f ns %14s\n", n, heap, persistent, copy);
+    }
+  }
+
+  /**
+   * Generate n random timestamps with a fixed seed.
+   *
+   * @param n Number of timestamps.
+   * @return The timestamps.
+   */
+  private static double[] times(int n) {
+    Random random = new Random(2030);
+    double[] t = new double[n];
+    for (int i = 0; i < n; i++) {
+      t[i] = random.nextDouble() * n;
+    }
+    return t;
+  }
+
+  /**
+   * Time a run and return the cost per add-and-poll.
+   *
+   * @param n Number of events in the run.
+   * @param run The run to time.
+   * @return Nanoseconds per event.
+   */
+  private static double nsPerOp(int n, Runnable run) {
+    long start = System.nanoTime();
+    run.run();
+    return (double) (System.nanoTime() - start) / n;
+  }
+
+  /**
+   * Add then poll every timestamp through an {@code EventHeap}.
+   *
+   * @param t The timestamps.
+   */
+  private static void runHeap(double[] t) {
+    EventHeap heap = new EventHeap(t.length);
+    for (int i = 0; i < t.length; i++) {
+      heap.add(t[i], i);
+    }
+    while (heap.poll() >= 0) {
+      // drain
+    }
+  }
+
+  /**
+   * Add then poll every timestamp through the persistent queue.
+   *
+   * @param t The timestamps.
+   */
+  private static void runPersistent(double[] t) {
+    PriorityQueue<Event> pq = new PriorityQueue<>();
+    for (int i = 0; i < t.length; i++) {
+      pq = pq.add(new Event(t[i], s -> s));
+    }
+    Pair<Optional<Event>, PriorityQueue<Event>> p = pq.poll();
+    while (p.first.isPresent()) {
+      p = p.second.poll();
+    }
+  }
+
+  /**
+   * Add then poll every timestamp through a {@code java.util.PriorityQueue}
+   * that is copied on every add, the way {@code SimState.addEvent} did.
+   *
+   * @param t The timestamps.
+   */
+  private static void runCopying(double[] t) {
+    java.util.PriorityQueue<Event> pq = new java.util.PriorityQueue<>();
+    for (int i = 0; i < t.length; i++) {
+      pq.add(new Event(t[i], s -> s));
+      pq = new java.util.PriorityQueue<>(pq);
+    }
+    while (pq.poll() != null) {
+      // drain
+    }
+  }
+}
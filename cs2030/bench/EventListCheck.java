@@ -0,0 +1,138 @@
+package cs2030.bench;
+
+import cs2030.util.EventList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that {@code EventHeap}, {@code CalendarQueue} and
+ * {@code PersistentEventList} hand out the same entries in the same
+ * order, and the order a plain {@code java.util.PriorityQueue} of
+ * (time, rank, insertion) gives.  Each round makes one list of each
+ * kind and applies the same random operations to all of them: adds at
+ * times on a coarse grid, so that many entries tie, with random ranks;
+ * polls and peeks, as a simulation does, never adding before the last
+ * time polled; copies, after which the original is changed and must not
+ * affect the copy; and restores of every entry into a list of another
+ * kind.  Every result is compared, and the lists are drained at the end.
+ *
+ * <p>Prints one line and exits with status 1 at the first disagreement.
+ *
+ * <p>Usage: {@code java cs2030.bench.EventListCheck [rounds] [operations]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class EventListCheck {
+  /** The kinds of list checked, as {@code EventList.create} takes them. */
+  private static final String[] KINDS = {"heap", "calendar", "persistent"};
+
+  /** Orders the expected entries by time, rank, then insertion. */
+  private static final Comparator<double[]> ORDER = Comparator
+      .<double[]>comparingDouble(e -> e[0])
+      .thenComparingDouble(e -> e[1])
+      .thenComparingDouble(e -> e[2]);
+
+  /**
+   * Run the check.
+   *
+   * @param args Optionally the number of rounds and the number of
+   *     operations in each.
+   */
+  public static void main(String[] args) {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+    int operations = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+    long checked = 0;
+    for (int seed = 0; seed < rounds; seed++) {
+      String failure = check(seed, operations);
+      if (failure != null) {
+        System.out.println("Event lists differ in round " + seed + ": " + failure);
+        System.exit(1);
+      }
+      checked += operations;
+    }
+    System.out.printf("Event lists agree: %d rounds, %d operations on %s\n", rounds,
+        checked, String.join(", ", KINDS));
+  }
+
+  /**
+   * Run one round of random operations on a list of each kind.
+   *
+   * @param seed The seed of the operations.
+   * @param operations The number of operations.
+   * @return A description of the first disagreement, or null if none.
+   */
+  private static String check(long seed, int operations) {
+    SplittableRandom random = new SplittableRandom(seed);
+    EventList[] lists = new EventList[KINDS.length];
+    for (int i = 0; i < lists.length; i++) {
+      lists[i] = EventList.create(KINDS[i]);
+    }
+    PriorityQueue<double[]> expected = new PriorityQueue<>(ORDER);
+    // The grid the times are drawn on; the wider it is, the fewer ties.
+    double grid = seed % 2 == 0 ? 0.5 : 1e-3;
+    double now = 0;
+    int nextHandle = 0;
+    for (int op = 0; op < operations; op++) {
+      int kind = random.nextInt(100);
+      if (kind < 50 || expected.isEmpty()) {
+        double time = now + grid * (random.nextInt(10) == 0
+            ? random.nextInt(10000) : random.nextInt(20));
+        int rank = random.nextInt(10) == 0 ? EventList.MAX_RANK : random.nextInt(4);
+        int handle = nextHandle++;
+        for (EventList list : lists) {
+          list.add(time, handle, rank);
+        }
+        expected.add(new double[] {time, rank, handle, handle});
+      } else if (kind < 95) {
+        double[] first = expected.poll();
+        now = first[0];
+        for (int i = 0; i < lists.length; i++) {
+          double time = lists[i].peekTime();
+          int peeked = lists[i].peek();
+          int handle = lists[i].poll();
+          if (time != first[0] || peeked != handle || handle != (int) first[3]) {
+            return String.format("%s polled %d at %s, expected %d at %s", KINDS[i], handle,
+                time, (int) first[3], first[0]);
+          }
+        }
+      } else if (kind < 98) {
+        for (int i = 0; i < lists.length; i++) {
+          EventList copy = lists[i].copy();
+          // Changing the original must leave the copy as it was.
+          lists[i].add(now, nextHandle, 0);
+          lists[i].poll();
+          lists[i] = copy;
+        }
+      } else {
+        for (int i = 0; i < lists.length; i++) {
+          EventList restored = EventList.create(KINDS[(i + 1) % KINDS.length]);
+          lists[i].forEach(restored::restore);
+          lists[i] = restored;
+        }
+      }
+      for (int i = 0; i < lists.length; i++) {
+        if (lists[i].size() != expected.size()) {
+          return String.format("%s holds %d entries, expected %d", KINDS[i],
+              lists[i].size(), expected.size());
+        }
+      }
+    }
+    int[] drained = new int[expected.size()];
+    for (int k = 0; k < drained.length; k++) {
+      drained[k] = (int) expected.poll()[3];
+    }
+    for (int i = 0; i < lists.length; i++) {
+      int[] handles = new int[drained.length];
+      for (int k = 0; k < handles.length; k++) {
+        handles[k] = lists[i].poll();
+      }
+      if (!Arrays.equals(handles, drained) || !lists[i].isEmpty()) {
+        return KINDS[i] + " drained in a different order";
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,114 @@
+package cs2030.bench;
+
+import cs2030.util.ArrivalReader;
+import cs2030.util.ExternalSorter;
+import cs2030.util.SortedRuns;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Measures how fast {@code ExternalSorter} sorts an arrival file in any
+ * order, against reading it all into an array and sorting that.  The
+ * file is sorted within a budget far smaller than the array, on 1, 2,
+ * 4, ... threads up to the number of cores, and each time the sorted
+ * stream is read to its end and must hold every time, in order.
+ *
+ * <p>Usage: {@code java cs2030.bench.ExternalSortBenchmark [arrivals]
+ * [budget MB]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ExternalSortBenchmark {
+  /**
+   * Run the benchmark and print one row per number of threads.
+   *
+   * @param args Optionally the number of arrivals and the budget in
+   *     megabytes.
+   * @throws IOException if the file or the runs cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+    long memory = (args.length > 1 ? Long.parseLong(args[1]) : 16) << 20;
+    int cores = Runtime.getRuntime().availableProcessors();
+    Path input = Files.createTempFile("arrivals", ".txt");
+    try {
+      writeInput(input, n);
+
+      long start = System.nanoTime();
+      double[] times = new double[n];
+      try (ArrivalReader reader = new ArrivalReader(input)) {
+        reader.nextInt();
+        for (int i = 0; i < n; i++) {
+          times[i] = reader.nextDouble();
+        }
+      }
+      Arrays.sort(times);
+      double base = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%-24s %8.3f s, %d MB of arrays\n", "in memory", base,
+          (long) n * Double.BYTES >> 20);
+
+      for (int threads = 1; threads <= cores; threads *= 2) {
+        ExternalSorter sorter = new ExternalSorter(memory, threads, input.getParent());
+        start = System.nanoTime();
+        long count = 0;
+        boolean ordered = true;
+        int numOfRuns;
+        try (ArrivalReader reader = new ArrivalReader(input);
+            SortedRuns runs = sorter.sort(skipServers(reader))) {
+          numOfRuns = runs.numOfRuns();
+          while (runs.hasNext()) {
+            double time = runs.next();
+            ordered &= count < n && time == times[(int) count];
+            count++;
+          }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (!ordered || count != n) {
+          System.out.println("Sorted stream differs on " + threads + " threads");
+        }
+        System.out.printf("%-24s %8.3f s, %d MB budget, chunks of %d, %d runs left,"
+            + " merged %d at a time\n",
+            "external, " + sorter.threads() + (sorter.threads() == 1 ? " thread" : " threads"),
+            seconds, memory >> 20, sorter.chunkSize(), numOfRuns, sorter.fanIn());
+      }
+    } finally {
+      Files.delete(input);
+    }
+  }
+
+  /**
+   * Read the number of servers, so that the reader is at the first
+   * arrival.
+   *
+   * @param reader The reader.
+   * @return The reader.
+   * @throws IOException if the number cannot be read.
+   */
+  private static ArrivalReader skipServers(ArrivalReader reader) throws IOException {
+    reader.nextInt();
+    return reader;
+  }
+
+  /**
+   * Write an arrival file with the times of a day of arrivals in random
+   * order.
+   *
+   * @param path The file.
+   * @param n The number of arrivals.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void writeInput(Path path, int n) throws IOException {
+    SplittableRandom random = new SplittableRandom(2030);
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+      out.println(10);
+      for (int i = 0; i < n; i++) {
+        out.printf("%.4f\n", random.nextDouble() * 86400);
+      }
+    }
+  }
+}
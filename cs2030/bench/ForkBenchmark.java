@@ -0,0 +1,116 @@
+package cs2030.bench;
+
+import cs2030.simulator.Intervention;
+import cs2030.simulator.QuietLogSink;
+import cs2030.simulator.Simulator;
+import cs2030.simulator.WhatIfReport;
+import cs2030.util.EventList;
+import cs2030.util.ExponentialDistribution;
+import cs2030.util.RandomStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how long forking a {@code SimState} takes, and how much
+ * running what-if branches in parallel saves.  The shop holds every
+ * arrival up front and is run to half way, so half the arrivals are
+ * still pending when it is forked.  A state on a
+ * {@code PersistentEventList} shares those events with its forks; one on
+ * an {@code EventHeap} copies them.  The branches are then run to the
+ * end on one thread and on every core, and must report the same.
+ *
+ * <p>Usage: {@code java cs2030.bench.ForkBenchmark [arrivals]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ForkBenchmark {
+  /** Number of servers in the shop. */
+  private static final int NUM_OF_SERVERS = 100;
+
+  /** Arrival rate, which loads the servers to 95%. */
+  private static final double RATE = 0.95 * NUM_OF_SERVERS;
+
+  /** The interventions tried from the fork. */
+  private static final List<Intervention> INTERVENTIONS = List.of(
+      Intervention.addServers(2),
+      Intervention.removeServers(1),
+      Intervention.serviceTime(new ExponentialDistribution(1.1)),
+      Intervention.addServers(2).and(
+          Intervention.serviceTime(new ExponentialDistribution(0.9))));
+
+  /**
+   * Run the benchmark and print the times.
+   *
+   * @param args Optional number of arrivals.
+   */
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (String kind : new String[] {"persistent", "heap"}) {
+      Simulator simulator = halfWay(kind, n);
+      int forks = kind.equals("persistent") ? 100000 : 50;
+      for (int i = 0; i < forks; i++) {
+        simulator.state.fork(QuietLogSink.INSTANCE);
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < forks; i++) {
+        simulator.state.fork(QuietLogSink.INSTANCE);
+      }
+      double micros = (System.nanoTime() - start) / 1e3 / forks;
+      System.out.printf("%-10s fork with about %d events pending: %10.2f us\n", kind,
+          n - n / 2, micros);
+    }
+
+    Simulator simulator = halfWay("persistent", n);
+    WhatIfReport expected = null;
+    double base = 0;
+    for (int threads : cores > 1 ? new int[] {1, cores} : new int[] {1}) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        long start = System.nanoTime();
+        WhatIfReport report = simulator.fork(INTERVENTIONS, Double.POSITIVE_INFINITY, pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (expected == null) {
+          expected = report;
+          base = seconds;
+        } else if (!expected.toString().equals(report.toString())) {
+          System.out.println("Report differs on " + threads + " threads");
+        }
+        System.out.printf("%d branches on %d threads: %.3f s, %.2fx\n",
+            report.numOfBranches(), threads, seconds, base / seconds);
+      } finally {
+        pool.shutdown();
+      }
+    }
+    System.out.println(expected);
+  }
+
+  /**
+   * Create a shop with n arrivals, and run it to the time of arrival
+   * n / 2.
+   *
+   * @param kind The kind of event list.
+   * @param n The number of arrivals.
+   * @return The simulator, half way.
+   */
+  private static Simulator halfWay(String kind, int n) {
+    Simulator simulator = Simulator.builder(NUM_OF_SERVERS)
+        .serviceTimes(new RandomStream(new ExponentialDistribution(1), 2030,
+            RandomStream.SERVICE_TIMES))
+        .eventList(EventList.create(kind)).log(QuietLogSink.INSTANCE).build();
+    RandomStream gaps = new RandomStream(new ExponentialDistribution(RATE), 2030,
+        RandomStream.ARRIVALS);
+    double time = 0;
+    double half = 0;
+    for (int i = 0; i < n; i++) {
+      time += gaps.next();
+      simulator.state.addArrival(time);
+      if (i == n / 2) {
+        half = time;
+      }
+    }
+    simulator.runUntil(half);
+    return simulator;
+  }
+}
@@ -0,0 +1,184 @@
+package cs2030.bench;
+
+import cs2030.simulator.Intervention;
+import cs2030.simulator.QuietLogSink;
+import cs2030.simulator.ReaderArrivalSource;
+import cs2030.simulator.Simulator;
+import cs2030.util.ArrivalReader;
+import cs2030.util.ExponentialDistribution;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that a forked {@code SimState} simulates the same events as the
+ * state it was forked from, and as a run never forked.  Each round runs
+ * a shop on each kind of event list with arrivals from each kind of
+ * source, as {@code CheckRound} makes them.  The shop is run half way and
+ * forked; the original and the fork are then run to the end, and the log
+ * of each, from the fork on, and their statistics must be those of the
+ * run never forked.  The what-if branches of {@code Simulator.fork} must
+ * report the same on every kind of list, and the simulator must carry on
+ * as if it had not forked.  A state fed from a stream must refuse to
+ * fork.
+ *
+ * <p>Prints one line and exits with status 1 at the first disagreement.
+ *
+ * <p>Usage: {@code java cs2030.bench.ForkCheck [rounds] [arrivals]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ForkCheck {
+  /** The interventions tried by {@code Simulator.fork}. */
+  private static final List<Intervention> INTERVENTIONS = List.of(
+      Intervention.addServers(1),
+      Intervention.removeServers(1),
+      Intervention.serviceTime(new ExponentialDistribution(1.2)));
+
+  /**
+   * Run the check.
+   *
+   * @param args Optionally the number of rounds and the number of
+   *     arrivals in each.
+   * @throws IOException if the arrival files cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    int n = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    String failure = checkStream();
+    if (failure != null) {
+      System.out.println("Forks differ: " + failure);
+      System.exit(1);
+    }
+    Path dir = Files.createTempDirectory("forkcheck");
+    try {
+      for (int seed = 0; seed < rounds && failure == null; seed++) {
+        try (CheckRound round = new CheckRound(seed, n, dir)) {
+          failure = check(round);
+        }
+        if (failure != null) {
+          failure = "round " + seed + ": " + failure;
+        }
+      }
+    } finally {
+      Files.delete(dir);
+    }
+    if (failure != null) {
+      System.out.println("Forks differ in " + failure);
+      System.exit(1);
+    }
+    System.out.printf("Forks agree: %d rounds of %d arrivals on %s, from %s\n", rounds, n,
+        String.join(", ", CheckRound.KINDS), String.join(", ", CheckRound.SOURCES));
+  }
+
+  /**
+   * Check that a state reading arrivals from a stream refuses to fork.
+   *
+   * @return A description of the failure, or null if none.
+   */
+  private static String checkStream() {
+    byte[] input = "1.0\n2.0\n3.0\n".getBytes(StandardCharsets.UTF_8);
+    Simulator simulator = Simulator.builder(1).log(QuietLogSink.INSTANCE)
+        .arrivals(new ReaderArrivalSource(
+            new ArrivalReader(new ByteArrayInputStream(input), "stream")))
+        .build();
+    simulator.runUntil(1.5);
+    try {
+      simulator.state.fork(QuietLogSink.INSTANCE);
+    } catch (IllegalStateException expected) {
+      return null;
+    }
+    return "a state reading a stream was forked";
+  }
+
+  /**
+   * Run one round on every kind of list and source.
+   *
+   * @param round The round.
+   * @return A description of the first disagreement, or null if none.
+   * @throws IOException if an arrival file cannot be read.
+   */
+  private static String check(CheckRound round) throws IOException {
+    double half = round.half();
+    for (String source : CheckRound.SOURCES) {
+      String report = null;
+      for (String kind : CheckRound.KINDS) {
+        String failure = check(round, kind, source);
+        if (failure != null) {
+          return kind + ", " + source + ": " + failure;
+        }
+        Simulator simulator = round.simulator(kind, source, QuietLogSink.INSTANCE);
+        simulator.runUntil(half);
+        String branches = simulator.fork(INTERVENTIONS, half * 1.5, ForkJoinPool.commonPool())
+            .toString();
+        if (report != null && !report.equals(branches)) {
+          return kind + ", " + source + ": what-if report differs from "
+              + CheckRound.KINDS[0] + "'s:\n" + branches + "\nagainst\n" + report;
+        }
+        report = branches;
+        String carriedOn = simulator.run().toString();
+        String expected = round.simulator(kind, source, QuietLogSink.INSTANCE).run()
+            .toString();
+        if (!carriedOn.equals(expected)) {
+          return kind + ", " + source + ": run after the what-if branches ends with "
+              + carriedOn + ", expected " + expected;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Fork one shop half way, and compare the original and the fork with
+   * a run never forked.
+   *
+   * @param round The round.
+   * @param kind The kind of event list.
+   * @param source The kind of arrival source.
+   * @return A description of the first disagreement, or null if none.
+   * @throws IOException if an arrival file cannot be read.
+   */
+  private static String check(CheckRound round, String kind, String source)
+      throws IOException {
+    CheckRound.Recorder expected = new CheckRound.Recorder();
+    Simulator reference = round.simulator(kind, source, expected);
+    String stats = reference.run().toString();
+    String percentiles = reference.state.waitingTimePercentiles();
+
+    CheckRound.Recorder log = new CheckRound.Recorder();
+    Simulator original = round.simulator(kind, source, log);
+    original.runUntil(round.half());
+    int mark = log.lines.length();
+    CheckRound.Recorder forkLog = new CheckRound.Recorder();
+    Simulator fork = new Simulator(original.state.fork(forkLog));
+    original.run();
+    fork.run();
+
+    String full = expected.lines.toString();
+    if (mark == 0 || mark == full.length()) {
+      return "the fork was not half way";
+    }
+    if (!log.lines.toString().equals(full)) {
+      return "the original logs differently once forked";
+    }
+    if (!forkLog.lines.toString().equals(full.substring(mark))) {
+      return "the fork logs differently";
+    }
+    for (Simulator simulator : new Simulator[] {original, fork}) {
+      String name = simulator == fork ? "fork" : "original";
+      if (!simulator.state.toString().equals(stats)) {
+        return "the " + name + " ends with " + simulator.state + ", expected " + stats;
+      }
+      if (!simulator.state.waitingTimePercentiles().equals(percentiles)) {
+        return "the " + name + " has waiting times "
+            + simulator.state.waitingTimePercentiles() + ", expected " + percentiles;
+      }
+    }
+    return null;
+  }
+}
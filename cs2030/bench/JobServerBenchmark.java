@@ -0,0 +1,183 @@
+package cs2030.bench;
+
+import cs2030.simulator.JobServer;
+import cs2030.util.ExponentialDistribution;
+import cs2030.util.RandomStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures how many jobs a second a {@code JobServer} runs, against
+ * starting {@code LabFourA} in a new JVM for each, as tools that shell
+ * out to it do.  Every job is the same small shop, run quietly; the
+ * server is sent them from twice as many clients as there are cores,
+ * once naming the input file and once sending the arrivals over the
+ * connection, after as many jobs again to warm it up.  Every job must
+ * print the same statistics as the process does.
+ *
+ * <p>Usage: {@code java cs2030.bench.JobServerBenchmark [arrivals]
+ * [jobs] [processes]}, with {@code LabFourA} on the class path.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class JobServerBenchmark {
+  /** Number of servers in the shop. */
+  private static final int NUM_OF_SERVERS = 10;
+
+  /** Arrival rate; the shop is loaded to 90%. */
+  private static final double RATE = 9;
+
+  /**
+   * Run the benchmark and print the rates.
+   *
+   * @param args Optionally the number of arrivals per job, the number of
+   *     jobs sent to the server and the number of processes started.
+   * @throws Exception if a process or connection fails.
+   */
+  public static void main(String[] args) throws Exception {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    int numOfJobs = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    int numOfProcesses = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    int cores = Runtime.getRuntime().availableProcessors();
+    Path input = Files.createTempFile("jobs", ".txt");
+    try {
+      writeInput(input, n);
+      byte[] body = Files.readAllBytes(input);
+
+      String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+      ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+          System.getProperty("java.class.path"), "LabFourA", "--log=quiet",
+          input.toString()).redirectErrorStream(true);
+      String expected = null;
+      long start = System.nanoTime();
+      for (int i = 0; i < numOfProcesses; i++) {
+        Process process = builder.start();
+        String output = new String(process.getInputStream().readAllBytes(),
+            StandardCharsets.UTF_8).trim();
+        process.waitFor();
+        if (expected == null) {
+          expected = output;
+        } else if (!expected.equals(output)) {
+          System.out.println("Process printed " + output);
+        }
+      }
+      double base = numOfProcesses / ((System.nanoTime() - start) / 1e9);
+      System.out.printf("%-22s %10.1f jobs/s\n", "process per job", base);
+
+      int clients = 2 * cores;
+      try (JobServer server = new JobServer(0, cores, clients, 60000).start()) {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+          for (boolean inline : new boolean[] {false, true}) {
+            String command = "RUN --log=quiet" + (inline ? "" : " " + input);
+            byte[] sent = inline ? body : null;
+            send(pool, server.port(), command, sent, numOfJobs, expected);
+            start = System.nanoTime();
+            send(pool, server.port(), command, sent, numOfJobs, expected);
+            double rate = numOfJobs / ((System.nanoTime() - start) / 1e9);
+            System.out.printf("%-22s %10.1f jobs/s %8.1fx\n",
+                inline ? "server, inline input" : "server, input file", rate, rate / base);
+          }
+        } finally {
+          pool.shutdown();
+        }
+      }
+      System.out.println(expected);
+    } finally {
+      Files.delete(input);
+    }
+  }
+
+  /**
+   * Write the input of a shop with Poisson arrivals.
+   *
+   * @param path The file.
+   * @param n The number of arrivals.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void writeInput(Path path, int n) throws IOException {
+    RandomStream gaps = new RandomStream(new ExponentialDistribution(RATE), 2030,
+        RandomStream.ARRIVALS);
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+      out.println(NUM_OF_SERVERS);
+      double time = 0;
+      for (int i = 0; i < n; i++) {
+        time += gaps.next();
+        out.printf("%.3f\n", time);
+      }
+    }
+  }
+
+  /**
+   * Send jobs to the server from the threads of a pool and wait for them
+   * all, checking what each prints.
+   *
+   * @param pool The pool of clients.
+   * @param port The port of the server.
+   * @param command The command line of each job.
+   * @param body The input sent after the command, or null.
+   * @param numOfJobs The number of jobs.
+   * @param expected What each job must print.
+   * @throws Exception if a connection fails.
+   */
+  private static void send(ExecutorService pool, int port, String command, byte[] body,
+      int numOfJobs, String expected) throws Exception {
+    List<Callable<String>> jobs = new ArrayList<>();
+    for (int i = 0; i < numOfJobs; i++) {
+      jobs.add(() -> submit(port, command, body));
+    }
+    for (Future<String> job : pool.invokeAll(jobs)) {
+      String printed;
+      try {
+        printed = job.get();
+      } catch (ExecutionException exception) {
+        throw (Exception) exception.getCause();
+      }
+      if (!expected.equals(printed)) {
+        System.out.println("Server printed " + printed);
+      }
+    }
+  }
+
+  /**
+   * Submit a job and return what it printed, between the line with its
+   * id and the line saying it is done.
+   *
+   * @param port The port of the server.
+   * @param command The command line.
+   * @param body The input sent after the command, or null.
+   * @return The output of the job, or the whole answer if it failed.
+   * @throws IOException if the connection fails.
+   */
+  private static String submit(int port, String command, byte[] body) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      OutputStream out = socket.getOutputStream();
+      out.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+      if (body != null) {
+        out.write(body);
+      }
+      socket.shutdownOutput();
+      String answer = new String(socket.getInputStream().readAllBytes(),
+          StandardCharsets.UTF_8).trim();
+      if (!answer.startsWith("JOB ") || !answer.contains("\nDONE ")) {
+        return answer;
+      }
+      return answer.substring(answer.indexOf('\n') + 1, answer.lastIndexOf('\n'));
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package cs2030.bench;
+
+import cs2030.simulator.Network;
+import cs2030.simulator.NetworkReport;
+import cs2030.simulator.QueuePolicy;
+import cs2030.util.Distribution;
+import cs2030.util.ExponentialDistribution;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the speedup of running a {@code Network} in parallel over
+ * running it sequentially.  The network is a ring of stations, each
+ * with Poisson arrivals from outside; a customer done at a station goes
+ * on to the next with chance one half.  The ring is run sequentially,
+ * then in 1, 2, 4, ... partitions up to the number of stations, each on a
+ * pool of as many threads as partitions, up to the number of cores.  The
+ * reports must be the same for every run.  One sequential run is made
+ * first to warm up.
+ *
+ * <p>Usage: {@code java cs2030.bench.NetworkBenchmark [stations]
+ * [arrivals]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class NetworkBenchmark {
+  /** Number of servers at each station. */
+  private static final int NUM_OF_SERVERS = 200;
+
+  /** Service times, from 1 to 3 with mean 2, which gives a lookahead of 1. */
+  private static final Distribution SERVICE_TIME = Distribution.parse("empirical:1,2,3");
+
+  /** Arrival rate from outside; with the customers routed, stations are 90% loaded. */
+  private static final double RATE = 0.9 * NUM_OF_SERVERS / 4;
+
+  /**
+   * Run the benchmark and print one row per run.
+   *
+   * @param args Optional number of stations and of arrivals from outside
+   *     at each station.
+   */
+  public static void main(String[] args) {
+    int numOfStations = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    long numOfArrivals = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+    int cores = Runtime.getRuntime().availableProcessors();
+    Network network = ring(numOfStations, numOfArrivals);
+
+    network.runSequential();
+    long start = System.nanoTime();
+    NetworkReport expected = network.runSequential();
+    double base = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%d stations, %d events, lookahead %.1f, %d cores\n",
+        numOfStations, expected.numOfEvents(), network.lookahead(), cores);
+    System.out.printf("%10s %8s %8s %10s %8s\n", "partitions", "threads", "windows",
+        "time", "speedup");
+    System.out.printf("%10s %8d %8s %8.3f s %7.2fx\n", "sequential", 1, "-", base, 1.0);
+    for (int partitions = 1; partitions <= numOfStations; partitions *= 2) {
+      int threads = Math.min(partitions, cores);
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        start = System.nanoTime();
+        NetworkReport report = network.runParallel(partitions, pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (!expected.equals(report)) {
+          System.out.println("Report differs on " + partitions + " partitions");
+        }
+        System.out.printf("%10d %8d %8d %8.3f s %7.2fx\n", partitions, threads,
+            report.numOfWindows(), seconds, base / seconds);
+      } finally {
+        pool.shutdown();
+      }
+    }
+    System.out.println(expected);
+  }
+
+  /**
+   * Build the ring.
+   *
+   * @param numOfStations The number of stations.
+   * @param numOfArrivals The number of arrivals from outside at each station.
+   * @return The network.
+   */
+  private static Network ring(int numOfStations, long numOfArrivals) {
+    Network network = new Network(2030);
+    for (int k = 0; k < numOfStations; k++) {
+      network.addStation(NUM_OF_SERVERS, SERVICE_TIME, QueuePolicy.DEFAULT);
+    }
+    for (int k = 0; k < numOfStations; k++) {
+      network.arrivals(k, new ExponentialDistribution(RATE), numOfArrivals)
+          .route(k, (k + 1) % numOfStations, 0.5);
+    }
+    return network;
+  }
+}
@@ -0,0 +1,289 @@
+package cs2030.bench;
+
+import cs2030.simulator.ArrivalSource;
+import cs2030.simulator.QuietLogSink;
+import cs2030.simulator.ReaderArrivalSource;
+import cs2030.simulator.ReorderingArrivalSource;
+import cs2030.simulator.Simulator;
+import cs2030.util.ArrivalReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that {@code ReorderingArrivalSource} puts arrivals back in order
+ * and drops and counts those it cannot.  Each round writes arrival times
+ * in order, each moved later by a random jitter, and reads them back:
+ * <ul>
+ * <li>with a lateness longer than the jitter and room for every arrival,
+ * when every arrival must come out in order, none dropped or released
+ * early, and a simulation fed from the source must end as one fed from
+ * the times in order does;
+ * <li>with no lateness, when each arrival is released as soon as it is
+ * read, and exactly those earlier than one read before it are dropped;
+ * <li>with an infinite lateness and a small buffer, when the arrivals
+ * released, dropped and released early must be those of a buffer of the
+ * same size kept in a {@code java.util.PriorityQueue}.
+ * </ul>
+ * Each time, a copy made part way must give the rest of the arrivals and
+ * counts as the source copied does.  A source reading a stream must not
+ * be copied.
+ *
+ * <p>Prints one line and exits with status 1 at the first disagreement.
+ *
+ * <p>Usage: {@code java cs2030.bench.ReorderCheck [rounds] [arrivals]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ReorderCheck {
+  /** The mean time between arrivals. */
+  private static final double GAP = 0.01;
+
+  /**
+   * Run the check.
+   *
+   * @param args Optionally the number of rounds and the number of
+   *     arrivals in each.
+   * @throws IOException if the arrival files cannot be written or read.
+   */
+  public static void main(String[] args) throws IOException {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int n = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+    String failure = checkStream();
+    Path sorted = Files.createTempFile("sorted", ".txt");
+    Path jittered = Files.createTempFile("jittered", ".txt");
+    try {
+      for (int seed = 0; seed < rounds && failure == null; seed++) {
+        failure = check(seed, n, sorted, jittered);
+        if (failure != null) {
+          failure = "round " + seed + ": " + failure;
+        }
+      }
+    } finally {
+      Files.delete(sorted);
+      Files.delete(jittered);
+    }
+    if (failure != null) {
+      System.out.println("Reordered arrivals differ in " + failure);
+      System.exit(1);
+    }
+    System.out.printf("Reordered arrivals agree: %d rounds of %d arrivals\n", rounds, n);
+  }
+
+  /**
+   * Check that a source reading a stream cannot be copied.
+   *
+   * @return A description of the failure, or null if none.
+   */
+  private static String checkStream() {
+    byte[] input = "2.0\n1.0\n3.0\n".getBytes(StandardCharsets.UTF_8);
+    ReorderingArrivalSource source = new ReorderingArrivalSource(
+        new ArrivalReader(new ByteArrayInputStream(input), "stream"), 1, 4);
+    source.next();
+    return source.copy().isPresent() ? "a source reading a stream was copied" : null;
+  }
+
+  /**
+   * Run one round.
+   *
+   * @param seed The seed of the arrivals and jitter.
+   * @param n The number of arrivals.
+   * @param sorted The file to write the arrivals to in order.
+   * @param jittered The file to write the jittered arrivals to.
+   * @return A description of the first disagreement, or null if none.
+   * @throws IOException if a file cannot be written or read.
+   */
+  private static String check(long seed, int n, Path sorted, Path jittered)
+      throws IOException {
+    SplittableRandom random = new SplittableRandom(seed);
+    double jitter = GAP * (1 + random.nextInt(100));
+    String[] times = new String[n];
+    double[] keys = new double[n];
+    double time = 0;
+    for (int i = 0; i < n; i++) {
+      time += random.nextDouble() * 2 * GAP;
+      times[i] = String.format("%.4f", time);
+      // Read after every arrival moved to before it, so at most the jitter late.
+      keys[i] = Double.parseDouble(times[i]) + random.nextDouble() * jitter;
+    }
+    write(sorted, times);
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b]));
+    String[] shuffled = new String[n];
+    double[] input = new double[n];
+    for (int i = 0; i < n; i++) {
+      shuffled[i] = times[order[i]];
+      input[i] = Double.parseDouble(shuffled[i]);
+    }
+    write(jittered, shuffled);
+    int split = random.nextInt(n + 1);
+
+    double[] inOrder = input.clone();
+    Arrays.sort(inOrder);
+    String failure = check("within the lateness", jittered, jitter, n + 1, split,
+        inOrder, 0, 0);
+    if (failure != null) {
+      return failure;
+    }
+    failure = checkSimulation(sorted, jittered, jitter, n + 1);
+    if (failure != null) {
+      return failure;
+    }
+
+    List<Double> kept = new ArrayList<>();
+    double last = Double.NEGATIVE_INFINITY;
+    for (double arrival : input) {
+      if (arrival >= last) {
+        kept.add(arrival);
+        last = arrival;
+      }
+    }
+    failure = check("with no lateness", jittered, 0, 1 + random.nextInt(n), split,
+        unbox(kept), n - kept.size(), 0);
+    if (failure != null) {
+      return failure;
+    }
+
+    int capacity = 1 + random.nextInt(16);
+    PriorityQueue<Double> buffer = new PriorityQueue<>();
+    List<Double> released = new ArrayList<>();
+    long numOfLate = 0;
+    long numOfEarly = 0;
+    last = Double.NEGATIVE_INFINITY;
+    for (double arrival : input) {
+      if (buffer.size() == capacity) {
+        last = buffer.poll();
+        released.add(last);
+        numOfEarly++;
+      }
+      if (arrival < last) {
+        numOfLate++;
+      } else {
+        buffer.add(arrival);
+      }
+    }
+    // A full buffer is released once more before the end of the input is seen.
+    if (buffer.size() == capacity) {
+      numOfEarly++;
+    }
+    while (!buffer.isEmpty()) {
+      released.add(buffer.poll());
+    }
+    return check("with a buffer of " + capacity, jittered, Double.POSITIVE_INFINITY,
+        capacity, split, unbox(released), numOfLate, numOfEarly);
+  }
+
+  /**
+   * Read the jittered arrivals through a reorder buffer, copying it part
+   * way, and compare the arrivals and counts of both with those expected.
+   *
+   * @param name The name of the case.
+   * @param jittered The file of jittered arrivals.
+   * @param lateness The lateness of the buffer.
+   * @param capacity The capacity of the buffer.
+   * @param split The number of arrivals taken before copying.
+   * @param expected The arrivals expected, in the order expected.
+   * @param numOfLate The number of arrivals expected to be dropped.
+   * @param numOfEarly The number of arrivals expected to be released early.
+   * @return A description of the first disagreement, or null if none.
+   * @throws IOException if the file cannot be read.
+   */
+  private static String check(String name, Path jittered, double lateness, int capacity,
+      int split, double[] expected, long numOfLate, long numOfEarly) throws IOException {
+    try (ArrivalReader reader = new ArrivalReader(jittered)) {
+      ReorderingArrivalSource source = new ReorderingArrivalSource(reader, lateness,
+          capacity);
+      double[] released = new double[expected.length];
+      int count = 0;
+      while (count < split && count < released.length && source.hasNext()) {
+        released[count++] = source.next();
+      }
+      ReorderingArrivalSource copy = (ReorderingArrivalSource) source.copy().get();
+      int from = count;
+      for (ReorderingArrivalSource each : new ReorderingArrivalSource[] {source, copy}) {
+        count = from;
+        while (each.hasNext() && count < released.length) {
+          released[count++] = each.next();
+        }
+        String which = name + (each == copy ? ", copied" : "") + ": ";
+        if (each.hasNext() || count != expected.length) {
+          return which + "released " + (each.hasNext() ? "more than " : "") + count
+              + " arrivals, expected " + expected.length;
+        }
+        if (!Arrays.equals(released, expected)) {
+          return which + "released arrivals out of the order expected";
+        }
+        if (each.numOfLate() != numOfLate || each.numOfEarly() != numOfEarly) {
+          return String.format("%sdropped %d and released %d early, expected %d and %d",
+              which, each.numOfLate(), each.numOfEarly(), numOfLate, numOfEarly);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check that a simulation fed through a reorder buffer ends as one fed
+   * from the arrivals in order.
+   *
+   * @param sorted The file of arrivals in order.
+   * @param jittered The file of jittered arrivals.
+   * @param lateness The lateness of the buffer, no less than the jitter.
+   * @param capacity The capacity of the buffer, more than the arrivals.
+   * @return A description of the disagreement, or null if none.
+   * @throws IOException if a file cannot be read.
+   */
+  private static String checkSimulation(Path sorted, Path jittered, double lateness,
+      int capacity) throws IOException {
+    String[] results = new String[2];
+    for (int i = 0; i < results.length; i++) {
+      try (ArrivalReader reader = new ArrivalReader(i == 0 ? sorted : jittered)) {
+        ArrivalSource source = i == 0 ? new ReaderArrivalSource(reader)
+            : new ReorderingArrivalSource(reader, lateness, capacity);
+        // Loaded to 95% by arrivals every GAP on average.
+        results[i] = Simulator.builder(1).serviceTime(0.95 * GAP).log(QuietLogSink.INSTANCE)
+            .arrivals(source).build().run().toString();
+      }
+    }
+    return results[0].equals(results[1]) ? null
+        : "simulation through the buffer ends with " + results[1] + ", expected " + results[0];
+  }
+
+  /**
+   * Return the values of a list as an array.
+   *
+   * @param values The list.
+   * @return The array.
+   */
+  private static double[] unbox(List<Double> values) {
+    return values.stream().mapToDouble(Double::doubleValue).toArray();
+  }
+
+  /**
+   * Write an arrival file of the given times, with no number of servers
+   * before them.
+   *
+   * @param path The file.
+   * @param times The times, as text.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void write(Path path, String[] times) throws IOException {
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+      for (String time : times) {
+        out.println(time);
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package cs2030.bench;
+
+import cs2030.simulator.PoissonArrivalSource;
+import cs2030.simulator.ReplicationReport;
+import cs2030.simulator.ReplicationRunner;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the speedup of {@code ReplicationRunner} as threads are added.
+ * The same replications are run on pools of 1, 2, 4, ... threads up to
+ * the number of cores, and each time is compared with the 1-thread time.
+ * The reports must be the same for every pool size.
+ *
+ * <p>Usage: {@code java cs2030.bench.ReplicationBenchmark [replications]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ReplicationBenchmark {
+  /** Number of servers in each replication. */
+  private static final int NUM_OF_SERVERS = 20;
+
+  /** Arrival rate; the shop is loaded to 90%. */
+  private static final double RATE = 18;
+
+  /** Number of arrivals per replication. */
+  private static final long NUM_OF_ARRIVALS = 200000;
+
+  /**
+   * Run the benchmark and print one row per pool size.
+   *
+   * @param args Optional number of replications.
+   */
+  public static void main(String[] args) {
+    int replications = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int cores = Runtime.getRuntime().availableProcessors();
+    ReplicationRunner runner = new ReplicationRunner(NUM_OF_SERVERS,
+        seed -> new PoissonArrivalSource(RATE, seed, NUM_OF_ARRIVALS));
+
+    run(runner, Math.max(cores, 1), cores);
+    String expected = null;
+    double base = 0;
+    System.out.printf("%8s %10s %8s %11s\n", "threads", "time", "speedup", "efficiency");
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      long start = System.nanoTime();
+      String report = run(runner, replications, threads).toString();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      if (expected == null) {
+        expected = report;
+        base = seconds;
+      } else if (!expected.equals(report)) {
+        System.out.println("Report differs on " + threads + " threads");
+      }
+      double speedup = base / seconds;
+      System.out.printf("%8d %8.3f s %7.2fx %10.0f%%\n", threads, seconds, speedup,
+          100 * speedup / threads);
+    }
+    System.out.println(expected);
+  }
+
+  /**
+   * Run the replications on a new pool.
+   *
+   * @param runner The runner.
+   * @param replications The number of replications.
+   * @param threads The number of threads in the pool.
+   * @return The report.
+   */
+  private static ReplicationReport run(ReplicationRunner runner, int replications,
+      int threads) {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      return runner.run(1, replications, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
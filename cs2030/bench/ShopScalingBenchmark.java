@@ -0,0 +1,62 @@
+package cs2030.bench;
+
+import cs2030.simulator.Simulator;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * Measures the cost per arrival as the number of servers grows from 10
+ * to 100k.  Arrivals come at 90% of the shop's capacity, so most servers
+ * are busy and a linear search for an idle server would have to walk far
+ * into the list.  The event log is discarded.
+ *
+ * <p>Usage: {@code java cs2030.bench.ShopScalingBenchmark [numOfArrivals]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ShopScalingBenchmark {
+  /** Fraction of the shop's capacity that arrivals use. */
+  private static final double LOAD = 0.9;
+
+  /**
+   * Run the benchmark and print one row per server count.
+   *
+   * @param args Optional number of arrivals per run.
+   */
+  public static void main(String[] args) {
+    int numOfArrivals = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+    run(1000, numOfArrivals);
+    out.printf("%10s %14s\n", "servers", "per arrival");
+    for (int numOfServers = 10; numOfServers <= 100000; numOfServers *= 10) {
+      out.printf("%10d %11.1f ns\n", numOfServers, run(numOfServers, numOfArrivals));
+    }
+    System.setOut(out);
+  }
+
+  /**
+   * Simulate one shop and return the cost per arrival.
+   *
+   * @param numOfServers Number of servers in the shop.
+   * @param numOfArrivals Number of customers arriving.
+   * @return Nanoseconds per arrival.
+   */
+  private static double run(int numOfServers, int numOfArrivals) {
+    Random random = new Random(2030);
+    double rate = LOAD * numOfServers;
+    Simulator sim = new Simulator(numOfServers);
+    double time = 0;
+    for (int i = 0; i < numOfArrivals; i++) {
+      time += -Math.log(1 - random.nextDouble()) / rate;
+      double arrivalTime = time;
+      sim.state = sim.state.addEvent(arrivalTime, s -> s.simulateArrival(arrivalTime));
+    }
+    long start = System.nanoTime();
+    sim.run();
+    return (double) (System.nanoTime() - start) / numOfArrivals;
+  }
+}
@@ -0,0 +1,156 @@
+package cs2030.bench;
+
+import cs2030.util.ArrivalReader;
+import cs2030.util.ExternalSorter;
+import cs2030.util.SortedRuns;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Checks that {@code ExternalSorter} and {@code SortedRuns} give back
+ * every number read, in order.  Each round writes a random number of
+ * times in random order, some rounds with many ties, and sorts them on
+ * one to four threads within one of three budgets: the smallest the
+ * sorter allows, so that runs are merged in several passes; a small one;
+ * or one that holds them all.  The sorted stream must hold as many
+ * numbers as were written, and the same ones as {@code Arrays.sort}
+ * gives, in the same order.  Two copies made part way, one after the
+ * other is closed, must give the rest as the stream copied does, and
+ * every run must be deleted once the stream is closed, but not before.
+ *
+ * <p>Prints one line and exits with status 1 at the first disagreement.
+ *
+ * <p>Usage: {@code java cs2030.bench.SortedRunsCheck [rounds] [numbers]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class SortedRunsCheck {
+  /** The budgets sorted within, in bytes. */
+  private static final long[] BUDGETS = {ExternalSorter.MIN_MEMORY, 1 << 20, 64 << 20};
+
+  /**
+   * Run the check.
+   *
+   * @param args Optionally the number of rounds and the most numbers in
+   *     each.
+   * @throws IOException if the files cannot be written, read or deleted.
+   */
+  public static void main(String[] args) throws IOException {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+    int most = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+    Path dir = Files.createTempDirectory("sortedrunscheck");
+    Path input = dir.resolve("input");
+    String failure = null;
+    long checked = 0;
+    try {
+      for (int seed = 0; seed < rounds && failure == null; seed++) {
+        SplittableRandom random = new SplittableRandom(seed);
+        // Some rounds are empty or hold a single number.
+        int n = seed < 2 ? seed : random.nextInt(most + 1);
+        failure = check(random, n, dir, input);
+        if (failure != null) {
+          failure = "round " + seed + ": " + failure;
+        }
+        checked += n;
+      }
+    } finally {
+      Files.deleteIfExists(input);
+      try (Stream<Path> left = Files.list(dir)) {
+        if (failure == null && left.findAny().isPresent()) {
+          failure = "runs were left in " + dir;
+        }
+      }
+      if (failure == null) {
+        Files.delete(dir);
+      }
+    }
+    if (failure != null) {
+      System.out.println("Sorted streams differ in " + failure);
+      System.exit(1);
+    }
+    System.out.printf("Sorted streams agree: %d rounds, %d numbers\n", rounds, checked);
+  }
+
+  /**
+   * Run one round.
+   *
+   * @param random The random numbers of the round.
+   * @param n The number of numbers.
+   * @param dir The directory to sort in.
+   * @param input The file to write the numbers to.
+   * @return A description of the first disagreement, or null if none.
+   * @throws IOException if a file cannot be written, read or deleted.
+   */
+  private static String check(SplittableRandom random, int n, Path dir, Path input)
+      throws IOException {
+    // Few distinct values in some rounds, so that many tie.
+    double range = random.nextBoolean() ? 100 : 1e5;
+    double[] expected = new double[n];
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(input))) {
+      for (int i = 0; i < n; i++) {
+        String time = String.format("%.4f", random.nextDouble() * range);
+        expected[i] = Double.parseDouble(time);
+        out.println(time);
+      }
+    }
+    Arrays.sort(expected);
+    long memory = BUDGETS[random.nextInt(BUDGETS.length)];
+    int threads = 1 + random.nextInt(4);
+    ExternalSorter sorter = new ExternalSorter(memory, threads, dir);
+    String name = String.format("%d numbers, %d bytes, %d threads: ", n, memory, threads);
+    int split = random.nextInt(n + 1);
+    double[] sorted = new double[n];
+    try (ArrivalReader reader = new ArrivalReader(input);
+        SortedRuns runs = sorter.sort(reader)) {
+      if (runs.size() != n) {
+        return name + "the stream holds " + runs.size() + " numbers";
+      }
+      int count = 0;
+      while (count < split && runs.hasNext()) {
+        sorted[count++] = runs.next();
+      }
+      int from = count;
+      for (int i = 0; i < 2; i++) {
+        // The second copy reopens the runs, which closing the first must not delete.
+        try (SortedRuns copy = runs.copy()) {
+          if (!readsRest(copy, sorted, from, expected)) {
+            return name + "copy " + (i + 1) + ", made after " + from
+                + " numbers, reads differently";
+          }
+        } catch (IOException exception) {
+          return name + "copy " + (i + 1) + " cannot be read " + exception;
+        }
+      }
+      if (!readsRest(runs, sorted, from, expected)) {
+        return name + "the stream reads differently";
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Read the rest of a stream, and compare all the numbers read with
+   * those expected.
+   *
+   * @param runs The stream.
+   * @param sorted The numbers read so far, filled in with the rest.
+   * @param from The number of numbers read so far.
+   * @param expected The numbers expected.
+   * @return true if the stream held the numbers expected; false otherwise.
+   * @throws IOException if a run cannot be read.
+   */
+  private static boolean readsRest(SortedRuns runs, double[] sorted, int from,
+      double[] expected) throws IOException {
+    int count = from;
+    while (runs.hasNext() && count < sorted.length) {
+      sorted[count++] = runs.next();
+    }
+    return !runs.hasNext() && count == sorted.length && Arrays.equals(sorted, expected);
+  }
+}
@@ -0,0 +1,38 @@
+package cs2030.simulator;
+
+import java.util.Optional;
+
+/**
+ * An ArrivalSource produces customer arrival times in non-decreasing
+ * order, one at a time.  The simulator asks for the next arrival only
+ * when the previous one is simulated, so the event queue holds one
+ * pending arrival instead of the whole workload.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public interface ArrivalSource {
+  /**
+   * Check if there is another arrival.
+   * @return true if another arrival follows; false if the source is done.
+   */
+  boolean hasNext();
+
+  /**
+   * Return the next arrival time.  Must only be called if {@code hasNext}
+   * returned true.
+   * @return The next arrival time, no earlier than the one before.
+   */
+  double next();
+
+  /**
+   * Return a source at the same place as this one, which gives the same
+   * arrivals from here on, and then changes independently.  A state
+   * waiting on a source can only be forked if the source can be copied.
+   * @return The copy, or empty if the arrivals come from a stream that
+   *     cannot be read again, such as standard input.
+   * @throws java.io.UncheckedIOException if the input of the copy cannot
+   *     be opened.
+   */
+  Optional<ArrivalSource> copy();
+}
@@ -0,0 +1,275 @@
+package cs2030.simulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A LogSink that hands events to a background thread.  The simulation
+ * thread writes each event as a fixed set of primitives into a ring
+ * buffer; the background thread drains the ring into another sink,
+ * normally a {@code BufferedLogSink}.  There is one producer and one
+ * consumer, so the ring needs no locks.  {@code close} stops the
+ * background thread once it has drained the ring, and waits for it.
+ * If the other sink fails, the background thread stops, and the failure
+ * is thrown again to the simulation thread by the next call that would
+ * otherwise wait for it.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class AsyncLogSink implements LogSink {
+  /** The default number of events the ring can hold. */
+  private static final int DEFAULT_CAPACITY = 1 << 16;
+
+  /** How long a waiting thread parks before checking again, in ns. */
+  private static final long PARK_NANOS = 50_000;
+
+  /** Event kinds stored in the ring. */
+  private static final byte ARRIVES = 0;
+  private static final byte WAITS = 1;
+  private static final byte SERVED = 2;
+  private static final byte DONE = 3;
+  private static final byte LEAVES = 4;
+
+  /** The sink the background thread writes to. */
+  private final LogSink delegate;
+
+  /** Capacity of the ring minus one; the capacity is a power of two. */
+  private final int mask;
+
+  /** Kinds of the events in the ring. */
+  private final byte[] kinds;
+
+  /** Times of the events in the ring. */
+  private final double[] times;
+
+  /** Customer ids of the events in the ring. */
+  private final int[] customers;
+
+  /** Server ids of the events in the ring. */
+  private final int[] servers;
+
+  /** Waiting customer ids of the events in the ring. */
+  private final int[] waitings;
+
+  /** Number of events published by the producer. */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** Number of events taken by the consumer. */
+  private final AtomicLong head = new AtomicLong();
+
+  /** Number of events the consumer has written and flushed. */
+  private final AtomicLong flushed = new AtomicLong();
+
+  /** Whether the background thread should stop once the ring is empty. */
+  private volatile boolean stopped;
+
+  /** What the background thread failed with, or null if it has not. */
+  private volatile Throwable failure;
+
+  /** Producer's cached copy of {@code head}. */
+  private long cachedHead;
+
+  /** The background thread. */
+  private final Thread consumer;
+
+  /**
+   * Create a sink with the default ring capacity.
+   * @param delegate The sink the background thread writes to.
+   */
+  public AsyncLogSink(LogSink delegate) {
+    this(delegate, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a sink and start its background thread.
+   * @param delegate The sink the background thread writes to.
+   * @param capacity The least number of events the ring can hold.
+   */
+  public AsyncLogSink(LogSink delegate, int capacity) {
+    int n = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    this.delegate = delegate;
+    this.mask = n - 1;
+    this.kinds = new byte[n];
+    this.times = new double[n];
+    this.customers = new int[n];
+    this.servers = new int[n];
+    this.waitings = new int[n];
+    this.consumer = new Thread(this::drainLoop, "log-sink");
+    this.consumer.setDaemon(true);
+    this.consumer.start();
+  }
+
+  @Override
+  public void arrives(double time, int customer) {
+    publish(ARRIVES, time, customer, -1, -1);
+  }
+
+  @Override
+  public void waits(double time, int customer, int server, int waiting) {
+    publish(WAITS, time, customer, server, waiting);
+  }
+
+  @Override
+  public void served(double time, int customer, int server, int waiting) {
+    publish(SERVED, time, customer, server, waiting);
+  }
+
+  @Override
+  public void done(double time, int customer, int server, int waiting) {
+    publish(DONE, time, customer, server, waiting);
+  }
+
+  @Override
+  public void leaves(double time, int customer) {
+    publish(LEAVES, time, customer, -1, -1);
+  }
+
+  /**
+   * Block until the background thread has written and flushed every
+   * event published so far.  If the background thread stops first, what
+   * it failed with is thrown again.
+   */
+  @Override
+  public void flush() {
+    long target = tail.get();
+    LockSupport.unpark(consumer);
+    while (flushed.get() < target) {
+      checkConsumer();
+      LockSupport.parkNanos(PARK_NANOS);
+    }
+  }
+
+  /**
+   * Write out every event published so far, stop the background thread
+   * and wait for it, then close the sink it wrote to.  The failure of the
+   * background thread, if any, is thrown again once the sink is closed.
+   */
+  @Override
+  public void close() {
+    stopped = true;
+    LockSupport.unpark(consumer);
+    boolean interrupted = false;
+    while (consumer.isAlive()) {
+      try {
+        consumer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    delegate.close();
+    if (failure != null) {
+      checkConsumer();
+    }
+  }
+
+  /**
+   * Put one event into the ring, waiting for room if it is full.  If the
+   * background thread stops with the ring full, what it failed with is
+   * thrown again.
+   * @param kind The kind of event.
+   * @param time The time of the event.
+   * @param customer The id of the customer.
+   * @param server The id of the server, or -1.
+   * @param waiting The id of the waiting customer, or -1.
+   */
+  private void publish(byte kind, double time, int customer, int server, int waiting) {
+    long t = tail.get();
+    if (t - cachedHead > mask) {
+      cachedHead = head.get();
+      while (t - cachedHead > mask) {
+        checkConsumer();
+        LockSupport.unpark(consumer);
+        Thread.onSpinWait();
+        cachedHead = head.get();
+      }
+    }
+    int i = (int) t & mask;
+    kinds[i] = kind;
+    times[i] = time;
+    customers[i] = customer;
+    servers[i] = server;
+    waitings[i] = waiting;
+    tail.lazySet(t + 1);
+  }
+
+  /**
+   * Throw again what the background thread failed with, if it is no
+   * longer running.  A thread waiting on it would otherwise wait forever.
+   * @throws IllegalStateException if it stopped without failing, once
+   *     the sink was closed.
+   */
+  private void checkConsumer() {
+    if (consumer.isAlive()) {
+      return;
+    }
+    Throwable cause = failure;
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    throw new IllegalStateException("Log sink is closed", cause);
+  }
+
+  /**
+   * Body of the background thread: drain the ring, keeping what it fails
+   * with for the simulation thread.
+   */
+  private void drainLoop() {
+    try {
+      drain();
+    } catch (Throwable e) {
+      failure = e;
+    }
+  }
+
+  /**
+   * Drain the ring until stopped, and then drain what is left.
+   */
+  private void drain() {
+    long h = head.get();
+    while (true) {
+      // Read before the tail, so that the events of a stopped producer
+      // are all seen.
+      boolean stopping = stopped;
+      long t = tail.get();
+      if (h == t) {
+        if (flushed.get() < h) {
+          delegate.flush();
+          flushed.set(h);
+        }
+        if (stopping) {
+          return;
+        }
+        LockSupport.parkNanos(PARK_NANOS);
+        continue;
+      }
+      for (; h < t; h++) {
+        int i = (int) h & mask;
+        switch (kinds[i]) {
+          case ARRIVES:
+            delegate.arrives(times[i], customers[i]);
+            break;
+          case WAITS:
+            delegate.waits(times[i], customers[i], servers[i], waitings[i]);
+            break;
+          case SERVED:
+            delegate.served(times[i], customers[i], servers[i], waitings[i]);
+            break;
+          case DONE:
+            delegate.done(times[i], customers[i], servers[i], waitings[i]);
+            break;
+          default:
+            delegate.leaves(times[i], customers[i]);
+            break;
+        }
+        head.lazySet(h + 1);
+      }
+    }
+  }
+}
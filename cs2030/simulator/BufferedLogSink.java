@@ -0,0 +1,223 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A LogSink that formats events straight into a large byte buffer and
+ * writes the buffer out when it fills up or on {@code flush}.  Times are
+ * formatted with a fixed-point routine that gives the same text as
+ * {@code %6.3f}; the few times it cannot handle exactly (negative, very
+ * large, or too close to a rounding boundary) fall back to
+ * {@code String.format}.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class BufferedLogSink implements LogSink {
+  /** The default size of the buffer in bytes. */
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  /** Room kept free for one line, so the buffer is checked once per line. */
+  private static final int MAX_LINE = 256;
+
+  /** Scaled times at or above this are formatted by the fallback. */
+  private static final double MAX_FAST_SCALED = 1e15;
+
+  /** Whether the default locale prints doubles the way this class does. */
+  private static final boolean PLAIN_LOCALE = String.format("%6.3f", 1.5).equals(" 1.500");
+
+  /** Where the log is written. */
+  private final OutputStream out;
+
+  /** The buffer of formatted text. */
+  private final byte[] buffer;
+
+  /** Number of bytes in the buffer. */
+  private int length;
+
+  /**
+   * Create a sink with the default buffer size.
+   * @param out Where the log is written.
+   */
+  public BufferedLogSink(OutputStream out) {
+    this(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a sink.
+   * @param out Where the log is written.
+   * @param bufferSize The size of the buffer in bytes.
+   */
+  public BufferedLogSink(OutputStream out, int bufferSize) {
+    this.out = out;
+    this.buffer = new byte[Math.max(bufferSize, 4 * MAX_LINE)];
+    this.length = 0;
+  }
+
+  @Override
+  public void arrives(double time, int customer) {
+    startLine(time, customer);
+    appendAscii(" arrives\n");
+  }
+
+  @Override
+  public void waits(double time, int customer, int server, int waiting) {
+    startLine(time, customer);
+    appendAscii(" waits for ");
+    appendServer(server, waiting);
+  }
+
+  @Override
+  public void served(double time, int customer, int server, int waiting) {
+    startLine(time, customer);
+    appendAscii(" served by ");
+    appendServer(server, waiting);
+  }
+
+  @Override
+  public void done(double time, int customer, int server, int waiting) {
+    startLine(time, customer);
+    appendAscii(" done served by ");
+    appendServer(server, waiting);
+  }
+
+  @Override
+  public void leaves(double time, int customer) {
+    startLine(time, customer);
+    appendAscii(" leaves\n");
+  }
+
+  @Override
+  public void flush() {
+    drain();
+    try {
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Write the buffer to the output stream and empty it. */
+  private void drain() {
+    try {
+      out.write(buffer, 0, length);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    length = 0;
+  }
+
+  /**
+   * Make room for a line and append its time and customer.
+   * @param time The time of the event.
+   * @param customer The id of the customer.
+   */
+  private void startLine(double time, int customer) {
+    if (length > buffer.length - MAX_LINE) {
+      drain();
+    }
+    appendTime(time);
+    buffer[length++] = ' ';
+    buffer[length++] = 'C';
+    appendInt(customer);
+  }
+
+  /**
+   * Append a server as {@code Server.toString} prints it, and end the line.
+   * @param server The id of the server.
+   * @param waiting The id of the customer waiting for the server, or -1.
+   */
+  private void appendServer(int server, int waiting) {
+    if (server < 0) {
+      appendAscii("any server");
+    } else {
+      buffer[length++] = 'S';
+      appendInt(server);
+    }
+    if (waiting < 0) {
+      appendAscii(" (Q: -)\n");
+    } else {
+      appendAscii(" (Q: Optional[C");
+      appendInt(waiting);
+      appendAscii("])\n");
+    }
+  }
+
+  /**
+   * Append an ASCII string.
+   * @param s The string.
+   */
+  private void appendAscii(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      buffer[length++] = (byte) s.charAt(i);
+    }
+  }
+
+  /**
+   * Append a non-negative int in decimal.
+   * @param n The number.
+   */
+  private void appendInt(int n) {
+    if (n < 0) {
+      appendAscii(Integer.toString(n));
+      return;
+    }
+    appendDigits(n, 1);
+  }
+
+  /**
+   * Append a non-negative number in decimal, zero-padded to at least
+   * {@code minDigits} digits.
+   * @param n The number.
+   * @param minDigits The least number of digits.
+   */
+  private void appendDigits(long n, int minDigits) {
+    int digits = 1;
+    for (long p = 10; digits < 19 && p <= n; p *= 10) {
+      digits++;
+    }
+    digits = Math.max(digits, minDigits);
+    for (int i = length + digits - 1; i >= length; i--) {
+      buffer[i] = (byte) ('0' + n % 10);
+      n /= 10;
+    }
+    length += digits;
+  }
+
+  /**
+   * Append a time the way {@code %6.3f} formats it.
+   * @param time The time.
+   */
+  void appendTime(double time) {
+    double scaled = time * 1000;
+    long whole = (long) Math.floor(scaled);
+    double frac = scaled - whole;
+    if (!PLAIN_LOCALE || Double.doubleToRawLongBits(time) < 0 || !(scaled < MAX_FAST_SCALED)
+        || Math.abs(frac - 0.5) <= 8 * Math.ulp(scaled)) {
+      // %f rounds the shortest decimal form of the double half-up; near a
+      // tie that can differ from rounding the binary value, so defer to it.
+      String text = String.format("%6.3f", time);
+      if (length + text.length() + MAX_LINE > buffer.length) {
+        drain();
+      }
+      appendAscii(text);
+      return;
+    }
+    long rounded = frac < 0.5 ? whole : whole + 1;
+    long intPart = rounded / 1000;
+    int start = length;
+    appendDigits(intPart, 1);
+    buffer[length++] = '.';
+    appendDigits(rounded % 1000, 3);
+    int pad = 6 - (length - start);
+    if (pad > 0) {
+      System.arraycopy(buffer, start, buffer, start + pad, length - start);
+      for (int i = 0; i < pad; i++) {
+        buffer[start + i] = ' ';
+      }
+      length += pad;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package cs2030.simulator;
+
+import cs2030.util.BinaryReader;
+import cs2030.util.BinaryWriter;
+import cs2030.util.EventList;
+import cs2030.util.RandomStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The Checkpoint class saves a {@code SimState} to a binary file and
+ * reads it back, so that a long run can carry on from the last save
+ * after it dies.  The file holds, little-endian, a header of
+ * {@code MAGIC}, {@code VERSION}, the distribution of the service times
+ * as its {@code toString} prints it and the seed, then the id counters, the
+ * statistics, the shop with its servers and queues, and every pending
+ * event as a fixed record of its time, sequence number and kind, with
+ * the server of a done event.  A run resumed from the file
+ * simulates the same events in the same order as the run saved would
+ * have, so its log and statistics are the same, byte for byte.
+ *
+ * <p>The random streams and the arrival source are not saved.  They are
+ * given new when the state is read, as they were when the saved run
+ * started, and are brought to where that run was: a random stream by
+ * its position, an arrival source by drawing as many arrivals as the run
+ * did.  Custom events cannot be saved.  A state is only read back with
+ * a stream of the same distribution and seed as the one saved, since
+ * any other would draw different service times from there on.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class Checkpoint {
+  /** The bytes every checkpoint file starts with. */
+  static final long MAGIC = 0x4b43_3033_3032_5343L; // "CS2030CK"
+
+  /**
+   * The version of the file layout.  Version 2 keeps the number of open
+   * servers, and done events without their customer; version 3 keeps
+   * the distribution and seed of the service times.
+   */
+  static final int VERSION = 3;
+
+  /** The longest distribution name read back, in bytes. */
+  private static final int MAX_NAME = 1 << 16;
+
+  /**
+   * Save a state.  The file is written next to the path and then moved
+   * over it, so a save that dies halfway leaves the last one whole.
+   * @param state The state, between two events.
+   * @param path The path of the checkpoint file.
+   * @throws IOException if the file cannot be written.
+   * @throws IllegalStateException if the state has events that cannot be
+   *     saved.
+   */
+  public static void write(SimState state, Path path) throws IOException {
+    Path partial = path.resolveSibling(path.getFileName() + ".partial");
+    try (BinaryWriter out = new BinaryWriter(partial)) {
+      out.putLong(MAGIC).putInt(VERSION);
+      RandomStream serviceTimes = state.serviceTimes();
+      putString(out, serviceTimes.distribution().toString());
+      out.putLong(serviceTimes.seed());
+      state.writeTo(out);
+      out.sync();
+    }
+    Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Read a state saved from a run without an arrival source.
+   * @param path The path of the checkpoint file.
+   * @param serviceTimes A new stream of the service times the run drew.
+   * @param eventList The empty list that orders the events.
+   * @param log The sink that receives the event logs from here on.
+   * @return The state.
+   * @throws IOException if the file cannot be read or is not a checkpoint.
+   * @throws IllegalArgumentException if the service times were saved
+   *     with another distribution or seed.
+   */
+  public static SimState read(Path path, RandomStream serviceTimes, EventList eventList,
+      LogSink log) throws IOException {
+    return read(path, serviceTimes, eventList, log, null);
+  }
+
+  /**
+   * Read a state saved from a run.
+   * @param path The path of the checkpoint file.
+   * @param serviceTimes A new stream of the service times the run drew.
+   * @param eventList The empty list that orders the events.
+   * @param log The sink that receives the event logs from here on.
+   * @param arrivals A new source of the arrivals the run took, or null.
+   * @return The state.
+   * @throws IOException if the file cannot be read or is not a checkpoint.
+   * @throws IllegalArgumentException if the service times were saved
+   *     with another distribution or seed, or the arrival source is
+   *     missing or ends too soon.
+   */
+  public static SimState read(Path path, RandomStream serviceTimes, EventList eventList,
+      LogSink log, ArrivalSource arrivals) throws IOException {
+    try (BinaryReader in = new BinaryReader(path)) {
+      if (in.getLong() != MAGIC) {
+        throw new IOException(path + " is not a checkpoint");
+      }
+      int version = in.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported checkpoint version " + version);
+      }
+      String distribution = getString(in);
+      long seed = in.getLong();
+      if (!distribution.equals(serviceTimes.distribution().toString())
+          || seed != serviceTimes.seed()) {
+        throw new IllegalArgumentException("Checkpoint " + path + " was saved with service"
+            + " times " + distribution + " and seed " + seed + ", not "
+            + serviceTimes.distribution() + " and seed " + serviceTimes.seed());
+      }
+      return SimState.readFrom(in, serviceTimes, eventList, log, arrivals);
+    }
+  }
+
+  /**
+   * Write a string as its length and its UTF-8 bytes.
+   * @param out The writer.
+   * @param value The string.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void putString(BinaryWriter out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.putInt(bytes.length);
+    for (byte b : bytes) {
+      out.putByte(b);
+    }
+  }
+
+  /**
+   * Read a string written by {@code putString}.
+   * @param in The reader.
+   * @return The string.
+   * @throws IOException if the file cannot be read or is malformed.
+   */
+  private static String getString(BinaryReader in) throws IOException {
+    int length = in.getInt();
+    if (length < 0 || length > MAX_NAME) {
+      throw new IOException("Malformed checkpoint header");
+    }
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = in.getByte();
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
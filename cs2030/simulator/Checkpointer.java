@@ -0,0 +1,45 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * A Checkpointer saves the state of a running simulation to a
+ * {@code Checkpoint} file every so often in simulated time, in wall-clock
+ * time, or both.  The log is flushed before each save, so every event
+ * before it has been written out.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+class Checkpointer extends PeriodicAction {
+  /** The path of the checkpoint file. */
+  private final Path path;
+
+  /**
+   * Create a checkpointer.
+   * @param path The path of the checkpoint file.
+   * @param interval The simulated time between saves, or 0.
+   * @param wallMillis The wall-clock milliseconds between saves, or 0.
+   */
+  Checkpointer(Path path, double interval, long wallMillis) {
+    super(interval, wallMillis);
+    this.path = path;
+  }
+
+  /**
+   * Save the state.
+   * @param state The state.
+   * @param time The current simulated time.
+   * @throws UncheckedIOException if the file cannot be written.
+   */
+  @Override
+  void act(SimState state, double time) {
+    try {
+      Checkpoint.write(state.flushLog(), path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
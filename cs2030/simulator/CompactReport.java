@@ -0,0 +1,53 @@
+package cs2030.simulator;
+
+/**
+ * The result of running a {@code CompactSimulator}: the statistics of the
+ * run and the number of customers who arrived.  A compact run keeps no
+ * shop or event queue to carry on from, so unlike {@code Simulator.run}
+ * it returns no {@code SimState}.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class CompactReport {
+  /** The statistics of the run. */
+  private final Statistics stats;
+
+  /** The number of customers who arrived. */
+  private final int numOfCustomers;
+
+  /**
+   * Create a report.
+   * @param stats The statistics of the run.
+   * @param numOfCustomers The number of customers who arrived.
+   */
+  CompactReport(Statistics stats, int numOfCustomers) {
+    this.stats = stats;
+    this.numOfCustomers = numOfCustomers;
+  }
+
+  /**
+   * Return the number of customers who arrived, served or not.
+   * @return The number of customers.
+   */
+  public int numOfCustomers() {
+    return numOfCustomers;
+  }
+
+  /**
+   * Return the percentiles of the waiting times of the customers served.
+   * @return The 50th, 90th, 99th and 99.9th percentiles and the maximum.
+   */
+  public String waitingTimePercentiles() {
+    return stats.waitingTimes().toString();
+  }
+
+  /**
+   * Return a string representation of this report.
+   * @return The statistics, in the form {@code SimState.toString} prints
+   *     them.
+   */
+  public String toString() {
+    return stats.toString();
+  }
+}
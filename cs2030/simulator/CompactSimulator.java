@@ -0,0 +1,174 @@
+package cs2030.simulator;
+
+import cs2030.util.EventHeap;
+import cs2030.util.IdSet;
+import java.util.Arrays;
+
+/**
+ * The CompactSimulator class runs the same simulation as
+ * {@code Simulator}, with the same event logs and statistics, but keeps
+ * all of its state in primitive arrays indexed by id.  It is meant for
+ * runs with millions of customers.
+ *
+ * <p>Customers are their arrival times, sorted, so that the id of a
+ * customer is its index in the array.  Since a waiting customer can be
+ * found by id, a server is just the id of the customer it serves and the
+ * id of the customer waiting for it.  Arrivals are never put in the event
+ * queue: the next arrival is the next entry of the array, and the queue
+ * only holds done events, at most one per server.  A customer therefore
+ * costs 8 bytes, against the event queue entry and slot that
+ * {@code Simulator} keeps for every arrival it has not yet reached.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class CompactSimulator {
+  /** The arrival time of each customer, indexed by customer id. */
+  private final double[] arrivals;
+
+  /** The time a server takes to serve a customer. */
+  private final double serviceTime;
+
+  /** The sink that receives the event logs. */
+  private final LogSink log;
+
+  /** The id of the customer each server is serving, or -1. */
+  private final int[] serving;
+
+  /** The id of the customer waiting for each server, or -1. */
+  private final int[] waiting;
+
+  /** Ids of servers that are idle. */
+  private final IdSet idle;
+
+  /** Ids of servers with no waiting customer. */
+  private final IdSet noWaiting;
+
+  /** The done events, with the id of the server as the handle. */
+  private final EventHeap done;
+
+  /** The statistics maintained. */
+  private final Statistics stats;
+
+  /**
+   * Create a CompactSimulator whose servers take
+   * {@code Simulator.SERVICE_TIME} to serve a customer.
+   *
+   * @param numOfServers Number of servers to be created for simulation.
+   * @param log The sink that receives the event logs.
+   * @param arrivalTimes The arrival times, in any order.  The array is
+   *     sorted in place and kept, rather than copied.
+   */
+  public CompactSimulator(int numOfServers, LogSink log, double[] arrivalTimes) {
+    this(numOfServers, Simulator.SERVICE_TIME, log, arrivalTimes);
+  }
+
+  /**
+   * Create a CompactSimulator.
+   *
+   * @param numOfServers Number of servers to be created for simulation.
+   * @param serviceTime The time a server takes to serve a customer.
+   * @param log The sink that receives the event logs.
+   * @param arrivalTimes The arrival times, in any order.  The array is
+   *     sorted in place and kept, rather than copied.
+   */
+  public CompactSimulator(int numOfServers, double serviceTime, LogSink log,
+      double[] arrivalTimes) {
+    Arrays.sort(arrivalTimes);
+    this.arrivals = arrivalTimes;
+    this.serviceTime = serviceTime;
+    this.log = log;
+    this.serving = new int[numOfServers];
+    this.waiting = new int[numOfServers];
+    this.idle = new IdSet(numOfServers);
+    this.noWaiting = new IdSet(numOfServers);
+    this.done = new EventHeap(numOfServers);
+    this.stats = new Statistics();
+    Arrays.fill(serving, -1);
+    Arrays.fill(waiting, -1);
+    for (int i = 0; i < numOfServers; i++) {
+      idle.set(i);
+      noWaiting.set(i);
+    }
+  }
+
+  /**
+   * The main simulation loop.  Repeatedly take the next arrival or done
+   * event, whichever is earlier, and simulate it; an arrival goes first
+   * if both are at the same time, as in {@code Simulator}.  Flush the
+   * event log and return the statistics.
+   *
+   * @return The report of the run.
+   */
+  public CompactReport run() {
+    int next = 0;
+    while (next < arrivals.length || !done.isEmpty()) {
+      if (next < arrivals.length && (done.isEmpty() || arrivals[next] <= done.peekTime())) {
+        simulateArrival(next++);
+      } else {
+        simulateDone();
+      }
+    }
+    log.flush();
+    return new CompactReport(stats, arrivals.length);
+  }
+
+  /**
+   * Simulate the arrival of a customer, who is either served, waits or
+   * leaves.
+   *
+   * @param customerId The customer who arrives.
+   */
+  private void simulateArrival(int customerId) {
+    double time = arrivals[customerId];
+    log.arrives(time, customerId);
+    int s = idle.first();
+    if (s >= 0) {
+      serve(time, s, customerId);
+      return;
+    }
+    s = noWaiting.first();
+    if (s >= 0) {
+      log.waits(time, customerId, s, waiting[s]);
+      waiting[s] = customerId;
+      noWaiting.clear(s);
+      return;
+    }
+    log.leaves(time, customerId);
+    stats.lostOneCustomer();
+  }
+
+  /**
+   * Simulate the earliest done event.  The server either serves its
+   * waiting customer or becomes idle.
+   */
+  private void simulateDone() {
+    double time = done.peekTime();
+    int s = done.poll();
+    log.done(time, serving[s], s, waiting[s]);
+    int c = waiting[s];
+    if (c >= 0) {
+      waiting[s] = -1;
+      noWaiting.set(s);
+      serve(time, s, c);
+    } else {
+      serving[s] = -1;
+      idle.set(s);
+    }
+  }
+
+  /**
+   * Start serving a customer and schedule the end of the service.
+   *
+   * @param time The time the service starts.
+   * @param s The server.
+   * @param customerId The customer served.
+   */
+  private void serve(double time, int s, int customerId) {
+    done.add(time + serviceTime, s);
+    serving[s] = customerId;
+    idle.clear(s);
+    log.served(time, customerId, s, waiting[s]);
+    stats.serveOneCustomer().customerWaitedFor(time - arrivals[customerId]);
+  }
+}
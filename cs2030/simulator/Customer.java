@@ -13,9 +13,6 @@ import java.util.Optional;
 
 class Customer {
 
-  /** The unique ID of the last created customer.  */
-  private static int lastCustomerId = 0;
-
   /** The unique ID of this customer. */
   private final int id;
 
@@ -24,14 +21,23 @@ class Customer {
 
   /**
    * Create and initalize a new customer.
-   * The {@code id} of the customer is set.
+   * The {@code id} of the customer is given by the simulation, which
+   * numbers its customers from 0 in order of arrival.
    *
+   * @param id The unique ID of this customer.
    * @param timeArrived The time this customer arrived in the simulation.
    */
-  public Customer(double timeArrived) {
+  public Customer(int id, double timeArrived) {
     this.timeArrived = timeArrived;
-    this.id = Customer.lastCustomerId;
-    Customer.lastCustomerId++;
+    this.id = id;
+  }
+
+  /**
+   * Return the unique ID of this customer.
+   * @return The ID of this customer.
+   */
+  int id() {
+    return id;
   }
 
   /**
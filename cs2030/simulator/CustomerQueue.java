@@ -0,0 +1,198 @@
+package cs2030.simulator;
+
+import cs2030.util.BinaryReader;
+import cs2030.util.BinaryWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A first-in first-out queue of waiting customers, kept as a ring buffer
+ * of customer ids and arrival times.  Adding and removing a customer is
+ * O(1) and allocates nothing.  The ring starts with room for the whole
+ * capacity, or for {@code INITIAL_SLOTS} customers if the capacity is
+ * larger, and doubles when it fills up, up to the capacity.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+class CustomerQueue {
+  /** The most slots allocated up front. */
+  private static final int INITIAL_SLOTS = 16;
+
+  /** The most customers the queue holds. */
+  private final int capacity;
+
+  /** The ids of the customers, from {@code head}, wrapping around. */
+  private int[] ids;
+
+  /** The arrival times of the customers, parallel to {@code ids}. */
+  private double[] arrivals;
+
+  /** The slot of the customer at the head of the queue. */
+  private int head;
+
+  /** The number of customers in the queue. */
+  private int size;
+
+  /**
+   * Create an empty queue.
+   * @param capacity The most customers the queue holds; 0 for a queue
+   *     no customer can join, {@code Integer.MAX_VALUE} for no limit.
+   */
+  CustomerQueue(int capacity) {
+    this.capacity = capacity;
+    int slots = Math.min(capacity, INITIAL_SLOTS);
+    this.ids = new int[slots];
+    this.arrivals = new double[slots];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  /**
+   * Return a queue with the same customers, which then changes
+   * independently of this one.
+   * @return The copy.
+   */
+  CustomerQueue copy() {
+    CustomerQueue copy = new CustomerQueue(capacity);
+    copy.ids = ids.clone();
+    copy.arrivals = arrivals.clone();
+    copy.head = head;
+    copy.size = size;
+    return copy;
+  }
+
+  /**
+   * Checks if the queue is empty.
+   * @return true if no customer is waiting; false otherwise.
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Checks if the queue is full.
+   * @return true if no more customers can join; false otherwise.
+   */
+  boolean isFull() {
+    return size == capacity;
+  }
+
+  /**
+   * Return the most customers that can wait.
+   * @return The capacity, or {@code QueuePolicy.UNBOUNDED}.
+   */
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Return the number of customers waiting.
+   * @return The number of customers.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Add a customer at the tail of the queue.  The queue must not be full.
+   * @param customerId The id of the customer.
+   * @param timeArrived The time the customer arrived.
+   */
+  void add(int customerId, double timeArrived) {
+    if (size == ids.length) {
+      grow();
+    }
+    int slot = head + size;
+    if (slot >= ids.length) {
+      slot -= ids.length;
+    }
+    ids[slot] = customerId;
+    arrivals[slot] = timeArrived;
+    size++;
+  }
+
+  /**
+   * Return the id of the customer at the head of the queue.
+   * @return The id, or -1 if the queue is empty.
+   */
+  int peekId() {
+    return size == 0 ? -1 : ids[head];
+  }
+
+  /**
+   * Return the arrival time of the customer at the head of the queue.
+   * The queue must not be empty.
+   * @return The arrival time.
+   */
+  double peekArrived() {
+    return arrivals[head];
+  }
+
+  /** Remove the customer at the head of the queue, if any. */
+  void remove() {
+    if (size > 0) {
+      head = head + 1 == ids.length ? 0 : head + 1;
+      size--;
+    }
+  }
+
+  /**
+   * Write the customers waiting, from the head.
+   * @param out The writer.
+   * @throws IOException if the file cannot be written.
+   */
+  void writeTo(BinaryWriter out) throws IOException {
+    out.putInt(size);
+    for (int i = 0; i < size; i++) {
+      int slot = (head + i) % ids.length;
+      out.putInt(ids[slot]).putDouble(arrivals[slot]);
+    }
+  }
+
+  /**
+   * Replace the customers waiting with those written by {@code writeTo}.
+   * @param in The reader.
+   * @throws IOException if the file cannot be read, or holds more
+   *     customers than can wait.
+   */
+  void readFrom(BinaryReader in) throws IOException {
+    int n = in.getInt();
+    if (n < 0 || n > capacity) {
+      throw new IOException("Malformed queue of " + n + " customers");
+    }
+    head = 0;
+    size = 0;
+    for (int i = 0; i < n; i++) {
+      int id = in.getInt();
+      add(id, in.getDouble());
+    }
+  }
+
+  /** Double the ring, up to the capacity, keeping the order. */
+  private void grow() {
+    int slots = (int) Math.min(capacity, Math.max(1, 2L * ids.length));
+    int[] newIds = new int[slots];
+    double[] newArrivals = new double[slots];
+    for (int i = 0; i < size; i++) {
+      int slot = (head + i) % ids.length;
+      newIds[i] = ids[slot];
+      newArrivals[i] = arrivals[slot];
+    }
+    ids = newIds;
+    arrivals = newArrivals;
+    head = 0;
+  }
+
+  /**
+   * Return a string representation of this queue.
+   * @return The ids of the waiting customers, from the head.
+   */
+  public String toString() {
+    int[] waiting = new int[size];
+    for (int i = 0; i < size; i++) {
+      waiting[i] = ids[(head + i) % ids.length];
+    }
+    return Arrays.toString(waiting);
+  }
+}
@@ -6,7 +6,10 @@ import java.util.function.Function;
  * The Event class encapsulates information and methods pertaining to a
  * Simulator event.  This is an abstract class that should be subclassed
  * into a specific event in the simulator.  The {@code simulate} method
- * must be written.
+ * must be written.  Arrivals and done events scheduled by
+ * {@code SimState} are not kept as Event objects but as fields in the
+ * event queue; they only become Event objects if taken out with
+ * {@code SimState.nextEvent}.
  *
  * @author Kirsten
  * @author weitsang
@@ -14,8 +17,15 @@ import java.util.function.Function;
  */
 
 public class Event implements Comparable<Event> {
+  /** The priority of arrival events, which go first among events at the same time. */
+  static final int ARRIVAL_PRIORITY = 0;
+  /** The priority of every other event. */
+  static final int DEFAULT_PRIORITY = 1;
+
   /** The time this event occurs at. */
   private double time;
+  /** The order of this event among events at the same time; lower goes first. */
+  private final int priority;
   /** The lambda this event is going to use. */
   private Function<SimState, SimState> lambda;   
 
@@ -26,28 +36,59 @@ public class Event implements Comparable<Event> {
    * @param f The lambda expression it is going to use.
    */
   public Event(double time, Function<SimState, SimState> f) {
+    this(time, f, DEFAULT_PRIORITY);
+  }
+
+  /**
+   * Creates an event with the given priority and initializes it.
+   *
+   * @param time The time of occurrence.
+   * @param f The lambda expression it is going to use.
+   * @param priority The order among events at the same time; lower goes first.
+   */
+  Event(double time, Function<SimState, SimState> f, int priority) {
     this.time = time;
     this.lambda = f;
+    this.priority = priority;
   }
 
 
   /**
    * Defines natural ordering of events by their time.
-   * Events ordered in ascending order of their timestamps.
+   * Events ordered in ascending order of their timestamps, then of
+   * their priority.
    *
    * @param other Another event to compare against.
-   * @return 0 if two events occur at same time, a positive number if
-   *     this event has later than other event, a negative number otherwise.
+   * @return 0 if two events occur at same time with the same priority,
+   *     a positive number if this event is later than other event, a
+   *     negative number otherwise.
    */
   public int compareTo(Event other) {
-    return (int)Math.signum(this.time - other.time);
+    int byTime = (int)Math.signum(this.time - other.time);
+    return byTime != 0 ? byTime : this.priority - other.priority;
+  }
+
+  /**
+   * Return the time this event occurs at.
+   * @return The time of occurrence.
+   */
+  double time() {
+    return this.time;
+  }
+
+  /**
+   * Return the order of this event among events at the same time.
+   * @return The priority; lower goes first.
+   */
+  int priority() {
+    return this.priority;
   }
 
   /**
    * Simulate the event depending on its own lambda.
    * 
-   * @param state The old SimState.
-   * @return A new SimState after simulateArrival or simulateDone.
+   * @param state The SimState, which the event may change in place.
+   * @return The SimState after simulateArrival or simulateDone.
    */
   public SimState simulate(SimState state) {
     return this.lambda.apply(state);
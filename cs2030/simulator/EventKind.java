@@ -0,0 +1,23 @@
+package cs2030.simulator;
+
+/**
+ * The kinds of event the simulator knows how to simulate without a
+ * lambda.  Events of these kinds are kept in the event queue as plain
+ * fields, so that scheduling and simulating them allocates nothing.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+enum EventKind {
+  /** A customer arrives. */
+  ARRIVAL,
+
+  /** A customer arrives, and the next arrival is taken from a source. */
+  SOURCE_ARRIVAL,
+
+  /** A server is done serving a customer. */
+  DONE,
+
+  /** An event given as an {@code Event}, which simulates itself. */
+  CUSTOM
+}
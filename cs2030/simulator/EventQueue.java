@@ -0,0 +1,468 @@
+package cs2030.simulator;
+
+import cs2030.util.BinaryReader;
+import cs2030.util.BinaryWriter;
+import cs2030.util.EventHeap;
+import cs2030.util.EventList;
+import cs2030.util.Pair;
+import cs2030.util.PersistentEventList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The EventQueue class keeps the pending events of a simulation.  The
+ * order of events is kept by an {@code EventList} of timestamps and
+ * handles, an {@code EventHeap} unless told otherwise.  Events with the
+ * same time come out in order of priority, then in the order they were
+ * added.
+ *
+ * <p>The low bits of a handle hold the kind of its event, and the rest
+ * what the event needs: nothing for an arrival, the server id for a done
+ * event, whose customer is the one that server is serving, and a slot
+ * number for a source arrival or a custom event, whose source or
+ * {@code Event} sits in a small slot table that is reused as events are
+ * polled.  Arrival and done events are then scheduled and taken out by
+ * {@code next} without allocating, and are held by the list alone.
+ *
+ * <p>So a queue is copied by copying its list and its slot table, whose
+ * size is the number of sources and custom events pending, usually one
+ * or none.  On a {@code PersistentEventList} that takes O(1) however many
+ * events are pending, which is what lets a {@code SimState} be forked
+ * cheaply.
+ *
+ * <p>Since arrival and done events are plain fields, a queue without
+ * custom events can be written to a file and read back, in the order the
+ * {@code EventList} visits them, with their sequence numbers so that
+ * events at the same time keep their order.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+class EventQueue {
+  /** The number of low bits of a handle that hold the kind of its event. */
+  private static final int KIND_BITS = 2;
+
+  /** The kinds of event, by ordinal. */
+  private static final EventKind[] KINDS = EventKind.values();
+
+  /** The event times and handles, in order. */
+  private EventList list;
+
+  /** The source of the next arrival in each slot, for source arrival events. */
+  private ArrivalSource[] sources;
+
+  /** The event in each slot, for custom events. */
+  private Event[] events;
+
+  /** Stack of free slot numbers. */
+  private int[] freeSlots;
+
+  /** Number of free slot numbers on the stack. */
+  private int numOfFreeSlots;
+
+  /** Number of slots ever handed out. */
+  private int numOfSlotsUsed;
+
+  /** The time of the event last taken out by {@code next}. */
+  private double time;
+
+  /** The kind of the event last taken out by {@code next}. */
+  private EventKind kind;
+
+  /** The server id of the event last taken out by {@code next}. */
+  private int server;
+
+  /** The arrival source of the event last taken out by {@code next}. */
+  private ArrivalSource source;
+
+  /** The event last taken out by {@code next}, if it is a custom one. */
+  private Event event;
+
+  /** Create an empty event queue. */
+  EventQueue() {
+    this(new EventHeap());
+  }
+
+  /**
+   * Create an empty event queue that orders its events with a list.
+   *
+   * @param list The empty list that orders the events.
+   */
+  EventQueue(EventList list) {
+    this(list, 4);
+  }
+
+  /**
+   * Create an event queue that orders its events with a list.
+   *
+   * @param list The list that orders the events.
+   * @param slots The number of slots allocated up front.
+   */
+  private EventQueue(EventList list, int slots) {
+    this.list = list;
+    this.sources = new ArrivalSource[slots];
+    this.events = new Event[slots];
+    this.freeSlots = new int[slots];
+    this.numOfFreeSlots = 0;
+    this.numOfSlotsUsed = 0;
+  }
+
+  /**
+   * Return a queue with the same events, which then changes independently
+   * of this one.  The list is copied, and the sources of pending source
+   * arrivals are copied with it; custom events are shared, as they do not
+   * change.
+   *
+   * @return The copy.
+   * @throws IllegalStateException if a pending arrival source reads a
+   *     stream that cannot be read again.
+   */
+  EventQueue copy() {
+    EventQueue copy = new EventQueue(list.copy(), sources.length);
+    for (int slot = 0; slot < numOfSlotsUsed; slot++) {
+      if (sources[slot] != null) {
+        copy.sources[slot] = sources[slot].copy().orElseThrow(() ->
+            new IllegalStateException("Arrivals read from a stream, such as standard"
+                + " input, cannot be forked"));
+      }
+      copy.events[slot] = events[slot];
+    }
+    copy.freeSlots = freeSlots.clone();
+    copy.numOfFreeSlots = numOfFreeSlots;
+    copy.numOfSlotsUsed = numOfSlotsUsed;
+    return copy;
+  }
+
+  /**
+   * Move the events to a {@code PersistentEventList}, unless they are on
+   * one already, so that from then on the queue is copied in O(1) however
+   * many events are pending.  Moving them takes O(n log n), once.
+   */
+  void makePersistent() {
+    if (list instanceof PersistentEventList) {
+      return;
+    }
+    PersistentEventList persistent = new PersistentEventList();
+    list.forEach(persistent::restore);
+    list = persistent;
+  }
+
+  /**
+   * Return the handle of an event.
+   *
+   * @param kind The kind of event.
+   * @param payload The server id or slot number of the event, or 0.
+   * @return The handle.
+   */
+  private static int handle(EventKind kind, int payload) {
+    return payload << KIND_BITS | kind.ordinal();
+  }
+
+  /**
+   * Add an event to the queue.
+   *
+   * @param event The event to add.
+   * @return This queue, with the event added.
+   */
+  public EventQueue add(Event event) {
+    int slot = allocate();
+    events[slot] = event;
+    list.add(event.time(), handle(EventKind.CUSTOM, slot), event.priority());
+    return this;
+  }
+
+  /**
+   * Add the arrival of a customer to the queue.
+   *
+   * @param time The time the customer arrives.
+   * @return This queue, with the event added.
+   */
+  EventQueue addArrival(double time) {
+    list.add(time, handle(EventKind.ARRIVAL, 0), Event.ARRIVAL_PRIORITY);
+    return this;
+  }
+
+  /**
+   * Add the arrival of a customer to the queue with a given rank among
+   * events at the same time, as for customers routed from another shop.
+   *
+   * @param time The time the customer arrives.
+   * @param rank The rank; lower comes first.
+   * @return This queue, with the event added.
+   */
+  EventQueue addArrival(double time, int rank) {
+    list.add(time, handle(EventKind.ARRIVAL, 0), rank);
+    return this;
+  }
+
+  /**
+   * Add the arrival of a customer to the queue, after which the next
+   * arrival is taken from a source.
+   *
+   * @param time The time the customer arrives.
+   * @param source The source of the arrivals that follow.
+   * @return This queue, with the event added.
+   */
+  EventQueue addArrival(double time, ArrivalSource source) {
+    int slot = allocate();
+    sources[slot] = source;
+    list.add(time, handle(EventKind.SOURCE_ARRIVAL, slot), Event.ARRIVAL_PRIORITY);
+    return this;
+  }
+
+  /**
+   * Add the end of a service to the queue.  The customer done is the one
+   * the server is serving when the event comes out.
+   *
+   * @param time The time the service is done.
+   * @param serverId The id of the server serving the customer.
+   * @return This queue, with the event added.
+   */
+  EventQueue addDone(double time, int serverId) {
+    list.add(time, handle(EventKind.DONE, serverId), Event.DEFAULT_PRIORITY);
+    return this;
+  }
+
+  /**
+   * Take a free slot for a source arrival or a custom event.
+   *
+   * @return The slot number.
+   */
+  private int allocate() {
+    if (numOfFreeSlots > 0) {
+      return freeSlots[--numOfFreeSlots];
+    }
+    if (numOfSlotsUsed == sources.length) {
+      int capacity = numOfSlotsUsed * 2;
+      sources = Arrays.copyOf(sources, capacity);
+      events = Arrays.copyOf(events, capacity);
+      freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+    return numOfSlotsUsed++;
+  }
+
+  /**
+   * Empty a slot and put it back on the stack of free slots.
+   *
+   * @param slot The slot number.
+   */
+  private void free(int slot) {
+    sources[slot] = null;
+    events[slot] = null;
+    freeSlots[numOfFreeSlots++] = slot;
+  }
+
+  /**
+   * Take the event with the earliest time out of the queue and make it
+   * the current event, whose fields are read with {@code time},
+   * {@code kind}, {@code server}, {@code source} and {@code event}.
+   *
+   * @return true if there was an event; false if the queue is empty.
+   */
+  boolean next() {
+    if (list.isEmpty()) {
+      return false;
+    }
+    time = list.peekTime();
+    int handle = list.poll();
+    int payload = handle >>> KIND_BITS;
+    kind = KINDS[handle & ((1 << KIND_BITS) - 1)];
+    switch (kind) {
+      case DONE:
+        server = payload;
+        break;
+      case SOURCE_ARRIVAL:
+        source = sources[payload];
+        free(payload);
+        break;
+      case CUSTOM:
+        event = events[payload];
+        free(payload);
+        break;
+      default:
+        break;
+    }
+    return true;
+  }
+
+  /**
+   * Return the time of the earliest event without taking it out.
+   *
+   * @return The time, or {@code Double.POSITIVE_INFINITY} if the queue is
+   *     empty.
+   */
+  double peekTime() {
+    return list.isEmpty() ? Double.POSITIVE_INFINITY : list.peekTime();
+  }
+
+  /**
+   * Return the time of the current event.
+   *
+   * @return The time.
+   */
+  double time() {
+    return time;
+  }
+
+  /**
+   * Return the kind of the current event.
+   *
+   * @return The kind.
+   */
+  EventKind kind() {
+    return kind;
+  }
+
+  /**
+   * Return the server id of the current event, if it is a done event.
+   *
+   * @return The server id.
+   */
+  int server() {
+    return server;
+  }
+
+  /**
+   * Return the source of the next arrival, if the current event is a
+   * source arrival.
+   *
+   * @return The source.
+   */
+  ArrivalSource source() {
+    return source;
+  }
+
+  /**
+   * Return the current event, if it is a custom one.
+   *
+   * @return The event.
+   */
+  Event event() {
+    return event;
+  }
+
+  /**
+   * Remove the event with the earliest time from the queue.  Arrival and
+   * done events are turned into {@code Event} objects that simulate them.
+   *
+   * @return A Pair with the event, or {@code Optional.empty()} if the queue
+   *     is empty, and this queue.
+   */
+  public Pair<Optional<Event>, EventQueue> poll() {
+    if (!next()) {
+      return new Pair<>(Optional.empty(), this);
+    }
+    return new Pair<>(Optional.of(toEvent()), this);
+  }
+
+  /**
+   * Turn the current event into an {@code Event}.
+   *
+   * @return The event.
+   */
+  private Event toEvent() {
+    double time = this.time;
+    int server = this.server;
+    ArrivalSource source = this.source;
+    switch (kind) {
+      case ARRIVAL:
+        return new Event(time, s -> s.simulateArrival(time), Event.ARRIVAL_PRIORITY);
+      case SOURCE_ARRIVAL:
+        return new Event(time, s -> s.simulateArrival(time).addArrivals(source),
+            Event.ARRIVAL_PRIORITY);
+      case DONE:
+        return new Event(time, s -> s.simulateDone(time, server));
+      default:
+        return event;
+    }
+  }
+
+  /**
+   * Write every pending event: its time, sequence number and kind, and
+   * for a done event its server.  The source of a source arrival is not
+   * written; it is given again to {@code readFrom}.
+   *
+   * @param out The writer.
+   * @throws IOException if the file cannot be written.
+   * @throws IllegalStateException if there is a custom event, or the
+   *     arrivals of more than one source are pending.
+   */
+  void writeTo(BinaryWriter out) throws IOException {
+    int numOfSources = 0;
+    for (int slot = 0; slot < numOfSlotsUsed; slot++) {
+      if (events[slot] != null) {
+        throw new IllegalStateException("Custom events cannot be saved");
+      }
+      if (sources[slot] != null) {
+        numOfSources++;
+      }
+    }
+    if (numOfSources > 1) {
+      throw new IllegalStateException("Arrivals of more than one source cannot be saved");
+    }
+    out.putInt(list.size());
+    try {
+      list.forEach((time, handle, seq) -> {
+        try {
+          int k = handle & ((1 << KIND_BITS) - 1);
+          out.putDouble(time).putLong(seq).putByte(k);
+          if (KINDS[k] == EventKind.DONE) {
+            out.putInt(handle >>> KIND_BITS);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Add the events written by {@code writeTo} to this queue, which must be
+   * empty.
+   *
+   * @param in The reader.
+   * @param source The source the pending source arrival takes the next
+   *     arrival from, already past that arrival; or null if there is none.
+   * @throws IOException if the file cannot be read or is malformed.
+   * @throws IllegalArgumentException if a source arrival is pending but
+   *     no source is given.
+   */
+  void readFrom(BinaryReader in, ArrivalSource source) throws IOException {
+    int n = in.getInt();
+    for (int i = 0; i < n; i++) {
+      double time = in.getDouble();
+      long seq = in.getLong();
+      int k = in.getByte();
+      if (k < 0 || k >= KINDS.length || KINDS[k] == EventKind.CUSTOM) {
+        throw new IOException("Malformed event of kind " + k);
+      }
+      int payload = 0;
+      if (KINDS[k] == EventKind.DONE) {
+        payload = in.getInt();
+        if (payload < 0) {
+          throw new IOException("Malformed server " + payload);
+        }
+      } else if (KINDS[k] == EventKind.SOURCE_ARRIVAL) {
+        if (source == null) {
+          throw new IllegalArgumentException("The saved events need an arrival source");
+        }
+        payload = allocate();
+        sources[payload] = source;
+      }
+      list.restore(time, handle(KINDS[k], payload), seq);
+    }
+  }
+
+  /**
+   * Return the number of pending events.
+   *
+   * @return The number of events in the queue.
+   */
+  public int size() {
+    return list.size();
+  }
+}
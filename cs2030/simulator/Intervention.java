@@ -0,0 +1,112 @@
+package cs2030.simulator;
+
+import cs2030.util.Distribution;
+
+/**
+ * A change made to the shop of a state as it is forked: servers opened
+ * or closed, or service times drawn from another distribution.  Servers
+ * added are idle; servers removed are the open ones with the highest
+ * ids, which take no new customers but serve those they already have;
+ * at least one server must stay open.  Interventions are immutable, and
+ * can be combined with {@code and}.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class Intervention {
+  /** No change at all, which forks a state as it is. */
+  public static final Intervention NONE = new Intervention("baseline", 0, null);
+
+  /** The name of the intervention, for reports. */
+  private final String name;
+
+  /** The number of servers opened, or closed if negative. */
+  private final int serverChange;
+
+  /** The distribution of service times, or null to keep the shop's. */
+  private final Distribution serviceTime;
+
+  /**
+   * Create an intervention.
+   * @param name The name of the intervention.
+   * @param serverChange The number of servers opened, or closed if negative.
+   * @param serviceTime The distribution of service times, or null to keep
+   *     the shop's.
+   */
+  private Intervention(String name, int serverChange, Distribution serviceTime) {
+    this.name = name;
+    this.serverChange = serverChange;
+    this.serviceTime = serviceTime;
+  }
+
+  /**
+   * Return the intervention that opens more servers.
+   * @param count The number of servers to open.
+   * @return The intervention.
+   * @throws IllegalArgumentException if the count is negative.
+   */
+  public static Intervention addServers(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Number of servers must not be negative: " + count);
+    }
+    return new Intervention("+" + count + (count == 1 ? " server" : " servers"), count, null);
+  }
+
+  /**
+   * Return the intervention that closes servers.
+   * @param count The number of servers to close.
+   * @return The intervention.
+   * @throws IllegalArgumentException if the count is negative.
+   */
+  public static Intervention removeServers(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Number of servers must not be negative: " + count);
+    }
+    return new Intervention("-" + count + (count == 1 ? " server" : " servers"), -count, null);
+  }
+
+  /**
+   * Return the intervention that draws service times from another
+   * distribution, from the next service on.
+   * @param serviceTime The distribution of service times.
+   * @return The intervention.
+   */
+  public static Intervention serviceTime(Distribution serviceTime) {
+    return new Intervention("service " + serviceTime, 0, serviceTime);
+  }
+
+  /**
+   * Return the intervention that makes this change and another.  The
+   * service times of the other win if both change them.
+   * @param other The other intervention.
+   * @return The combined intervention.
+   */
+  public Intervention and(Intervention other) {
+    return new Intervention(name + ", " + other.name, serverChange + other.serverChange,
+        other.serviceTime != null ? other.serviceTime : serviceTime);
+  }
+
+  /**
+   * Return the number of servers opened.
+   * @return The number of servers, negative if servers are closed.
+   */
+  int serverChange() {
+    return serverChange;
+  }
+
+  /**
+   * Return the distribution service times are drawn from.
+   * @return The distribution, or null to keep the shop's.
+   */
+  Distribution serviceTime() {
+    return serviceTime;
+  }
+
+  /**
+   * Return a string representation of this intervention.
+   * @return The name of the intervention.
+   */
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,331 @@
+package cs2030.simulator;
+
+import cs2030.util.ArrivalReader;
+import cs2030.util.ConstantDistribution;
+import cs2030.util.Distribution;
+import cs2030.util.EventList;
+import cs2030.util.RandomStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A simulation submitted to a {@code JobServer}: the options of
+ * {@code LabFourA} it was given, and, once loaded, its simulator.  A job
+ * is loaded on the thread of its connection, which reads its arrivals,
+ * then simulated on a worker thread, and may be cancelled from any
+ * thread at any point.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+class Job {
+  /** The size of the read buffer for arrivals sent over a connection. */
+  private static final int INLINE_BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The most bytes of arrivals read over a connection, so that a client
+   * cannot fill the server's memory with one job.  Larger inputs are
+   * named as files instead.
+   */
+  static final long MAX_INLINE_BYTES = 64L << 20;
+
+  /** A stream that fails once more than a given number of bytes is read. */
+  private static class LimitedInputStream extends FilterInputStream {
+    /** The bytes that may still be read. */
+    private long left;
+
+    /**
+     * Create a limited stream.
+     * @param in The stream read.
+     * @param limit The most bytes read.
+     */
+    LimitedInputStream(InputStream in, long limit) {
+      super(in);
+      this.left = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, (int) Math.min(len, left + 1));
+      if (n > 0) {
+        count(n);
+      }
+      return n;
+    }
+
+    /**
+     * Count bytes read against the limit.
+     * @param n The number of bytes.
+     * @throws IOException if the limit is passed.
+     */
+    private void count(int n) throws IOException {
+      left -= n;
+      if (left < 0) {
+        throw new IOException("Job larger than " + MAX_INLINE_BYTES
+            + " bytes; name a file instead");
+      }
+    }
+  }
+
+  /** The id of the job. */
+  private final long id;
+
+  /** Whether the log is left out, leaving only the statistics. */
+  private boolean quiet;
+
+  /** Whether the percentiles of the waiting time are written. */
+  private boolean percentiles;
+
+  /** How customers wait for servers. */
+  private QueuePolicy policy;
+
+  /** The distribution of service times. */
+  private Distribution service;
+
+  /** The seed of the service times. */
+  private long seed;
+
+  /** The list the pending events are kept in. */
+  private EventList eventList;
+
+  /** The rule the run stops by, or null to run every event. */
+  private StoppingRule rule;
+
+  /** The file the arrivals are read from, or null to read the connection. */
+  private Path file;
+
+  /** The simulator, once loaded. */
+  private volatile Simulator sim;
+
+  /** The report of the precision reached, if run by a rule. */
+  private PrecisionReport report;
+
+  /** Whether the job has been cancelled. */
+  private volatile boolean cancelled;
+
+  /**
+   * Create a job with the options of {@code LabFourA}.
+   * @param id The id of the job.
+   */
+  private Job(long id) {
+    this.id = id;
+    this.quiet = false;
+    this.percentiles = false;
+    this.policy = QueuePolicy.DEFAULT;
+    this.service = new ConstantDistribution(Simulator.SERVICE_TIME);
+    this.seed = 1;
+    this.eventList = null;
+    this.rule = null;
+    this.file = null;
+  }
+
+  /**
+   * Return the job the words of a {@code RUN} line ask for: options as
+   * {@code LabFourA} reads them, optionally followed by the file to read
+   * arrivals from.  Of the log modes, only {@code buffered}, the
+   * default, and {@code quiet} are accepted, as the others write to
+   * standard output; options that write files are not accepted at all.
+   * @param id The id of the job.
+   * @param words The words after {@code RUN}.
+   * @return The job.
+   * @throws IllegalArgumentException if an option is unknown or invalid.
+   */
+  static Job parse(long id, String[] words) {
+    Job job = new Job(id);
+    String eventListKind = "heap";
+    boolean keepWarmUp = false;
+    int i = 0;
+    for (; i < words.length && words[i].startsWith("--"); i++) {
+      String word = words[i];
+      String value = word.substring(word.indexOf('=') + 1);
+      if (word.equals("--log=buffered") || word.equals("--log=quiet")) {
+        job.quiet = word.equals("--log=quiet");
+      } else if (word.equals("--percentiles")) {
+        job.percentiles = true;
+      } else if (word.startsWith("--queue=")) {
+        job.policy = QueuePolicy.perServer(parseCapacity(value));
+      } else if (word.startsWith("--shared-queue=")) {
+        job.policy = QueuePolicy.shared(parseCapacity(value));
+      } else if (word.startsWith("--service=")) {
+        job.service = Distribution.parse(value);
+      } else if (word.startsWith("--seed=")) {
+        try {
+          job.seed = Long.parseLong(value);
+        } catch (NumberFormatException exception) {
+          throw new IllegalArgumentException("Invalid seed " + value);
+        }
+      } else if (word.startsWith("--events=")) {
+        eventListKind = value;
+      } else if (word.startsWith("--precision=")) {
+        try {
+          job.rule = StoppingRule.precision(Double.parseDouble(value));
+        } catch (IllegalArgumentException exception) {
+          throw new IllegalArgumentException("Invalid precision " + value);
+        }
+      } else if (word.equals("--keep-warm-up")) {
+        keepWarmUp = true;
+      } else {
+        throw new IllegalArgumentException("Unsupported option " + word);
+      }
+    }
+    if (keepWarmUp) {
+      if (job.rule == null) {
+        throw new IllegalArgumentException("--keep-warm-up needs --precision=R");
+      }
+      job.rule = job.rule.withoutWarmUp();
+    }
+    if (i < words.length) {
+      job.file = Paths.get(words[i++]);
+    }
+    if (i < words.length) {
+      throw new IllegalArgumentException("Unexpected " + words[i]);
+    }
+    job.eventList = EventList.create(eventListKind);
+    return job;
+  }
+
+  /**
+   * Parse the capacity of a queue.
+   * @param text A non-negative number of customers, or {@code unbounded}.
+   * @return The capacity.
+   * @throws IllegalArgumentException if the text is not a capacity.
+   */
+  private static int parseCapacity(String text) {
+    if (text.equals("unbounded")) {
+      return QueuePolicy.UNBOUNDED;
+    }
+    try {
+      int capacity = Integer.parseInt(text);
+      if (capacity >= 0) {
+        return capacity;
+      }
+    } catch (NumberFormatException exception) {
+      // Reported below.
+    }
+    throw new IllegalArgumentException("Invalid queue capacity " + text);
+  }
+
+  /**
+   * Return the id of the job.
+   * @return The id.
+   */
+  long id() {
+    return id;
+  }
+
+  /**
+   * Read the number of servers and the arrivals, from the job's file or
+   * else from a stream up to its end, and create the simulator, which
+   * logs to another stream unless the job is quiet.  At most
+   * {@code MAX_INLINE_BYTES} are read from the stream, which is not
+   * closed.
+   * @param in The stream to read if the job names no file.
+   * @param out The stream to write the log to.
+   * @throws IOException if the input cannot be read, is malformed or is
+   *     too long.
+   * @throws IllegalArgumentException if the shop is invalid.
+   */
+  void load(InputStream in, OutputStream out) throws IOException {
+    ArrivalReader reader;
+    try {
+      reader = file != null ? new ArrivalReader(file)
+          : new ArrivalReader(Channels.newChannel(
+              new LimitedInputStream(in, MAX_INLINE_BYTES)), "job " + id, INLINE_BUFFER_SIZE);
+    } catch (IOException exception) {
+      throw new IOException("Unable to open file " + file + " " + exception, exception);
+    }
+    try {
+      int numOfServers = reader.nextInt();
+      Simulator simulator = Simulator.builder(numOfServers)
+          .serviceTimes(new RandomStream(service, seed, RandomStream.SERVICE_TIMES))
+          .policy(policy).eventList(eventList)
+          .log(quiet ? QuietLogSink.INSTANCE : new BufferedLogSink(out)).build();
+      sim = simulator;
+      while (!cancelled && reader.hasNext()) {
+        simulator.state = simulator.state.addArrival(reader.nextDouble());
+      }
+      if (cancelled) {
+        simulator.cancel();
+      }
+    } finally {
+      // Closing a reader on the connection would close the connection.
+      if (file != null) {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * Run the loaded simulation until its events run out, its rule is met
+   * or it is cancelled, writing the log as it goes.
+   * @throws java.io.UncheckedIOException if the log cannot be written.
+   */
+  void simulate() {
+    if (rule != null) {
+      report = sim.run(rule);
+    } else {
+      sim.run();
+    }
+  }
+
+  /**
+   * Return the statistics of the run, as {@code LabFourA} prints them.
+   * @return The statistics, then the percentiles of the waiting time
+   *     and the precision reached, if asked for.
+   */
+  String results() {
+    SimState state = sim.state;
+    StringBuilder sb = new StringBuilder().append(state);
+    if (percentiles) {
+      sb.append('\n').append(state.waitingTimePercentiles());
+    }
+    if (report != null) {
+      sb.append('\n').append(report);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Cancel the job: stop reading its arrivals if it is loading, skip it
+   * if it is waiting for a worker, and stop its run after the current
+   * event if it is running.
+   */
+  void cancel() {
+    cancelled = true;
+    Simulator simulator = sim;
+    if (simulator != null) {
+      simulator.cancel();
+    }
+  }
+
+  /**
+   * Checks if the job leaves out its log, and so writes nothing to its
+   * connection while it runs.
+   * @return true if the job is quiet; false otherwise.
+   */
+  boolean isQuiet() {
+    return quiet;
+  }
+
+  /**
+   * Checks if the job has been cancelled.
+   * @return true if it was cancelled; false otherwise.
+   */
+  boolean isCancelled() {
+    return cancelled;
+  }
+}
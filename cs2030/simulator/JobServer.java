@@ -0,0 +1,471 @@
+package cs2030.simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived server that runs simulations sent to it over a local
+ * socket, so that tools pay for starting and warming up the JVM once
+ * rather than once per simulation.  It listens on the loopback address
+ * only.  Each connection is handled on a thread of its own, which reads
+ * the job and waits for it, from a pool of a fixed number of connection
+ * threads; once every one is busy, no more connections are accepted, and
+ * clients wait in the socket's backlog until one is free.  The
+ * simulations themselves run on a fixed pool of worker threads, as many
+ * as there are cores by default, as they are bound by the CPU.
+ *
+ * <p>A connection sends one line, and the server answers in lines:
+ * <ul>
+ * <li>{@code RUN [OPTIONS] [FILE]} runs a simulation with the options
+ * of {@code LabFourA}, of which {@code --log=buffered} (the default),
+ * {@code --log=quiet}, {@code --percentiles}, {@code --queue},
+ * {@code --shared-queue}, {@code --service}, {@code --seed},
+ * {@code --events}, {@code --precision} and {@code --keep-warm-up} are
+ * accepted.  The input, in the form {@code LabFourA} reads, is read
+ * from the file if one is named, or else follows the line up to the end
+ * of the connection's input, which the client shuts down once sent, and
+ * which may be at most {@code Job.MAX_INLINE_BYTES} long.
+ * The server answers {@code JOB ID}, then the log, the statistics and
+ * whatever else the options ask for, as {@code LabFourA} prints them,
+ * then {@code DONE ID}; or {@code CANCELLED ID} after the log and
+ * statistics so far if the job was cancelled; or {@code ERROR MESSAGE}.
+ * <li>{@code CANCEL ID} cancels a job, and is answered {@code OK}.
+ * <li>{@code STATUS} is answered with the number of jobs admitted and
+ * how many jobs have ended in each way.
+ * </ul>
+ *
+ * <p>A job is admitted, and its input read, only while fewer jobs than
+ * the workers and the queue can hold are admitted.  Otherwise the
+ * connection waits, leaving its input unread, so that a client sending
+ * arrivals is held back by the socket itself; if no room is made within
+ * the admission timeout, the server answers {@code BUSY} and the client
+ * may retry later.  So the memory taken by jobs is bounded however many
+ * are sent.
+ *
+ * <p>A job is cancelled once its client goes away.  A job that writes its
+ * log notices when a write fails; a quiet one writes nothing until it
+ * ends, so while it runs the server probes the connection every
+ * {@code PROBE_MILLIS} with a byte of urgent data, which clients do not
+ * read, and which fails once the client has closed the connection.
+ *
+ * <p>Usage: {@code java cs2030.simulator.JobServer [PORT] [THREADS]
+ * [QUEUE]}, where the port is 2030 by default.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class JobServer implements AutoCloseable {
+  /** The port listened on by default. */
+  public static final int DEFAULT_PORT = 2030;
+
+  /** The longest command line read. */
+  private static final int MAX_LINE = 4096;
+
+  /** How long a connection may stay silent while its job is read. */
+  private static final int READ_TIMEOUT_MILLIS = 60000;
+
+  /** How often the connection of a quiet job is probed while it runs. */
+  private static final long PROBE_MILLIS = 1000;
+
+  /** The number of worker threads. */
+  private final int numOfWorkers;
+
+  /** How long a job waits to be admitted before the server is busy. */
+  private final long admissionMillis;
+
+  /** The socket connections are accepted on. */
+  private final ServerSocket serverSocket;
+
+  /** Runs the thread of each connection. */
+  private final ExecutorService connections;
+
+  /** One permit for each connection that may be handled at once. */
+  private final Semaphore connectionSlots;
+
+  /** Runs the simulations. */
+  private final ExecutorService workers;
+
+  /** One permit for each job that may be admitted. */
+  private final Semaphore admission;
+
+  /** The jobs admitted, by id. */
+  private final Map<Long, Job> jobs;
+
+  /** The id of the last job. */
+  private final AtomicLong lastId;
+
+  /** The number of jobs run to the end. */
+  private final AtomicLong numOfDone;
+
+  /** The number of jobs cancelled. */
+  private final AtomicLong numOfCancelled;
+
+  /** The number of jobs that failed. */
+  private final AtomicLong numOfFailed;
+
+  /** The number of jobs turned away as the server was busy. */
+  private final AtomicLong numOfBusy;
+
+  /**
+   * Create a server, bound to a port of the loopback address but not yet
+   * accepting connections, that handles twice as many connections at once
+   * as jobs may be admitted, leaving room for those waiting to be
+   * admitted and for commands such as {@code CANCEL}.
+   * @param port The port, or 0 for any free port.
+   * @param numOfWorkers The number of threads simulations run on.
+   * @param maxQueued The most jobs admitted beyond those running.
+   * @param admissionMillis How long a job waits to be admitted before the
+   *     server answers {@code BUSY}.
+   * @throws IOException if the port cannot be bound.
+   * @throws IllegalArgumentException if there are no workers, or the
+   *     queue or timeout is negative.
+   */
+  public JobServer(int port, int numOfWorkers, int maxQueued, long admissionMillis)
+      throws IOException {
+    this(port, numOfWorkers, maxQueued, admissionMillis,
+        2 * Math.max(numOfWorkers + maxQueued, 1));
+  }
+
+  /**
+   * Create a server, bound to a port of the loopback address but not yet
+   * accepting connections.
+   * @param port The port, or 0 for any free port.
+   * @param numOfWorkers The number of threads simulations run on.
+   * @param maxQueued The most jobs admitted beyond those running.
+   * @param admissionMillis How long a job waits to be admitted before the
+   *     server answers {@code BUSY}.
+   * @param maxConnections The most connections handled at once.
+   * @throws IOException if the port cannot be bound.
+   * @throws IllegalArgumentException if there are no workers or
+   *     connections, or the queue or timeout is negative.
+   */
+  public JobServer(int port, int numOfWorkers, int maxQueued, long admissionMillis,
+      int maxConnections) throws IOException {
+    if (numOfWorkers < 1 || maxQueued < 0 || admissionMillis < 0 || maxConnections < 1) {
+      throw new IllegalArgumentException("Invalid server: " + numOfWorkers + " workers, "
+          + maxQueued + " queued, " + admissionMillis + " ms, "
+          + maxConnections + " connections");
+    }
+    this.numOfWorkers = numOfWorkers;
+    this.admissionMillis = admissionMillis;
+    this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    this.connections = Executors.newFixedThreadPool(maxConnections,
+        r -> daemon(r, "job-connection"));
+    this.connectionSlots = new Semaphore(maxConnections);
+    this.workers = Executors.newFixedThreadPool(numOfWorkers, r -> daemon(r, "job-worker"));
+    this.admission = new Semaphore(numOfWorkers + maxQueued);
+    this.jobs = new ConcurrentHashMap<>();
+    this.lastId = new AtomicLong();
+    this.numOfDone = new AtomicLong();
+    this.numOfCancelled = new AtomicLong();
+    this.numOfFailed = new AtomicLong();
+    this.numOfBusy = new AtomicLong();
+  }
+
+  /**
+   * Create a daemon thread, so that the threads of the server do not
+   * keep the JVM alive once the thread accepting connections ends.
+   * @param r What the thread runs.
+   * @param name The name of the thread.
+   * @return The thread.
+   */
+  private static Thread daemon(Runnable r, String name) {
+    Thread thread = new Thread(r, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Start accepting connections, on a thread of its own.
+   * @return This server.
+   */
+  public JobServer start() {
+    new Thread(this::acceptLoop, "job-server").start();
+    return this;
+  }
+
+  /**
+   * Return the port the server listens on.
+   * @return The port.
+   */
+  public int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Accept connections and hand each to a thread, until closed, waiting
+   * for a thread to be free before accepting the next.
+   */
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try {
+        connectionSlots.acquire();
+      } catch (InterruptedException exception) {
+        return;
+      }
+      try {
+        Socket socket = serverSocket.accept();
+        connections.execute(() -> {
+          try {
+            handle(socket);
+          } finally {
+            connectionSlots.release();
+          }
+        });
+      } catch (IOException | RuntimeException exception) {
+        connectionSlots.release();
+        if (!serverSocket.isClosed()) {
+          System.err.println("Unable to accept connection " + exception);
+        }
+      }
+    }
+  }
+
+  /**
+   * Read the command of a connection and answer it.
+   * @param socket The connection.
+   */
+  private void handle(Socket socket) {
+    try (socket) {
+      socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+      InputStream in = socket.getInputStream();
+      OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+      String line = readLine(in);
+      String[] words = line == null ? new String[0] : line.trim().split("\\s+");
+      if (words.length == 0 || words[0].isEmpty()) {
+        return;
+      }
+      String[] rest = Arrays.copyOfRange(words, 1, words.length);
+      if (words[0].equals("RUN")) {
+        run(rest, socket, in, out);
+      } else if (words[0].equals("CANCEL") && rest.length == 1) {
+        writeLine(out, cancel(rest[0]));
+      } else if (words[0].equals("STATUS") && rest.length == 0) {
+        writeLine(out, status());
+      } else {
+        writeLine(out, "ERROR Unknown command " + line.trim());
+      }
+      out.flush();
+    } catch (IOException | UncheckedIOException exception) {
+      // The client went away; its job, if any, has been cancelled.
+    }
+  }
+
+  /**
+   * Admit a job, read it, run it on a worker and write its results,
+   * cancelling it if its thread is interrupted as the server closes or,
+   * for a quiet job, if the client closes the connection.
+   * @param words The words after {@code RUN}.
+   * @param socket The connection.
+   * @param in The connection's input.
+   * @param out The connection's output.
+   * @throws IOException if the connection fails.
+   */
+  private void run(String[] words, Socket socket, InputStream in, OutputStream out)
+      throws IOException {
+    Job job;
+    try {
+      job = Job.parse(lastId.incrementAndGet(), words);
+    } catch (IllegalArgumentException exception) {
+      writeLine(out, "ERROR " + exception.getMessage());
+      return;
+    }
+    try {
+      if (!admission.tryAcquire(admissionMillis, TimeUnit.MILLISECONDS)) {
+        numOfBusy.incrementAndGet();
+        writeLine(out, "BUSY");
+        return;
+      }
+    } catch (InterruptedException exception) {
+      return;
+    }
+    jobs.put(job.id(), job);
+    try {
+      writeLine(out, "JOB " + job.id());
+      out.flush();
+      job.load(in, out);
+      Future<?> future = workers.submit(job::simulate);
+      try {
+        await(future, job, socket);
+      } catch (InterruptedException exception) {
+        job.cancel();
+        return;
+      } catch (ExecutionException exception) {
+        // Only a log the client stopped reading can fail a loaded job.
+        job.cancel();
+        throw new IOException(exception.getCause());
+      }
+      writeLine(out, job.results());
+      if (job.isCancelled()) {
+        numOfCancelled.incrementAndGet();
+        writeLine(out, "CANCELLED " + job.id());
+      } else {
+        numOfDone.incrementAndGet();
+        writeLine(out, "DONE " + job.id());
+      }
+    } catch (IOException | IllegalArgumentException exception) {
+      if (job.isCancelled()) {
+        numOfCancelled.incrementAndGet();
+      } else {
+        numOfFailed.incrementAndGet();
+      }
+      writeLine(out, "ERROR " + exception.getMessage());
+    } finally {
+      jobs.remove(job.id());
+      admission.release();
+    }
+  }
+
+  /**
+   * Wait for a job to run.  A quiet job's connection is probed while it
+   * runs, and the job is cancelled if the client has gone away.
+   * @param future The run of the job.
+   * @param job The job.
+   * @param socket The connection.
+   * @throws InterruptedException if interrupted while waiting.
+   * @throws ExecutionException if the run failed.
+   * @throws IOException if the client of a quiet job has gone away.
+   */
+  private static void await(Future<?> future, Job job, Socket socket)
+      throws InterruptedException, ExecutionException, IOException {
+    if (!job.isQuiet()) {
+      future.get();
+      return;
+    }
+    while (true) {
+      try {
+        future.get(PROBE_MILLIS, TimeUnit.MILLISECONDS);
+        return;
+      } catch (TimeoutException exception) {
+        try {
+          socket.sendUrgentData(0);
+        } catch (IOException closed) {
+          // Wait for the run to stop, so that its worker is free again.
+          job.cancel();
+          try {
+            future.get();
+          } catch (ExecutionException ignored) {
+            // The client is gone, and is told nothing.
+          }
+          throw closed;
+        }
+      }
+    }
+  }
+
+  /**
+   * Cancel a job.
+   * @param id The id of the job, as text.
+   * @return The answer to the client.
+   */
+  private String cancel(String id) {
+    Job job;
+    try {
+      job = jobs.get(Long.parseLong(id));
+    } catch (NumberFormatException exception) {
+      job = null;
+    }
+    if (job == null) {
+      return "ERROR No job " + id;
+    }
+    job.cancel();
+    return "OK";
+  }
+
+  /**
+   * Return the status of the server.
+   * @return The number of jobs admitted, and of those ended each way.
+   */
+  private String status() {
+    return String.format("STATUS admitted=%d workers=%d done=%d cancelled=%d failed=%d busy=%d",
+        jobs.size(), numOfWorkers, numOfDone.get(), numOfCancelled.get(), numOfFailed.get(),
+        numOfBusy.get());
+  }
+
+  /**
+   * Read a line a byte at a time, so that nothing after it is read.
+   * @param in The stream.
+   * @return The line, without its end, or null if the stream ended first.
+   * @throws IOException if the stream fails or the line is too long.
+   */
+  private static String readLine(InputStream in) throws IOException {
+    byte[] line = new byte[MAX_LINE];
+    int length = 0;
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b < 0) {
+        return length > 0 ? new String(line, 0, length, StandardCharsets.UTF_8) : null;
+      }
+      if (length == MAX_LINE) {
+        throw new IOException("Line too long");
+      }
+      line[length++] = (byte) b;
+    }
+    return new String(line, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write a line.
+   * @param out The stream.
+   * @param line The line, without its end.
+   * @throws IOException if the stream fails.
+   */
+  private static void writeLine(OutputStream out, String line) throws IOException {
+    out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Stop accepting connections, cancel every job admitted and stop the
+   * threads of the server.
+   */
+  @Override
+  public void close() {
+    try {
+      serverSocket.close();
+    } catch (IOException exception) {
+      // Closing anyway.
+    }
+    // Wake the thread accepting connections if it waits for a free one.
+    connectionSlots.release();
+    jobs.values().forEach(Job::cancel);
+    connections.shutdownNow();
+    workers.shutdownNow();
+  }
+
+  /**
+   * Serve jobs until the process is killed.
+   *
+   * @param args Optionally the port, the number of worker threads and
+   *     the most jobs queued beyond those running.
+   */
+  public static void main(String[] args) {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    int threads = args.length > 1 ? Integer.parseInt(args[1])
+        : Runtime.getRuntime().availableProcessors();
+    int maxQueued = args.length > 2 ? Integer.parseInt(args[2]) : 4 * threads;
+    try {
+      JobServer server = new JobServer(port, threads, maxQueued, 10000).start();
+      System.out.printf("Serving on port %d with %d workers\n", server.port(), threads);
+    } catch (IOException exception) {
+      System.err.println("Unable to listen on port " + port + " " + exception);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package cs2030.simulator;
+
+/**
+ * A LogSink receives the event log of a simulation.  {@code SimState}
+ * calls one method per transition, passing customers and servers by id.
+ * A {@code waiting} argument is the id of the customer at the head of
+ * the queue of the server at the time of the call, or -1 if there is
+ * none, so that a sink can print the server the same way
+ * {@code Server.toString} does.  A customer who joins the line shared by
+ * all servers of a shop waits for server -1, and {@code waiting} is then
+ * the head of that line.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public interface LogSink {
+  /**
+   * Log that a customer arrives.
+   * @param time The time the customer arrives.
+   * @param customer The id of the customer.
+   */
+  void arrives(double time, int customer);
+
+  /**
+   * Log that a customer waits for a server.
+   * @param time The time the customer starts waiting.
+   * @param customer The id of the customer.
+   * @param server The id of the server.
+   * @param waiting The id of the customer waiting for the server, or -1.
+   */
+  void waits(double time, int customer, int server, int waiting);
+
+  /**
+   * Log that a customer is served by a server.
+   * @param time The time the service starts.
+   * @param customer The id of the customer.
+   * @param server The id of the server.
+   * @param waiting The id of the customer waiting for the server, or -1.
+   */
+  void served(double time, int customer, int server, int waiting);
+
+  /**
+   * Log that a customer is done being served.
+   * @param time The time the service is done.
+   * @param customer The id of the customer.
+   * @param server The id of the server.
+   * @param waiting The id of the customer waiting for the server, or -1.
+   */
+  void done(double time, int customer, int server, int waiting);
+
+  /**
+   * Log that a customer leaves without being served.
+   * @param time The time the customer leaves.
+   * @param customer The id of the customer.
+   */
+  void leaves(double time, int customer);
+
+  /**
+   * Write out everything logged so far.  Called by {@code Simulator.run}
+   * when the simulation ends.
+   */
+  default void flush() {
+  }
+
+  /**
+   * Write out everything logged so far and release any file the sink
+   * holds.  The sink must not be used afterwards.
+   */
+  default void close() {
+    flush();
+  }
+
+  /**
+   * Return the sink for a mode name: {@code printf} (formats each line with
+   * {@code printf}, as the simulator always has), {@code quiet} (no log,
+   * statistics only), {@code buffered} or {@code async}.  All but
+   * {@code quiet} write to standard output.
+   *
+   * @param mode The name of the mode.
+   * @return The sink.
+   * @throws IllegalArgumentException if the mode is unknown.
+   */
+  static LogSink of(String mode) {
+    switch (mode) {
+      case "printf":
+        return new PrintfLogSink();
+      case "quiet":
+        return QuietLogSink.INSTANCE;
+      case "buffered":
+        return new BufferedLogSink(System.out);
+      case "async":
+        return new AsyncLogSink(new BufferedLogSink(System.out));
+      default:
+        throw new IllegalArgumentException("Unknown log mode " + mode);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package cs2030.simulator;
+
+import cs2030.util.SortedRuns;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * An ArrivalSource that merges the sorted runs an
+ * {@code ExternalSorter} spilled as the simulation consumes them, so
+ * that an arrival file too large for memory, in any order, can be
+ * simulated with only the buffers of the runs in memory.  A copy opens
+ * the runs again at the places this source has read them to.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class MergedArrivalSource implements ArrivalSource {
+  /** The runs being merged. */
+  private final SortedRuns runs;
+
+  /**
+   * Create a source merging sorted runs.
+   * @param runs The runs, which the caller closes once the simulation
+   *     is done.
+   */
+  public MergedArrivalSource(SortedRuns runs) {
+    this.runs = runs;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return runs.hasNext();
+  }
+
+  /**
+   * Return the next arrival time.
+   * @return The next arrival time.
+   * @throws UncheckedIOException if a run cannot be read.
+   */
+  @Override
+  public double next() {
+    try {
+      return runs.next();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Return a source merging the same runs, opened again at the places
+   * this one has read them to.
+   * @return The copy.
+   * @throws UncheckedIOException if a run cannot be opened.
+   */
+  @Override
+  public Optional<ArrivalSource> copy() {
+    try {
+      return Optional.of(new MergedArrivalSource(runs.copy()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
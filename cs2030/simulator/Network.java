@@ -0,0 +1,495 @@
+package cs2030.simulator;
+
+import cs2030.util.Distribution;
+import cs2030.util.EventHeap;
+import cs2030.util.EventList;
+import cs2030.util.RandomStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+
+/**
+ * A Network of shops, called stations, where a customer done at one
+ * station goes on to another, chosen at random with the chances given
+ * by {@code route}, or leaves.  Customers come into the network at the
+ * stations given arrivals from outside.
+ *
+ * <p>The network can be run sequentially, one event of the earliest
+ * station at a time, or in parallel, where stations are split into
+ * partitions and each partition runs its own event loop on a thread of a
+ * fork-join pool.  The parallel run synchronises conservatively in time
+ * windows: a customer is sent on when their service starts, to arrive
+ * when it ends, so a station sends nothing that arrives within the
+ * lookahead, the shortest service time of any station that routes.  Every
+ * partition then simulates the events before the earliest pending time
+ * plus the lookahead without hearing from the others, and the customers
+ * sent are delivered between windows.  Both runs give each station the
+ * same events in the same order, as {@code Station} explains, so their
+ * reports are identical.
+ *
+ * <p>Station {@code k} draws its arrivals, service times and routing
+ * from streams {@code 3k}, {@code 3k + 1} and {@code 3k + 2} of the seed,
+ * so station 0 draws as a lone {@code Simulator} would.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class Network {
+  /** The number of random streams of each station. */
+  private static final int STREAMS = 3;
+
+  /** The stream number of routing, within the streams of a station. */
+  private static final int ROUTING = 2;
+
+  /** The largest number of stations, so that every rank fits in an EventList. */
+  public static final int MAX_STATIONS = EventList.MAX_RANK - Station.FIRST_ROUTED_RANK + 1;
+
+  /** The setup of one station. */
+  private static class Spec {
+    /** The number of servers. */
+    final int numOfServers;
+    /** The distribution of the service times. */
+    final Distribution serviceTime;
+    /** How many customers can wait, and where. */
+    final QueuePolicy policy;
+    /** The distribution of the gaps between arrivals from outside, or null. */
+    Distribution gaps;
+    /** The number of arrivals from outside. */
+    long numOfArrivals;
+    /** The stations customers go to next. */
+    final List<Integer> targets = new ArrayList<>();
+    /** The chance of going to each target. */
+    final List<Double> probabilities = new ArrayList<>();
+
+    /**
+     * Create the setup of a station with no arrivals and no routes.
+     * @param numOfServers The number of servers.
+     * @param serviceTime The distribution of the service times.
+     * @param policy How many customers can wait, and where.
+     */
+    Spec(int numOfServers, Distribution serviceTime, QueuePolicy policy) {
+      this.numOfServers = numOfServers;
+      this.serviceTime = serviceTime;
+      this.policy = policy;
+    }
+  }
+
+  /** The seed of every random stream. */
+  private final long seed;
+
+  /** The setups of the stations, by id. */
+  private final List<Spec> specs;
+
+  /** Makes the log sink of a station from its id. */
+  private IntFunction<LogSink> logs;
+
+  /**
+   * Create a network with no stations.  Stations log nothing unless
+   * told otherwise with {@code logTo}.
+   * @param seed The seed of every random stream.
+   */
+  public Network(long seed) {
+    this.seed = seed;
+    this.specs = new ArrayList<>();
+    this.logs = k -> QuietLogSink.INSTANCE;
+  }
+
+  /**
+   * Add a station.
+   * @param numOfServers The number of servers.
+   * @param serviceTime The distribution of the service times.
+   * @param policy How many customers can wait, and where.
+   * @return The id of the station, counting from 0.
+   * @throws IllegalArgumentException if there are {@code MAX_STATIONS}
+   *     stations already.
+   */
+  public int addStation(int numOfServers, Distribution serviceTime, QueuePolicy policy) {
+    if (specs.size() == MAX_STATIONS) {
+      throw new IllegalArgumentException("At most " + MAX_STATIONS + " stations");
+    }
+    specs.add(new Spec(numOfServers, serviceTime, policy));
+    return specs.size() - 1;
+  }
+
+  /**
+   * Give a station arrivals from outside the network.
+   * @param station The station.
+   * @param gaps The distribution of the gaps between arrivals.
+   * @param numOfArrivals The number of arrivals.
+   * @return This network.
+   * @throws IllegalArgumentException if the station does not exist.
+   */
+  public Network arrivals(int station, Distribution gaps, long numOfArrivals) {
+    Spec spec = spec(station);
+    spec.gaps = gaps;
+    spec.numOfArrivals = numOfArrivals;
+    return this;
+  }
+
+  /**
+   * Return the specification of a station.
+   * @param station The station.
+   * @return Its specification.
+   * @throws IllegalArgumentException if the station does not exist.
+   */
+  private Spec spec(int station) {
+    if (station < 0 || station >= specs.size()) {
+      throw new IllegalArgumentException("No station " + station);
+    }
+    return specs.get(station);
+  }
+
+  /**
+   * Send some of the customers done at one station on to another.
+   * @param from The station they are done at.
+   * @param to The station they go to, which may be the same one.
+   * @param probability The chance that a customer goes there.
+   * @return This network.
+   * @throws IllegalArgumentException if either station does not exist,
+   *     or the chances of the routes from a station add up to more than 1.
+   */
+  public Network route(int from, int to, double probability) {
+    spec(to);
+    Spec spec = spec(from);
+    double total = probability;
+    for (double p : spec.probabilities) {
+      total += p;
+    }
+    if (!(probability > 0) || total > 1 + 1e-9) {
+      throw new IllegalArgumentException("Chances of routes from station " + from
+          + " must be positive and add up to at most 1");
+    }
+    spec.targets.add(to);
+    spec.probabilities.add(probability);
+    return this;
+  }
+
+  /**
+   * Send the event log of each station to its own sink.  Each sink is
+   * written by one thread at a time, but the sinks of different stations
+   * may be written at once.
+   * @param logs Makes the log sink of a station from its id.
+   * @return This network.
+   */
+  public Network logTo(IntFunction<LogSink> logs) {
+    this.logs = logs;
+    return this;
+  }
+
+  /**
+   * Return the number of stations.
+   * @return The number of stations.
+   */
+  public int numOfStations() {
+    return specs.size();
+  }
+
+  /**
+   * Return the lookahead of the network: the shortest service time of
+   * any station that sends customers on.
+   * @return The lookahead, or {@code Double.POSITIVE_INFINITY} if no
+   *     station does.
+   */
+  public double lookahead() {
+    double lookahead = Double.POSITIVE_INFINITY;
+    for (Spec spec : specs) {
+      if (!spec.targets.isEmpty()) {
+        lookahead = Math.min(lookahead, spec.serviceTime.min());
+      }
+    }
+    return lookahead;
+  }
+
+  /**
+   * Create the stations, ready to run.
+   * @return The stations, by id.
+   */
+  private Station[] build() {
+    Station[] stations = new Station[specs.size()];
+    for (int k = 0; k < stations.length; k++) {
+      Spec spec = specs.get(k);
+      RandomStream serviceTimes = new RandomStream(spec.serviceTime, seed,
+          STREAMS * k + RandomStream.SERVICE_TIMES);
+      Simulator.Builder builder = Simulator.builder(spec.numOfServers)
+          .serviceTimes(serviceTimes).policy(spec.policy).log(logs.apply(k));
+      if (spec.gaps != null) {
+        builder.arrivals(new RenewalArrivalSource(new RandomStream(spec.gaps, seed,
+            STREAMS * k + RandomStream.ARRIVALS), spec.numOfArrivals));
+      }
+      Simulator simulator = builder.build();
+      stations[k] = new Station(k, simulator,
+          spec.targets.stream().mapToInt(Integer::intValue).toArray(),
+          spec.probabilities.stream().mapToDouble(Double::doubleValue).toArray(),
+          RandomStream.generator(seed, STREAMS * k + ROUTING));
+    }
+    return stations;
+  }
+
+  /**
+   * Run the network on this thread, always simulating the next event of
+   * the station whose next event is earliest, and delivering the
+   * customers it sends on at once.
+   * @return The report.
+   */
+  public NetworkReport runSequential() {
+    Station[] stations = build();
+    // The stations by the time of their next event.  An entry whose time
+    // is no longer that of its station is stale and skipped.
+    EventHeap agenda = new EventHeap();
+    for (Station station : stations) {
+      schedule(agenda, station);
+    }
+    while (!agenda.isEmpty()) {
+      double time = agenda.peekTime();
+      Station station = stations[agenda.poll()];
+      if (station.nextTime() != time) {
+        continue;
+      }
+      station.step();
+      for (int i = 0; i < station.numOfSent(); i++) {
+        Station target = stations[station.sentTarget(i)];
+        double arrival = station.sentTime(i);
+        double before = target.nextTime();
+        target.receive(arrival, station.id());
+        if (arrival < before) {
+          agenda.add(arrival, target.id());
+        }
+      }
+      station.clearSent();
+      schedule(agenda, station);
+    }
+    return report(stations, 0);
+  }
+
+  /**
+   * Add a station to the agenda at the time of its next event, if any.
+   * @param agenda The agenda.
+   * @param station The station.
+   */
+  private static void schedule(EventHeap agenda, Station station) {
+    double time = station.nextTime();
+    if (time != Double.POSITIVE_INFINITY) {
+      agenda.add(time, station.id());
+    }
+  }
+
+  /**
+   * Run the network in time windows, with its stations split into
+   * partitions of consecutive ids that run in parallel on a pool.
+   * @param numOfPartitions The number of partitions; there are no more
+   *     than there are stations.
+   * @param pool The pool to run the partitions on.
+   * @return The report, identical to that of {@code runSequential}.
+   * @throws IllegalStateException if a station that routes customers can
+   *     take no time to serve one, so that there is no lookahead.
+   */
+  public NetworkReport runParallel(int numOfPartitions, ForkJoinPool pool) {
+    double lookahead = lookahead();
+    if (!(lookahead > 0)) {
+      throw new IllegalStateException("Every station that routes customers needs a"
+          + " positive shortest service time to run in parallel");
+    }
+    Station[] stations = build();
+    int n = Math.max(1, Math.min(numOfPartitions, stations.length));
+    int[] partitionOf = new int[stations.length];
+    Partition[] partitions = new Partition[n];
+    for (int p = 0; p < n; p++) {
+      int from = (int) ((long) stations.length * p / n);
+      int to = (int) ((long) stations.length * (p + 1) / n);
+      Arrays.fill(partitionOf, from, to, p);
+      partitions[p] = new Partition(p, Arrays.copyOfRange(stations, from, to),
+          stations, partitionOf, n);
+    }
+    double start = Double.POSITIVE_INFINITY;
+    for (Station station : stations) {
+      start = Math.min(start, station.nextTime());
+    }
+    long windows = 0;
+    while (start != Double.POSITIVE_INFINITY) {
+      start = pool.invoke(new Window(partitions, start + lookahead, 0, n));
+      windows++;
+    }
+    return report(stations, windows);
+  }
+
+  /**
+   * Finish the stations and collect their statistics.
+   * @param stations The stations.
+   * @param windows The number of time windows run.
+   * @return The report.
+   */
+  private static NetworkReport report(Station[] stations, long windows) {
+    Statistics[] stats = new Statistics[stations.length];
+    long events = 0;
+    for (int k = 0; k < stations.length; k++) {
+      stats[k] = stations[k].finish();
+      events += stations[k].numOfEvents();
+    }
+    return new NetworkReport(stats, events, windows);
+  }
+
+  /**
+   * The customers sent from one partition to another, in the order they
+   * were sent.
+   */
+  private static class Mailbox {
+    /** The times the customers arrive. */
+    private double[] times = new double[16];
+    /** The stations the customers go to. */
+    private int[] targets = new int[16];
+    /** The stations the customers come from. */
+    private int[] sources = new int[16];
+    /** The number of customers. */
+    private int size;
+
+    /**
+     * Add a customer.
+     * @param time The time the customer arrives.
+     * @param target The station the customer goes to.
+     * @param source The station the customer comes from.
+     */
+    void add(double time, int target, int source) {
+      if (size == times.length) {
+        times = Arrays.copyOf(times, size * 2);
+        targets = Arrays.copyOf(targets, size * 2);
+        sources = Arrays.copyOf(sources, size * 2);
+      }
+      times[size] = time;
+      targets[size] = target;
+      sources[size] = source;
+      size++;
+    }
+
+    /**
+     * Deliver every customer to their station and empty the mailbox.
+     * @param stations Every station, by id.
+     */
+    void deliver(Station[] stations) {
+      for (int i = 0; i < size; i++) {
+        stations[targets[i]].receive(times[i], sources[i]);
+      }
+      size = 0;
+    }
+  }
+
+  /**
+   * A partition of the stations, which runs them one window at a time.
+   * Customers sent in a window go into the mailboxes of that window's
+   * parity, one per partition they go to, and are delivered at the start
+   * of the next window, while the mailboxes of the other parity fill.
+   * Each mailbox thus has one writer and, a window later, one reader.
+   */
+  private static class Partition {
+    /** The index of this partition. */
+    private final int index;
+    /** The stations of this partition. */
+    private final Station[] own;
+    /** Every station, by id. */
+    private final Station[] stations;
+    /** The partition of every station, by id. */
+    private final int[] partitionOf;
+    /** The outgoing mailboxes, by parity of the window, then partition. */
+    private final Mailbox[][] outboxes;
+    /** The number of windows run. */
+    private long window;
+
+    /**
+     * Create a partition.
+     * @param index The index of this partition.
+     * @param own The stations of this partition.
+     * @param stations Every station, by id.
+     * @param partitionOf The partition of every station, by id.
+     * @param numOfPartitions The number of partitions.
+     */
+    Partition(int index, Station[] own, Station[] stations, int[] partitionOf,
+        int numOfPartitions) {
+      this.index = index;
+      this.own = own;
+      this.stations = stations;
+      this.partitionOf = partitionOf;
+      this.outboxes = new Mailbox[2][numOfPartitions];
+      for (Mailbox[] boxes : outboxes) {
+        for (int p = 0; p < numOfPartitions; p++) {
+          boxes[p] = new Mailbox();
+        }
+      }
+      this.window = 0;
+    }
+
+    /**
+     * Run one window: deliver the customers sent here in the last one,
+     * then simulate the events of each station before its end.
+     * @param all Every partition.
+     * @param end The end of the window.
+     * @return The earliest time of a pending event or of a customer sent.
+     */
+    double advance(Partition[] all, double end) {
+      int parity = (int) (window & 1);
+      for (Partition from : all) {
+        from.outboxes[1 - parity][index].deliver(stations);
+      }
+      double next = Double.POSITIVE_INFINITY;
+      Mailbox[] boxes = outboxes[parity];
+      for (Station station : own) {
+        station.runUntil(end);
+        for (int i = 0; i < station.numOfSent(); i++) {
+          int target = station.sentTarget(i);
+          double time = station.sentTime(i);
+          boxes[partitionOf[target]].add(time, target, station.id());
+          next = Math.min(next, time);
+        }
+        station.clearSent();
+        next = Math.min(next, station.nextTime());
+      }
+      window++;
+      return next;
+    }
+  }
+
+  /**
+   * A task that runs one window on a range of partitions, splitting it in
+   * half until one partition is left, and yields the earliest time any
+   * of them has pending.  Like every ForkJoinTask it is Serializable, but
+   * it is never serialized.
+   */
+  @SuppressWarnings("serial")
+  private static class Window extends RecursiveTask<Double> {
+    /** Every partition. */
+    private final Partition[] partitions;
+    /** The end of the window. */
+    private final double end;
+    /** The first partition of the range. */
+    private final int from;
+    /** One past the last partition of the range. */
+    private final int to;
+
+    /**
+     * Create a task for a range of partitions.
+     * @param partitions Every partition.
+     * @param end The end of the window.
+     * @param from The first partition.
+     * @param to One past the last partition.
+     */
+    Window(Partition[] partitions, double end, int from, int to) {
+      this.partitions = partitions;
+      this.end = end;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Double compute() {
+      if (to - from == 1) {
+        return partitions[from].advance(partitions, end);
+      }
+      int mid = from + (to - from) / 2;
+      Window left = new Window(partitions, end, from, mid);
+      left.fork();
+      double right = new Window(partitions, end, mid, to).compute();
+      return Math.min(left.join(), right);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package cs2030.simulator;
+
+import java.util.Arrays;
+
+/**
+ * The result of running a {@code Network}: the statistics of each
+ * station, the number of events simulated, and the number of time
+ * windows the run took, which is 0 for a sequential run.  Two reports are
+ * equal if their stations have the same statistics, however they were
+ * run.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class NetworkReport {
+  /** The statistics of each station, by id. */
+  private final Statistics[] stations;
+
+  /** The number of events simulated. */
+  private final long numOfEvents;
+
+  /** The number of time windows run. */
+  private final long numOfWindows;
+
+  /**
+   * Create a report.
+   * @param stations The statistics of each station, by id.
+   * @param numOfEvents The number of events simulated.
+   * @param numOfWindows The number of time windows run.
+   */
+  NetworkReport(Statistics[] stations, long numOfEvents, long numOfWindows) {
+    this.stations = stations;
+    this.numOfEvents = numOfEvents;
+    this.numOfWindows = numOfWindows;
+  }
+
+  /**
+   * Return the number of stations.
+   * @return The number of stations.
+   */
+  public int numOfStations() {
+    return stations.length;
+  }
+
+  /**
+   * Return the statistics of a station, in the form
+   * {@code SimState.toString} prints them.
+   * @param station The station.
+   * @return The statistics.
+   */
+  public String station(int station) {
+    return stations[station].toString();
+  }
+
+  /**
+   * Return the number of events simulated over all stations.
+   * @return The number of events.
+   */
+  public long numOfEvents() {
+    return numOfEvents;
+  }
+
+  /**
+   * Return the number of time windows the run took.
+   * @return The number of windows, or 0 for a sequential run.
+   */
+  public long numOfWindows() {
+    return numOfWindows;
+  }
+
+  /**
+   * Check if the stations of another report have the same statistics.
+   * @param obj The other report.
+   * @return true if every station served and lost the same number of
+   *     customers, with the same waiting times; false otherwise.
+   */
+  public boolean equals(Object obj) {
+    if (!(obj instanceof NetworkReport)) {
+      return false;
+    }
+    NetworkReport other = (NetworkReport) obj;
+    if (stations.length != other.stations.length) {
+      return false;
+    }
+    for (int k = 0; k < stations.length; k++) {
+      Statistics a = stations[k];
+      Statistics b = other.stations[k];
+      if (a.numOfServedCustomers() != b.numOfServedCustomers()
+          || a.numOfLostCustomers() != b.numOfLostCustomers()
+          || Double.compare(a.averageWaitingTime(), b.averageWaitingTime()) != 0
+          || !a.waitingTimes().toString().equals(b.waitingTimes().toString())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Return a hash code consistent with {@code equals}.
+   * @return The hash code.
+   */
+  public int hashCode() {
+    int[] hashes = new int[stations.length];
+    for (int k = 0; k < stations.length; k++) {
+      hashes[k] = 31 * stations[k].numOfServedCustomers()
+          + Double.hashCode(stations[k].averageWaitingTime());
+    }
+    return Arrays.hashCode(hashes);
+  }
+
+  /**
+   * Return a string representation of this report.
+   * @return One line per station with its statistics, then the
+   *     statistics of every station together.
+   */
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    Statistics all = new Statistics();
+    for (int k = 0; k < stations.length; k++) {
+      sb.append(String.format("station %-3d %s\n", k, stations[k]));
+      all = all.merge(stations[k]);
+    }
+    return sb.append("network     ").append(all).toString();
+  }
+}
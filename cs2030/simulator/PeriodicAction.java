@@ -0,0 +1,74 @@
+package cs2030.simulator;
+
+/**
+ * Something done to a running simulation every so often in simulated
+ * time, in wall-clock time, or both, such as saving a checkpoint or
+ * reporting the statistics so far.  The clock is read only every
+ * {@code EVENTS_PER_CLOCK_CHECK} events, so checking costs the run a
+ * comparison per event.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+abstract class PeriodicAction {
+  /** The number of events between two reads of the clock. */
+  private static final int EVENTS_PER_CLOCK_CHECK = 1024;
+
+  /** The simulated time between actions, or 0 to not act by it. */
+  private final double interval;
+
+  /** The wall-clock nanoseconds between actions, or 0 to not act by them. */
+  private final long wallInterval;
+
+  /** The simulated time of the next action. */
+  private double nextTime;
+
+  /** The wall-clock time of the next action, from {@code System.nanoTime}. */
+  private long nextWallTime;
+
+  /** The events since the clock was last read. */
+  private int eventsSinceCheck;
+
+  /**
+   * Create an action.
+   * @param interval The simulated time between actions, or 0.
+   * @param wallMillis The wall-clock milliseconds between actions, or 0.
+   */
+  PeriodicAction(double interval, long wallMillis) {
+    this.interval = interval;
+    this.wallInterval = wallMillis * 1_000_000;
+    this.nextTime = interval > 0 ? interval : Double.POSITIVE_INFINITY;
+    this.nextWallTime = System.nanoTime() + wallInterval;
+    this.eventsSinceCheck = 0;
+  }
+
+  /**
+   * Act if it is time to: after the first event at or past each multiple
+   * of the simulated interval, and after the wall-clock interval has
+   * passed since the last action.
+   * @param state The state, after an event.
+   * @param time The time of the event.
+   */
+  void afterEvent(SimState state, double time) {
+    boolean due = time >= nextTime;
+    if (!due && wallInterval > 0 && ++eventsSinceCheck == EVENTS_PER_CLOCK_CHECK) {
+      eventsSinceCheck = 0;
+      due = System.nanoTime() >= nextWallTime;
+    }
+    if (due) {
+      act(state, time);
+      if (interval > 0) {
+        nextTime = (Math.floor(time / interval) + 1) * interval;
+      }
+      nextWallTime = System.nanoTime() + wallInterval;
+      eventsSinceCheck = 0;
+    }
+  }
+
+  /**
+   * Do the action.
+   * @param state The state.
+   * @param time The current simulated time.
+   */
+  abstract void act(SimState state, double time);
+}
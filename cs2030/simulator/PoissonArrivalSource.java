@@ -0,0 +1,74 @@
+package cs2030.simulator;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/**
+ * An ArrivalSource that generates a Poisson arrival process: the gaps
+ * between arrivals are exponentially distributed with the given rate.
+ * The same seed always gives the same arrivals.  A copy draws the
+ * arrivals generated so far again, since the generator cannot be copied,
+ * so it takes time in proportion to them; a
+ * {@code RenewalArrivalSource} is copied in O(1).
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class PoissonArrivalSource implements ArrivalSource {
+  /** The mean number of arrivals per unit of time. */
+  private final double rate;
+
+  /** The seed of the random number generator. */
+  private final long seed;
+
+  /** The random number generator. */
+  private final SplittableRandom random;
+
+  /** The number of arrivals generated. */
+  private long numOfGenerated;
+
+  /** The number of arrivals still to generate. */
+  private long remaining;
+
+  /** The time of the last arrival generated. */
+  private double time;
+
+  /**
+   * Create a source of {@code count} arrivals starting after time 0.
+   * @param rate The mean number of arrivals per unit of time.
+   * @param seed The seed of the random number generator.
+   * @param count The number of arrivals, or {@code Long.MAX_VALUE} for a
+   *     run that does not end on its own.
+   */
+  public PoissonArrivalSource(double rate, long seed, long count) {
+    this.rate = rate;
+    this.seed = seed;
+    this.random = new SplittableRandom(seed);
+    this.remaining = count;
+    this.time = 0;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return remaining > 0;
+  }
+
+  @Override
+  public double next() {
+    remaining--;
+    numOfGenerated++;
+    time += -Math.log(1 - random.nextDouble()) / rate;
+    return time;
+  }
+
+  @Override
+  public Optional<ArrivalSource> copy() {
+    PoissonArrivalSource copy = new PoissonArrivalSource(rate, seed, remaining);
+    for (long i = 0; i < numOfGenerated; i++) {
+      copy.random.nextDouble();
+    }
+    copy.numOfGenerated = numOfGenerated;
+    copy.time = time;
+    return Optional.of(copy);
+  }
+}
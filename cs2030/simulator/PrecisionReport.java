@@ -0,0 +1,141 @@
+package cs2030.simulator;
+
+import cs2030.util.BatchMeans;
+import cs2030.util.Summary;
+
+/**
+ * The result of a run under a {@code StoppingRule}: the confidence
+ * interval of the mean waiting time it reached, whether that met the
+ * rule, how many customers the warm-up cut and how many the interval is
+ * from, and how many events were simulated and left unsimulated.
+ *
+ * <p>The events saved are those still pending when the run stopped.  Each
+ * arrival among them would have made a service of its own, and arrivals
+ * a source has not handed out yet are not counted, so the saving is a
+ * lower bound.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class PrecisionReport {
+  /** The rule the run was under. */
+  private final StoppingRule rule;
+
+  /** The summary of the batch means of the waiting times. */
+  private final Summary estimate;
+
+  /** The number of customers the warm-up cut. */
+  private final long warmUp;
+
+  /** The number of customers the interval is from. */
+  private final long used;
+
+  /** The number of values in a base batch MSER was applied to. */
+  private final long batchSize;
+
+  /** The number of events simulated. */
+  private final long numOfEvents;
+
+  /** The number of events left pending. */
+  private final long numOfEventsSaved;
+
+  /**
+   * Create a report.
+   * @param rule The rule the run was under.
+   * @param estimate The summary of the batch means of the waiting times.
+   * @param warmUp The number of customers the warm-up cut.
+   * @param used The number of customers the interval is from.
+   * @param batchSize The number of values in a base batch.
+   * @param numOfEvents The number of events simulated.
+   * @param numOfEventsSaved The number of events left pending.
+   */
+  PrecisionReport(StoppingRule rule, Summary estimate, long warmUp, long used,
+      long batchSize, long numOfEvents, long numOfEventsSaved) {
+    this.rule = rule;
+    this.estimate = estimate;
+    this.warmUp = warmUp;
+    this.used = used;
+    this.batchSize = batchSize;
+    this.numOfEvents = numOfEvents;
+    this.numOfEventsSaved = numOfEventsSaved;
+  }
+
+  /**
+   * Return the estimate of the mean waiting time.
+   * @return The mean of the batch means, or NaN if there were too few
+   *     customers.
+   */
+  public double mean() {
+    return estimate.mean();
+  }
+
+  /**
+   * Return the half-width of the 95% confidence interval of the mean
+   * waiting time.
+   * @return The half-width, or NaN if there were too few customers.
+   */
+  public double halfWidth() {
+    return estimate.halfWidth();
+  }
+
+  /**
+   * Return the precision reached: the half-width over the mean.
+   * @return The relative precision, 0 if every batch had the same mean,
+   *     or NaN if there were too few customers.
+   */
+  public double precision() {
+    double halfWidth = estimate.halfWidth();
+    return halfWidth == 0 ? 0 : halfWidth / Math.abs(estimate.mean());
+  }
+
+  /**
+   * Checks if the run stopped because it reached the precision of the
+   * rule, rather than because it ran out of events.
+   * @return true if the precision was reached; false otherwise.
+   */
+  public boolean converged() {
+    return precision() <= rule.precision();
+  }
+
+  /**
+   * Return the number of customers whose waiting times the warm-up cut.
+   * @return The number of customers.
+   */
+  public long warmUp() {
+    return warmUp;
+  }
+
+  /**
+   * Return the number of events simulated.
+   * @return The number of events.
+   */
+  public long numOfEvents() {
+    return numOfEvents;
+  }
+
+  /**
+   * Return the number of events left pending when the run stopped.
+   * @return The number of events.
+   */
+  public long numOfEventsSaved() {
+    return numOfEventsSaved;
+  }
+
+  /**
+   * Return a string representation of this report.
+   * @return Three lines: the interval and the precision against the
+   *     rule, the customers cut and used, and the events simulated and
+   *     saved.
+   */
+  public String toString() {
+    return String.format("mean waiting time %.3f +/- %.3f (%.2f%%), target %.2f%%: %s\n",
+        mean(), halfWidth(), precision() * 100, rule.precision() * 100,
+        converged() ? "reached" : "not reached")
+        + (rule.cutsWarmUp()
+            ? String.format("warm-up of %d customers cut by MSER-%d; ", warmUp, batchSize)
+            : "warm-up kept; ")
+        + String.format("%d customers in %d batches\n", used, BatchMeans.NUM_OF_BATCHES)
+        + String.format("%d events simulated, at least %d saved", numOfEvents,
+            numOfEventsSaved);
+  }
+}
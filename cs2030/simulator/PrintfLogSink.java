@@ -0,0 +1,45 @@
+package cs2030.simulator;
+
+/**
+ * A LogSink that prints each event with {@code System.out.printf}.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class PrintfLogSink implements LogSink {
+  /**
+   * Return the log text of a server.
+   * @param server The id of the server, or -1 for the shared line.
+   * @param waiting The id of the customer waiting for the server, or -1.
+   * @return The server as {@code Server.toString} prints it.
+   */
+  private static String server(int server, int waiting) {
+    return (server < 0 ? "any server" : "S" + server) + " (Q: "
+        + (waiting < 0 ? "-" : "Optional[C" + waiting + "]") + ")";
+  }
+
+  @Override
+  public void arrives(double time, int customer) {
+    System.out.printf("%6.3f C%d arrives\n", time, customer);
+  }
+
+  @Override
+  public void waits(double time, int customer, int server, int waiting) {
+    System.out.printf("%6.3f C%d waits for %s\n", time, customer, server(server, waiting));
+  }
+
+  @Override
+  public void served(double time, int customer, int server, int waiting) {
+    System.out.printf("%6.3f C%d served by %s\n", time, customer, server(server, waiting));
+  }
+
+  @Override
+  public void done(double time, int customer, int server, int waiting) {
+    System.out.printf("%6.3f C%d done served by %s\n", time, customer, server(server, waiting));
+  }
+
+  @Override
+  public void leaves(double time, int customer) {
+    System.out.printf("%6.3f C%d leaves\n", time, customer);
+  }
+}
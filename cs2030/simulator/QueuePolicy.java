@@ -0,0 +1,107 @@
+package cs2030.simulator;
+
+/**
+ * How customers queue when every server is busy: either each server has
+ * its own queue, which a customer joins at the first server with room,
+ * or all servers share one queue.  A customer who finds no room leaves.
+ * The default, one waiting customer per server, is the shop the
+ * simulator has always modelled.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class QueuePolicy {
+  /** The capacity of a queue with no limit. */
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  /** One waiting customer per server. */
+  public static final QueuePolicy DEFAULT = perServer(1);
+
+  /** The capacity of each queue. */
+  private final int capacity;
+
+  /** Whether the servers share one queue. */
+  private final boolean shared;
+
+  /**
+   * Create a policy.
+   * @param capacity The capacity of each queue.
+   * @param shared Whether the servers share one queue.
+   */
+  private QueuePolicy(int capacity, boolean shared) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Queue capacity must not be negative: "
+          + capacity);
+    }
+    this.capacity = capacity;
+    this.shared = shared;
+  }
+
+  /**
+   * Return the policy where each server has its own queue.
+   * @param capacity The most customers waiting for each server, or
+   *     {@code UNBOUNDED}.
+   * @return The policy.
+   */
+  public static QueuePolicy perServer(int capacity) {
+    return new QueuePolicy(capacity, false);
+  }
+
+  /**
+   * Return the policy where all servers share one queue, from which a
+   * server takes the next customer when it is done.
+   * @param capacity The most customers waiting in the queue, or
+   *     {@code UNBOUNDED}.
+   * @return The policy.
+   */
+  public static QueuePolicy shared(int capacity) {
+    return new QueuePolicy(capacity, true);
+  }
+
+  /**
+   * Return the capacity of each queue.
+   * @return The capacity.
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Checks if the servers share one queue.
+   * @return true if there is one shared queue; false if each server has
+   *     its own.
+   */
+  public boolean isShared() {
+    return shared;
+  }
+
+  /**
+   * Checks if two policies have the same kind of queue and capacity.
+   * @param obj Another object to compare against.
+   * @return true if obj is an equal policy; false otherwise.
+   */
+  public boolean equals(Object obj) {
+    if (!(obj instanceof QueuePolicy)) {
+      return false;
+    }
+    QueuePolicy other = (QueuePolicy) obj;
+    return capacity == other.capacity && shared == other.shared;
+  }
+
+  /**
+   * Return the hashcode for this policy.
+   * @return A hashcode of the capacity and kind of queue.
+   */
+  public int hashCode() {
+    return 31 * capacity + (shared ? 1 : 0);
+  }
+
+  /**
+   * Return a string representation of this policy.
+   * @return The kind of queue and its capacity.
+   */
+  public String toString() {
+    return (shared ? "shared:" : "per-server:")
+        + (capacity == UNBOUNDED ? "unbounded" : String.valueOf(capacity));
+  }
+}
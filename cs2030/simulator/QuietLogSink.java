@@ -0,0 +1,37 @@
+package cs2030.simulator;
+
+/**
+ * A LogSink that drops every event, for runs where only the statistics
+ * are wanted.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class QuietLogSink implements LogSink {
+  /** The one instance of this sink. */
+  public static final QuietLogSink INSTANCE = new QuietLogSink();
+
+  /** Use {@code INSTANCE}. */
+  private QuietLogSink() {
+  }
+
+  @Override
+  public void arrives(double time, int customer) {
+  }
+
+  @Override
+  public void waits(double time, int customer, int server, int waiting) {
+  }
+
+  @Override
+  public void served(double time, int customer, int server, int waiting) {
+  }
+
+  @Override
+  public void done(double time, int customer, int server, int waiting) {
+  }
+
+  @Override
+  public void leaves(double time, int customer) {
+  }
+}
@@ -0,0 +1,105 @@
+package cs2030.simulator;
+
+import cs2030.util.ArrivalReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * An ArrivalSource that reads arrival times from a sorted arrival file
+ * as the simulation consumes them.  A time earlier than the one before
+ * is reported as a format error, since the simulation would otherwise
+ * go back in time.  A copy opens the file again at the place this source
+ * is, so a source reading a stream, such as standard input, cannot be
+ * copied.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ReaderArrivalSource implements ArrivalSource {
+  /** The reader, positioned after the server count. */
+  private final ArrivalReader reader;
+
+  /** The last arrival time returned. */
+  private double lastTime;
+
+  /** Whether the reader is closed at the end, as the reader of a copy is. */
+  private final boolean closesReader;
+
+  /**
+   * Create a source reading from a reader.
+   * @param reader The reader, positioned at the first arrival time.
+   */
+  public ReaderArrivalSource(ArrivalReader reader) {
+    this(reader, Double.NEGATIVE_INFINITY, false);
+  }
+
+  /**
+   * Create a source reading from a reader, after a given arrival.
+   * @param reader The reader, positioned at the next arrival time.
+   * @param lastTime The last arrival time read.
+   * @param closesReader Whether to close the reader at the end.
+   */
+  private ReaderArrivalSource(ArrivalReader reader, double lastTime,
+      boolean closesReader) {
+    this.reader = reader;
+    this.lastTime = lastTime;
+    this.closesReader = closesReader;
+  }
+
+  /**
+   * Check if there is another arrival.
+   * @return true if the reader has another token.
+   * @throws UncheckedIOException if the input cannot be read.
+   */
+  @Override
+  public boolean hasNext() {
+    try {
+      boolean more = reader.hasNext();
+      if (!more && closesReader) {
+        reader.close();
+      }
+      return more;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Return the next arrival time.
+   * @return The next arrival time.
+   * @throws UncheckedIOException if the input cannot be read, the token is
+   *     not a number, or the time is earlier than the one before.
+   */
+  @Override
+  public double next() {
+    try {
+      double time = reader.nextDouble();
+      if (time < lastTime) {
+        throw reader.error("a time no earlier than " + lastTime);
+      }
+      lastTime = time;
+      return time;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Return a source reading the same file, opened again at the place
+   * this one is.  Its file is closed when it reaches the end.
+   * @return The copy, or empty if the reader reads a stream.
+   * @throws UncheckedIOException if the file cannot be opened.
+   */
+  @Override
+  public Optional<ArrivalSource> copy() {
+    try {
+      Optional<ArrivalReader> copy = reader.reopen();
+      return copy.isPresent()
+          ? Optional.of(new ReaderArrivalSource(copy.get(), lastTime, true))
+          : Optional.empty();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
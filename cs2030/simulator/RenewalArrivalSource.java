@@ -0,0 +1,70 @@
+package cs2030.simulator;
+
+import cs2030.util.Distribution;
+import cs2030.util.RandomStream;
+import java.util.Optional;
+
+/**
+ * An ArrivalSource whose gaps between arrivals are independent values of
+ * a distribution, drawn in batches from the arrival stream of a seed.
+ * With an exponential distribution this is a Poisson process, drawn with
+ * the ziggurat sampler rather than by inverting the distribution as
+ * {@code PoissonArrivalSource} does.  The same seed always gives the same
+ * arrivals.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class RenewalArrivalSource implements ArrivalSource {
+  /** The gaps between arrivals. */
+  private final RandomStream gaps;
+
+  /** The number of arrivals still to generate. */
+  private long remaining;
+
+  /** The time of the last arrival generated. */
+  private double time;
+
+  /**
+   * Create a source of {@code count} arrivals starting after time 0.
+   * @param gaps The distribution of the gaps between arrivals.
+   * @param seed The seed of the random number generator.
+   * @param count The number of arrivals, or {@code Long.MAX_VALUE} for a
+   *     run that does not end on its own.
+   */
+  public RenewalArrivalSource(Distribution gaps, long seed, long count) {
+    this(new RandomStream(gaps, seed, RandomStream.ARRIVALS), count);
+  }
+
+  /**
+   * Create a source of {@code count} arrivals starting after time 0, whose
+   * gaps are drawn from a given stream.
+   * @param gaps The stream of gaps between arrivals.
+   * @param count The number of arrivals, or {@code Long.MAX_VALUE} for a
+   *     run that does not end on its own.
+   */
+  public RenewalArrivalSource(RandomStream gaps, long count) {
+    this.gaps = gaps;
+    this.remaining = count;
+    this.time = 0;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return remaining > 0;
+  }
+
+  @Override
+  public double next() {
+    remaining--;
+    time += gaps.next();
+    return time;
+  }
+
+  @Override
+  public Optional<ArrivalSource> copy() {
+    RenewalArrivalSource copy = new RenewalArrivalSource(gaps.copy(), remaining);
+    copy.time = time;
+    return Optional.of(copy);
+  }
+}
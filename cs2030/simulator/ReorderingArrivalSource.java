@@ -0,0 +1,254 @@
+package cs2030.simulator;
+
+import cs2030.util.ArrivalReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * An ArrivalSource that reads arrival times in roughly increasing order,
+ * such as a live feed, as the simulation consumes them, and puts them in
+ * order through a bounded reorder buffer.  An arrival is held back until
+ * the watermark, the latest time read less the allowed lateness, has
+ * passed it, so that earlier arrivals that are at most that late can
+ * still go ahead of it.  An arrival read after a later one has been
+ * released is too late to simulate, and is dropped and counted.  If the
+ * buffer fills up before the watermark passes its earliest arrival, that
+ * arrival is released early, and counted, so the buffer never holds more
+ * than its capacity.  At the end of the input every buffered arrival is
+ * released.
+ *
+ * <p>As the simulator asks for the next arrival only when the one before
+ * is simulated, a simulation fed from this source does not go past the
+ * watermark, and waits for more input instead.  It holds no more than
+ * the buffer and the customers in the shop, however long the input.
+ *
+ * <p>A copy opens the file again at the place this source has read to,
+ * with the same buffer, so a source reading a stream, such as standard
+ * input, cannot be copied.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ReorderingArrivalSource implements ArrivalSource {
+  /** The reader, positioned after the server count. */
+  private final ArrivalReader reader;
+
+  /** How much earlier than the latest time read an arrival may come. */
+  private final double lateness;
+
+  /** The buffered arrival times, a binary min-heap. */
+  private final double[] heap;
+
+  /** The number of buffered arrivals. */
+  private int size;
+
+  /** The latest arrival time read. */
+  private double latest;
+
+  /** The last arrival time released. */
+  private double lastTime;
+
+  /** Whether the reader has no more arrivals. */
+  private boolean ended;
+
+  /** Whether the reader is closed at the end, as the reader of a copy is. */
+  private boolean closesReader;
+
+  /** The number of arrivals dropped for coming too late. */
+  private long numOfLate;
+
+  /** The number of arrivals released before the watermark passed them. */
+  private long numOfEarly;
+
+  /** The most arrivals buffered at once. */
+  private int peak;
+
+  /**
+   * Create a source reading from a reader.
+   * @param reader The reader, positioned at the first arrival time.
+   * @param lateness How much earlier than the latest time read an arrival
+   *     may come, which may be infinite to order by the buffer alone.
+   * @param capacity The most arrivals buffered.
+   * @throws IllegalArgumentException if the lateness is negative or the
+   *     capacity is not positive.
+   */
+  public ReorderingArrivalSource(ArrivalReader reader, double lateness, int capacity) {
+    if (!(lateness >= 0) || capacity < 1) {
+      throw new IllegalArgumentException("Invalid reorder buffer: lateness " + lateness
+          + ", capacity " + capacity);
+    }
+    this.reader = reader;
+    this.lateness = lateness;
+    this.heap = new double[capacity];
+    this.size = 0;
+    this.latest = Double.NEGATIVE_INFINITY;
+    this.lastTime = Double.NEGATIVE_INFINITY;
+    this.ended = false;
+  }
+
+  /**
+   * Check if there is another arrival, reading until the earliest
+   * buffered arrival can be released.
+   * @return true if another arrival follows.
+   * @throws UncheckedIOException if the input cannot be read or a token
+   *     is not a number.
+   */
+  @Override
+  public boolean hasNext() {
+    fill();
+    return size > 0;
+  }
+
+  /**
+   * Return the next arrival time, reading until it can be released.
+   * @return The next arrival time.
+   * @throws UncheckedIOException if the input cannot be read or a token
+   *     is not a number.
+   */
+  @Override
+  public double next() {
+    fill();
+    if (!ended && heap[0] > latest - lateness) {
+      numOfEarly++;
+    }
+    double time = heap[0];
+    double last = heap[--size];
+    if (size > 0) {
+      siftDown(last);
+    }
+    lastTime = time;
+    return time;
+  }
+
+  /**
+   * Read arrivals into the buffer until its earliest one is no later
+   * than the watermark, the buffer is full or the input ends.
+   * @throws UncheckedIOException if the input cannot be read or a token
+   *     is not a number.
+   */
+  private void fill() {
+    try {
+      while ((size == 0 || heap[0] > latest - lateness) && size < heap.length && !ended) {
+        if (!reader.hasNext()) {
+          ended = true;
+          if (closesReader) {
+            reader.close();
+          }
+          break;
+        }
+        double time = reader.nextDouble();
+        if (time < lastTime) {
+          numOfLate++;
+          continue;
+        }
+        latest = Math.max(latest, time);
+        siftUp(time);
+        peak = Math.max(peak, size);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Add a time to the heap.
+   * @param time The time.
+   */
+  private void siftUp(double time) {
+    int i = size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent] <= time) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = time;
+  }
+
+  /**
+   * Put a time in place of the root of the heap, and move it down.
+   * @param time The time.
+   */
+  private void siftDown(double time) {
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (time <= heap[child]) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = time;
+  }
+
+  /**
+   * Return a source reading the same file, opened again at the place
+   * this one has read to, with the same arrivals buffered.  Its file is
+   * closed when it reaches the end.
+   * @return The copy, or empty if the reader reads a stream.
+   * @throws UncheckedIOException if the file cannot be opened.
+   */
+  @Override
+  public Optional<ArrivalSource> copy() {
+    Optional<ArrivalReader> reader;
+    try {
+      reader = this.reader.reopen();
+      if (reader.isPresent() && ended) {
+        // The copy reads no more, so its file is closed at once.
+        reader.get().close();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (!reader.isPresent()) {
+      return Optional.empty();
+    }
+    ReorderingArrivalSource copy = new ReorderingArrivalSource(reader.get(), lateness,
+        heap.length);
+    System.arraycopy(heap, 0, copy.heap, 0, size);
+    copy.size = size;
+    copy.latest = latest;
+    copy.lastTime = lastTime;
+    copy.ended = ended;
+    copy.closesReader = true;
+    copy.numOfLate = numOfLate;
+    copy.numOfEarly = numOfEarly;
+    copy.peak = peak;
+    return Optional.of(copy);
+  }
+
+  /**
+   * Return the number of arrivals dropped for coming too late.
+   * @return The number of arrivals.
+   */
+  public long numOfLate() {
+    return numOfLate;
+  }
+
+  /**
+   * Return the number of arrivals released before the watermark passed
+   * them, as the buffer was full.
+   * @return The number of arrivals.
+   */
+  public long numOfEarly() {
+    return numOfEarly;
+  }
+
+  /**
+   * Return a string representation of this source.
+   * @return The capacity and most use of the buffer, and the number of
+   *     arrivals dropped and released early.
+   */
+  public String toString() {
+    return String.format("reorder buffer: %d of %d used, %d late arrivals dropped,"
+        + " %d released early", peak, heap.length, numOfLate, numOfEarly);
+  }
+}
@@ -0,0 +1,161 @@
+package cs2030.simulator;
+
+import cs2030.util.Summary;
+
+/**
+ * The combined result of independent replications of a simulation.
+ * Each replication contributes one value to the summaries of average
+ * waiting time, served count and lost count, and its statistics are also
+ * pooled as if all customers had been in one run, including the
+ * percentiles of their waiting times.  Reports of disjoint
+ * sets of replications can be merged.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ReplicationReport {
+  /** Summary of the average waiting time of each replication. */
+  private final Summary waitingTime;
+
+  /** Summary of the number served in each replication. */
+  private final Summary served;
+
+  /** Summary of the number lost in each replication. */
+  private final Summary lost;
+
+  /** The statistics of all replications pooled together. */
+  private final Statistics pooled;
+
+  /**
+   * Create a report.
+   * @param waitingTime Summary of the average waiting times.
+   * @param served Summary of the numbers served.
+   * @param lost Summary of the numbers lost.
+   * @param pooled The pooled statistics.
+   */
+  private ReplicationReport(Summary waitingTime, Summary served, Summary lost,
+      Statistics pooled) {
+    this.waitingTime = waitingTime;
+    this.served = served;
+    this.lost = lost;
+    this.pooled = pooled;
+  }
+
+  /**
+   * Return the report of no replications.
+   * @return An empty report.
+   */
+  static ReplicationReport empty() {
+    return new ReplicationReport(new Summary(), new Summary(), new Summary(),
+        new Statistics());
+  }
+
+  /**
+   * Return the report of a single replication.
+   * @param stats The statistics of the replication.
+   * @return The report.
+   */
+  static ReplicationReport of(Statistics stats) {
+    Summary waiting = new Summary();
+    if (stats.numOfServedCustomers() > 0) {
+      waiting = waiting.add(stats.averageWaitingTime());
+    }
+    return new ReplicationReport(waiting,
+        new Summary().add(stats.numOfServedCustomers()),
+        new Summary().add(stats.numOfLostCustomers()),
+        new Statistics().merge(stats));
+  }
+
+  /**
+   * Combine this report with that of other replications.
+   * @param other The other report.
+   * @return A new report covering both.
+   */
+  public ReplicationReport merge(ReplicationReport other) {
+    return new ReplicationReport(waitingTime.merge(other.waitingTime),
+        served.merge(other.served), lost.merge(other.lost), pooled.merge(other.pooled));
+  }
+
+  /**
+   * Return the number of replications in this report.
+   * @return The number of replications.
+   */
+  public long numOfReplications() {
+    return served.count();
+  }
+
+  /**
+   * Return the summary of the average waiting time per replication.
+   * @return The summary.
+   */
+  public Summary waitingTime() {
+    return waitingTime;
+  }
+
+  /**
+   * Return the summary of the number served per replication.
+   * @return The summary.
+   */
+  public Summary served() {
+    return served;
+  }
+
+  /**
+   * Return the summary of the number lost per replication.
+   * @return The summary.
+   */
+  public Summary lost() {
+    return lost;
+  }
+
+  /**
+   * Return the fraction of all customers, over every replication, who
+   * left without being served.
+   * @return The pooled loss rate.
+   */
+  public double lossRate() {
+    double lost = pooled.numOfLostCustomers();
+    return lost / (lost + pooled.numOfServedCustomers());
+  }
+
+  /**
+   * Return the waiting time below which the given percentage of all
+   * served customers, over every replication, fall.
+   * @param percentile The percentage, from 0 to 100.
+   * @return The pooled waiting time at the percentile.
+   */
+  public double waitingTimeAt(double percentile) {
+    return pooled.waitingTimes().valueAt(percentile);
+  }
+
+  /**
+   * Return the pooled statistics in the form {@code SimState.toString}
+   * prints them.
+   * @return The pooled statistics.
+   */
+  public String pooled() {
+    return pooled.toString();
+  }
+
+  /**
+   * Return a string representation of this report.
+   * @return One line per measure with its mean, 95% half-width and
+   *     variance, then the pooled statistics and waiting time percentiles.
+   */
+  public String toString() {
+    return String.format("replications %d\n", numOfReplications())
+        + line("waiting", waitingTime) + line("served", served) + line("lost", lost)
+        + "pooled " + pooled + "\n"
+        + "waits  " + pooled.waitingTimes();
+  }
+
+  /**
+   * Format one measure of the report.
+   * @param name The name of the measure.
+   * @param summary The summary of the measure.
+   * @return One line of the report.
+   */
+  private static String line(String name, Summary summary) {
+    return String.format("%-8s %s (var %.3f)\n", name, summary, summary.variance());
+  }
+}
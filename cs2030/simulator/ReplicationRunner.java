@@ -0,0 +1,174 @@
+package cs2030.simulator;
+
+import cs2030.util.ConstantDistribution;
+import cs2030.util.Distribution;
+import cs2030.util.RandomStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * The ReplicationRunner class runs independent replications of one
+ * simulation, each with its own seed, across the cores of a fork-join
+ * pool, and merges their statistics into a {@code ReplicationReport}.
+ * Replications log nothing.  Each one owns all of its state, so they do
+ * not interfere with each other.  Service times, if random, are drawn
+ * from the service stream of the seed of each replication.
+ *
+ * <p>Usage: {@code java cs2030.simulator.ReplicationRunner SERVERS RATE
+ * ARRIVALS REPLICATIONS [THREADS]}, which replicates a shop with Poisson
+ * arrivals at the given rate.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ReplicationRunner {
+  /** The number of servers in each replication. */
+  private final int numOfServers;
+
+  /** The distribution of the time a server takes to serve a customer. */
+  private final Distribution serviceTime;
+
+  /** Makes the arrival source of a replication from its seed. */
+  private final LongFunction<ArrivalSource> arrivals;
+
+  /**
+   * Create a runner.
+   * @param numOfServers The number of servers in each replication.
+   * @param arrivals Makes the arrival source of a replication from its seed.
+   */
+  public ReplicationRunner(int numOfServers, LongFunction<ArrivalSource> arrivals) {
+    this(numOfServers, Simulator.SERVICE_TIME, arrivals);
+  }
+
+  /**
+   * Create a runner with the given service time.
+   * @param numOfServers The number of servers in each replication.
+   * @param serviceTime The time a server takes to serve a customer.
+   * @param arrivals Makes the arrival source of a replication from its seed.
+   */
+  public ReplicationRunner(int numOfServers, double serviceTime,
+      LongFunction<ArrivalSource> arrivals) {
+    this(numOfServers, new ConstantDistribution(serviceTime), arrivals);
+  }
+
+  /**
+   * Create a runner with random service times.
+   * @param numOfServers The number of servers in each replication.
+   * @param serviceTime The distribution of the service times.
+   * @param arrivals Makes the arrival source of a replication from its seed.
+   */
+  public ReplicationRunner(int numOfServers, Distribution serviceTime,
+      LongFunction<ArrivalSource> arrivals) {
+    this.numOfServers = numOfServers;
+    this.serviceTime = serviceTime;
+    this.arrivals = arrivals;
+  }
+
+  /**
+   * Run replications with seeds {@code firstSeed} to
+   * {@code firstSeed + replications - 1}.
+   * @param firstSeed The seed of the first replication.
+   * @param replications The number of replications.
+   * @param pool The pool to run them on.
+   * @return The merged report.
+   */
+  public ReplicationReport run(long firstSeed, int replications, ForkJoinPool pool) {
+    return pool.invoke(task(firstSeed, replications));
+  }
+
+  /**
+   * Return a task that runs replications with seeds {@code firstSeed} to
+   * {@code firstSeed + replications - 1}, for callers that schedule many
+   * runners on one pool.
+   * @param firstSeed The seed of the first replication.
+   * @param replications The number of replications.
+   * @return The task, which yields the merged report.
+   */
+  public ForkJoinTask<ReplicationReport> task(long firstSeed, int replications) {
+    return new Replications(firstSeed, firstSeed + replications);
+  }
+
+  /**
+   * Run one replication.
+   * @param seed The seed of the replication.
+   * @return The statistics of the replication.
+   */
+  Statistics runOne(long seed) {
+    RandomStream serviceTimes = new RandomStream(serviceTime, seed,
+        RandomStream.SERVICE_TIMES);
+    return Simulator.builder(numOfServers).serviceTimes(serviceTimes)
+        .log(QuietLogSink.INSTANCE).arrivals(arrivals.apply(seed)).build().run().statistics();
+  }
+
+  /**
+   * A task that runs a range of seeds, splitting it in half until one
+   * seed is left.  Like every ForkJoinTask it is Serializable, but it is
+   * never serialized.
+   */
+  @SuppressWarnings("serial")
+  private class Replications extends RecursiveTask<ReplicationReport> {
+    /** The first seed of the range. */
+    private final long from;
+
+    /** One past the last seed of the range. */
+    private final long to;
+
+    /**
+     * Create a task for a range of seeds.
+     * @param from The first seed.
+     * @param to One past the last seed.
+     */
+    Replications(long from, long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected ReplicationReport compute() {
+      if (to - from == 0) {
+        return ReplicationReport.empty();
+      }
+      if (to - from == 1) {
+        return ReplicationReport.of(runOne(from));
+      }
+      long mid = from + (to - from) / 2;
+      Replications left = new Replications(from, mid);
+      left.fork();
+      ReplicationReport right = new Replications(mid, to).compute();
+      return left.join().merge(right);
+    }
+  }
+
+  /**
+   * Replicate a shop with Poisson arrivals and print the report.
+   *
+   * @param args The number of servers, the arrival rate, the number of
+   *     arrivals per replication, the number of replications, and
+   *     optionally the number of threads.
+   */
+  public static void main(String[] args) {
+    if (args.length < 4) {
+      System.err.println("Usage: java cs2030.simulator.ReplicationRunner"
+          + " SERVERS RATE ARRIVALS REPLICATIONS [THREADS]");
+      return;
+    }
+    int numOfServers = Integer.parseInt(args[0]);
+    double rate = Double.parseDouble(args[1]);
+    long numOfArrivals = Long.parseLong(args[2]);
+    int replications = Integer.parseInt(args[3]);
+    int threads = args.length > 4 ? Integer.parseInt(args[4])
+        : Runtime.getRuntime().availableProcessors();
+
+    ReplicationRunner runner = new ReplicationRunner(numOfServers,
+        seed -> new PoissonArrivalSource(rate, seed, numOfArrivals));
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    long start = System.nanoTime();
+    ReplicationReport report = runner.run(1, replications, pool);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    pool.shutdown();
+    System.out.println(report);
+    System.out.printf("%.3f s on %d threads\n", seconds, threads);
+  }
+}
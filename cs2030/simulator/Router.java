@@ -0,0 +1,18 @@
+package cs2030.simulator;
+
+/**
+ * A Router sends the customers of one shop on to the next.  A shop tells
+ * its router the time a customer will be done when their service starts,
+ * which is before the customer is done by at least the shortest service
+ * time, so a shop downstream can be told of the arrival ahead of time.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+interface Router {
+  /**
+   * Route a customer whose service has started.
+   * @param time The time the customer will be done.
+   */
+  void route(double time);
+}
@@ -1,36 +1,86 @@
 package cs2030.simulator;
 
+import cs2030.util.BinaryReader;
+import cs2030.util.BinaryWriter;
+import java.io.IOException;
 import java.util.Optional;
 
 /**
  * The Server class keeps track of who is the customer being served (if any)
- * and who is the customer waiting to be served (if any).
+ * and who are the customers waiting to be served, in the order they
+ * came.  Customers are kept by id, and waiting customers with their
+ * arrival times in a {@code CustomerQueue}, so that the simulator can
+ * change a server without allocating; the methods that take and return
+ * {@code Optional} wrap the same state.  By default a server has room for
+ * one waiting customer.
  *
  * @author Kirsten
  * @author weitsang
  * @version CS2030 AY17/18 Sem 2 Lab 4b
  */
 class Server {
-  /** The unique ID of the last created server. */
-  private static int lastServerId = 0;
-
   /** The unique ID of this server. */
   private final int id;
 
-  /** The customer currently being served, if any. */
-  private Optional<Customer> currentCustomer;
+  /** The ID of the customer currently being served, or -1. */
+  private int currentCustomerId;
 
-  /** The customer currently waiting, if any. */
-  private Optional<Customer> waitingCustomer;
+  /** The customers waiting for this server. */
+  private final CustomerQueue queue;
 
   /**
    * Creates a server and initalizes it with a unique id.
+   * @param id The unique ID of this server within its shop.
+   */
+  public Server(int id) {
+    this(id, 1);
+  }
+
+  /**
+   * Creates a server with room for the given number of waiting customers.
+   * @param id The unique ID of this server within its shop.
+   * @param queueCapacity The most customers that can wait for this server,
+   *     or {@code QueuePolicy.UNBOUNDED}.
+   */
+  Server(int id, int queueCapacity) {
+    this.currentCustomerId = -1;
+    this.queue = new CustomerQueue(queueCapacity);
+    this.id = id;
+  }
+
+  /**
+   * Create a server with the same customers as another, which then
+   * changes independently of it.
+   * @param other The server to copy.
+   */
+  private Server(Server other) {
+    this.id = other.id;
+    this.currentCustomerId = other.currentCustomerId;
+    this.queue = other.queue.copy();
+  }
+
+  /**
+   * Return a copy of this server, with its own queue.
+   * @return The copy.
    */
-  public Server() {
-    this.currentCustomer = Optional.empty();
-    this.waitingCustomer = Optional.empty();
-    this.id = Server.lastServerId;
-    Server.lastServerId++;
+  Server copy() {
+    return new Server(this);
+  }
+
+  /**
+   * Return the unique ID of this server.
+   * @return The ID of this server.
+   */
+  int id() {
+    return this.id;
+  }
+
+  /**
+   * Return the customers waiting for this server.
+   * @return The queue.
+   */
+  CustomerQueue queue() {
+    return this.queue;
   }
 
   /**
@@ -38,8 +88,15 @@ class Server {
    * @return A new server with the current customer removed.
    */
   public Optional<Server> makeIdle() {
-    this.currentCustomer = Optional.empty();
-    return Optional.of(this);
+    return Optional.of(serve(-1));
+  }
+
+  /**
+   * Return the ID of the customer being served.
+   * @return The ID, or -1 if the server is idle.
+   */
+  int currentCustomerId() {
+    return this.currentCustomerId;
   }
 
   /**
@@ -47,7 +104,7 @@ class Server {
    * @return true if the server is idle (no current customer); false otherwise.
    */
   public boolean isIdle() {
-    return !this.currentCustomer.isPresent();
+    return this.currentCustomerId < 0;
   }
 
   /**
@@ -55,23 +112,41 @@ class Server {
    * @return true if a customer is waiting for given server; false otherwise.
    */
   public boolean customerWaiting() {
-    return this.waitingCustomer.isPresent(); //!=null
+    return !this.queue.isEmpty();
   }
 
   /**
-   * Returns waiting customer for given server.
+   * Checks if another customer can wait for given server.
+   * @return true if the queue of the server is not full; false otherwise.
+   */
+  boolean hasRoom() {
+    return !this.queue.isFull();
+  }
+
+  /**
+   * Returns the customer at the head of the queue of given server.
    * @return customer waiting for given server.
    */
   public Optional<Customer> getWaitingCustomer() {
-    return this.waitingCustomer;
+    return customerWaiting()
+        ? Optional.of(new Customer(queue.peekId(), queue.peekArrived()))
+        : Optional.empty();
   }
 
   /**
-   * Removes the customer waiting for given server.
+   * Returns the ID of the customer at the head of the queue of given server.
+   * @return ID of the waiting customer, or -1 if there is none.
+   */
+  int waitingCustomerId() {
+    return this.queue.peekId();
+  }
+
+  /**
+   * Removes the customer at the head of the queue of given server.
    * @return The new server with waiting customer removed.
    */
   public Optional<Server> removeWaitingCustomer() {
-    this.waitingCustomer = Optional.empty();
+    this.queue.remove();
     return Optional.of(this);
   }
 
@@ -81,20 +156,63 @@ class Server {
    * @return The new server serving this customer.
    */
   public Optional<Server> serve(Optional<Customer> opCustomer) {
-    this.currentCustomer = opCustomer;
-    return Optional.of(this);
+    return Optional.of(serve(opCustomer.isPresent() ? opCustomer.get().id() : -1));
+  }
+
+  /**
+   * Serve a customer, without wrapping anything.
+   * @param customerId The ID of the customer to be served, or -1 to make
+   *     the server idle.
+   * @return This server.
+   */
+  Server serve(int customerId) {
+    this.currentCustomerId = customerId;
+    return this;
   }
 
   /**
-   * Make a customer wait for this server.
+   * Make a customer wait for this server.  The server must have room.
    * @param opCustomer The customer who will wait for this server.
    * @return The new server with a waiting customer.
    */
   public Optional<Server> askToWait(Optional<Customer> opCustomer) {
-    this.waitingCustomer = opCustomer;
+    opCustomer.ifPresent(c -> askToWait(c.id(), c.timeArrived()));
     return Optional.of(this);
   }
 
+  /**
+   * Make a customer wait for this server, without wrapping anything.
+   * The server must have room.
+   * @param customerId The ID of the customer who will wait.
+   * @param timeArrived The time the customer arrived.
+   * @return This server.
+   */
+  Server askToWait(int customerId, double timeArrived) {
+    this.queue.add(customerId, timeArrived);
+    return this;
+  }
+
+  /**
+   * Write the customer being served and the customers waiting.
+   * @param out The writer.
+   * @throws IOException if the file cannot be written.
+   */
+  void writeTo(BinaryWriter out) throws IOException {
+    out.putInt(currentCustomerId);
+    queue.writeTo(out);
+  }
+
+  /**
+   * Replace the customer being served and the customers waiting with
+   * those written by {@code writeTo}.
+   * @param in The reader.
+   * @throws IOException if the file cannot be read or is malformed.
+   */
+  void readFrom(BinaryReader in) throws IOException {
+    currentCustomerId = in.getInt();
+    queue.readFrom(in);
+  }
+
   /**
    * Return a string representation of this server.
    * @return A string S followed by the ID of the server, followed by the
@@ -102,7 +220,7 @@ class Server {
    */
   public String toString() {
     return "S" + this.id + " (Q: " +
-        ((waitingCustomer.isPresent()) ? waitingCustomer : "-") + ")";
+        (customerWaiting() ? getWaitingCustomer() : "-") + ")";
   }
 
   /**
@@ -1,60 +1,270 @@
 package cs2030.simulator;
 
-import java.util.ArrayList;
+import cs2030.util.BinaryReader;
+import cs2030.util.BinaryWriter;
+import cs2030.util.ConstantDistribution;
+import cs2030.util.IdSet;
+import cs2030.util.RandomStream;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.Optional;
-import java.util.stream.IntStream;
 
 /**
  * A shop object maintains the list of servers and support queries
- * for server.
+ * for server.  Servers are kept in an array indexed by their id, so
+ * a server can be replaced in constant time.  The shop also keeps the
+ * set of idle servers and the set of servers with room for another
+ * waiting customer, so that the lowest such server can be found without
+ * a scan.  How many customers can wait, and whether they wait for one
+ * server or in one line for any server, is set by a {@code QueuePolicy}.
+ *
+ * <p>A shop forked from another, to try out a change, may have fewer
+ * servers open than it has.  A closed server takes no new customer, from
+ * the door or from the shared line, but serves those it already has.
  *
  * @author Kirsten
  * @author weitsang
  * @version CS2030 AY17/18 Sem 2 Lab 4b
  */
 class Shop {
-  /** List of servers. */
-  private final List<Optional<Server>> servers;
+  /** Servers, indexed by their id. */
+  private final Server[] servers;
+
+  /** Indices of servers that are idle. */
+  private final IdSet idle;
+
+  /** Indices of servers with room for another waiting customer. */
+  private final IdSet noWaiting;
+
+  /** The times servers take to serve customers, one per service. */
+  private final RandomStream serviceTimes;
+
+  /** The line every server serves from, or null if each has its own. */
+  private final CustomerQueue sharedQueue;
+
+  /** How many customers can wait, and where. */
+  private final QueuePolicy policy;
+
+  /** The number of open servers; servers with this id or higher are closed. */
+  private int numOfOpen;
 
   /**
-   * Create a new shop with a given number of servers.
+   * Create a new shop with a given number of servers, each taking
+   * {@code Simulator.SERVICE_TIME} to serve a customer.
    * @param numOfServers The number of servers.
    */
   Shop(int numOfServers) {
-    this.servers = Stream.generate(() -> Optional.of(new Server()))
-      .limit(numOfServers)
-      .collect(Collectors.toList());
+    this(numOfServers, Simulator.SERVICE_TIME);
+  }
+
+  /**
+   * Create a new shop with a given number of servers.
+   * @param numOfServers The number of servers.
+   * @param serviceTime The time a server takes to serve a customer.
+   */
+  Shop(int numOfServers, double serviceTime) {
+    this(numOfServers, serviceTime, QueuePolicy.DEFAULT);
+  }
+
+  /**
+   * Create a new shop with a given number of servers and queues.
+   * @param numOfServers The number of servers.
+   * @param serviceTime The time a server takes to serve a customer.
+   * @param policy How many customers can wait, and where.
+   */
+  Shop(int numOfServers, double serviceTime, QueuePolicy policy) {
+    this(numOfServers, constant(serviceTime), policy);
+  }
+
+  /**
+   * Create a new shop whose service times are drawn from a stream.
+   * @param numOfServers The number of servers.
+   * @param serviceTimes The times servers take to serve customers.
+   * @param policy How many customers can wait, and where.
+   */
+  Shop(int numOfServers, RandomStream serviceTimes, QueuePolicy policy) {
+    this.serviceTimes = serviceTimes;
+    this.policy = policy;
+    this.sharedQueue = policy.isShared() ? new CustomerQueue(policy.capacity()) : null;
+    int perServer = policy.isShared() ? 0 : policy.capacity();
+    this.servers = new Server[numOfServers];
+    for (int i = 0; i < numOfServers; i++) {
+      this.servers[i] = new Server(i, perServer);
+    }
+    this.numOfOpen = numOfServers;
+    this.idle = new IdSet(numOfServers);
+    this.noWaiting = new IdSet(numOfServers);
+    reindexAll();
+  }
+
+  /**
+   * Create a copy of a shop, with its own servers and queues, a given
+   * number of servers open and service times drawn from a given stream.
+   * Servers are opened from the lowest closed id, and added idle if
+   * there are not enough.
+   * @param other The shop to copy.
+   * @param numOfOpen The number of open servers.
+   * @param serviceTimes The times servers take to serve customers.
+   */
+  private Shop(Shop other, int numOfOpen, RandomStream serviceTimes) {
+    this.serviceTimes = serviceTimes;
+    this.policy = other.policy;
+    this.sharedQueue = other.sharedQueue == null ? null : other.sharedQueue.copy();
+    int perServer = policy.isShared() ? 0 : policy.capacity();
+    this.servers = new Server[Math.max(other.servers.length, numOfOpen)];
+    for (int i = 0; i < servers.length; i++) {
+      this.servers[i] = i < other.servers.length ? other.servers[i].copy()
+          : new Server(i, perServer);
+    }
+    this.numOfOpen = numOfOpen;
+    this.idle = new IdSet(servers.length);
+    this.noWaiting = new IdSet(servers.length);
+    reindexAll();
   }
 
   /**
    * Create a copy of shop with old shop.
-   * @param newServers The old server list.
+   * @param newServers The old server list, in order of id from 0.
    */
   public Shop(List<Optional<Server>> newServers) {
-    this.servers = newServers;
+    this.serviceTimes = constant(Simulator.SERVICE_TIME);
+    this.policy = QueuePolicy.DEFAULT;
+    this.sharedQueue = null;
+    this.servers = newServers.stream().map(Optional::get).toArray(Server[]::new);
+    this.numOfOpen = this.servers.length;
+    this.idle = new IdSet(this.servers.length);
+    this.noWaiting = new IdSet(this.servers.length);
+    reindexAll();
   }
 
   /**
-   * If the server has changed, 
+   * Return a stream that always gives the same service time.
+   * @param serviceTime The service time.
+   * @return The stream.
+   */
+  static RandomStream constant(double serviceTime) {
+    return new RandomStream(new ConstantDistribution(serviceTime), 0);
+  }
+
+  /**
+   * Return a copy of this shop, which then changes independently of it,
+   * with a given number of servers open.  This takes O(servers + waiting
+   * customers).
+   * @param numOfOpen The number of open servers.
+   * @param serviceTimes The times servers of the copy take to serve
+   *     customers.
+   * @return The copy.
+   * @throws IllegalArgumentException if no server is open, which would
+   *     leave customers in the shared line with no one to serve them.
+   */
+  Shop fork(int numOfOpen, RandomStream serviceTimes) {
+    if (numOfOpen < 1) {
+      throw new IllegalArgumentException("At least one server must be open: " + numOfOpen);
+    }
+    return new Shop(this, numOfOpen, serviceTimes);
+  }
+
+  /**
+   * Return the number of open servers.
+   * @return The number of open servers.
+   */
+  int numOfOpen() {
+    return numOfOpen;
+  }
+
+  /**
+   * Return the stream the service times are drawn from.
+   * @return The stream.
+   */
+  RandomStream serviceTimes() {
+    return serviceTimes;
+  }
+
+  /** Rebuild the idle and no-waiting sets from every server. */
+  private void reindexAll() {
+    for (int i = 0; i < servers.length; i++) {
+      reindex(i);
+    }
+  }
+
+  /**
+   * Bring the idle and no-waiting sets up to date for one server.
+   * @param index The index of the server.
+   */
+  private void reindex(int index) {
+    boolean open = index < numOfOpen;
+    idle.set(index, open && servers[index].isIdle());
+    noWaiting.set(index, open && servers[index].hasRoom());
+  }
+
+  /**
+   * Return the time a server takes to serve the next customer.
+   * @return The service time.
+   */
+  double nextServiceTime() {
+    return serviceTimes.next();
+  }
+
+  /**
+   * Return the queue the customers waiting for a server are in: the
+   * shared line, if there is one and the server is open, or else the
+   * server's own.
+   * @param server The server.
+   * @return The queue.
+   */
+  CustomerQueue queueOf(Server server) {
+    return sharedQueue != null && server.id() < numOfOpen ? sharedQueue : server.queue();
+  }
+
+  /**
+   * Checks if the servers of this shop serve from one shared line.
+   * @return true if there is a shared line; false otherwise.
+   */
+  boolean hasSharedQueue() {
+    return sharedQueue != null;
+  }
+
+  /**
+   * Return the shared line every server serves from.
+   * @return The shared queue, or null if each server has its own.
+   */
+  CustomerQueue sharedQueue() {
+    return sharedQueue;
+  }
+
+  /**
+   * If the server has changed,
    * need to update the shop.
    *
    * @param server Updated server.
-   * @return A new Shop.
+   * @return The updated Shop.
    */
   public Shop update(Optional<Server> server) {
-    List<Optional<Server>> newServers = new ArrayList<>();
-    newServers.addAll(this.servers);
-    int index = 0;
-    newServers.forEach(s -> {
-      if (s.equals(server)) {
-        newServers.set(newServers.indexOf(s), server);
-      }
-    });
-    return new Shop(newServers);
+    return server.isPresent() ? update(server.get()) : this;
+  }
+
+  /**
+   * Update the shop after a server has changed, without wrapping anything.
+   *
+   * @param server Updated server.
+   * @return The updated Shop.
+   */
+  Shop update(Server server) {
+    this.servers[server.id()] = server;
+    reindex(server.id());
+    return this;
+  }
+
+  /**
+   * Return the server with the given id.
+   *
+   * @param id The id of the server.
+   * @return The server.
+   */
+  Server server(int id) {
+    return servers[id];
   }
 
   /**
@@ -63,12 +273,17 @@ class Shop {
    * @return An idle server, or {@code Optional.empty()} if every server is busy.
    */
   public Optional<Server> findIdleServer() {
-    return servers.stream().filter(s -> s.get().isIdle())
-      .findFirst()
-      .orElse(Optional.empty());
+    return serverAt(findIdleServerId());
   }
 
-  
+  /**
+   * Return the id of the first idle server in the list.
+   *
+   * @return The id of an idle server, or -1 if every server is busy.
+   */
+  int findIdleServerId() {
+    return idle.first();
+  }
 
   /**
    * Return the first server with no waiting customer.
@@ -76,21 +291,93 @@ class Shop {
    *     server already has a waiting customer.
    */
   public Optional<Server> findServerWithNoWaitingCustomer() {
-    return servers.stream().filter(s -> !s.get().customerWaiting())
-      .findFirst()
-      .orElse(Optional.empty());
+    return serverAt(findServerIdWithNoWaitingCustomer());
   }
 
   /**
-   * Return the first idle server in the list.
+   * Return the id of the first server with room for another waiting
+   * customer.  With a capacity of one, this is a server with no waiting
+   * customer.
+   * @return The id of a server with room, or -1 if the queue of every
+   *     server is full.
+   */
+  int findServerIdWithNoWaitingCustomer() {
+    return noWaiting.first();
+  }
+
+  /**
+   * Return the server at an index.
+   * @param index The index of the server, or -1.
+   * @return The server, or {@code Optional.empty()} if the index is -1.
+   */
+  private Optional<Server> serverAt(int index) {
+    return index < 0 ? Optional.empty() : Optional.of(servers[index]);
+  }
+
+  /**
+   * Return the first server in the list that satisfies the predicate.
    *
    * @param predicate The predicate(lambda expression) to find the target.
-   * @return An idle server, or {@code Optional.empty()} if every server is busy.
+   * @return A matching server, or {@code Optional.empty()} if no server matches.
    */
   public Optional<Server> findServer(Predicate<Optional<Server>> predicate) {
-    return servers.stream().filter(predicate)
-      .findFirst()
-      .orElse(Optional.empty());
+    for (Server s : servers) {
+      Optional<Server> opServer = Optional.of(s);
+      if (predicate.test(opServer)) {
+        return opServer;
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Write the shop: its number of servers and of open ones, its queue
+   * policy, how many service times have been drawn, and the state of
+   * every server and of the shared line.
+   * @param out The writer.
+   * @throws IOException if the file cannot be written.
+   */
+  void writeTo(BinaryWriter out) throws IOException {
+    out.putInt(servers.length).putInt(numOfOpen).putByte(policy.isShared() ? 1 : 0)
+        .putInt(policy.capacity()).putLong(serviceTimes.position());
+    for (Server server : servers) {
+      server.writeTo(out);
+    }
+    if (sharedQueue != null) {
+      sharedQueue.writeTo(out);
+    }
+  }
+
+  /**
+   * Read a shop written by {@code writeTo}.
+   * @param in The reader.
+   * @param serviceTimes A new stream of the service times the shop was
+   *     drawing from, which is brought to where the shop was.
+   * @return The shop.
+   * @throws IOException if the file cannot be read or is malformed.
+   */
+  static Shop readFrom(BinaryReader in, RandomStream serviceTimes) throws IOException {
+    int numOfServers = in.getInt();
+    int numOfOpen = in.getInt();
+    boolean shared = in.getByte() != 0;
+    int capacity = in.getInt();
+    long position = in.getLong();
+    if (numOfServers < 0 || numOfOpen < 0 || numOfOpen > numOfServers || capacity < 0
+        || position < 0) {
+      throw new IOException("Malformed shop");
+    }
+    Shop shop = new Shop(numOfServers, serviceTimes,
+        shared ? QueuePolicy.shared(capacity) : QueuePolicy.perServer(capacity));
+    serviceTimes.skip(position);
+    for (Server server : shop.servers) {
+      server.readFrom(in);
+    }
+    if (shared) {
+      shop.sharedQueue.readFrom(in);
+    }
+    shop.numOfOpen = numOfOpen;
+    shop.reindexAll();
+    return shop;
   }
 
   /**
@@ -98,6 +385,6 @@ class Shop {
    * @return A string reprensetation of this shop.
    */
   public String toString() {
-    return servers.toString();
+    return Arrays.toString(Arrays.stream(servers).map(Optional::of).toArray());
   }
 }
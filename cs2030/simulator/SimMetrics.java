@@ -0,0 +1,386 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A LogSink that turns the event log into live metrics of a running
+ * simulation: events per second, simulated time, event queue depth,
+ * per-server busy time and utilisation, the time-weighted average queue
+ * length, and the served and lost counts.  Add it next to the text log
+ * with a {@code TeeLogSink}; a simulation without it pays nothing.
+ *
+ * <p>The simulation thread is the only writer.  It keeps the counters in
+ * plain fields and, every {@code PUBLISH_NANOS} or so, publishes a copy
+ * of them as an immutable snapshot through a volatile field, which is
+ * all that other threads read.  Snapshots can be read through a JMX MBean
+ * (see {@code register}) and written to a file periodically (see
+ * {@code writeSnapshots}).  {@code close} publishes and writes the final
+ * snapshot and stops both.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class SimMetrics implements LogSink, SimMetricsMBean {
+  /** The least time between two snapshots, in ns. */
+  private static final long PUBLISH_NANOS = 100_000_000;
+
+  /** The clock is read once every this many events, plus one. */
+  private static final int CLOCK_MASK = 1023;
+
+  /** The event queue of the watched simulator, if any. */
+  private EventQueue events;
+
+  /** The number of arrival and done events simulated. */
+  private long eventsProcessed;
+
+  /** The simulated time of the latest event. */
+  private double time;
+
+  /** The number of customers waiting. */
+  private int queueLength;
+
+  /** The integral of the queue length over simulated time. */
+  private double queueArea;
+
+  /** The number of customers served. */
+  private long served;
+
+  /** The number of customers lost. */
+  private long lost;
+
+  /** Whether each server is serving. */
+  private final boolean[] busy;
+
+  /** The time each busy server started serving. */
+  private final double[] busySince;
+
+  /** The busy time of each server, up to its last done event. */
+  private final double[] busyTime;
+
+  /** The wall-clock time of the latest snapshot, in ns. */
+  private long publishedNanos;
+
+  /** The events simulated as of the latest snapshot. */
+  private long publishedEvents;
+
+  /** The latest snapshot. */
+  private volatile Snapshot snapshot;
+
+  /** The thread that writes snapshot files, if started. */
+  private ScheduledExecutorService writer;
+
+  /** The file snapshots are written to, if any. */
+  private Path snapshotFile;
+
+  /** The name this is registered under with JMX, if registered. */
+  private ObjectName objectName;
+
+  /**
+   * Create the metrics of a shop.
+   * @param numOfServers The number of servers in the shop.
+   */
+  public SimMetrics(int numOfServers) {
+    this.busy = new boolean[numOfServers];
+    this.busySince = new double[numOfServers];
+    this.busyTime = new double[numOfServers];
+    this.publishedNanos = System.nanoTime();
+    this.snapshot = new Snapshot(this, 0);
+  }
+
+  /**
+   * Report the event queue depth of a simulator.  Must be called before
+   * the simulator runs.
+   * @param sim The simulator.
+   * @return This.
+   */
+  public SimMetrics watch(Simulator sim) {
+    this.events = sim.state.events();
+    return this;
+  }
+
+  /**
+   * Publish the metrics through the platform MBean server, under
+   * {@code cs2030.simulator:type=SimMetrics,name=NAME}.
+   * @param name The name of this simulation.
+   * @return This.
+   * @throws JMException if the name is taken or malformed.
+   */
+  public SimMetrics register(String name) throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    objectName = new ObjectName("cs2030.simulator:type=SimMetrics,name="
+        + ObjectName.quote(name));
+    server.registerMBean(this, objectName);
+    return this;
+  }
+
+  /**
+   * Write the latest snapshot to a file periodically, from a daemon
+   * thread.  The file is replaced whole each time, so a reader never
+   * sees half a snapshot.
+   * @param file The file.
+   * @param periodMillis The time between writes, in ms.
+   * @return This.
+   */
+  public SimMetrics writeSnapshots(Path file, long periodMillis) {
+    writer = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "metrics-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+    writer.scheduleAtFixedRate(() -> write(file), periodMillis, periodMillis,
+        TimeUnit.MILLISECONDS);
+    this.snapshotFile = file;
+    return this;
+  }
+
+  /**
+   * Write the latest snapshot to a file.  A failed write is reported and
+   * the next one tried as usual.
+   * @param file The file.
+   */
+  private void write(Path file) {
+    try {
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(tmp, snapshot.toString().getBytes(StandardCharsets.UTF_8));
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException exception) {
+      System.err.println("Unable to write metrics to " + file + " " + exception);
+    }
+  }
+
+  /**
+   * Account for an event at the given time, and publish a snapshot if
+   * one is due.
+   * @param t The time of the event.
+   */
+  private void advance(double t) {
+    queueArea += queueLength * (t - time);
+    time = t;
+    if ((++eventsProcessed & CLOCK_MASK) == 0) {
+      long now = System.nanoTime();
+      if (now - publishedNanos >= PUBLISH_NANOS) {
+        publish(now);
+      }
+    }
+  }
+
+  /**
+   * Publish a snapshot of the metrics.
+   * @param now The wall-clock time, in ns.
+   */
+  private void publish(long now) {
+    double rate = eventsProcessed > publishedEvents && now > publishedNanos
+        ? (eventsProcessed - publishedEvents) * 1e9 / (now - publishedNanos)
+        : snapshot.eventsPerSecond;
+    publishedNanos = now;
+    publishedEvents = eventsProcessed;
+    snapshot = new Snapshot(this, rate);
+  }
+
+  @Override
+  public void arrives(double time, int customer) {
+    advance(time);
+  }
+
+  @Override
+  public void waits(double time, int customer, int server, int waiting) {
+    queueLength++;
+  }
+
+  @Override
+  public void served(double time, int customer, int server, int waiting) {
+    served++;
+    busy[server] = true;
+    busySince[server] = time;
+  }
+
+  @Override
+  public void done(double time, int customer, int server, int waiting) {
+    advance(time);
+    busy[server] = false;
+    busyTime[server] += time - busySince[server];
+    if (waiting >= 0) {
+      queueLength--;
+    }
+  }
+
+  @Override
+  public void leaves(double time, int customer) {
+    lost++;
+  }
+
+  @Override
+  public void flush() {
+    publish(System.nanoTime());
+  }
+
+  @Override
+  public void close() {
+    flush();
+    if (writer != null) {
+      writer.shutdownNow();
+      write(snapshotFile);
+    }
+    if (objectName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      } catch (JMException exception) {
+        // Already gone; nothing to release.
+      }
+    }
+  }
+
+  @Override
+  public long getEventsProcessed() {
+    return snapshot.eventsProcessed;
+  }
+
+  @Override
+  public double getEventsPerSecond() {
+    return snapshot.eventsPerSecond;
+  }
+
+  @Override
+  public double getSimulatedTime() {
+    return snapshot.time;
+  }
+
+  @Override
+  public int getEventQueueDepth() {
+    return snapshot.eventQueueDepth;
+  }
+
+  @Override
+  public int getQueueLength() {
+    return snapshot.queueLength;
+  }
+
+  @Override
+  public double getAverageQueueLength() {
+    return snapshot.averageQueueLength();
+  }
+
+  @Override
+  public long getServedCount() {
+    return snapshot.served;
+  }
+
+  @Override
+  public long getLostCount() {
+    return snapshot.lost;
+  }
+
+  @Override
+  public double[] getServerBusyTime() {
+    return snapshot.busyTime.clone();
+  }
+
+  @Override
+  public double[] getServerUtilisation() {
+    return snapshot.utilisation();
+  }
+
+  /**
+   * Return a string representation of the latest snapshot.
+   * @return One {@code name value} line per metric.
+   */
+  public String toString() {
+    return snapshot.toString();
+  }
+
+  /** An immutable copy of the metrics at one point of the simulation. */
+  private static class Snapshot {
+    /** The number of events simulated. */
+    private final long eventsProcessed;
+
+    /** The events per second over the interval before this snapshot. */
+    private final double eventsPerSecond;
+
+    /** The simulated time. */
+    private final double time;
+
+    /** The event queue depth, or -1. */
+    private final int eventQueueDepth;
+
+    /** The number of customers waiting. */
+    private final int queueLength;
+
+    /** The integral of the queue length over simulated time. */
+    private final double queueArea;
+
+    /** The number of customers served. */
+    private final long served;
+
+    /** The number of customers lost. */
+    private final long lost;
+
+    /** The busy time of each server, up to the simulated time. */
+    private final double[] busyTime;
+
+    /**
+     * Copy the metrics.
+     * @param m The metrics, read on the simulation thread.
+     * @param eventsPerSecond The event rate.
+     */
+    Snapshot(SimMetrics m, double eventsPerSecond) {
+      this.eventsProcessed = m.eventsProcessed;
+      this.eventsPerSecond = eventsPerSecond;
+      this.time = m.time;
+      this.eventQueueDepth = m.events == null ? -1 : m.events.size();
+      this.queueLength = m.queueLength;
+      this.queueArea = m.queueArea;
+      this.served = m.served;
+      this.lost = m.lost;
+      this.busyTime = new double[m.busyTime.length];
+      for (int i = 0; i < busyTime.length; i++) {
+        busyTime[i] = m.busyTime[i] + (m.busy[i] ? m.time - m.busySince[i] : 0);
+      }
+    }
+
+    /**
+     * Return the time-weighted average queue length.
+     * @return The average queue length.
+     */
+    double averageQueueLength() {
+      return time > 0 ? queueArea / time : 0;
+    }
+
+    /**
+     * Return the utilisation of each server.
+     * @return The fraction of the simulated time each server was busy.
+     */
+    double[] utilisation() {
+      double[] u = new double[busyTime.length];
+      for (int i = 0; i < u.length; i++) {
+        u[i] = time > 0 ? busyTime[i] / time : 0;
+      }
+      return u;
+    }
+
+    /**
+     * Return a string representation of this snapshot.
+     * @return One {@code name value} line per metric.
+     */
+    public String toString() {
+      return String.format("eventsProcessed %d\neventsPerSecond %.1f\nsimulatedTime %.6f\n"
+          + "eventQueueDepth %d\nqueueLength %d\naverageQueueLength %.6f\n"
+          + "served %d\nlost %d\nserverBusyTime %s\nserverUtilisation %s\n",
+          eventsProcessed, eventsPerSecond, time, eventQueueDepth, queueLength,
+          averageQueueLength(), served, lost, Arrays.toString(busyTime),
+          Arrays.toString(utilisation()));
+    }
+  }
+}
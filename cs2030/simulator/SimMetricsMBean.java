@@ -0,0 +1,72 @@
+package cs2030.simulator;
+
+/**
+ * The JMX view of a running simulation; see {@code SimMetrics}.  Every
+ * value is from the latest snapshot the simulation has published.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public interface SimMetricsMBean {
+  /**
+   * Return the number of arrival and done events simulated.
+   * @return The number of events.
+   */
+  long getEventsProcessed();
+
+  /**
+   * Return the number of events simulated per second of wall-clock time,
+   * over the interval before the snapshot.
+   * @return The event rate.
+   */
+  double getEventsPerSecond();
+
+  /**
+   * Return the simulated time of the latest event.
+   * @return The simulated time.
+   */
+  double getSimulatedTime();
+
+  /**
+   * Return the number of events waiting in the event queue.
+   * @return The queue depth, or -1 if no simulator is watched.
+   */
+  int getEventQueueDepth();
+
+  /**
+   * Return the number of customers waiting for a server.
+   * @return The queue length.
+   */
+  int getQueueLength();
+
+  /**
+   * Return the time-weighted average number of customers waiting.
+   * @return The average queue length.
+   */
+  double getAverageQueueLength();
+
+  /**
+   * Return the number of customers served.
+   * @return The served count.
+   */
+  long getServedCount();
+
+  /**
+   * Return the number of customers who left without being served.
+   * @return The lost count.
+   */
+  long getLostCount();
+
+  /**
+   * Return the simulated time each server has spent serving.
+   * @return The busy time of each server, by id.
+   */
+  double[] getServerBusyTime();
+
+  /**
+   * Return the fraction of the simulated time each server has spent
+   * serving.
+   * @return The utilisation of each server, by id.
+   */
+  double[] getServerUtilisation();
+}
@@ -1,7 +1,12 @@
 package cs2030.simulator;
 
-import cs2030.util.PriorityQueue;
+import cs2030.util.BinaryReader;
+import cs2030.util.BinaryWriter;
+import cs2030.util.EventHeap;
+import cs2030.util.EventList;
 import cs2030.util.Pair;
+import cs2030.util.RandomStream;
+import java.io.IOException;
 import java.util.Optional;
 
 import java.util.function.Function;
@@ -9,7 +14,19 @@ import java.util.function.Function;
 /**
  * This class encapsulates all the simulation states.  There are four main
  * components: (i) the event queue, (ii) the statistics, (iii) the shop
- * (the servers) and (iv) the event logs.
+ * (the servers) and (iv) the sink that receives the event logs.
+ * The queue, the statistics and the shop are changed in place, so the
+ * methods that simulate an event return this state rather than a copy,
+ * and arrivals and done events are simulated without allocating.  Every
+ * reference to a state sees it as of the latest event simulated; to keep
+ * a state as it is, fork it.
+ *
+ * <p>A state can be forked into an independent copy, to explore what
+ * happens from here under a change to the shop.  The copy shares the
+ * pending events with this state until either takes one out, so on a
+ * {@code PersistentEventList} forking takes O(servers + waiting
+ * customers) whatever the number of events pending; other lists are
+ * copied whole.
  *
  * @author Kirsten
  * @author weitsang
@@ -17,7 +34,7 @@ import java.util.function.Function;
  */
 public class SimState {
   /** The priority queue of events. */
-  private PriorityQueue<Event> events;
+  private final EventQueue events;
 
   /** The statistics maintained. */
   private final Statistics stats;
@@ -25,60 +42,352 @@ public class SimState {
   /** The shop of servers. */
   private final Shop shop;
 
+  /** The sink that receives the event logs. */
+  private final LogSink log;
+
+  /** The id given to the next customer who arrives. */
+  private int nextCustomerId;
+
+  /** The number of arrival times taken from arrival sources. */
+  private long numOfArrivalsTaken;
+
+  /** Told where each customer served goes next, or null if they leave. */
+  private Router router;
+
   /**
-   * Constructor for creating the simulation state from scratch.
+   * Constructor for creating the simulation state from scratch.  Logs
+   * are printed to standard output.
    * @param numOfServers The number of servers.
    */
   public SimState(int numOfServers) {
-    this.shop = new Shop(numOfServers);
+    this(numOfServers, new PrintfLogSink());
+  }
+
+  /**
+   * Constructor for creating the simulation state from scratch.
+   * @param numOfServers The number of servers.
+   * @param log The sink that receives the event logs.
+   */
+  public SimState(int numOfServers, LogSink log) {
+    this(numOfServers, Simulator.SERVICE_TIME, log);
+  }
+
+  /**
+   * Constructor for creating the simulation state from scratch.
+   * @param numOfServers The number of servers.
+   * @param serviceTime The time a server takes to serve a customer.
+   * @param log The sink that receives the event logs.
+   */
+  public SimState(int numOfServers, double serviceTime, LogSink log) {
+    this(numOfServers, serviceTime, QueuePolicy.DEFAULT, log);
+  }
+
+  /**
+   * Constructor for creating the simulation state from scratch.
+   * @param numOfServers The number of servers.
+   * @param serviceTime The time a server takes to serve a customer.
+   * @param policy How many customers can wait, and where.
+   * @param log The sink that receives the event logs.
+   */
+  public SimState(int numOfServers, double serviceTime, QueuePolicy policy, LogSink log) {
+    this(numOfServers, Shop.constant(serviceTime), policy, log);
+  }
+
+  /**
+   * Constructor for creating the simulation state from scratch, with
+   * service times drawn from a stream.
+   * @param numOfServers The number of servers.
+   * @param serviceTimes The times servers take to serve customers.
+   * @param policy How many customers can wait, and where.
+   * @param log The sink that receives the event logs.
+   */
+  public SimState(int numOfServers, RandomStream serviceTimes, QueuePolicy policy,
+      LogSink log) {
+    this(numOfServers, serviceTimes, policy, new EventHeap(), log);
+  }
+
+  /**
+   * Constructor for creating the simulation state from scratch, with
+   * service times drawn from a stream and events kept in a given list.
+   * @param numOfServers The number of servers.
+   * @param serviceTimes The times servers take to serve customers.
+   * @param policy How many customers can wait, and where.
+   * @param eventList The empty list that orders the events.
+   * @param log The sink that receives the event logs.
+   */
+  public SimState(int numOfServers, RandomStream serviceTimes, QueuePolicy policy,
+      EventList eventList, LogSink log) {
+    this.shop = new Shop(numOfServers, serviceTimes, policy);
     this.stats = new Statistics();
-    this.events = new PriorityQueue<Event>();
+    this.events = new EventQueue(eventList);
+    this.log = log;
+    this.nextCustomerId = 0;
   }
 
   /**
-   * Constructor for creating the simulation state after modifying shop.
-   * @param updatedShop The new Shop.
-   * @param priorityQ The priorityqueue.
+   * Constructor for creating the simulation state from its parts, such
+   * as a forked shop or those read from a checkpoint.
+   * @param updatedShop The shop.
+   * @param priorityQ The event queue.
    * @param stats The statistics.
+   * @param log The sink that receives the event logs.
+   * @param nextCustomerId The id given to the next customer who arrives.
    */
-  public SimState(Shop updatedShop, PriorityQueue<Event> priorityQ, Statistics stats) {
+  SimState(Shop updatedShop, EventQueue priorityQ, Statistics stats, LogSink log,
+      int nextCustomerId) {
     this.shop = updatedShop;
     this.stats = stats;
     this.events = priorityQ;
+    this.log = log;
+    this.nextCustomerId = nextCustomerId;
   }
 
   /**
    * Add an event to the simulation's event queue.
    * @param  time The time when the event happens.
    * @param lambda The lambda expression of whether arrival or done.
-   * @return The new simulation state.
+   * @return This state.
    */
   public SimState addEvent(double time, Function<SimState, SimState> lambda) {
-    return new SimState(this.shop, 
-      new PriorityQueue<Event>(events.add(
-        new Event(time, lambda))), this.stats);
+    return addEvent(new Event(time, lambda));
+  }
+
+  /**
+   * Add an event to the simulation's event queue.
+   * @param event The event.
+   * @return This state.
+   */
+  private SimState addEvent(Event event) {
+    events.add(event);
+    return this;
+  }
+
+  /**
+   * Add the arrival of a customer to the simulation's event queue.
+   * Arrivals go before other events at the same time.
+   * @param time The time the customer arrives.
+   * @return This state.
+   */
+  public SimState addArrival(double time) {
+    events.addArrival(time);
+    return this;
+  }
+
+  /**
+   * Add the arrival of a customer to the simulation's event queue with a
+   * given rank among events at the same time.
+   * @param time The time the customer arrives.
+   * @param rank The rank; lower comes first.
+   * @return This state.
+   */
+  SimState addArrival(double time, int rank) {
+    events.addArrival(time, rank);
+    return this;
+  }
+
+  /**
+   * Send the customers served on to a router, which is told the time
+   * each one is done as soon as their service starts.
+   * @param router The router.
+   * @return This state.
+   */
+  SimState routeTo(Router router) {
+    this.router = router;
+    return this;
+  }
+
+  /**
+   * Return an independent copy of this state, which simulates the same
+   * events from here as this state does, and sends its event logs to
+   * another sink.  Its random streams and arrival source are copies of
+   * this state's at the same position, so it hands out the same service
+   * times and arrivals.
+   *
+   * <p>Forking takes O(servers + waiting customers) on a
+   * {@code PersistentEventList}, which the copy shares with this state,
+   * but O(pending events) on an {@code EventHeap} or a
+   * {@code CalendarQueue}, which are copied whole.  A pending arrival
+   * source is copied too, which costs what its {@code copy} does.
+   * @param log The sink that receives the event logs of the copy.
+   * @return The copy.
+   * @throws IllegalStateException if this state is a station of a network,
+   *     or a pending arrival source reads a stream that cannot be read
+   *     again.
+   */
+  public SimState fork(LogSink log) {
+    return fork(Intervention.NONE, log);
+  }
+
+  /**
+   * Return an independent copy of this state with an intervention made
+   * to its shop.  Service times of the copy come from the same random
+   * numbers as this state's, whatever their distribution, so the copy
+   * and this state differ only by the intervention.
+   * @param intervention The change to the shop.
+   * @param log The sink that receives the event logs of the copy.
+   * @return The copy.
+   * @throws IllegalStateException if this state is a station of a network,
+   *     or a pending arrival source reads a stream that cannot be read
+   *     again.
+   * @throws IllegalArgumentException if the intervention closes every
+   *     open server.
+   */
+  public SimState fork(Intervention intervention, LogSink log) {
+    return fork(intervention, log, stats.copy());
+  }
+
+  /**
+   * Return an independent copy of this state with an intervention made
+   * to its shop and the given statistics.
+   * @param intervention The change to the shop.
+   * @param log The sink that receives the event logs of the copy.
+   * @param stats The statistics of the copy, which it goes on updating.
+   * @return The copy.
+   */
+  SimState fork(Intervention intervention, LogSink log, Statistics stats) {
+    if (router != null) {
+      throw new IllegalStateException("A station of a network cannot be forked");
+    }
+    RandomStream serviceTimes = intervention.serviceTime() == null
+        ? shop.serviceTimes().copy()
+        : shop.serviceTimes().copy(intervention.serviceTime());
+    Shop shop = this.shop.fork(this.shop.numOfOpen() + intervention.serverChange(),
+        serviceTimes);
+    SimState copy = new SimState(shop, events.copy(), stats, log, nextCustomerId);
+    copy.numOfArrivalsTaken = numOfArrivalsTaken;
+    return copy;
   }
 
   /**
-   * Retrieve the next event with earliest time stamp from the
-   * priority queue, and a new state.  If there is no more event, an
-   * Optional.empty will be returned.
-   * @return A pair object with an (optional) event and the new simulation
-   *     state.
+   * Schedule the arrivals of a source one at a time: the next arrival
+   * is taken from the source only when the current one is simulated.
+   * Since arrivals go before other events at the same time, this gives
+   * the same simulation as adding every arrival up front.
+   * @param source The source of arrival times, in non-decreasing order.
+   * @return This state.
+   */
+  public SimState addArrivals(ArrivalSource source) {
+    if (!source.hasNext()) {
+      return this;
+    }
+    events.addArrival(source.next(), source);
+    numOfArrivalsTaken++;
+    return this;
+  }
+
+  /**
+   * Take the next event with earliest time stamp out of the priority
+   * queue of this state.  If there is no more event, an Optional.empty
+   * will be returned.
+   * @return A pair object with an (optional) event and this state.
    */
   public Pair<Optional<Event>, SimState> nextEvent() {
-    Pair<Optional<Event>, PriorityQueue<Event>> result = this.events.poll();
+    Pair<Optional<Event>, EventQueue> result = this.events.poll();
     return new Pair<>(result.first, this);
   }
 
+  /**
+   * Return the event queue, from which {@code Simulator.run} takes events
+   * to simulate them.
+   * @return The event queue.
+   */
+  EventQueue events() {
+    return events;
+  }
+
+  /**
+   * Return the statistics collected so far.
+   * @return The statistics.
+   */
+  Statistics statistics() {
+    return stats;
+  }
+
+  /**
+   * Return the stream the servers draw service times from.
+   * @return The stream.
+   */
+  RandomStream serviceTimes() {
+    return shop.serviceTimes();
+  }
+
+  /**
+   * Return the percentiles of the waiting times of the customers served
+   * so far.
+   * @return The 50th, 90th, 99th and 99.9th percentiles and the maximum.
+   */
+  public String waitingTimePercentiles() {
+    return stats.waitingTimes().toString();
+  }
+
+  /**
+   * Write the state: the id counters, the statistics, the shop and the
+   * pending events.  The log is not written.
+   * @param out The writer.
+   * @throws IOException if the file cannot be written.
+   * @throws IllegalStateException if a pending event cannot be saved.
+   */
+  void writeTo(BinaryWriter out) throws IOException {
+    out.putInt(nextCustomerId).putLong(numOfArrivalsTaken);
+    stats.writeTo(out);
+    shop.writeTo(out);
+    events.writeTo(out);
+  }
+
+  /**
+   * Read a state written by {@code writeTo}.  The service times and the
+   * arrival source are given new, as they were when the saved run
+   * started, and are brought to where that run was.
+   * @param in The reader.
+   * @param serviceTimes The times servers take to serve customers.
+   * @param eventList The empty list that orders the events.
+   * @param log The sink that receives the event logs from here on.
+   * @param arrivals The source of arrival times, or null if the saved run
+   *     had none.
+   * @return The state.
+   * @throws IOException if the file cannot be read or is malformed.
+   * @throws IllegalArgumentException if the arrival source has fewer
+   *     arrivals than the saved run took, or one is needed and not given.
+   */
+  static SimState readFrom(BinaryReader in, RandomStream serviceTimes,
+      EventList eventList, LogSink log, ArrivalSource arrivals) throws IOException {
+    int nextCustomerId = in.getInt();
+    long numOfArrivalsTaken = in.getLong();
+    Statistics stats = Statistics.readFrom(in);
+    Shop shop = Shop.readFrom(in, serviceTimes);
+    if (arrivals != null) {
+      for (long i = 0; i < numOfArrivalsTaken; i++) {
+        if (!arrivals.hasNext()) {
+          throw new IllegalArgumentException("The arrival source ended after " + i
+              + " of the " + numOfArrivalsTaken + " arrivals taken");
+        }
+        arrivals.next();
+      }
+    }
+    EventQueue events = new EventQueue(eventList);
+    events.readFrom(in, arrivals);
+    SimState state = new SimState(shop, events, stats, log, nextCustomerId);
+    state.numOfArrivalsTaken = numOfArrivalsTaken;
+    return state;
+  }
+
+  /**
+   * Write out every event logged so far.
+   * @return This state.
+   */
+  SimState flushLog() {
+    log.flush();
+    return this;
+  }
+
   /**
    * Called when a customer arrived in the simulation.
    * @param time The time the customer arrives.
-   * @param c The customer that arrrives.
-   * @return A new state of the simulation after the customer arrives.
+   * @param customerId The customer that arrrives.
+   * @return The state of the simulation after the customer arrives.
    */
-  private SimState customerArrives(double time, Optional<Customer> c) {
-    System.out.printf("%6.3f %s arrives\n", time, c.get());
+  private SimState customerArrives(double time, int customerId) {
+    log.arrives(time, customerId);
     return this;
   }
 
@@ -86,50 +395,44 @@ public class SimState {
    * Called when a customer waits in the simulation.  This methods update
    * the logs of simulation.
    * @param time The time the customer starts waiting.
-   * @param s The server the customer is waiting for.
-   * @param c The customer who waits.
-   * @return A new state of the simulation after the customer waits.
+   * @param s The server the customer is waiting for, or null for the
+   *     shared line.
+   * @param customerId The customer who waits.
+   * @return The state of the simulation after the customer waits.
    */
-  private SimState customerWaits(double time, Optional<Server> s, Optional<Customer> c) {
-    System.out.printf("%6.3f %s waits for %s\n", time, c.get(), s.get());
+  private SimState customerWaits(double time, Server s, int customerId) {
+    log.waits(time, customerId, s == null ? -1 : s.id(),
+        (s == null ? shop.sharedQueue() : shop.queueOf(s)).peekId());
     return this;
   }
 
   /**
    * Called when a customer is served in the simulation.  This methods
    * update the logs and the statistics of the simulation.
-   * @param time The time the customer arrives.
+   * @param time The time the customer is served.
    * @param s The server that serves the customer.
-   * @param c The customer that is served.
-   * @return A new state of the simulation after the customer is served.
+   * @param customerId The customer that is served.
+   * @param timeArrived The time the customer arrived.
+   * @return The state of the simulation after the customer is served.
    */
-  private SimState customerServed(double time, Optional<Server> s, Optional<Customer> c) {
-    System.out.printf("%6.3f %s served by %s\n", time, c.get(), s.get());
-    return updateStatistics(stats.serveOneCustomer())
-        .updateStatistics(stats.customerWaitedFor(time - c.get().timeArrived()));
-  }
-
-  /**
-   * Called when the statistics have been modified,
-   * then it should also come up with a new SimState.
-   * @param updateStats The new Statistics.
-   * @return A new state of the simulation after the update.
-   */
-  private SimState updateStatistics(Statistics updateStats) {
-    return new SimState(this.shop, this.events, updateStats);
+  private SimState customerServed(double time, Server s, int customerId,
+      double timeArrived) {
+    log.served(time, customerId, s.id(), shop.queueOf(s).peekId());
+    stats.serveOneCustomer().customerWaitedFor(time - timeArrived);
+    return this;
   }
 
   /**
    * Called when a customer is done being served in the simulation.
    * This methods update the logs of the simulation.
-   * @param time The time the customer arrives.
+   * @param time The time the service is done.
    * @param s The server that serves the customer.
-   * @param c The customer that is served.
-   * @return A new state of the simulation after the customer is done being
+   * @param customerId The customer that is served.
+   * @return The state of the simulation after the customer is done being
    *     served.
    */
-  private SimState customerDone(double time, Optional<Server> s, Optional<Customer> c) {
-    System.out.printf("%6.3f %s done served by %s\n", time, c.get(), s.get());
+  private SimState customerDone(double time, Server s, int customerId) {
+    log.done(time, customerId, s.id(), shop.queueOf(s).peekId());
     return this;
   }
 
@@ -137,44 +440,49 @@ public class SimState {
    * Called when a customer leaves the shops without service.
    * Update the log and statistics.
    * @param  time  The time this customer leaves.
-   * @param  opCustomer The customer who leaves.
-   * @return A new state of the simulation.
+   * @param  customerId The customer who leaves.
+   * @return The state of the simulation.
    */
-  private SimState customerLeaves(double time, Optional<Customer> opCustomer) {
-    System.out.printf("%6.3f %s leaves\n", time, opCustomer.get());
-    return updateStatistics(stats.lostOneCustomer());
+  private SimState customerLeaves(double time, int customerId) {
+    log.leaves(time, customerId);
+    stats.lostOneCustomer();
+    return this;
   }
 
   /**
    * Simulates the logic of what happened when a customer arrives.
    * The customer is either served, waiting to be served, or leaves.
    * @param time The time the customer arrives.
-   * @return A new state of the simulation.
+   * @return The state of the simulation.
    */
   public SimState simulateArrival(double time) {
-    Optional<Customer> opCustomer = Optional.of(new Customer(time));
-    return customerArrives(time, opCustomer).servedOrLeave(time, opCustomer);
+    int customerId = nextCustomerId++;
+    return customerArrives(time, customerId).servedOrLeave(time, customerId);
   }
 
   /**
    * Called from simulateArrival.  Handles the logic of finding
    * idle servers to serve the customer, or a server that the customer
-   * can wait for, or leave.
+   * can wait for, or room in the shared line, or leave.
    * @param time The time the customer arrives.
-   * @param opCustomer The customer to be served.
-   * @return A new state of the simulation.
-   */
-  private SimState servedOrLeave(double time, Optional<Customer> opCustomer) {
-    
-    Optional<Server> s = shop.findServer(servers -> servers.get().isIdle());
-    if (s.isPresent()) {   //if (s!=null)
-      return serveCustomer(time, s, opCustomer);
+   * @param customerId The customer to be served.
+   * @return The state of the simulation.
+   */
+  private SimState servedOrLeave(double time, int customerId) {
+    int s = shop.findIdleServerId();
+    if (s >= 0) {
+      return serveCustomer(time, shop.server(s), customerId, time);
+    }
+    s = shop.findServerIdWithNoWaitingCustomer();
+    if (s >= 0) {
+      return makeCustomerWait(time, shop.server(s), customerId);
     }
-    s = shop.findServer(servers -> !servers.get().customerWaiting());
-    if (s.isPresent()) {
-      return makeCustomerWait(time, s, opCustomer);
+    if (shop.hasSharedQueue() && !shop.sharedQueue().isFull()) {
+      customerWaits(time, null, customerId);
+      shop.sharedQueue().add(customerId, time);
+      return this;
     }
-    return customerLeaves(time, opCustomer);
+    return customerLeaves(time, customerId);
   }
 
   /**
@@ -183,68 +491,90 @@ public class SimState {
    * @param time The time the service is done.
    * @param opServer The server serving the customer.
    * @param opCustomer The customer being served.
-   * @return A new state of the simulation.
+   * @return The state of the simulation.
    */
   public SimState simulateDone(double time, Optional<Server> opServer,
       Optional<Customer> opCustomer) {
-    return customerDone(time, opServer, opCustomer)
-        .serveNextOrIdle(time, opServer);
+    return simulateDone(time, opServer.get().id(), opCustomer.get().id());
+  }
+
+  /**
+   * Simulates the logic of what happened when a server is done serving
+   * its current customer.
+   * @param time The time the service is done.
+   * @param serverId The server serving the customer.
+   * @return The state of the simulation.
+   */
+  SimState simulateDone(double time, int serverId) {
+    return simulateDone(time, serverId, shop.server(serverId).currentCustomerId());
+  }
+
+  /**
+   * Simulates the logic of what happened when a customer is done being
+   * served, given the ids of the server and the customer.
+   * @param time The time the service is done.
+   * @param serverId The server serving the customer.
+   * @param customerId The customer being served.
+   * @return The state of the simulation.
+   */
+  SimState simulateDone(double time, int serverId, int customerId) {
+    Server server = shop.server(serverId);
+    return customerDone(time, server, customerId).serveNextOrIdle(time, server);
   }
 
   /**
    * Called from simulateDone.  Handles the logic of checking if there is
-   * a waiting customer, if so serve the customer, otherwise make the
-   * server idle.
+   * a waiting customer, if so serve the one at the head of the queue,
+   * otherwise make the server idle.
    * @param time The time the service is done.
-   * @param opServer The server serving the next customer.
-   * @return A new state of the simulation.
-   */
-  private SimState serveNextOrIdle(double time, Optional<Server> opServer) {
-    Optional<Customer> c = opServer.get().getWaitingCustomer();
-    if (c.isPresent()) {
-      return updateServer(opServer.get().removeWaitingCustomer())
-          .serveCustomer(time, opServer, c);
+   * @param server The server serving the next customer.
+   * @return The state of the simulation.
+   */
+  private SimState serveNextOrIdle(double time, Server server) {
+    CustomerQueue queue = shop.queueOf(server);
+    int c = queue.peekId();
+    if (c >= 0) {
+      double timeArrived = queue.peekArrived();
+      queue.remove();
+      shop.update(server);
+      return serveCustomer(time, server, c, timeArrived);
     }
-    return updateServer(opServer.get().makeIdle());
+    shop.update(server.serve(-1));
+    return this;
   }
 
   /**
    * Handle the logic of server serving customer.  A new done event
    * is generated and scheduled.
    * @param  time  The time this customer is served.
-   * @param  opServer The server serving this customer.
-   * @param  opCustomer The customer being served.
-   * @return A new state of the simulation.
+   * @param  server The server serving this customer.
+   * @param  customerId The customer being served.
+   * @param  timeArrived The time the customer arrived.
+   * @return The state of the simulation.
    */
-  private SimState serveCustomer(double time, Optional<Server> opServer,
-      Optional<Customer> opCustomer) {
-    double doneTime = time + Simulator.SERVICE_TIME;
-    return addEvent(doneTime, s -> s.simulateDone(doneTime, opServer, opCustomer))
-        .updateServer(opServer.get().serve(opCustomer)).customerServed(time, opServer, opCustomer);
-  }
-
-  /**
-   * Called when the Server have been modified,
-   * then it should also come up with a new shop and then a new SimState.
-   * @param updatedServer The new Server.
-   * @return A new state of the simulation after the update.
-   */
-  private SimState updateServer(Optional<Server> updatedServer) {
-    return new SimState(shop.update(updatedServer), this.events, this.stats);
+  private SimState serveCustomer(double time, Server server, int customerId,
+      double timeArrived) {
+    double done = time + shop.nextServiceTime();
+    events.addDone(done, server.id());
+    if (router != null) {
+      router.route(done);
+    }
+    shop.update(server.serve(customerId));
+    return customerServed(time, server, customerId, timeArrived);
   }
 
   /**
    * Handle the logic of queueing up customer for server.   Make the
    * customer waits for server.
    * @param  time  The time this customer started waiting.
-   * @param  opServer The server this customer is waiting for.
-   * @param  opCustomer The customer who waits.
-   * @return A new state of the simulation.
-   */
-  private SimState makeCustomerWait(double time, 
-      Optional<Server> opServer, Optional<Customer> opCustomer) {
-    return customerWaits(time, opServer, opCustomer)
-        .updateServer(opServer.get().askToWait(opCustomer));
+   * @param  server The server this customer is waiting for.
+   * @param  customerId The customer who waits.
+   * @return The state of the simulation.
+   */
+  private SimState makeCustomerWait(double time, Server server, int customerId) {
+    customerWaits(time, server, customerId);
+    shop.update(server.askToWait(customerId, time));
+    return this;
   }
 
   /**
@@ -1,8 +1,16 @@
 package cs2030.simulator;
 
+import cs2030.util.BatchMeans;
+import cs2030.util.EventHeap;
+import cs2030.util.EventList;
 import cs2030.util.PriorityQueue;
-import cs2030.util.Pair;
-import java.util.Optional;
+import cs2030.util.RandomStream;
+import cs2030.util.Summary;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The Simulator class encapsulates information and methods pertaining to a
@@ -13,11 +21,30 @@ import java.util.Optional;
  * @version CS2030 AY17/18 Sem 2 Lab 4b
  */
 public class Simulator {
-  /** The time a server takes to serve a customer. */
-  static final double SERVICE_TIME = 1.0;
+  /** The time a server takes to serve a customer, unless told otherwise. */
+  public static final double SERVICE_TIME = 1.0;
   /** The SimState a server has. */
   public SimState state;
 
+  /** Saves the state every so often, or null. */
+  private Checkpointer checkpointer;
+
+  /** Prints the statistics so far every so often, or null. */
+  private StatsReporter reporter;
+
+  /** Whether a run has been asked to stop, from any thread. */
+  private volatile boolean cancelled;
+
+  /**
+   * Create a Simulator that carries on from a state, such as one read
+   * from a {@code Checkpoint}.
+   *
+   * @param state The state.
+   */
+  public Simulator(SimState state) {
+    this.state = state;
+  }
+
   /**
    * Create a Simulator and initializes it.
    *
@@ -27,18 +54,394 @@ public class Simulator {
     state = new SimState(numOfServers);
   }
 
+  /**
+   * Return a builder of a Simulator with the given number of servers.
+   * Unless told otherwise, each server takes {@code SERVICE_TIME} to serve
+   * a customer, one customer can wait for each server, the events are kept
+   * in an {@code EventHeap}, the event logs are printed, and the caller
+   * adds the arrivals to the state.
+   *
+   * @param numOfServers Number of servers to be created for simulation.
+   * @return The builder.
+   */
+  public static Builder builder(int numOfServers) {
+    return new Builder(numOfServers);
+  }
+
+  /**
+   * Collects how a Simulator is set up, and creates it.  The stream,
+   * list, sink and source given are taken by the simulator built, so each
+   * is given to one build only.
+   */
+  public static class Builder {
+    /** Number of servers to be created for simulation. */
+    private final int numOfServers;
+
+    /** The times servers take to serve customers. */
+    private RandomStream serviceTimes;
+
+    /** How many customers can wait, and where. */
+    private QueuePolicy policy;
+
+    /** The empty list that orders the events, or null for a new heap. */
+    private EventList eventList;
+
+    /** The sink that receives the event logs, or null to print them. */
+    private LogSink log;
+
+    /** The source of arrival times, or null if the caller adds them. */
+    private ArrivalSource arrivals;
+
+    /**
+     * Create a builder with nothing but the number of servers set.
+     *
+     * @param numOfServers Number of servers to be created for simulation.
+     */
+    private Builder(int numOfServers) {
+      this.numOfServers = numOfServers;
+      this.serviceTimes = Shop.constant(SERVICE_TIME);
+      this.policy = QueuePolicy.DEFAULT;
+    }
+
+    /**
+     * Let servers take the given time to serve a customer.
+     *
+     * @param serviceTime The time a server takes to serve a customer.
+     * @return This builder.
+     */
+    public Builder serviceTime(double serviceTime) {
+      this.serviceTimes = Shop.constant(serviceTime);
+      return this;
+    }
+
+    /**
+     * Draw service times from a stream.
+     *
+     * @param serviceTimes The times servers take to serve customers.
+     * @return This builder.
+     */
+    public Builder serviceTimes(RandomStream serviceTimes) {
+      this.serviceTimes = serviceTimes;
+      return this;
+    }
+
+    /**
+     * Let customers wait as the queue policy says.
+     *
+     * @param policy How many customers can wait, and where.
+     * @return This builder.
+     */
+    public Builder policy(QueuePolicy policy) {
+      this.policy = policy;
+      return this;
+    }
+
+    /**
+     * Keep the events in a given list.
+     *
+     * @param eventList The empty list that orders the events.
+     * @return This builder.
+     */
+    public Builder eventList(EventList eventList) {
+      this.eventList = eventList;
+      return this;
+    }
+
+    /**
+     * Send the event logs to the given sink.
+     *
+     * @param log The sink that receives the event logs.
+     * @return This builder.
+     */
+    public Builder log(LogSink log) {
+      this.log = log;
+      return this;
+    }
+
+    /**
+     * Take customers from an arrival source.  Arrivals are taken from the
+     * source as the simulation reaches them, so the event queue only grows
+     * with the customers in the shop.
+     *
+     * @param arrivals The source of arrival times, in non-decreasing order.
+     * @return This builder.
+     */
+    public Builder arrivals(ArrivalSource arrivals) {
+      this.arrivals = arrivals;
+      return this;
+    }
+
+    /**
+     * Create the Simulator.
+     *
+     * @return The simulator, with no event simulated yet.
+     */
+    public Simulator build() {
+      SimState state = new SimState(numOfServers, serviceTimes, policy,
+          eventList != null ? eventList : new EventHeap(),
+          log != null ? log : new PrintfLogSink());
+      return new Simulator(arrivals != null ? state.addArrivals(arrivals) : state);
+    }
+  }
+
+  /**
+   * Save the state to a checkpoint file every so often while the
+   * simulation runs.  A save is made after the first event at or past
+   * each multiple of the simulated interval, and after the wall-clock
+   * interval has passed since the last save.
+   *
+   * @param path The path of the checkpoint file, replaced at each save.
+   * @param interval The simulated time between saves, or 0 to not save by it.
+   * @param wallMillis The wall-clock milliseconds between saves, or 0 to
+   *     not save by them.
+   * @return This simulator.
+   */
+  public Simulator checkpointTo(Path path, double interval, long wallMillis) {
+    this.checkpointer = new Checkpointer(path, interval, wallMillis);
+    return this;
+  }
+
+  /**
+   * Print the statistics so far every so often while the simulation
+   * runs, as a line {@code at TIME: STATS}.  A report is printed after
+   * the first event at or past each multiple of the simulated interval,
+   * and after the wall-clock interval has passed since the last report.
+   *
+   * @param out Where the reports are printed, after the log so far.
+   * @param interval The simulated time between reports, or 0 to not
+   *     report by it.
+   * @param wallMillis The wall-clock milliseconds between reports, or 0
+   *     to not report by them.
+   * @return This simulator.
+   */
+  public Simulator reportTo(PrintStream out, double interval, long wallMillis) {
+    this.reporter = new StatsReporter(out, interval, wallMillis);
+    return this;
+  }
+
+  /**
+   * Save a checkpoint and print a report, if either is due.
+   * @throws java.io.UncheckedIOException if a checkpoint cannot be saved.
+   */
+  private void afterEvent() {
+    if (checkpointer != null) {
+      checkpointer.afterEvent(state, state.events().time());
+    }
+    if (reporter != null) {
+      reporter.afterEvent(state, state.events().time());
+    }
+  }
+
   /**
    * The main simulation loop.  Repeatedly get events from the event
-   * queue, simulate and update the event.  Return the final simulation
-   * state.
+   * queue, simulate and update the event, until they run out or the
+   * run is cancelled.  Flush the event log and return the final
+   * simulation state.
    * @return The final state of the simulation.
+   * @throws java.io.UncheckedIOException if a checkpoint cannot be saved.
    */
   public SimState run() {
-    Pair<Optional<Event>, SimState> p = state.nextEvent();
-    while (p.first.isPresent()) {
-      p = p.first.get().simulate(p.second).nextEvent();
+    if (checkpointer == null && reporter == null) {
+      while (!cancelled && step()) {
+        continue;
+      }
+    } else {
+      while (!cancelled && step()) {
+        afterEvent();
+      }
+    }
+    return state.flushLog();
+  }
+
+  /**
+   * Simulate until the mean waiting time is known as precisely as a rule
+   * asks, or the events run out.  The waiting times of the customers
+   * served from now on are kept in batch means, and the rule is checked
+   * once it allows, then each time the customers served have grown by a
+   * sixteenth, so checking costs O(1) per customer over the run.  Flush
+   * the event log and return the report; the state is left in
+   * {@code state}, with the events not simulated still pending.
+   * @param rule The stopping rule.
+   * @return The report of the precision reached and the events saved.
+   * @throws java.io.UncheckedIOException if a checkpoint cannot be saved.
+   */
+  public PrecisionReport run(StoppingRule rule) {
+    BatchMeans waits = new BatchMeans();
+    state.statistics().track(waits);
+    long numOfEvents = 0;
+    long nextCheck = Math.max(rule.minCustomers(), 1);
+    while (!cancelled && step()) {
+      numOfEvents++;
+      afterEvent();
+      if (waits.count() >= nextCheck) {
+        int drop = rule.cutsWarmUp() ? waits.warmUp() : 0;
+        Summary estimate = waits.estimate(drop);
+        double halfWidth = estimate.halfWidth();
+        if (halfWidth == 0 || halfWidth <= rule.precision() * Math.abs(estimate.mean())) {
+          break;
+        }
+        nextCheck = waits.count() + Math.max(1, waits.count() / 16);
+      }
+    }
+    state.statistics().track(null);
+    state.flushLog();
+    int drop = rule.cutsWarmUp() ? waits.warmUp() : 0;
+    return new PrecisionReport(rule, waits.estimate(drop), drop * waits.batchSize(),
+        waits.numOfUsed(drop), waits.batchSize(), numOfEvents, state.events().size());
+  }
+
+  /**
+   * Ask the run in progress, on any thread, to stop after the event it
+   * is simulating, leaving the rest pending, as if it had run out of
+   * events.  Runs started afterwards stop at once.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Checks if runs have been asked to stop.
+   * @return true if {@code cancel} was called; false otherwise.
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Simulate every event before a given time, such as the start of a
+   * peak to fork from, and leave the rest pending.  Flush the event log
+   * and return the state.
+   * @param time The time; events at this time or later are left.
+   * @return The state of the simulation.
+   * @throws java.io.UncheckedIOException if a checkpoint cannot be saved.
+   */
+  public SimState runUntil(double time) {
+    while (!cancelled && state.events().peekTime() < time && step()) {
+      afterEvent();
+    }
+    return state.flushLog();
+  }
+
+  /**
+   * Fork the state into branches, one unchanged and one for each
+   * intervention, and run them in parallel until a given time.  The
+   * branches log nothing and count their statistics from the fork, so
+   * the report gives what each intervention changes over that time
+   * against the unchanged branch.  They draw the same random numbers, so
+   * the differences are down to the interventions rather than to chance.
+   * This simulator is left as it was, and can carry on.
+   *
+   * <p>The branches are forked from a {@code PersistentEventList}, so
+   * each fork takes O(servers + waiting customers) however many events
+   * are pending.  If the state keeps its events in another list, they
+   * are first moved to a persistent one, once, in O(n log n) for n
+   * pending events, and this simulator carries on with it.
+   * @param interventions The interventions to try.
+   * @param until The time the branches run to; events at this time or
+   *     later are left, so {@code Double.POSITIVE_INFINITY} runs them
+   *     to the end.
+   * @param pool The pool to run the branches on.
+   * @return The report of the branches, the unchanged one first.
+   * @throws IllegalArgumentException if an intervention closes every
+   *     open server.
+   * @throws IllegalStateException if the state is a station of a network,
+   *     or a pending arrival source reads a stream that cannot be read
+   *     again.
+   */
+  public WhatIfReport fork(List<Intervention> interventions, double until,
+      ForkJoinPool pool) {
+    Intervention[] branches = new Intervention[interventions.size() + 1];
+    branches[0] = Intervention.NONE;
+    for (int i = 0; i < interventions.size(); i++) {
+      branches[i + 1] = interventions.get(i);
+    }
+    state.events().makePersistent();
+    Simulator[] simulators = new Simulator[branches.length];
+    for (int i = 0; i < branches.length; i++) {
+      simulators[i] = new Simulator(state.fork(branches[i], QuietLogSink.INSTANCE,
+          new Statistics()));
+    }
+    pool.invoke(new Branches(simulators, until, 0, simulators.length));
+    Statistics[] stats = new Statistics[branches.length];
+    for (int i = 0; i < branches.length; i++) {
+      stats[i] = simulators[i].state.statistics();
+    }
+    return new WhatIfReport(branches, stats, state.events().time(), until);
+  }
+
+  /**
+   * A task that runs a range of branches to a time, splitting the range
+   * in half until one branch is left.  Like every ForkJoinTask it is
+   * Serializable, but it is never serialized.
+   */
+  @SuppressWarnings("serial")
+  private static class Branches extends RecursiveAction {
+    /** The simulators of the branches. */
+    private final Simulator[] simulators;
+
+    /** The time the branches run to. */
+    private final double until;
+
+    /** The first branch of the range. */
+    private final int from;
+
+    /** One past the last branch of the range. */
+    private final int to;
+
+    /**
+     * Create a task for a range of branches.
+     * @param simulators The simulators of the branches.
+     * @param until The time the branches run to.
+     * @param from The first branch.
+     * @param to One past the last branch.
+     */
+    Branches(Simulator[] simulators, double until, int from, int to) {
+      this.simulators = simulators;
+      this.until = until;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        simulators[from].runUntil(until);
+        return;
+      }
+      int mid = from + (to - from) / 2;
+      Branches left = new Branches(simulators, until, from, mid);
+      left.fork();
+      new Branches(simulators, until, mid, to).compute();
+      left.join();
+    }
+  }
+
+  /**
+   * Take the earliest event from the event queue and simulate it.
+   * Arrivals and done events are dispatched on their kind, so that no
+   * event object is made for them; custom events simulate themselves.
+   * @return true if an event was simulated; false if the queue was empty.
+   */
+  boolean step() {
+    EventQueue events = state.events();
+    if (!events.next()) {
+      return false;
+    }
+    switch (events.kind()) {
+      case ARRIVAL:
+        state = state.simulateArrival(events.time());
+        break;
+      case SOURCE_ARRIVAL:
+        state = state.simulateArrival(events.time()).addArrivals(events.source());
+        break;
+      case DONE:
+        state = state.simulateDone(events.time(), events.server());
+        break;
+      default:
+        state = events.event().simulate(state);
+        break;
     }
-    return p.second;
+    return true;
   }
 
 }
@@ -0,0 +1,211 @@
+package cs2030.simulator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A Station is one shop of a {@code Network} while it is simulated: a
+ * {@code Simulator} of its own, and the router that picks where each of
+ * its customers goes next.  Customers sent on are kept in an outbox, in
+ * the order their services start, until the network delivers them.
+ *
+ * <p>A customer routed here from station {@code s} arrives with rank
+ * {@code FIRST_ROUTED_RANK + s}, after the arrivals from outside and the
+ * services done at the same time.  Arrivals at one time are then ordered
+ * by where they come from, and those from one station by when they were
+ * sent, whatever order the stations were simulated in, so every station
+ * sees the same events in the same order however the network is run.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+class Station implements Router {
+  /** The rank of customers routed from station 0. */
+  static final int FIRST_ROUTED_RANK = Event.DEFAULT_PRIORITY + 1;
+
+  /** The id of this station. */
+  private final int id;
+
+  /** The simulation of this station. */
+  private final Simulator simulator;
+
+  /** The stations customers go to next. */
+  private final int[] targets;
+
+  /** The chance of going to each target or one before it. */
+  private final double[] cumulative;
+
+  /** Picks the target of each customer, or null if no pick is random. */
+  private final SplittableRandom random;
+
+  /** The times customers sent on arrive at their targets. */
+  private double[] sentTimes;
+
+  /** The stations customers sent on go to. */
+  private int[] sentTargets;
+
+  /** The number of customers in the outbox. */
+  private int numOfSent;
+
+  /** The number of events simulated. */
+  private long numOfEvents;
+
+  /**
+   * Create a station.
+   * @param id The id of the station.
+   * @param simulator The simulation of the station, with its arrivals
+   *     from outside already added.
+   * @param targets The stations customers go to next.
+   * @param probabilities The chance of going to each target; the
+   *     customer leaves the network with the chance left over.
+   * @param random Picks the target of each customer.
+   */
+  Station(int id, Simulator simulator, int[] targets, double[] probabilities,
+      SplittableRandom random) {
+    this.id = id;
+    this.simulator = simulator;
+    this.targets = targets.clone();
+    this.cumulative = new double[probabilities.length];
+    double sum = 0;
+    for (int i = 0; i < probabilities.length; i++) {
+      sum += probabilities[i];
+      this.cumulative[i] = sum;
+    }
+    boolean certain = targets.length == 1 && probabilities[0] >= 1;
+    this.random = targets.length == 0 || certain ? null : random;
+    this.sentTimes = new double[16];
+    this.sentTargets = new int[16];
+    this.numOfSent = 0;
+    this.numOfEvents = 0;
+    simulator.state.routeTo(this);
+  }
+
+  @Override
+  public void route(double time) {
+    int target = pick();
+    if (target < 0) {
+      return;
+    }
+    if (numOfSent == sentTimes.length) {
+      sentTimes = Arrays.copyOf(sentTimes, numOfSent * 2);
+      sentTargets = Arrays.copyOf(sentTargets, numOfSent * 2);
+    }
+    sentTimes[numOfSent] = time;
+    sentTargets[numOfSent] = target;
+    numOfSent++;
+  }
+
+  /**
+   * Pick the station a customer goes to next.
+   * @return The station, or -1 if the customer leaves the network.
+   */
+  private int pick() {
+    if (targets.length == 0) {
+      return -1;
+    }
+    if (random == null) {
+      return targets[0];
+    }
+    double u = random.nextDouble();
+    for (int i = 0; i < targets.length; i++) {
+      if (u < cumulative[i]) {
+        return targets[i];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Return the id of this station.
+   * @return The id.
+   */
+  int id() {
+    return id;
+  }
+
+  /**
+   * Return the time of the next event of this station.
+   * @return The time, or {@code Double.POSITIVE_INFINITY} if there is none.
+   */
+  double nextTime() {
+    return simulator.state.events().peekTime();
+  }
+
+  /**
+   * Simulate the next event of this station.
+   * @return true if there was an event; false otherwise.
+   */
+  boolean step() {
+    if (!simulator.step()) {
+      return false;
+    }
+    numOfEvents++;
+    return true;
+  }
+
+  /**
+   * Simulate every event of this station before a given time.
+   * @param end The time; events at this time or later are left.
+   */
+  void runUntil(double end) {
+    while (nextTime() < end) {
+      step();
+    }
+  }
+
+  /**
+   * Add the arrival of a customer routed from another station.
+   * @param time The time the customer arrives.
+   * @param from The station the customer comes from.
+   */
+  void receive(double time, int from) {
+    simulator.state.addArrival(time, FIRST_ROUTED_RANK + from);
+  }
+
+  /**
+   * Return the number of customers in the outbox.
+   * @return The number of customers.
+   */
+  int numOfSent() {
+    return numOfSent;
+  }
+
+  /**
+   * Return the time a customer in the outbox arrives at their target.
+   * @param i The position of the customer in the outbox.
+   * @return The time.
+   */
+  double sentTime(int i) {
+    return sentTimes[i];
+  }
+
+  /**
+   * Return the station a customer in the outbox goes to.
+   * @param i The position of the customer in the outbox.
+   * @return The station.
+   */
+  int sentTarget(int i) {
+    return sentTargets[i];
+  }
+
+  /** Empty the outbox once its customers are delivered. */
+  void clearSent() {
+    numOfSent = 0;
+  }
+
+  /**
+   * Return the number of events simulated.
+   * @return The number of events.
+   */
+  long numOfEvents() {
+    return numOfEvents;
+  }
+
+  /**
+   * Write out the event log and return the statistics of this station.
+   * @return The statistics.
+   */
+  Statistics finish() {
+    return simulator.state.flushLog().statistics();
+  }
+}
@@ -1,9 +1,19 @@
 package cs2030.simulator;
 
+import cs2030.util.BatchMeans;
+import cs2030.util.BinaryReader;
+import cs2030.util.BinaryWriter;
+import cs2030.util.Histogram;
+import java.io.IOException;
+
 /**
- * This is an immutable class that stores stats about the simulation.
- * In particular, the average * waiting time, the number of customer
- * who left, and the number of customers who are served, are stored.
+ * This class stores stats about the simulation, and is updated in
+ * place as customers are served or lost.  In particular, the average
+ * waiting time, the number of customer who left, and the number of
+ * customers who are served, are stored.  Waiting times are also kept in
+ * a histogram, from which percentiles are read; its buckets are only
+ * allocated once a waiting time is recorded.  {@code merge} and
+ * {@code copy} return new stats.
  * @author Kirsten
  * @author Ooi Wei Tsang
  * @version CS2030 AY17/18 Sem 2 Lab 4a
@@ -18,19 +28,44 @@ class Statistics {
   /** Total number of customers who left without being served. */
   private int totalNumOfLostCustomers;
 
+  /** The waiting times of all customers who were served. */
+  private final Histogram waitingTimes;
+
+  /** Also receives each waiting time, in order, or null. */
+  private BatchMeans tracker;
+
   /**
-   * Creates a Statistics with initial value 0.
+   * Creates a Statistics with initial value 0, whose waiting time
+   * percentiles are kept to 2 significant digits.
    */
   public Statistics() {
+    this(new Histogram());
+  }
+
+  /**
+   * Creates a Statistics with initial value 0.
+   * @param significantDigits The number of significant digits waiting
+   *     time percentiles are kept to, from 1 to 3.
+   */
+  public Statistics(int significantDigits) {
+    this(new Histogram(significantDigits));
+  }
+
+  /**
+   * Creates a Statistics with initial value 0 and the given histogram.
+   * @param waitingTimes The histogram of waiting times.
+   */
+  private Statistics(Histogram waitingTimes) {
     this.totalWaitingTime = 0;
     this.totalNumOfServedCustomers = 0;
     this.totalNumOfLostCustomers = 0;
+    this.waitingTimes = waitingTimes;
   }
 
 
   /**
    * Mark that a customer is served.
-   * @return A new Statistics object with updated stats
+   * @return These stats.
    */
   public Statistics serveOneCustomer() {
     this.totalNumOfServedCustomers += 1;
@@ -39,7 +74,7 @@ class Statistics {
 
   /**
    * Mark that a customer is lost.
-   * @return A new Statistics object with updated stats
+   * @return These stats.
    */
   public Statistics lostOneCustomer() {
     this.totalNumOfLostCustomers += 1;
@@ -49,13 +84,117 @@ class Statistics {
   /**
    * Accumulate the waiting time of a customer.
    * @param time The time a customer waited.
-   * @return A new Statistics object with updated stats
+   * @return These stats.
    */
   public Statistics customerWaitedFor(double time) {
     this.totalWaitingTime += time;
+    this.waitingTimes.record(time);
+    if (this.tracker != null) {
+      this.tracker.record(time);
+    }
     return this;
   }
 
+  /**
+   * Send each waiting time from now on to batch means as well, from
+   * which a stopping rule reads how precise the mean waiting time is.
+   * @param tracker The batch means, or null to stop sending them.
+   * @return These stats.
+   */
+  Statistics track(BatchMeans tracker) {
+    this.tracker = tracker;
+    return this;
+  }
+
+  /**
+   * Combine the stats of two runs, as if their customers had all been
+   * in one run.
+   * @param other The stats of the other run.
+   * @return A new Statistics object with the totals of both.
+   */
+  public Statistics merge(Statistics other) {
+    Statistics merged = new Statistics(this.waitingTimes.merge(other.waitingTimes));
+    merged.totalWaitingTime = this.totalWaitingTime + other.totalWaitingTime;
+    merged.totalNumOfServedCustomers = this.totalNumOfServedCustomers
+        + other.totalNumOfServedCustomers;
+    merged.totalNumOfLostCustomers = this.totalNumOfLostCustomers
+        + other.totalNumOfLostCustomers;
+    return merged;
+  }
+
+  /**
+   * Return stats with the same totals, which then change independently
+   * of these.
+   * @return A new Statistics object with the same totals.
+   */
+  Statistics copy() {
+    Statistics copy = new Statistics(this.waitingTimes.copy());
+    copy.totalWaitingTime = this.totalWaitingTime;
+    copy.totalNumOfServedCustomers = this.totalNumOfServedCustomers;
+    copy.totalNumOfLostCustomers = this.totalNumOfLostCustomers;
+    return copy;
+  }
+
+  /**
+   * Return the average waiting time of the served customers.
+   * @return The average waiting time.
+   */
+  public double averageWaitingTime() {
+    return totalWaitingTime / totalNumOfServedCustomers;
+  }
+
+  /**
+   * Return the histogram of the waiting times of the served customers.
+   * @return The histogram.
+   */
+  public Histogram waitingTimes() {
+    return waitingTimes;
+  }
+
+  /**
+   * Return the number of customers served.
+   * @return The number of customers served.
+   */
+  public int numOfServedCustomers() {
+    return totalNumOfServedCustomers;
+  }
+
+  /**
+   * Return the number of customers who left without being served.
+   * @return The number of customers lost.
+   */
+  public int numOfLostCustomers() {
+    return totalNumOfLostCustomers;
+  }
+
+  /**
+   * Write the statistics.
+   * @param out The writer.
+   * @throws IOException if the file cannot be written.
+   */
+  void writeTo(BinaryWriter out) throws IOException {
+    out.putDouble(totalWaitingTime).putInt(totalNumOfServedCustomers)
+        .putInt(totalNumOfLostCustomers);
+    waitingTimes.writeTo(out);
+  }
+
+  /**
+   * Read statistics written by {@code writeTo}.
+   * @param in The reader.
+   * @return The statistics.
+   * @throws IOException if the file cannot be read or is malformed.
+   */
+  static Statistics readFrom(BinaryReader in) throws IOException {
+    double totalWaitingTime = in.getDouble();
+    int served = in.getInt();
+    int lost = in.getInt();
+    Statistics stats = new Statistics(Histogram.readFrom(in));
+    stats.totalWaitingTime = totalWaitingTime;
+    stats.totalNumOfServedCustomers = served;
+    stats.totalNumOfLostCustomers = lost;
+    return stats;
+  }
+
   /**
    * Return a string representation of the staistics collected.
    * @return A string containing three numbers: the average
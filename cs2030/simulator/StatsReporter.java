@@ -0,0 +1,36 @@
+package cs2030.simulator;
+
+import java.io.PrintStream;
+
+/**
+ * A StatsReporter prints the statistics of a running simulation so far
+ * every so often in simulated time, in wall-clock time, or both, so that
+ * a long or never-ending run can be followed.  Each report is a line
+ * {@code at TIME: STATS}, with the statistics as {@code SimState} prints
+ * them.  The log is flushed before each report, so a report follows
+ * every event before it.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+class StatsReporter extends PeriodicAction {
+  /** Where the reports are printed. */
+  private final PrintStream out;
+
+  /**
+   * Create a reporter.
+   * @param out Where the reports are printed.
+   * @param interval The simulated time between reports, or 0.
+   * @param wallMillis The wall-clock milliseconds between reports, or 0.
+   */
+  StatsReporter(PrintStream out, double interval, long wallMillis) {
+    super(interval, wallMillis);
+    this.out = out;
+  }
+
+  @Override
+  void act(SimState state, double time) {
+    out.printf("at %.3f: %s\n", time, state.flushLog());
+    out.flush();
+  }
+}
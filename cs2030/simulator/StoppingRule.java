@@ -0,0 +1,110 @@
+package cs2030.simulator;
+
+/**
+ * When a run has simulated enough: as soon as the 95% confidence
+ * interval of the mean waiting time, from batch means, is within a
+ * relative precision of the mean.  The warm-up is cut with MSER first,
+ * unless told otherwise, and the rule is not checked before a least
+ * number of customers have been served, so that a few early batches that
+ * happen to agree do not stop the run.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class StoppingRule {
+  /** The least number of customers served before the rule is checked. */
+  public static final long DEFAULT_MIN_CUSTOMERS = 2000;
+
+  /** The half-width of the interval over the mean to stop at. */
+  private final double precision;
+
+  /** Whether the warm-up is cut with MSER. */
+  private final boolean warmUp;
+
+  /** The least number of customers served before the rule is checked. */
+  private final long minCustomers;
+
+  /**
+   * Create a rule.
+   * @param precision The half-width of the interval over the mean to stop at.
+   * @param warmUp Whether the warm-up is cut with MSER.
+   * @param minCustomers The least number of customers served before the
+   *     rule is checked.
+   */
+  private StoppingRule(double precision, boolean warmUp, long minCustomers) {
+    if (!(precision > 0)) {
+      throw new IllegalArgumentException("Precision must be positive: " + precision);
+    }
+    if (minCustomers < 0) {
+      throw new IllegalArgumentException("Number of customers must not be negative: "
+          + minCustomers);
+    }
+    this.precision = precision;
+    this.warmUp = warmUp;
+    this.minCustomers = minCustomers;
+  }
+
+  /**
+   * Return the rule that stops at a relative precision, with the warm-up
+   * cut.
+   * @param precision The half-width of the interval over the mean to
+   *     stop at, such as 0.05 for 5%.
+   * @return The rule.
+   * @throws IllegalArgumentException if the precision is not positive.
+   */
+  public static StoppingRule precision(double precision) {
+    return new StoppingRule(precision, true, DEFAULT_MIN_CUSTOMERS);
+  }
+
+  /**
+   * Return this rule, but keeping the warm-up.
+   * @return The rule.
+   */
+  public StoppingRule withoutWarmUp() {
+    return new StoppingRule(precision, false, minCustomers);
+  }
+
+  /**
+   * Return this rule, but checked only once a given number of customers
+   * have been served.
+   * @param minCustomers The least number of customers.
+   * @return The rule.
+   * @throws IllegalArgumentException if the number is negative.
+   */
+  public StoppingRule minCustomers(long minCustomers) {
+    return new StoppingRule(precision, warmUp, minCustomers);
+  }
+
+  /**
+   * Return the relative precision the rule stops at.
+   * @return The half-width of the interval over the mean.
+   */
+  public double precision() {
+    return precision;
+  }
+
+  /**
+   * Checks if the warm-up is cut.
+   * @return true if MSER cuts the warm-up; false otherwise.
+   */
+  public boolean cutsWarmUp() {
+    return warmUp;
+  }
+
+  /**
+   * Return the least number of customers served before the rule is
+   * checked.
+   * @return The number of customers.
+   */
+  public long minCustomers() {
+    return minCustomers;
+  }
+
+  /**
+   * Return a string representation of this rule.
+   * @return The precision, and whether the warm-up is cut.
+   */
+  public String toString() {
+    return String.format("%.2f%%%s", precision * 100, warmUp ? " after MSER" : "");
+  }
+}
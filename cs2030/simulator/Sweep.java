@@ -0,0 +1,272 @@
+package cs2030.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+
+/**
+ * The Sweep class answers capacity planning questions in one process.
+ * It either runs every combination of server count, service time and
+ * arrival rate, or, given a target loss rate, searches for the fewest
+ * servers that meet it by bisection.  Each configuration is run as a set
+ * of replications with Poisson arrivals, and all configurations share one
+ * fork-join pool.  Every configuration uses the same seeds, so that
+ * neighbouring configurations are compared on the same arrivals.
+ *
+ * <p>Usage: {@code java cs2030.simulator.Sweep MIN:MAX SERVICE,... RATE,...
+ * ARRIVALS REPLICATIONS [TARGET_LOSS]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class Sweep {
+  /** The number of arrivals per replication. */
+  private final long numOfArrivals;
+
+  /** The number of replications per configuration. */
+  private final int replications;
+
+  /** The seed of the first replication of every configuration. */
+  private final long firstSeed;
+
+  /**
+   * Create a sweep.
+   * @param numOfArrivals The number of arrivals per replication.
+   * @param replications The number of replications per configuration.
+   * @param firstSeed The seed of the first replication.
+   * @throws IllegalArgumentException if there are no arrivals or no
+   *     replications.
+   */
+  public Sweep(long numOfArrivals, int replications, long firstSeed) {
+    if (numOfArrivals < 1 || replications < 1) {
+      throw new IllegalArgumentException("Invalid sweep: " + numOfArrivals + " arrivals, "
+          + replications + " replications");
+    }
+    this.numOfArrivals = numOfArrivals;
+    this.replications = replications;
+    this.firstSeed = firstSeed;
+  }
+
+  /**
+   * Run every combination of the given parameters.
+   * @param minServers The least number of servers.
+   * @param maxServers The most number of servers.
+   * @param serviceTimes The service times.
+   * @param rates The arrival rates.
+   * @param pool The pool to run on.
+   * @return One result per combination, ordered by service time, then
+   *     rate, then server count.
+   * @throws IllegalArgumentException if the server range is empty or
+   *     below one server, or a service time or rate is not positive.
+   */
+  public List<SweepResult> grid(int minServers, int maxServers, double[] serviceTimes,
+      double[] rates, ForkJoinPool pool) {
+    check(minServers, maxServers, serviceTimes, rates);
+    List<ForkJoinTask<SweepResult>> tasks = new ArrayList<>();
+    for (double serviceTime : serviceTimes) {
+      for (double rate : rates) {
+        for (int n = minServers; n <= maxServers; n++) {
+          int numOfServers = n;
+          tasks.add(ForkJoinTask.adapt(() -> run(numOfServers, serviceTime, rate)));
+        }
+      }
+    }
+    return invokeAll(pool, tasks);
+  }
+
+  /**
+   * For every combination of service time and rate, find the fewest
+   * servers whose loss rate is at most the target.
+   * @param minServers The least number of servers to try.
+   * @param maxServers The most number of servers to try.
+   * @param serviceTimes The service times.
+   * @param rates The arrival rates.
+   * @param targetLossRate The highest acceptable fraction of customers lost.
+   * @param pool The pool to run on.
+   * @return One result per combination that some server count in range
+   *     meets, ordered by service time, then rate.
+   * @throws IllegalArgumentException if the server range is empty or
+   *     below one server, or a service time or rate is not positive.
+   */
+  public List<SweepResult> minServers(int minServers, int maxServers, double[] serviceTimes,
+      double[] rates, double targetLossRate, ForkJoinPool pool) {
+    check(minServers, maxServers, serviceTimes, rates);
+    List<ForkJoinTask<Optional<SweepResult>>> tasks = new ArrayList<>();
+    for (double serviceTime : serviceTimes) {
+      for (double rate : rates) {
+        tasks.add(ForkJoinTask.adapt(() ->
+            minServers(minServers, maxServers, serviceTime, rate, targetLossRate)));
+      }
+    }
+    return invokeAll(pool, tasks).stream()
+        .filter(Optional::isPresent).map(Optional::get)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Find the fewest servers whose loss rate is at most the target, by
+   * bisection on the server count.  Loss only falls as servers are added,
+   * so O(log(max - min)) configurations are run instead of all of them.
+   * Must be called from a task in the pool.
+   * @param lo The least number of servers to try.
+   * @param hi The most number of servers to try.
+   * @param serviceTime The service time.
+   * @param rate The arrival rate.
+   * @param targetLossRate The highest acceptable fraction of customers lost.
+   * @return The result for the fewest servers, or {@code Optional.empty()}
+   *     if even {@code hi} servers lose too many customers.
+   */
+  private Optional<SweepResult> minServers(int lo, int hi, double serviceTime, double rate,
+      double targetLossRate) {
+    SweepResult best = run(hi, serviceTime, rate);
+    if (!(best.report().lossRate() <= targetLossRate)) {
+      return Optional.empty();
+    }
+    while (lo < hi) {
+      int mid = lo + (hi - lo) / 2;
+      SweepResult result = run(mid, serviceTime, rate);
+      if (result.report().lossRate() <= targetLossRate) {
+        best = result;
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return Optional.of(best);
+  }
+
+  /**
+   * Run the replications of one configuration.  When called from a task
+   * in a pool, the replications are spread over that pool.
+   * @param numOfServers The number of servers.
+   * @param serviceTime The service time.
+   * @param rate The arrival rate.
+   * @return The result.
+   */
+  private SweepResult run(int numOfServers, double serviceTime, double rate) {
+    ReplicationRunner runner = new ReplicationRunner(numOfServers, serviceTime,
+        seed -> new PoissonArrivalSource(rate, seed, numOfArrivals));
+    return new SweepResult(numOfServers, serviceTime, rate,
+        runner.task(firstSeed, replications).invoke());
+  }
+
+  /**
+   * Check the parameters of a sweep.
+   * @param minServers The least number of servers.
+   * @param maxServers The most number of servers.
+   * @param serviceTimes The service times.
+   * @param rates The arrival rates.
+   * @throws IllegalArgumentException if the server range is empty or
+   *     below one server, or a service time or rate is not positive.
+   */
+  private static void check(int minServers, int maxServers, double[] serviceTimes,
+      double[] rates) {
+    if (minServers < 1 || minServers > maxServers) {
+      throw new IllegalArgumentException("Invalid server range " + minServers + ":"
+          + maxServers);
+    }
+    for (double serviceTime : serviceTimes) {
+      if (!(serviceTime > 0) || Double.isInfinite(serviceTime)) {
+        throw new IllegalArgumentException("Invalid service time " + serviceTime);
+      }
+    }
+    for (double rate : rates) {
+      if (!(rate > 0) || Double.isInfinite(rate)) {
+        throw new IllegalArgumentException("Invalid arrival rate " + rate);
+      }
+    }
+  }
+
+  /**
+   * Run tasks on a pool and return their results in order.
+   * @param pool The pool.
+   * @param tasks The tasks.
+   * @param <T> The type of result.
+   * @return The results.
+   */
+  private static <T> List<T> invokeAll(ForkJoinPool pool, List<ForkJoinTask<T>> tasks) {
+    pool.invoke(ForkJoinTask.adapt(() -> {
+      ForkJoinTask.invokeAll(tasks);
+    }));
+    return tasks.stream().map(ForkJoinTask::join).collect(Collectors.toList());
+  }
+
+  /**
+   * Parse a comma-separated list of doubles.
+   * @param list The list.
+   * @return The values.
+   */
+  private static double[] parseList(String list) {
+    return Arrays.stream(list.split(",")).mapToDouble(Double::parseDouble).toArray();
+  }
+
+  /**
+   * Run a sweep and print the results table.
+   *
+   * @param args The server range as MIN:MAX, the service times and the
+   *     arrival rates as comma-separated lists, the number of arrivals per
+   *     replication, the number of replications, and optionally a target
+   *     loss rate to search for the fewest servers instead.
+   */
+  public static void main(String[] args) {
+    if (args.length < 5) {
+      System.err.println("Usage: java cs2030.simulator.Sweep MIN:MAX SERVICE,..."
+          + " RATE,... ARRIVALS REPLICATIONS [TARGET_LOSS]");
+      return;
+    }
+    String[] names = {"server range", "service times", "arrival rates",
+        "number of arrivals", "number of replications", "target loss rate"};
+    int minServers;
+    int maxServers;
+    double[] serviceTimes;
+    double[] rates;
+    long numOfArrivals;
+    int replications;
+    double targetLossRate = 0;
+    int i = 0;
+    try {
+      String[] range = args[0].split(":", -1);
+      if (range.length > 2) {
+        throw new NumberFormatException();
+      }
+      minServers = Integer.parseInt(range[0]);
+      maxServers = Integer.parseInt(range[range.length - 1]);
+      serviceTimes = parseList(args[++i]);
+      rates = parseList(args[++i]);
+      numOfArrivals = Long.parseLong(args[++i]);
+      replications = Integer.parseInt(args[++i]);
+      if (args.length > 5) {
+        targetLossRate = Double.parseDouble(args[++i]);
+      }
+    } catch (NumberFormatException exception) {
+      System.err.println("Invalid " + names[i] + " " + args[i]);
+      return;
+    }
+
+    ForkJoinPool pool = new ForkJoinPool();
+    long start = System.nanoTime();
+    List<SweepResult> results;
+    try {
+      Sweep sweep = new Sweep(numOfArrivals, replications, 1);
+      results = args.length > 5
+          ? sweep.minServers(minServers, maxServers, serviceTimes, rates, targetLossRate,
+              pool)
+          : sweep.grid(minServers, maxServers, serviceTimes, rates, pool);
+    } catch (IllegalArgumentException exception) {
+      System.err.println(exception.getMessage());
+      return;
+    } finally {
+      pool.shutdown();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.println(SweepResult.header());
+    results.forEach(System.out::println);
+    System.out.printf("%d rows in %.3f s on %d threads\n", results.size(), seconds,
+        pool.getParallelism());
+  }
+}
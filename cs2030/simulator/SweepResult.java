@@ -0,0 +1,86 @@
+package cs2030.simulator;
+
+/**
+ * One cell of a parameter sweep: the shop configuration and the report
+ * of its replications.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class SweepResult {
+  /** The number of servers. */
+  private final int numOfServers;
+
+  /** The time a server takes to serve a customer. */
+  private final double serviceTime;
+
+  /** The arrival rate. */
+  private final double rate;
+
+  /** The report of the replications. */
+  private final ReplicationReport report;
+
+  /**
+   * Create a result.
+   * @param numOfServers The number of servers.
+   * @param serviceTime The time a server takes to serve a customer.
+   * @param rate The arrival rate.
+   * @param report The report of the replications.
+   */
+  SweepResult(int numOfServers, double serviceTime, double rate, ReplicationReport report) {
+    this.numOfServers = numOfServers;
+    this.serviceTime = serviceTime;
+    this.rate = rate;
+    this.report = report;
+  }
+
+  /**
+   * Return the number of servers.
+   * @return The number of servers.
+   */
+  public int numOfServers() {
+    return numOfServers;
+  }
+
+  /**
+   * Return the service time.
+   * @return The time a server takes to serve a customer.
+   */
+  public double serviceTime() {
+    return serviceTime;
+  }
+
+  /**
+   * Return the arrival rate.
+   * @return The mean number of arrivals per unit of time.
+   */
+  public double rate() {
+    return rate;
+  }
+
+  /**
+   * Return the report of the replications.
+   * @return The report.
+   */
+  public ReplicationReport report() {
+    return report;
+  }
+
+  /**
+   * Return the header line of the table that {@code toString} rows form.
+   * @return The column names.
+   */
+  public static String header() {
+    return String.format("%7s %8s %9s %21s %9s", "servers", "service", "rate",
+        "wait (95% CI)", "loss");
+  }
+
+  /**
+   * Return a string representation of this result.
+   * @return One row of the results table.
+   */
+  public String toString() {
+    return String.format("%7d %8.3f %9.3f %21s %8.4f%%", numOfServers, serviceTime,
+        rate, report.waitingTime(), 100 * report.lossRate());
+  }
+}
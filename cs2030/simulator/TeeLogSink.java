@@ -0,0 +1,68 @@
+package cs2030.simulator;
+
+/**
+ * A LogSink that passes every event on to two other sinks, for example
+ * the text log and a binary trace.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class TeeLogSink implements LogSink {
+  /** The first sink. */
+  private final LogSink first;
+
+  /** The second sink. */
+  private final LogSink second;
+
+  /**
+   * Create a sink that writes to both given sinks, first to first.
+   * @param first The first sink.
+   * @param second The second sink.
+   */
+  public TeeLogSink(LogSink first, LogSink second) {
+    this.first = first;
+    this.second = second;
+  }
+
+  @Override
+  public void arrives(double time, int customer) {
+    first.arrives(time, customer);
+    second.arrives(time, customer);
+  }
+
+  @Override
+  public void waits(double time, int customer, int server, int waiting) {
+    first.waits(time, customer, server, waiting);
+    second.waits(time, customer, server, waiting);
+  }
+
+  @Override
+  public void served(double time, int customer, int server, int waiting) {
+    first.served(time, customer, server, waiting);
+    second.served(time, customer, server, waiting);
+  }
+
+  @Override
+  public void done(double time, int customer, int server, int waiting) {
+    first.done(time, customer, server, waiting);
+    second.done(time, customer, server, waiting);
+  }
+
+  @Override
+  public void leaves(double time, int customer) {
+    first.leaves(time, customer);
+    second.leaves(time, customer);
+  }
+
+  @Override
+  public void flush() {
+    first.flush();
+    second.flush();
+  }
+
+  @Override
+  public void close() {
+    first.close();
+    second.close();
+  }
+}
@@ -0,0 +1,143 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A LogSink that writes a compact binary trace of the simulation.  The
+ * file starts with a header of {@code HEADER_SIZE} bytes, followed by one
+ * fixed-width record of {@code RECORD_SIZE} bytes per event, all
+ * little-endian:
+ *
+ * <pre>
+ *   offset  0  double  time
+ *   offset  8  int     customer id
+ *   offset 12  int     server id, or -1
+ *   offset 16  int     id of the customer waiting for the server, or -1
+ *   offset 20  byte    kind: ARRIVES, WAITS, SERVED, DONE or LEAVES
+ *   offset 21  3 bytes zero
+ * </pre>
+ *
+ * <p>Records are collected in a direct buffer and written through a
+ * {@code FileChannel}.  {@code TraceReader} reads the file back.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class TraceLogSink implements LogSink {
+  /** The bytes every trace file starts with. */
+  static final long MAGIC = 0x5254_3033_3032_5343L; // "CS2030TR"
+
+  /** The version of the record layout. */
+  static final int VERSION = 1;
+
+  /** The size of the file header in bytes. */
+  static final int HEADER_SIZE = 16;
+
+  /** The size of one record in bytes. */
+  static final int RECORD_SIZE = 24;
+
+  /** Record kinds. */
+  static final byte ARRIVES = 0;
+  static final byte WAITS = 1;
+  static final byte SERVED = 2;
+  static final byte DONE = 3;
+  static final byte LEAVES = 4;
+
+  /** The default number of records buffered before a write. */
+  private static final int DEFAULT_BUFFERED_RECORDS = 1 << 15;
+
+  /** The file being written. */
+  private final FileChannel channel;
+
+  /** Records not yet written to the file. */
+  private final ByteBuffer buffer;
+
+  /**
+   * Create a trace file, replacing any file already at the path, and
+   * write its header.
+   * @param path The path of the trace file.
+   * @throws IOException if the file cannot be created.
+   */
+  public TraceLogSink(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFERED_RECORDS * RECORD_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putLong(MAGIC).putInt(VERSION).putInt(RECORD_SIZE);
+  }
+
+  @Override
+  public void arrives(double time, int customer) {
+    put(ARRIVES, time, customer, -1, -1);
+  }
+
+  @Override
+  public void waits(double time, int customer, int server, int waiting) {
+    put(WAITS, time, customer, server, waiting);
+  }
+
+  @Override
+  public void served(double time, int customer, int server, int waiting) {
+    put(SERVED, time, customer, server, waiting);
+  }
+
+  @Override
+  public void done(double time, int customer, int server, int waiting) {
+    put(DONE, time, customer, server, waiting);
+  }
+
+  @Override
+  public void leaves(double time, int customer) {
+    put(LEAVES, time, customer, -1, -1);
+  }
+
+  @Override
+  public void flush() {
+    drain();
+  }
+
+  @Override
+  public void close() {
+    drain();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Append one record, writing the buffer out first if it is full.
+   * @param kind The kind of event.
+   * @param time The time of the event.
+   * @param customer The id of the customer.
+   * @param server The id of the server, or -1.
+   * @param waiting The id of the waiting customer, or -1.
+   */
+  private void put(byte kind, double time, int customer, int server, int waiting) {
+    if (buffer.remaining() < RECORD_SIZE) {
+      drain();
+    }
+    buffer.putDouble(time).putInt(customer).putInt(server).putInt(waiting)
+        .put(kind).put((byte) 0).putShort((short) 0);
+  }
+
+  /** Write every buffered record to the file. */
+  private void drain() {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.clear();
+  }
+}
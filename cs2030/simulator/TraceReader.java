@@ -0,0 +1,192 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The TraceReader class reads a binary trace written by
+ * {@code TraceLogSink}.  It can replay the trace into any LogSink, which
+ * with a {@code BufferedLogSink} gives back the exact text log, and it
+ * can compute the statistics of the run from the trace alone.
+ *
+ * <p>Usage: {@code java cs2030.simulator.TraceReader text|stats FILE}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class TraceReader {
+  /** The most records mapped into memory at once. */
+  private static final long RECORDS_PER_MAP = 1L << 25;
+
+  /** The trace file. */
+  private final Path path;
+
+  /**
+   * Create a reader for a trace file.
+   * @param path The path of the trace file.
+   */
+  public TraceReader(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Replay every record of the trace, in order, into a sink.  The sink
+   * is flushed at the end.
+   * @param sink The sink that receives the events.
+   * @return The number of records replayed.
+   * @throws IOException if the file cannot be read or is not a trace.
+   */
+  public long replay(LogSink sink) throws IOException {
+    try (FileChannel channel = FileChannel.open(path)) {
+      long numOfRecords = checkHeader(channel);
+      long done = 0;
+      while (done < numOfRecords) {
+        long count = Math.min(RECORDS_PER_MAP, numOfRecords - done);
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY,
+            TraceLogSink.HEADER_SIZE + done * TraceLogSink.RECORD_SIZE,
+            count * TraceLogSink.RECORD_SIZE);
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        for (long i = 0; i < count; i++) {
+          double time = map.getDouble();
+          int customer = map.getInt();
+          int server = map.getInt();
+          int waiting = map.getInt();
+          byte kind = map.get();
+          map.position(map.position() + 3);
+          switch (kind) {
+            case TraceLogSink.ARRIVES:
+              sink.arrives(time, customer);
+              break;
+            case TraceLogSink.WAITS:
+              sink.waits(time, customer, server, waiting);
+              break;
+            case TraceLogSink.SERVED:
+              sink.served(time, customer, server, waiting);
+              break;
+            case TraceLogSink.DONE:
+              sink.done(time, customer, server, waiting);
+              break;
+            case TraceLogSink.LEAVES:
+              sink.leaves(time, customer);
+              break;
+            default:
+              throw new IOException(path + ": bad record kind " + kind
+                  + " in record " + (done + i));
+          }
+        }
+        done += count;
+      }
+      sink.flush();
+      return numOfRecords;
+    }
+  }
+
+  /**
+   * Compute the statistics of the run from the trace, without simulating
+   * it again.
+   * @return The statistics in the same form {@code SimState.toString}
+   *     prints them.
+   * @throws IOException if the file cannot be read or is not a trace.
+   */
+  public String statistics() throws IOException {
+    StatisticsSink sink = new StatisticsSink();
+    replay(sink);
+    return sink.stats.toString();
+  }
+
+  /**
+   * Check the header of the trace and return the number of records.
+   * @param channel The open trace file.
+   * @return The number of records in the file.
+   * @throws IOException if the file is not a trace.
+   */
+  private long checkHeader(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size < TraceLogSink.HEADER_SIZE) {
+      throw new IOException(path + ": too short to be a trace");
+    }
+    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+        TraceLogSink.HEADER_SIZE);
+    header.order(ByteOrder.LITTLE_ENDIAN);
+    if (header.getLong() != TraceLogSink.MAGIC) {
+      throw new IOException(path + ": not a trace file");
+    }
+    int version = header.getInt();
+    int recordSize = header.getInt();
+    if (version != TraceLogSink.VERSION || recordSize != TraceLogSink.RECORD_SIZE) {
+      throw new IOException(path + ": unsupported trace version " + version);
+    }
+    long body = size - TraceLogSink.HEADER_SIZE;
+    if (body % TraceLogSink.RECORD_SIZE != 0) {
+      throw new IOException(path + ": truncated record at offset "
+          + (size - body % TraceLogSink.RECORD_SIZE));
+    }
+    return body / TraceLogSink.RECORD_SIZE;
+  }
+
+  /**
+   * A LogSink that rebuilds the statistics from the events: each served
+   * customer adds the time since its arrival, and each customer who
+   * leaves is lost.
+   */
+  private static class StatisticsSink implements LogSink {
+    /** The statistics collected so far. */
+    private final Statistics stats = new Statistics();
+
+    /** Arrival times, indexed by customer id. */
+    private double[] arrivals = new double[1024];
+
+    @Override
+    public void arrives(double time, int customer) {
+      if (customer >= arrivals.length) {
+        arrivals = Arrays.copyOf(arrivals, Math.max(customer + 1, arrivals.length * 2));
+      }
+      arrivals[customer] = time;
+    }
+
+    @Override
+    public void waits(double time, int customer, int server, int waiting) {
+    }
+
+    @Override
+    public void served(double time, int customer, int server, int waiting) {
+      stats.serveOneCustomer().customerWaitedFor(time - arrivals[customer]);
+    }
+
+    @Override
+    public void done(double time, int customer, int server, int waiting) {
+    }
+
+    @Override
+    public void leaves(double time, int customer) {
+      stats.lostOneCustomer();
+    }
+  }
+
+  /**
+   * Convert a trace back to the text log, or print its statistics.
+   *
+   * @param args {@code text} or {@code stats}, followed by the trace file.
+   */
+  public static void main(String[] args) {
+    if (args.length != 2 || !(args[0].equals("text") || args[0].equals("stats"))) {
+      System.err.println("Usage: java cs2030.simulator.TraceReader text|stats FILE");
+      return;
+    }
+    TraceReader reader = new TraceReader(Paths.get(args[1]));
+    try {
+      if (args[0].equals("text")) {
+        reader.replay(new BufferedLogSink(System.out));
+      } else {
+        System.out.println(reader.statistics());
+      }
+    } catch (IOException exception) {
+      System.err.println("Unable to read trace " + args[1] + " " + exception);
+    }
+  }
+}
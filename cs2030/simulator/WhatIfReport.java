@@ -0,0 +1,116 @@
+package cs2030.simulator;
+
+/**
+ * The result of forking a simulation into branches: the statistics of
+ * each branch from the fork to the end of the run, and how each differs
+ * from the baseline, the branch forked without a change, which comes
+ * first.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class WhatIfReport {
+  /** The intervention of each branch, the baseline first. */
+  private final Intervention[] interventions;
+
+  /** The statistics of each branch from the fork. */
+  private final Statistics[] branches;
+
+  /** The time the branches were forked at. */
+  private final double from;
+
+  /** The time the branches ran to. */
+  private final double until;
+
+  /**
+   * Create a report.
+   * @param interventions The intervention of each branch, the baseline first.
+   * @param branches The statistics of each branch from the fork.
+   * @param from The time the branches were forked at.
+   * @param until The time the branches ran to.
+   */
+  WhatIfReport(Intervention[] interventions, Statistics[] branches, double from,
+      double until) {
+    this.interventions = interventions;
+    this.branches = branches;
+    this.from = from;
+    this.until = until;
+  }
+
+  /**
+   * Return the number of branches, the baseline among them.
+   * @return The number of branches.
+   */
+  public int numOfBranches() {
+    return branches.length;
+  }
+
+  /**
+   * Return the intervention of a branch.
+   * @param branch The branch, 0 for the baseline.
+   * @return The intervention.
+   */
+  public Intervention intervention(int branch) {
+    return interventions[branch];
+  }
+
+  /**
+   * Return the statistics of a branch from the fork, in the form
+   * {@code SimState.toString} prints them.
+   * @param branch The branch, 0 for the baseline.
+   * @return The statistics.
+   */
+  public String branch(int branch) {
+    return branches[branch].toString();
+  }
+
+  /**
+   * Return how much longer customers of a branch waited on average than
+   * those of the baseline.
+   * @param branch The branch.
+   * @return The difference in average waiting time, negative if they
+   *     waited less.
+   */
+  public double waitingTimeChange(int branch) {
+    return branches[branch].averageWaitingTime() - branches[0].averageWaitingTime();
+  }
+
+  /**
+   * Return how many more customers a branch served than the baseline.
+   * @param branch The branch.
+   * @return The difference in customers served.
+   */
+  public int servedChange(int branch) {
+    return branches[branch].numOfServedCustomers() - branches[0].numOfServedCustomers();
+  }
+
+  /**
+   * Return how many more customers a branch lost than the baseline.
+   * @param branch The branch.
+   * @return The difference in customers lost.
+   */
+  public int lostChange(int branch) {
+    return branches[branch].numOfLostCustomers() - branches[0].numOfLostCustomers();
+  }
+
+  /**
+   * Return a string representation of this report.
+   * @return The span of time the branches ran, then one line per branch
+   *     with its statistics and how they differ from the baseline.
+   */
+  public String toString() {
+    StringBuilder sb = new StringBuilder(String.format("from %.3f to %.3f\n", from, until));
+    sb.append(String.format("%-36s %9s %9s %9s %10s %10s %10s", "branch", "wait", "served",
+        "lost", "wait chg", "served chg", "lost chg"));
+    for (int k = 0; k < branches.length; k++) {
+      Statistics s = branches[k];
+      sb.append(String.format("\n%-36s %9.3f %9d %9d", interventions[k],
+          s.averageWaitingTime(), s.numOfServedCustomers(), s.numOfLostCustomers()));
+      if (k > 0) {
+        sb.append(String.format(" %+10.3f %+10d %+10d", waitingTimeChange(k),
+            servedChange(k), lostChange(k)));
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,53 @@
+package cs2030.util;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@code ArrivalReader} when the input holds a token that is
+ * not a number of the expected kind.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ArrivalFormatException extends IOException {
+  /** The version of the serialized form. */
+  private static final long serialVersionUID = 1L;
+
+  /** The line the bad token is on, counting from 1. */
+  private final long line;
+
+  /** The byte offset of the bad token from the start of the input. */
+  private final long offset;
+
+  /**
+   * Create the exception.
+   * @param source The name of the input.
+   * @param line The line the bad token is on, counting from 1.
+   * @param offset The byte offset of the bad token.
+   * @param token The bad token.
+   * @param expected What kind of number was expected.
+   */
+  public ArrivalFormatException(String source, long line, long offset,
+      String token, String expected) {
+    super(source + ":" + line + ": expected " + expected + " but found \""
+        + token + "\" at byte offset " + offset);
+    this.line = line;
+    this.offset = offset;
+  }
+
+  /**
+   * Return the line the bad token is on.
+   * @return The line number, counting from 1.
+   */
+  public long line() {
+    return line;
+  }
+
+  /**
+   * Return the byte offset of the bad token.
+   * @return The offset from the start of the input.
+   */
+  public long offset() {
+    return offset;
+  }
+}
@@ -0,0 +1,381 @@
+package cs2030.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Reads whitespace-separated numbers from a file or stream.  Bytes are
+ * read through an NIO channel into one reusable buffer and numbers are
+ * parsed straight from the bytes, so no String is made per token.
+ * Plain decimals of up to 15 significant digits are converted exactly
+ * with one multiply or divide by a power of ten; any other token is
+ * handed to {@code Double.parseDouble}, so the values and the set of
+ * accepted tokens are the same as parsing each token as a String.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ArrivalReader implements AutoCloseable {
+  /** The default size of the read buffer in bytes. */
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+  /** Powers of ten that are exact doubles. */
+  private static final double[] POW10 = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /** The most significant digits that always fit exactly in a double. */
+  private static final int MAX_FAST_DIGITS = 15;
+
+  /** The channel being read. */
+  private final ReadableByteChannel channel;
+
+  /** The name of the input, for error messages. */
+  private final String source;
+
+  /** The file being read, or null if the input is a stream. */
+  private final Path path;
+
+  /** The read buffer. */
+  private final byte[] buf;
+
+  /** The read buffer, as a ByteBuffer for the channel. */
+  private final ByteBuffer byteBuffer;
+
+  /** Index of the next unread byte in the buffer. */
+  private int pos;
+
+  /** Index one past the last valid byte in the buffer. */
+  private int limit;
+
+  /** Offset in the input of {@code buf[0]}. */
+  private long base;
+
+  /** The current line, counting from 1. */
+  private long line;
+
+  /** Whether the channel has no more bytes. */
+  private boolean eof;
+
+  /** Start of the current token in the buffer. */
+  private int tokenStart;
+
+  /** End of the current token in the buffer. */
+  private int tokenEnd;
+
+  /**
+   * Open a reader on a file.
+   * @param path The file to read.
+   * @throws IOException if the file cannot be opened.
+   */
+  public ArrivalReader(Path path) throws IOException {
+    this(FileChannel.open(path), path, path.toString(), DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a reader on a stream, such as standard input.
+   * @param in The stream to read.
+   * @param source The name of the stream, for error messages.
+   */
+  public ArrivalReader(InputStream in, String source) {
+    this(Channels.newChannel(in), source, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a reader on a channel.
+   * @param channel The channel to read.
+   * @param source The name of the input, for error messages.
+   * @param bufferSize The size of the read buffer, which bounds the
+   *     length of a token.
+   */
+  public ArrivalReader(ReadableByteChannel channel, String source, int bufferSize) {
+    this(channel, null, source, bufferSize);
+  }
+
+  /**
+   * Create a reader on a channel, which may read a file.
+   * @param channel The channel to read.
+   * @param path The file the channel reads, or null.
+   * @param source The name of the input, for error messages.
+   * @param bufferSize The size of the read buffer.
+   */
+  private ArrivalReader(ReadableByteChannel channel, Path path, String source,
+      int bufferSize) {
+    this.channel = channel;
+    this.path = path;
+    this.source = source;
+    this.buf = new byte[bufferSize];
+    this.byteBuffer = ByteBuffer.wrap(buf);
+    this.pos = 0;
+    this.limit = 0;
+    this.base = 0;
+    this.line = 1;
+    this.eof = false;
+  }
+
+  /**
+   * Open another reader on the file this one reads, at the same place,
+   * which then reads on independently of this one.
+   * @return The reader, or empty if this one reads a stream, which
+   *     cannot be read again.
+   * @throws IOException if the file cannot be opened.
+   */
+  public Optional<ArrivalReader> reopen() throws IOException {
+    if (path == null) {
+      return Optional.empty();
+    }
+    FileChannel file = FileChannel.open(path);
+    try {
+      file.position(base + pos);
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+    ArrivalReader reader = new ArrivalReader(file, path, source, buf.length);
+    reader.base = base + pos;
+    reader.line = line;
+    return Optional.of(reader);
+  }
+
+  /**
+   * Check if there is another token.
+   * @return true if another token follows; false at the end of input.
+   * @throws IOException if the input cannot be read.
+   */
+  public boolean hasNext() throws IOException {
+    skipWhitespace();
+    return pos < limit;
+  }
+
+  /**
+   * Read the next token as an int.
+   * @return The value of the token.
+   * @throws IOException if the input cannot be read, has no more tokens,
+   *     or the token is not an int.
+   */
+  public int nextInt() throws IOException {
+    nextToken("an integer");
+    int i = tokenStart;
+    boolean negative = buf[i] == '-';
+    if (negative || buf[i] == '+') {
+      i++;
+    }
+    long value = 0;
+    boolean fast = i < tokenEnd && tokenEnd - i <= 10;
+    for (; fast && i < tokenEnd; i++) {
+      int d = buf[i] - '0';
+      if (d < 0 || d > 9) {
+        fast = false;
+      }
+      value = value * 10 + d;
+    }
+    value = negative ? -value : value;
+    if (fast && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return (int) value;
+    }
+    try {
+      return Integer.parseInt(token());
+    } catch (NumberFormatException e) {
+      throw error("an integer");
+    }
+  }
+
+  /**
+   * Read the next token as a double.
+   * @return The value of the token.
+   * @throws IOException if the input cannot be read, has no more tokens,
+   *     or the token is not a number.
+   */
+  public double nextDouble() throws IOException {
+    nextToken("a number");
+    int i = tokenStart;
+    boolean negative = buf[i] == '-';
+    if (negative || buf[i] == '+') {
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean anyDigit = false;
+    boolean fast = true;
+    for (; i < tokenEnd && isDigit(buf[i]); i++) {
+      anyDigit = true;
+      if (mantissa != 0 || buf[i] != '0') {
+        mantissa = mantissa * 10 + (buf[i] - '0');
+        digits++;
+      }
+      fast &= digits <= MAX_FAST_DIGITS;
+    }
+    if (i < tokenEnd && buf[i] == '.') {
+      for (i++; i < tokenEnd && isDigit(buf[i]); i++) {
+        anyDigit = true;
+        if (mantissa != 0 || buf[i] != '0') {
+          mantissa = mantissa * 10 + (buf[i] - '0');
+          digits++;
+        }
+        scale--;
+        fast &= digits <= MAX_FAST_DIGITS;
+      }
+    }
+    if (anyDigit && i < tokenEnd && (buf[i] == 'e' || buf[i] == 'E')) {
+      i++;
+      boolean negativeExp = i < tokenEnd && buf[i] == '-';
+      if (i < tokenEnd && (buf[i] == '-' || buf[i] == '+')) {
+        i++;
+      }
+      int exp = 0;
+      boolean anyExpDigit = false;
+      for (; i < tokenEnd && isDigit(buf[i]); i++) {
+        anyExpDigit = true;
+        exp = Math.min(exp * 10 + (buf[i] - '0'), 10000);
+      }
+      fast &= anyExpDigit;
+      scale += negativeExp ? -exp : exp;
+    }
+    if (fast && anyDigit && i == tokenEnd && scale >= -22 && scale <= 22) {
+      double value = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+      return negative ? -value : value;
+    }
+    try {
+      return Double.parseDouble(token());
+    } catch (NumberFormatException e) {
+      throw error("a number");
+    }
+  }
+
+  /**
+   * Close the underlying channel.
+   * @throws IOException if the channel cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Check if a byte is an ASCII digit.
+   * @param b The byte.
+   * @return true if b is 0 to 9.
+   */
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  /**
+   * Check if a byte separates tokens.
+   * @param b The byte.
+   * @return true if b is ASCII whitespace.
+   */
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f'
+        || b == 0x0B || (b >= 0x1C && b <= 0x1F);
+  }
+
+  /**
+   * Skip whitespace, reading more input as needed, and count lines.
+   * @throws IOException if the input cannot be read.
+   */
+  private void skipWhitespace() throws IOException {
+    while (true) {
+      for (; pos < limit && isWhitespace(buf[pos]); pos++) {
+        if (buf[pos] == '\n') {
+          line++;
+        }
+      }
+      if (pos < limit || !fill()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Find the bounds of the next token, which is kept whole in the buffer.
+   * @param expected What kind of number is expected, for error messages.
+   * @throws IOException if the input cannot be read or has no more tokens.
+   */
+  private void nextToken(String expected) throws IOException {
+    skipWhitespace();
+    if (pos >= limit) {
+      tokenStart = pos;
+      tokenEnd = pos;
+      throw error(expected);
+    }
+    int end = pos;
+    while (true) {
+      while (end < limit && !isWhitespace(buf[end])) {
+        end++;
+      }
+      if (end < limit || eof) {
+        break;
+      }
+      if (pos == 0 && limit == buf.length) {
+        tokenStart = pos;
+        tokenEnd = end;
+        throw error(expected);
+      }
+      int shift = pos;
+      boolean more = fill();
+      end -= shift;
+      if (!more) {
+        break;
+      }
+    }
+    tokenStart = pos;
+    tokenEnd = end;
+    pos = end;
+  }
+
+  /**
+   * Move the unread bytes to the front of the buffer and read more.
+   * @return true if any bytes were read; false at the end of input.
+   * @throws IOException if the input cannot be read.
+   */
+  private boolean fill() throws IOException {
+    if (eof) {
+      return false;
+    }
+    int unread = limit - pos;
+    System.arraycopy(buf, pos, buf, 0, unread);
+    base += pos;
+    pos = 0;
+    limit = unread;
+    byteBuffer.clear().position(limit);
+    int n;
+    do {
+      n = channel.read(byteBuffer);
+    } while (n == 0 && byteBuffer.hasRemaining());
+    if (n < 0) {
+      eof = true;
+    } else {
+      limit = byteBuffer.position();
+    }
+    return limit > unread;
+  }
+
+  /**
+   * Return the current token as a String.
+   * @return The token.
+   */
+  private String token() {
+    return new String(buf, tokenStart, tokenEnd - tokenStart, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Build the exception for a bad token, pointing at the last token read.
+   * Callers use this to reject a well-formed number that is out of place.
+   * @param expected What was expected instead.
+   * @return The exception.
+   */
+  public ArrivalFormatException error(String expected) {
+    String token = tokenEnd > tokenStart ? token() : "end of input";
+    return new ArrivalFormatException(source, line, base + tokenStart, token, expected);
+  }
+}
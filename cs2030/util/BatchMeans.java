@@ -0,0 +1,180 @@
+package cs2030.util;
+
+import java.util.Arrays;
+
+/**
+ * Batch means of a long, correlated series, such as the waiting times of
+ * the customers of one run, from which a confidence interval of its
+ * steady-state mean is read at any time.  Values are averaged in base
+ * batches of {@code MSER_BATCH} as they come, and only the base batch
+ * means are kept.  When {@code MAX_MEANS} are kept, neighbouring pairs
+ * are merged and base batches hold twice as many values from then on, so
+ * memory stays bounded however long the run.
+ *
+ * <p>The warm-up is cut with MSER (White, 1997) on the base batch means,
+ * which is MSER-5 until the means are first merged: the number of means
+ * {@code d} dropped is the one, up to half of them, that minimises the
+ * squared error of those left divided by their number squared.  What is
+ * left is grouped into {@code NUM_OF_BATCHES} batches of equal size,
+ * dropping the earliest means that do not fill one, and the interval is
+ * that of the mean of those batches.  Since a batch grows with the run,
+ * its mean soon holds enough values to be nearly independent of the
+ * others, as the interval assumes.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class BatchMeans {
+  /** The number of values in a base batch until means are first merged. */
+  public static final int MSER_BATCH = 5;
+
+  /** The number of batches the interval is computed from. */
+  public static final int NUM_OF_BATCHES = 20;
+
+  /** The most base batch means kept before neighbouring pairs are merged. */
+  private static final int MAX_MEANS = 1 << 16;
+
+  /** The means of the full base batches, earliest first. */
+  private double[] means;
+
+  /** The number of base batch means. */
+  private int numOfMeans;
+
+  /** The number of values in a base batch. */
+  private long batchSize;
+
+  /** The sum of the values of the base batch being filled. */
+  private double partialSum;
+
+  /** The number of values of the base batch being filled. */
+  private long partialCount;
+
+  /** The number of values recorded. */
+  private long count;
+
+  /** Create an empty series. */
+  public BatchMeans() {
+    this.means = new double[1024];
+    this.numOfMeans = 0;
+    this.batchSize = MSER_BATCH;
+    this.partialSum = 0;
+    this.partialCount = 0;
+    this.count = 0;
+  }
+
+  /**
+   * Record the next value of the series.
+   *
+   * @param value The value.
+   */
+  public void record(double value) {
+    count++;
+    partialSum += value;
+    if (++partialCount < batchSize) {
+      return;
+    }
+    if (numOfMeans == MAX_MEANS) {
+      for (int i = 0; i < numOfMeans / 2; i++) {
+        means[i] = (means[2 * i] + means[2 * i + 1]) / 2;
+      }
+      numOfMeans /= 2;
+      batchSize *= 2;
+      if (partialCount < batchSize) {
+        return;
+      }
+    }
+    if (numOfMeans == means.length) {
+      means = Arrays.copyOf(means, numOfMeans * 2);
+    }
+    means[numOfMeans++] = partialSum / partialCount;
+    partialSum = 0;
+    partialCount = 0;
+  }
+
+  /**
+   * Return the number of values recorded.
+   *
+   * @return The number of values.
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Return the number of values in a base batch, which MSER is applied
+   * to.
+   *
+   * @return The batch size: {@code MSER_BATCH}, doubled each time the
+   *     means were merged.
+   */
+  public long batchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Return the number of base batch means MSER drops as warm-up.  This
+   * takes O(number of means).
+   *
+   * @return The number of means, from 0 to half of them.
+   */
+  public int warmUp() {
+    int k = numOfMeans;
+    double sum = 0;
+    double squares = 0;
+    int best = 0;
+    double bestError = Double.POSITIVE_INFINITY;
+    // Walk d down from the latest allowed, so the sums are of the suffix.
+    for (int d = k - 1; d >= 0; d--) {
+      sum += means[d];
+      squares += means[d] * means[d];
+      if (d > k / 2) {
+        continue;
+      }
+      int n = k - d;
+      double error = Math.max(0, squares - sum * sum / n) / ((double) n * n);
+      if (error <= bestError) {
+        bestError = error;
+        best = d;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Return the number of values in the batches {@code estimate} makes.
+   *
+   * @param drop The number of base batch means dropped from the start.
+   * @return The number of values.
+   */
+  public long numOfUsed(int drop) {
+    return (numOfMeans - drop) / NUM_OF_BATCHES * NUM_OF_BATCHES * batchSize;
+  }
+
+  /**
+   * Return the summary of the batch means left after dropping some base
+   * batch means from the start, whose half-width is that of the 95%
+   * confidence interval of the mean of the series.
+   *
+   * @param drop The number of base batch means to drop, such as those of
+   *     {@code warmUp}.
+   * @return The summary of {@code NUM_OF_BATCHES} batch means, or of
+   *     none if fewer base batch means are left.
+   */
+  public Summary estimate(int drop) {
+    int left = numOfMeans - drop;
+    int size = left / NUM_OF_BATCHES;
+    Summary summary = new Summary();
+    if (size == 0) {
+      return summary;
+    }
+    int from = numOfMeans - size * NUM_OF_BATCHES;
+    for (int b = 0; b < NUM_OF_BATCHES; b++) {
+      double sum = 0;
+      for (int i = 0; i < size; i++) {
+        sum += means[from + b * size + i];
+      }
+      summary = summary.add(sum / size);
+    }
+    return summary;
+  }
+}
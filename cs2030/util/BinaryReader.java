@@ -0,0 +1,139 @@
+package cs2030.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A BinaryReader reads back the primitive values a {@code BinaryWriter}
+ * wrote, through a {@code FileChannel} into a direct buffer.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class BinaryReader implements Closeable {
+  /** The size of the buffer in bytes. */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /** The file being read. */
+  private final FileChannel channel;
+
+  /** Values read from the file and not yet taken. */
+  private final ByteBuffer buffer;
+
+  /**
+   * Open a file.
+   *
+   * @param path The path of the file.
+   * @throws IOException if the file cannot be opened.
+   */
+  public BinaryReader(Path path) throws IOException {
+    this(path, BUFFER_SIZE);
+  }
+
+  /**
+   * Open a file, with a buffer of a given size, such as a small
+   * one when many files are read at once.
+   *
+   * @param path The path of the file.
+   * @param bufferSize The size of the buffer in bytes, at least 8.
+   * @throws IOException if the file cannot be opened.
+   */
+  public BinaryReader(Path path, int bufferSize) throws IOException {
+    this(path, bufferSize, 0);
+  }
+
+  /**
+   * Open a file at a byte offset, with a buffer of a given size, such as
+   * to read on from where another reader of the file is.
+   *
+   * @param path The path of the file.
+   * @param bufferSize The size of the buffer in bytes, at least 8.
+   * @param offset The offset of the first byte read.
+   * @throws IOException if the file cannot be opened.
+   */
+  public BinaryReader(Path path, int bufferSize, long offset) throws IOException {
+    this.channel = FileChannel.open(path);
+    try {
+      this.channel.position(offset);
+    } catch (IOException e) {
+      this.channel.close();
+      throw e;
+    }
+    this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+    this.buffer.flip();
+  }
+
+  /**
+   * Read a byte.
+   *
+   * @return The byte.
+   * @throws IOException if the file cannot be read or ends first.
+   */
+  public byte getByte() throws IOException {
+    ensure(Byte.BYTES);
+    return buffer.get();
+  }
+
+  /**
+   * Read an int.
+   *
+   * @return The int.
+   * @throws IOException if the file cannot be read or ends first.
+   */
+  public int getInt() throws IOException {
+    ensure(Integer.BYTES);
+    return buffer.getInt();
+  }
+
+  /**
+   * Read a long.
+   *
+   * @return The long.
+   * @throws IOException if the file cannot be read or ends first.
+   */
+  public long getLong() throws IOException {
+    ensure(Long.BYTES);
+    return buffer.getLong();
+  }
+
+  /**
+   * Read a double.
+   *
+   * @return The double.
+   * @throws IOException if the file cannot be read or ends first.
+   */
+  public double getDouble() throws IOException {
+    ensure(Double.BYTES);
+    return buffer.getDouble();
+  }
+
+  /**
+   * Make sure the buffer holds enough bytes, reading more of the file if
+   * it does not.
+   *
+   * @param bytes The number of bytes needed.
+   * @throws IOException if the file cannot be read or ends first.
+   */
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+    buffer.compact();
+    while (buffer.position() < bytes) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("Unexpected end of file");
+      }
+    }
+    buffer.flip();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
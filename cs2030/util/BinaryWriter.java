@@ -0,0 +1,151 @@
+package cs2030.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A BinaryWriter writes primitive values, little-endian, to a file.
+ * Values are collected in a direct buffer and written through a
+ * {@code FileChannel} when it fills, so a value costs a bounds check and
+ * a store.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class BinaryWriter implements Closeable {
+  /** The size of the buffer in bytes. */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /** The file being written. */
+  private final FileChannel channel;
+
+  /** Values not yet written to the file. */
+  private final ByteBuffer buffer;
+
+  /**
+   * Create a file, replacing any file already at the path.
+   *
+   * @param path The path of the file.
+   * @throws IOException if the file cannot be created.
+   */
+  public BinaryWriter(Path path) throws IOException {
+    this(path, BUFFER_SIZE);
+  }
+
+  /**
+   * Create a file, replacing any file already at the path, with a
+   * buffer of a given size, such as a small one when many files are
+   * written at once.
+   *
+   * @param path The path of the file.
+   * @param bufferSize The size of the buffer in bytes, at least 8.
+   * @throws IOException if the file cannot be created.
+   */
+  public BinaryWriter(Path path, int bufferSize) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Write a byte.
+   *
+   * @param value The byte.
+   * @return This writer.
+   * @throws IOException if the file cannot be written.
+   */
+  public BinaryWriter putByte(int value) throws IOException {
+    ensure(Byte.BYTES);
+    buffer.put((byte) value);
+    return this;
+  }
+
+  /**
+   * Write an int.
+   *
+   * @param value The int.
+   * @return This writer.
+   * @throws IOException if the file cannot be written.
+   */
+  public BinaryWriter putInt(int value) throws IOException {
+    ensure(Integer.BYTES);
+    buffer.putInt(value);
+    return this;
+  }
+
+  /**
+   * Write a long.
+   *
+   * @param value The long.
+   * @return This writer.
+   * @throws IOException if the file cannot be written.
+   */
+  public BinaryWriter putLong(long value) throws IOException {
+    ensure(Long.BYTES);
+    buffer.putLong(value);
+    return this;
+  }
+
+  /**
+   * Write a double.
+   *
+   * @param value The double.
+   * @return This writer.
+   * @throws IOException if the file cannot be written.
+   */
+  public BinaryWriter putDouble(double value) throws IOException {
+    ensure(Double.BYTES);
+    buffer.putDouble(value);
+    return this;
+  }
+
+  /**
+   * Make room in the buffer, writing it out if it is too full.
+   *
+   * @param bytes The number of bytes needed.
+   * @throws IOException if the file cannot be written.
+   */
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      drain();
+    }
+  }
+
+  /**
+   * Write every buffered value to the file.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  private void drain() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Write every buffered value to the file and force it to the device,
+   * so the file survives a crash once this returns.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  public void sync() throws IOException {
+    drain();
+    channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      drain();
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,433 @@
+package cs2030.util;
+
+import java.util.Arrays;
+
+/**
+ * A calendar queue of timestamped handles, after Brown (1988), stored in
+ * primitive arrays.  Time is cut into days of equal width, and the days
+ * are laid round a year of buckets, one sorted list per bucket.  An entry
+ * goes into the bucket of its day, and the earliest entry is found by
+ * walking the buckets from the current day, so when the width matches
+ * the spacing of the timestamps, a bucket holds about one entry and both
+ * {@code add} and {@code poll} take O(1) on average, against the
+ * O(log n) of {@code EventHeap}.
+ *
+ * <p>The number of buckets doubles when there are twice as many entries,
+ * and halves when there are half as many, and the width is then set from
+ * the spacing of the earliest entries.  The width is also estimated again
+ * when the queue keeps its size but its operations walk too many buckets
+ * or list nodes, as they do when the spacing of the timestamps drifts.
+ *
+ * <p>Entries come out in the same order as from {@code EventHeap}: by
+ * timestamp, then rank, then the order they were added.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class CalendarQueue implements EventList {
+  /** The fewest buckets kept. */
+  private static final int MIN_BUCKETS = 16;
+
+  /** The most entries whose spacing sets the width. */
+  private static final int SAMPLE = 25;
+
+  /** The mean steps per operation above which the width is estimated again. */
+  private static final int MAX_STEPS = 4;
+
+  /** The timestamps of the nodes. */
+  private double[] times;
+
+  /** The day of each node: its timestamp divided by the width. */
+  private long[] days;
+
+  /** The sequence numbers of the nodes: the rank, then the insertion count. */
+  private long[] seqs;
+
+  /** The handles of the nodes. */
+  private int[] handles;
+
+  /** The next node in the same bucket, or in the free list; -1 at the end. */
+  private int[] next;
+
+  /** The first node of the free list, or -1. */
+  private int free;
+
+  /** The number of nodes ever handed out. */
+  private int numOfNodesUsed;
+
+  /** The first node of each bucket, or -1. */
+  private int[] buckets;
+
+  /** The last node of each bucket, or -1. */
+  private int[] tails;
+
+  /** The node last put into each bucket, if it is still there, or -1. */
+  private int[] fingers;
+
+  /** The number of buckets less one; the number of buckets is a power of two. */
+  private int mask;
+
+  /** The width of a day. */
+  private double width;
+
+  /** The day being walked; no entry is on an earlier day. */
+  private long today;
+
+  /** The number of entries. */
+  private int size;
+
+  /** The insertion count given to the next entry added. */
+  private long nextSeq;
+
+  /** The buckets and list nodes walked since the last check of the width. */
+  private long steps;
+
+  /** The operations since the last check of the width. */
+  private int ops;
+
+  /** Create an empty calendar queue. */
+  public CalendarQueue() {
+    this.times = new double[MIN_BUCKETS];
+    this.days = new long[MIN_BUCKETS];
+    this.seqs = new long[MIN_BUCKETS];
+    this.handles = new int[MIN_BUCKETS];
+    this.next = new int[MIN_BUCKETS];
+    this.free = -1;
+    this.numOfNodesUsed = 0;
+    this.buckets = new int[MIN_BUCKETS];
+    Arrays.fill(this.buckets, -1);
+    this.tails = new int[MIN_BUCKETS];
+    Arrays.fill(this.tails, -1);
+    this.fingers = new int[MIN_BUCKETS];
+    Arrays.fill(this.fingers, -1);
+    this.mask = MIN_BUCKETS - 1;
+    this.width = 1;
+    this.today = 0;
+    this.size = 0;
+    this.nextSeq = 0;
+  }
+
+  @Override
+  public void add(double time, int handle, int rank) {
+    put(time, handle, EventList.seq(rank, nextSeq++));
+  }
+
+  @Override
+  public void restore(double time, int handle, long seq) {
+    put(time, handle, seq);
+    nextSeq = Math.max(nextSeq, EventList.countOf(seq) + 1);
+  }
+
+  @Override
+  public void forEach(Visitor visitor) {
+    for (int head : buckets) {
+      for (int node = head; node >= 0; node = next[node]) {
+        visitor.visit(times[node], handles[node], seqs[node]);
+      }
+    }
+  }
+
+  @Override
+  public CalendarQueue copy() {
+    CalendarQueue copy = new CalendarQueue();
+    copy.times = times.clone();
+    copy.days = days.clone();
+    copy.seqs = seqs.clone();
+    copy.handles = handles.clone();
+    copy.next = next.clone();
+    copy.free = free;
+    copy.numOfNodesUsed = numOfNodesUsed;
+    copy.buckets = buckets.clone();
+    copy.tails = tails.clone();
+    copy.fingers = fingers.clone();
+    copy.mask = mask;
+    copy.width = width;
+    copy.today = today;
+    copy.size = size;
+    copy.nextSeq = nextSeq;
+    copy.steps = steps;
+    copy.ops = ops;
+    return copy;
+  }
+
+  /**
+   * Add an entry with a given sequence number.
+   *
+   * @param time The timestamp of the entry.
+   * @param handle The handle of the entry.
+   * @param seq The sequence number of the entry.
+   */
+  private void put(double time, int handle, long seq) {
+    int node = allocate();
+    times[node] = time;
+    seqs[node] = seq;
+    handles[node] = handle;
+    long day = dayOf(time);
+    if (size == 0 || day < today) {
+      today = day;
+    }
+    insert(node, day);
+    size++;
+    if (size > 2 * buckets.length) {
+      resize(buckets.length * 2);
+    } else {
+      checkWidth();
+    }
+  }
+
+  @Override
+  public int poll() {
+    if (size == 0) {
+      return -1;
+    }
+    int bucket = locate();
+    int node = buckets[bucket];
+    buckets[bucket] = next[node];
+    if (buckets[bucket] < 0) {
+      tails[bucket] = -1;
+    }
+    if (fingers[bucket] == node) {
+      fingers[bucket] = -1;
+    }
+    next[node] = free;
+    free = node;
+    size--;
+    if (size < buckets.length / 2 && buckets.length > MIN_BUCKETS) {
+      resize(buckets.length / 2);
+    } else {
+      checkWidth();
+    }
+    return handles[node];
+  }
+
+  @Override
+  public double peekTime() {
+    return size == 0 ? Double.NaN : times[buckets[locate()]];
+  }
+
+  @Override
+  public int peek() {
+    return size == 0 ? -1 : handles[buckets[locate()]];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Return the day a timestamp falls on.
+   *
+   * @param time The timestamp.
+   * @return The day.
+   */
+  private long dayOf(double time) {
+    return (long) Math.floor(time / width);
+  }
+
+  /**
+   * Take a free node, growing the node arrays if there is none.
+   *
+   * @return The node.
+   */
+  private int allocate() {
+    if (free >= 0) {
+      int node = free;
+      free = next[node];
+      return node;
+    }
+    if (numOfNodesUsed == times.length) {
+      int n = numOfNodesUsed * 2;
+      times = Arrays.copyOf(times, n);
+      days = Arrays.copyOf(days, n);
+      seqs = Arrays.copyOf(seqs, n);
+      handles = Arrays.copyOf(handles, n);
+      next = Arrays.copyOf(next, n);
+    }
+    return numOfNodesUsed++;
+  }
+
+  /**
+   * Put a node into the bucket of its day, keeping the bucket sorted.
+   * A node that sorts after the last one, as most do, is appended without
+   * walking the bucket.  Otherwise the walk starts from the node last put
+   * into the bucket, if the new one sorts after it, so that entries at one
+   * time, which go in one after another, do not walk all those before.
+   *
+   * @param node The node, whose timestamp and sequence number are set.
+   * @param day The day of the node.
+   */
+  private void insert(int node, long day) {
+    days[node] = day;
+    int bucket = (int) day & mask;
+    double time = times[node];
+    long seq = seqs[node];
+    int tail = tails[bucket];
+    int finger = fingers[bucket];
+    fingers[bucket] = node;
+    if (tail < 0 || before(tail, time, seq)) {
+      next[node] = -1;
+      if (tail < 0) {
+        buckets[bucket] = node;
+      } else {
+        next[tail] = node;
+      }
+      tails[bucket] = node;
+      return;
+    }
+    // The node sorts before the tail, so the walk stops at the tail.
+    int prev = -1;
+    int cur = buckets[bucket];
+    if (finger >= 0 && before(finger, time, seq)) {
+      prev = finger;
+      cur = next[finger];
+    }
+    while (before(cur, time, seq)) {
+      prev = cur;
+      cur = next[cur];
+      steps++;
+    }
+    next[node] = cur;
+    if (prev < 0) {
+      buckets[bucket] = node;
+    } else {
+      next[prev] = node;
+    }
+  }
+
+  /**
+   * Check if a node comes out before an entry.
+   *
+   * @param node The node.
+   * @param time The timestamp of the entry.
+   * @param seq The sequence number of the entry.
+   * @return true if the node is earlier.
+   */
+  private boolean before(int node, double time, long seq) {
+    return times[node] < time || (times[node] == time && seqs[node] < seq);
+  }
+
+
+  /**
+   * Find the bucket whose first node is the earliest entry, moving the
+   * current day up to the day of that entry.  The queue must not be empty.
+   *
+   * @return The bucket.
+   */
+  private int locate() {
+    for (int i = 0; i < buckets.length; i++) {
+      int bucket = (int) today & mask;
+      int node = buckets[bucket];
+      if (node >= 0 && days[node] <= today) {
+        return bucket;
+      }
+      today++;
+      steps++;
+    }
+    // A whole year without an entry: jump to the earliest one directly.
+    int best = -1;
+    for (int bucket = 0; bucket < buckets.length; bucket++) {
+      int node = buckets[bucket];
+      if (node >= 0 && (best < 0 || times[node] < times[best]
+          || (times[node] == times[best] && seqs[node] < seqs[best]))) {
+        best = node;
+      }
+    }
+    today = days[best];
+    return (int) today & mask;
+  }
+
+  /**
+   * Count an operation, and estimate the width again if operations have
+   * walked too many buckets or nodes on average.
+   */
+  private void checkWidth() {
+    if (++ops < buckets.length) {
+      return;
+    }
+    if (steps > (long) MAX_STEPS * ops) {
+      resize(buckets.length);
+    }
+    steps = 0;
+    ops = 0;
+  }
+
+  /**
+   * Spread the entries over a new number of buckets, with the width set
+   * from the spacing of the earliest entries.
+   *
+   * @param numOfBuckets The new number of buckets, a power of two.
+   */
+  private void resize(int numOfBuckets) {
+    int[] nodes = new int[size];
+    int n = 0;
+    for (int head : buckets) {
+      for (int node = head; node >= 0; node = next[node]) {
+        nodes[n++] = node;
+      }
+    }
+    width = estimateWidth(nodes);
+    buckets = new int[numOfBuckets];
+    Arrays.fill(buckets, -1);
+    tails = new int[numOfBuckets];
+    Arrays.fill(tails, -1);
+    fingers = new int[numOfBuckets];
+    Arrays.fill(fingers, -1);
+    mask = numOfBuckets - 1;
+    today = Long.MAX_VALUE;
+    for (int node : nodes) {
+      long day = dayOf(times[node]);
+      today = Math.min(today, day);
+      insert(node, day);
+    }
+    steps = 0;
+    ops = 0;
+  }
+
+  /**
+   * Estimate the width of a day as three times the mean gap between the
+   * earliest distinct timestamps, leaving out gaps more than twice the
+   * mean, as Brown does.  Entries at the same time share a bucket whatever
+   * the width, so their gaps of 0 are not counted.  The width is kept if
+   * there are too few distinct timestamps.
+   *
+   * @param nodes The nodes of every entry.
+   * @return The new width.
+   */
+  private double estimateWidth(int[] nodes) {
+    // Keep the earliest SAMPLE distinct timestamps, sorted, by insertion.
+    double[] sample = new double[Math.min(SAMPLE, nodes.length)];
+    int k = 0;
+    for (int node : nodes) {
+      double time = times[node];
+      if (k == sample.length && time >= sample[k - 1]) {
+        continue;
+      }
+      int i = k;
+      while (i > 0 && sample[i - 1] > time) {
+        i--;
+      }
+      if (i > 0 && sample[i - 1] == time) {
+        continue;
+      }
+      System.arraycopy(sample, i, sample, i + 1, Math.min(k, sample.length - 1) - i);
+      sample[i] = time;
+      k = Math.min(k + 1, sample.length);
+    }
+    if (k < 2) {
+      return width;
+    }
+    double mean = (sample[k - 1] - sample[0]) / (k - 1);
+    double sum = 0;
+    int gaps = 0;
+    for (int i = 1; i < k; i++) {
+      double gap = sample[i] - sample[i - 1];
+      if (gap <= 2 * mean) {
+        sum += gap;
+        gaps++;
+      }
+    }
+    double estimate = 3 * sum / gaps;
+    return estimate > 0 && !Double.isInfinite(estimate) ? estimate : width;
+  }
+}
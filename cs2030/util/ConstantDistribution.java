@@ -0,0 +1,58 @@
+package cs2030.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A Distribution that always gives the same value, and draws nothing from
+ * the generator.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ConstantDistribution implements Distribution {
+  /** The value. */
+  private final double value;
+
+  /**
+   * Create a constant distribution.
+   *
+   * @param value The value, which must not be negative.
+   * @throws IllegalArgumentException if the value is negative.
+   */
+  public ConstantDistribution(double value) {
+    if (!(value >= 0)) {
+      throw new IllegalArgumentException("Value must not be negative: " + value);
+    }
+    this.value = value;
+  }
+
+  @Override
+  public double sample(SplittableRandom random) {
+    return value;
+  }
+
+  @Override
+  public void fill(SplittableRandom random, double[] values) {
+    Arrays.fill(values, value);
+  }
+
+  @Override
+  public double mean() {
+    return value;
+  }
+
+  @Override
+  public double min() {
+    return value;
+  }
+
+  /**
+   * Return a string representation of this distribution.
+   *
+   * @return The description {@code Distribution.parse} reads.
+   */
+  public String toString() {
+    return "constant:" + value;
+  }
+}
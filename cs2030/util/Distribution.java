@@ -0,0 +1,110 @@
+package cs2030.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A Distribution draws non-negative random values, such as service times
+ * or gaps between arrivals, from a {@code SplittableRandom} that the
+ * caller owns.  A distribution keeps no state of its own, so one can be
+ * shared by many streams and threads, and the values drawn depend only
+ * on the state of the generator.
+ *
+ * <p>Values are usually drawn in batches with {@code fill}, through a
+ * {@code RandomStream}, so that the sampling loop stays tight and the
+ * caller takes one array read per value.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public interface Distribution {
+  /**
+   * Draw one value.
+   *
+   * @param random The generator to draw from.
+   * @return The value.
+   */
+  double sample(SplittableRandom random);
+
+  /**
+   * Fill an array with values, in the order {@code sample} would draw
+   * them unless the distribution says otherwise.
+   *
+   * @param random The generator to draw from.
+   * @param values The array to fill.
+   */
+  default void fill(SplittableRandom random, double[] values) {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = sample(random);
+    }
+  }
+
+  /**
+   * Return the mean of the distribution.
+   *
+   * @return The mean.
+   */
+  double mean();
+
+  /**
+   * Return a value that no sample is below.  This is 0 unless the
+   * distribution knows better.
+   *
+   * @return The smallest value a sample can take.
+   */
+  default double min() {
+    return 0;
+  }
+
+  /**
+   * Parse a distribution from its description, one of
+   * {@code constant:VALUE}, {@code exponential:RATE},
+   * {@code erlang:K:RATE}, {@code lognormal:MU:SIGMA} or
+   * {@code empirical:VALUE,VALUE,...}.
+   *
+   * @param spec The description.
+   * @return The distribution.
+   * @throws IllegalArgumentException if the description is malformed or
+   *     its parameters are out of range.
+   */
+  static Distribution parse(String spec) {
+    String[] parts = spec.split(":");
+    try {
+      switch (parts[0]) {
+        case "constant":
+          if (parts.length == 2) {
+            return new ConstantDistribution(Double.parseDouble(parts[1]));
+          }
+          break;
+        case "exponential":
+          if (parts.length == 2) {
+            return new ExponentialDistribution(Double.parseDouble(parts[1]));
+          }
+          break;
+        case "erlang":
+          if (parts.length == 3) {
+            return new ErlangDistribution(Integer.parseInt(parts[1]),
+                Double.parseDouble(parts[2]));
+          }
+          break;
+        case "lognormal":
+          if (parts.length == 3) {
+            return new LogNormalDistribution(Double.parseDouble(parts[1]),
+                Double.parseDouble(parts[2]));
+          }
+          break;
+        case "empirical":
+          if (parts.length == 2) {
+            return new EmpiricalDistribution(Arrays.stream(parts[1].split(","))
+                .mapToDouble(Double::parseDouble).toArray());
+          }
+          break;
+        default:
+          break;
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed distribution " + spec, e);
+    }
+    throw new IllegalArgumentException("Malformed distribution " + spec);
+  }
+}
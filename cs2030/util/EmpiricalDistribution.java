@@ -0,0 +1,82 @@
+package cs2030.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * An empirical Distribution built from observed values.  Values are
+ * drawn from the piecewise linear distribution function through the
+ * sorted observations, so a sample can fall between two observations
+ * but never outside the smallest and largest.  Drawing a value takes one
+ * uniform and no search: the uniform picks the pair of neighbouring
+ * observations and the point between them at once.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class EmpiricalDistribution implements Distribution {
+  /** The observations, sorted. */
+  private final double[] values;
+
+  /** The mean of the distribution. */
+  private final double mean;
+
+  /**
+   * Create an empirical distribution.
+   *
+   * @param observations The observed values, in any order, none of them
+   *     negative.  The array is copied.
+   * @throws IllegalArgumentException if there are no observations or one
+   *     is negative.
+   */
+  public EmpiricalDistribution(double[] observations) {
+    if (observations.length == 0) {
+      throw new IllegalArgumentException("No observations");
+    }
+    this.values = observations.clone();
+    Arrays.sort(this.values);
+    if (!(values[0] >= 0) || Double.isInfinite(values[values.length - 1])) {
+      throw new IllegalArgumentException("Observations must be finite and not negative");
+    }
+    // Each segment between neighbours carries the same weight, so the
+    // mean is the mean of the segment midpoints.
+    double sum = 0;
+    for (int i = 1; i < values.length; i++) {
+      sum += (values[i - 1] + values[i]) / 2;
+    }
+    this.mean = values.length == 1 ? values[0] : sum / (values.length - 1);
+  }
+
+  @Override
+  public double sample(SplittableRandom random) {
+    if (values.length == 1) {
+      return values[0];
+    }
+    double position = random.nextDouble() * (values.length - 1);
+    int i = (int) position;
+    return values[i] + (position - i) * (values[i + 1] - values[i]);
+  }
+
+  @Override
+  public double mean() {
+    return mean;
+  }
+
+  @Override
+  public double min() {
+    return values[0];
+  }
+
+  /**
+   * Return a string representation of this distribution.
+   *
+   * @return The description {@code Distribution.parse} reads.
+   */
+  public String toString() {
+    StringBuilder sb = new StringBuilder("empirical:");
+    for (int i = 0; i < values.length; i++) {
+      sb.append(i == 0 ? "" : ",").append(values[i]);
+    }
+    return sb.toString();
+  }
+}
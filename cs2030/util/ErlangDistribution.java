@@ -0,0 +1,65 @@
+package cs2030.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * An Erlang Distribution: the sum of {@code k} independent exponential
+ * values of the same rate, each drawn with the ziggurat sampler of
+ * {@code ExponentialDistribution}.  Its mean is {@code k / rate}, and
+ * the larger {@code k} is, the less the values vary about it.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ErlangDistribution implements Distribution {
+  /** The number of exponential phases. */
+  private final int k;
+
+  /** The rate of each phase. */
+  private final double rate;
+
+  /** The mean of each phase, by which standard values are scaled. */
+  private final double phaseMean;
+
+  /**
+   * Create an Erlang distribution.
+   *
+   * @param k The number of phases, at least 1.
+   * @param rate The rate of each phase, which must be positive.
+   * @throws IllegalArgumentException if a parameter is out of range.
+   */
+  public ErlangDistribution(int k, double rate) {
+    if (k < 1) {
+      throw new IllegalArgumentException("Number of phases must be positive: " + k);
+    }
+    if (!(rate > 0) || Double.isInfinite(rate)) {
+      throw new IllegalArgumentException("Rate must be positive: " + rate);
+    }
+    this.k = k;
+    this.rate = rate;
+    this.phaseMean = 1 / rate;
+  }
+
+  @Override
+  public double sample(SplittableRandom random) {
+    double sum = 0;
+    for (int j = 0; j < k; j++) {
+      sum += ExponentialDistribution.standard(random);
+    }
+    return sum * phaseMean;
+  }
+
+  @Override
+  public double mean() {
+    return k * phaseMean;
+  }
+
+  /**
+   * Return a string representation of this distribution.
+   *
+   * @return The description {@code Distribution.parse} reads.
+   */
+  public String toString() {
+    return "erlang:" + k + ":" + rate;
+  }
+}
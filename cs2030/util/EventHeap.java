@@ -0,0 +1,200 @@
+package cs2030.util;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of timestamped handles, stored in primitive arrays.
+ * Each entry is a {@code double} timestamp and an {@code int} handle
+ * that the caller uses to look up the payload.  Entries with the same
+ * timestamp come out in increasing order of rank, and entries with the
+ * same timestamp and rank in the order they were added.  Every
+ * operation is O(log n).
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class EventHeap implements EventList {
+  /** The default number of slots allocated up front. */
+  private static final int DEFAULT_CAPACITY = 64;
+
+  /** The timestamps of the entries, in heap order. */
+  private double[] times;
+
+  /** The handles of the entries, in heap order. */
+  private int[] handles;
+
+  /**
+   * The sequence numbers of the entries, in heap order.  A sequence
+   * number is the rank in the top bits and the insertion count below.
+   */
+  private long[] seqs;
+
+  /** The number of entries in the heap. */
+  private int size;
+
+  /** The insertion count given to the next entry added. */
+  private long nextSeq;
+
+  /** Create an empty heap with the default capacity. */
+  public EventHeap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create an empty heap with room for {@code capacity} entries before
+   * it has to grow.
+   *
+   * @param capacity The initial number of slots.
+   */
+  public EventHeap(int capacity) {
+    int n = Math.max(1, capacity);
+    this.times = new double[n];
+    this.handles = new int[n];
+    this.seqs = new long[n];
+    this.size = 0;
+    this.nextSeq = 0;
+  }
+
+  @Override
+  public void add(double time, int handle, int rank) {
+    if (size == times.length) {
+      int n = size * 2;
+      times = Arrays.copyOf(times, n);
+      handles = Arrays.copyOf(handles, n);
+      seqs = Arrays.copyOf(seqs, n);
+    }
+    siftUp(size, time, handle, EventList.seq(rank, nextSeq++));
+    size++;
+  }
+
+  @Override
+  public void restore(double time, int handle, long seq) {
+    if (size == times.length) {
+      int n = size * 2;
+      times = Arrays.copyOf(times, n);
+      handles = Arrays.copyOf(handles, n);
+      seqs = Arrays.copyOf(seqs, n);
+    }
+    siftUp(size, time, handle, seq);
+    size++;
+    nextSeq = Math.max(nextSeq, EventList.countOf(seq) + 1);
+  }
+
+  @Override
+  public void forEach(Visitor visitor) {
+    for (int i = 0; i < size; i++) {
+      visitor.visit(times[i], handles[i], seqs[i]);
+    }
+  }
+
+  @Override
+  public EventHeap copy() {
+    EventHeap copy = new EventHeap(1);
+    copy.times = times.clone();
+    copy.handles = handles.clone();
+    copy.seqs = seqs.clone();
+    copy.size = size;
+    copy.nextSeq = nextSeq;
+    return copy;
+  }
+
+  @Override
+  public int poll() {
+    if (size == 0) {
+      return -1;
+    }
+    int top = handles[0];
+    size--;
+    if (size > 0) {
+      siftDown(0, times[size], handles[size], seqs[size]);
+    }
+    return top;
+  }
+
+  @Override
+  public double peekTime() {
+    return size == 0 ? Double.NaN : times[0];
+  }
+
+  @Override
+  public int peek() {
+    return size == 0 ? -1 : handles[0];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Check if entry (t1, s1) should come out before entry (t2, s2).
+   *
+   * @param t1 Timestamp of the first entry.
+   * @param s1 Sequence number of the first entry.
+   * @param t2 Timestamp of the second entry.
+   * @param s2 Sequence number of the second entry.
+   * @return true if the first entry is earlier.
+   */
+  private static boolean before(double t1, long s1, double t2, long s2) {
+    return t1 < t2 || (t1 == t2 && s1 < s2);
+  }
+
+  /**
+   * Move an entry up from slot {@code i} until the heap order holds.
+   *
+   * @param i The slot to start from.
+   * @param time The timestamp of the entry.
+   * @param handle The handle of the entry.
+   * @param seq The sequence number of the entry.
+   */
+  private void siftUp(int i, double time, int handle, long seq) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!before(time, seq, times[parent], seqs[parent])) {
+        break;
+      }
+      times[i] = times[parent];
+      handles[i] = handles[parent];
+      seqs[i] = seqs[parent];
+      i = parent;
+    }
+    times[i] = time;
+    handles[i] = handle;
+    seqs[i] = seq;
+  }
+
+  /**
+   * Move an entry down from slot {@code i} until the heap order holds.
+   *
+   * @param i The slot to start from.
+   * @param time The timestamp of the entry.
+   * @param handle The handle of the entry.
+   * @param seq The sequence number of the entry.
+   */
+  private void siftDown(int i, double time, int handle, long seq) {
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      int right = child + 1;
+      if (right < size
+          && before(times[right], seqs[right], times[child], seqs[child])) {
+        child = right;
+      }
+      if (!before(times[child], seqs[child], time, seq)) {
+        break;
+      }
+      times[i] = times[child];
+      handles[i] = handles[child];
+      seqs[i] = seqs[child];
+      i = child;
+    }
+    times[i] = time;
+    handles[i] = handle;
+    seqs[i] = seq;
+  }
+}
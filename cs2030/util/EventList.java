@@ -0,0 +1,167 @@
+package cs2030.util;
+
+/**
+ * An EventList is a priority queue of timestamped handles, each an
+ * {@code int} that the caller uses to look up the payload.  Entries come
+ * out in order of timestamp, then of rank, then in the order they were
+ * added, so every implementation gives the same order for the same
+ * operations and a simulation does not depend on which one it runs on.
+ *
+ * <p>Implementations differ in cost: {@code EventHeap} is a binary heap
+ * with O(log n) operations, {@code CalendarQueue} spreads entries over
+ * buckets of time for O(1) operations on average when timestamps are
+ * dense, and {@code PersistentEventList} can be copied in O(1), where
+ * the others copy their arrays.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public interface EventList {
+  /** The largest tie-break rank. */
+  int MAX_RANK = 32767;
+
+  /** Bits of a sequence number below the rank, holding the insertion count. */
+  int RANK_SHIFT = 48;
+
+  /** Receives the entries of a list from {@code forEach}. */
+  interface Visitor {
+    /**
+     * Receive an entry.
+     *
+     * @param time The timestamp of the entry.
+     * @param handle The handle of the entry.
+     * @param seq The sequence number of the entry: its rank shifted up by
+     *     {@code RANK_SHIFT} bits, then its insertion count.
+     */
+    void visit(double time, int handle, long seq);
+  }
+
+  /**
+   * Add an entry of rank 0.
+   *
+   * @param time The timestamp of the entry.
+   * @param handle A non-negative handle identifying the payload.
+   */
+  default void add(double time, int handle) {
+    add(time, handle, 0);
+  }
+
+  /**
+   * Add an entry.
+   *
+   * @param time The timestamp of the entry.
+   * @param handle A non-negative handle identifying the payload.
+   * @param rank The tie-break rank, from 0 to {@code MAX_RANK}; lower
+   *     comes first.
+   */
+  void add(double time, int handle, int rank);
+
+  /**
+   * Remove the earliest entry.
+   *
+   * @return The handle of the removed entry, or -1 if the list is empty.
+   */
+  int poll();
+
+  /**
+   * Return the earliest timestamp without removing its entry.
+   *
+   * @return The earliest timestamp, or {@code Double.NaN} if the list is
+   *     empty.
+   */
+  double peekTime();
+
+  /**
+   * Return the handle of the earliest entry without removing it.
+   *
+   * @return The earliest handle, or -1 if the list is empty.
+   */
+  int peek();
+
+  /**
+   * Return the number of entries.
+   *
+   * @return The number of entries.
+   */
+  int size();
+
+  /**
+   * Visit every entry with its sequence number, in no particular order.
+   *
+   * @param visitor Receives the entries.
+   */
+  void forEach(Visitor visitor);
+
+  /**
+   * Add an entry with the sequence number it was visited with, in a list
+   * of this kind or any other.  Entries restored come out in the order
+   * they had in the list they were visited in, and entries added later
+   * come after them among entries of the same timestamp and rank, so a
+   * list can be copied or saved and carry on as if it were the original.
+   *
+   * @param time The timestamp of the entry.
+   * @param handle A non-negative handle identifying the payload.
+   * @param seq The sequence number of the entry.
+   */
+  void restore(double time, int handle, long seq);
+
+  /**
+   * Return a list of the same kind with the same entries, which then
+   * changes independently of this one.
+   *
+   * @return The copy.
+   */
+  EventList copy();
+
+  /**
+   * Check if the list has no entries.
+   *
+   * @return true if the list is empty; false otherwise.
+   */
+  default boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Return the sequence number of an entry, which orders entries of the
+   * same timestamp.
+   *
+   * @param rank The tie-break rank of the entry.
+   * @param count The insertion count of the entry.
+   * @return The rank shifted up by {@code RANK_SHIFT} bits, then the
+   *     count.
+   */
+  static long seq(int rank, long count) {
+    return ((long) rank << RANK_SHIFT) | count;
+  }
+
+  /**
+   * Return the insertion count of a sequence number.
+   *
+   * @param seq The sequence number.
+   * @return The count, without the rank.
+   */
+  static long countOf(long seq) {
+    return seq & ((1L << RANK_SHIFT) - 1);
+  }
+
+  /**
+   * Create an empty event list of the given kind.
+   *
+   * @param kind {@code heap}, {@code calendar} or {@code persistent}.
+   * @return The event list.
+   * @throws IllegalArgumentException if the kind is unknown.
+   */
+  static EventList create(String kind) {
+    switch (kind) {
+      case "heap":
+        return new EventHeap();
+      case "calendar":
+        return new CalendarQueue();
+      case "persistent":
+        return new PersistentEventList();
+      default:
+        throw new IllegalArgumentException("Unknown event list " + kind);
+    }
+  }
+}
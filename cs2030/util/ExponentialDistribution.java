@@ -0,0 +1,121 @@
+package cs2030.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * An exponential Distribution, sampled with the ziggurat method of
+ * Marsaglia and Tsang.  The density is covered by 256 layers of equal
+ * area, each a rectangle but for the base, which also holds the tail.  A
+ * value is drawn by picking a layer and a point across it from one
+ * {@code nextLong}; about 99% of points fall under the curve outright,
+ * so most values cost one random long, a multiply and a compare, where
+ * inverting the distribution function costs a logarithm.  The rest are
+ * settled with a second uniform and an {@code exp}, or, in the tail,
+ * with one logarithm.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ExponentialDistribution implements Distribution {
+  /** The number of layers; a power of two. */
+  private static final int LAYERS = 256;
+
+  /** The right edge of the base layer, where the tail starts. */
+  private static final double R = 7.69711747013104972;
+
+  /** The area of each layer. */
+  private static final double V = 3.949659822581572e-3;
+
+  /**
+   * The right edge of each layer, falling from the base: layer i spans
+   * 0 to {@code X[i]} and, for i above 0, the heights from
+   * {@code F[i]} to {@code F[i + 1]}.  {@code X[0]} is the width the base
+   * would have if its tail were a rectangle.
+   */
+  private static final double[] X = new double[LAYERS + 1];
+
+  /** The density at each edge in {@code X}. */
+  private static final double[] F = new double[LAYERS + 1];
+
+  static {
+    X[0] = V / Math.exp(-R);
+    X[1] = R;
+    for (int i = 1; i < LAYERS - 1; i++) {
+      X[i + 1] = -Math.log(V / X[i] + Math.exp(-X[i]));
+    }
+    X[LAYERS] = 0;
+    for (int i = 0; i <= LAYERS; i++) {
+      F[i] = Math.exp(-X[i]);
+    }
+  }
+
+  /** The rate, the reciprocal of the mean. */
+  private final double rate;
+
+  /** The mean, by which standard values are scaled. */
+  private final double mean;
+
+  /**
+   * Create an exponential distribution.
+   *
+   * @param rate The rate, which must be positive.
+   * @throws IllegalArgumentException if the rate is not positive.
+   */
+  public ExponentialDistribution(double rate) {
+    if (!(rate > 0) || Double.isInfinite(rate)) {
+      throw new IllegalArgumentException("Rate must be positive: " + rate);
+    }
+    this.rate = rate;
+    this.mean = 1 / rate;
+  }
+
+  /**
+   * Draw a value from the exponential distribution with rate 1.
+   *
+   * @param random The generator to draw from.
+   * @return The value.
+   */
+  static double standard(SplittableRandom random) {
+    while (true) {
+      long bits = random.nextLong();
+      int i = (int) bits & (LAYERS - 1);
+      // The top 53 bits place the point across the layer; the low 8 pick it.
+      double x = (bits >>> 11) * 0x1.0p-53 * X[i];
+      if (x < X[i + 1]) {
+        return x;
+      }
+      if (i == 0) {
+        return R - Math.log(1 - random.nextDouble());
+      }
+      if (F[i] + (F[i + 1] - F[i]) * random.nextDouble() < Math.exp(-x)) {
+        return x;
+      }
+    }
+  }
+
+  @Override
+  public double sample(SplittableRandom random) {
+    return standard(random) * mean;
+  }
+
+  @Override
+  public void fill(SplittableRandom random, double[] values) {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = standard(random) * mean;
+    }
+  }
+
+  @Override
+  public double mean() {
+    return mean;
+  }
+
+  /**
+   * Return a string representation of this distribution.
+   *
+   * @return The description {@code Distribution.parse} reads.
+   */
+  public String toString() {
+    return "exponential:" + rate;
+  }
+}
@@ -0,0 +1,323 @@
+package cs2030.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sorts more numbers than fit in memory, such as the arrival times of a
+ * trace of billions of customers, by an external merge sort within a
+ * memory budget.  The numbers are read into chunks, and each chunk is
+ * sorted and spilled to a temporary file as a run of little-endian
+ * doubles.  Chunks are sorted and spilled on a pool of threads while the
+ * next one is read, with one chunk more than threads in memory at once.
+ * If there are more runs than the budget can give a read buffer each,
+ * groups of runs are merged, in parallel, into longer runs until there
+ * are few enough.  The last runs are merged as they are read, through
+ * {@code SortedRuns}.
+ *
+ * <p>The budget bounds the chunks and the buffers of the files; it does
+ * not count the reader of the input, or the small arrays of the merge.
+ * Each thread needs a buffer of at least {@code MIN_BUFFER} bytes and a
+ * chunk of at least {@code MIN_CHUNK} numbers, so a budget too small for
+ * the threads asked for is run on fewer threads, down to one.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class ExternalSorter {
+  /** The memory budget in bytes, unless told otherwise. */
+  public static final long DEFAULT_MEMORY = 256L << 20;
+
+  /** The smallest buffer of a file being written or merged, in bytes. */
+  private static final int MIN_BUFFER = 1 << 16;
+
+  /** The largest buffer of a file being written or merged, in bytes. */
+  private static final int MAX_BUFFER = 1 << 20;
+
+  /** The fewest numbers in a chunk, however small the budget. */
+  private static final int MIN_CHUNK = 1 << 10;
+
+  /** The memory each thread needs at least: a buffer and a chunk. */
+  private static final long MIN_THREAD_MEMORY = MIN_BUFFER + (long) MIN_CHUNK * Double.BYTES;
+
+  /**
+   * The smallest budget, enough for one thread and the chunk read while
+   * it spills.
+   */
+  public static final long MIN_MEMORY = MIN_THREAD_MEMORY + (long) MIN_CHUNK * Double.BYTES;
+
+  /** The memory budget in bytes. */
+  private final long memory;
+
+  /** The number of threads runs are sorted and merged on. */
+  private final int threads;
+
+  /** The directory the temporary directory of the runs is made in. */
+  private final Path tempDir;
+
+  /** The numbers in each chunk. */
+  private final int chunkSize;
+
+  /** The most runs merged at once. */
+  private final int fanIn;
+
+  /**
+   * Create a sorter.  If the budget cannot give every thread asked for a
+   * buffer and a chunk, as many threads as it can are used instead.
+   * @param memory The memory budget in bytes.
+   * @param threads The most threads runs are sorted and merged on.
+   * @param tempDir The directory to keep the runs in, under a temporary
+   *     directory of their own.
+   * @throws IllegalArgumentException if the budget is less than
+   *     {@code MIN_MEMORY}, or the number of threads is not positive.
+   */
+  public ExternalSorter(long memory, int threads, Path tempDir) {
+    if (memory < MIN_MEMORY || threads < 1) {
+      throw new IllegalArgumentException("Invalid sorter: " + memory + " bytes, "
+          + threads + " threads; at least " + MIN_MEMORY + " bytes are needed");
+    }
+    this.memory = memory;
+    // One chunk more than threads is in memory at once.
+    this.threads = (int) Math.min(threads,
+        (memory - (long) MIN_CHUNK * Double.BYTES) / MIN_THREAD_MEMORY);
+    this.tempDir = tempDir;
+    long chunkBytes = (memory - (long) this.threads * MIN_BUFFER) / (this.threads + 1);
+    this.chunkSize = (int) Math.max(MIN_CHUNK,
+        Math.min(chunkBytes / Double.BYTES, Integer.MAX_VALUE - 8));
+    this.fanIn = (int) Math.max(2, Math.min(Integer.MAX_VALUE,
+        memory / this.threads / MIN_BUFFER - 1));
+  }
+
+  /**
+   * Return the number of threads runs are sorted and merged on, which
+   * may be fewer than asked for if the budget is small.
+   * @return The number of threads.
+   */
+  public int threads() {
+    return threads;
+  }
+
+  /**
+   * Return the numbers in each chunk, and so in each run spilled.
+   * @return The number of numbers.
+   */
+  public int chunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Return the most runs merged at once.
+   * @return The number of runs.
+   */
+  public int fanIn() {
+    return fanIn;
+  }
+
+  /**
+   * Sort the numbers left in a reader.  The caller must close the
+   * result, which deletes its runs.
+   * @param reader The reader.
+   * @return The numbers, in non-decreasing order.
+   * @throws IOException if the directory of the runs cannot be created,
+   *     the input cannot be read or has a token that is not a number, or
+   *     a run cannot be written or read.
+   */
+  public SortedRuns sort(ArrivalReader reader) throws IOException {
+    Path dir;
+    try {
+      dir = Files.createTempDirectory(tempDir, "runs");
+    } catch (IOException exception) {
+      throw new IOException("Unable to create sort directory " + tempDir + " " + exception,
+          exception);
+    }
+    List<Path> paths = new ArrayList<>();
+    List<Long> counts = new ArrayList<>();
+    ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "external-sort");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      spill(reader, dir, paths, counts, pool);
+      for (int pass = 1; paths.size() > fanIn; pass++) {
+        mergePass(pass, dir, paths, counts, pool);
+      }
+      int bufferSize = bufferSize(memory / (paths.size() + 1));
+      return new SortedRuns(paths, counts, bufferSize, dir);
+    } catch (IOException | RuntimeException exception) {
+      for (Path path : paths) {
+        Files.deleteIfExists(path);
+      }
+      Files.deleteIfExists(dir);
+      throw exception;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Read the numbers into chunks, and sort and spill each as a run on the
+   * pool.
+   * @param reader The reader.
+   * @param dir The directory of the runs.
+   * @param paths The files of the runs, added to.
+   * @param counts The number of values in each run, added to.
+   * @param pool The pool.
+   * @throws IOException if the input cannot be read or a run cannot be
+   *     written.
+   */
+  private void spill(ArrivalReader reader, Path dir, List<Path> paths, List<Long> counts,
+      ExecutorService pool) throws IOException {
+    BlockingQueue<double[]> free = new ArrayBlockingQueue<>(threads + 1);
+    List<Future<?>> spills = new ArrayList<>();
+    try {
+      double[] chunk = new double[chunkSize];
+      int n = 0;
+      int allocated = 1;
+      boolean more = reader.hasNext();
+      while (more) {
+        chunk[n++] = reader.nextDouble();
+        more = reader.hasNext();
+        if (n < chunk.length && more) {
+          continue;
+        }
+        double[] full = chunk;
+        int length = n;
+        Path path = dir.resolve("run" + paths.size());
+        paths.add(path);
+        counts.add((long) length);
+        spills.add(pool.submit(() -> {
+          try (BinaryWriter out = new BinaryWriter(path, MIN_BUFFER)) {
+            Arrays.sort(full, 0, length);
+            for (int i = 0; i < length; i++) {
+              out.putDouble(full[i]);
+            }
+          } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+          } finally {
+            // Handed back even on failure, so that reading does not wait forever.
+            free.add(full);
+          }
+        }));
+        n = 0;
+        if (more && allocated <= threads) {
+          allocated++;
+          chunk = new double[chunkSize];
+        } else if (more) {
+          chunk = take(free);
+        }
+      }
+    } catch (IOException | RuntimeException exception) {
+      // Let the runs being spilled finish, so that they can be deleted.
+      try {
+        join(spills);
+      } catch (IOException ignored) {
+        // The failure that stopped reading is reported instead.
+      }
+      throw exception;
+    }
+    join(spills);
+  }
+
+  /**
+   * Merge groups of {@code fanIn} runs into one run each, on the pool.
+   * @param pass The number of the pass, from 1, to name the runs by.
+   * @param dir The directory of the runs.
+   * @param paths The files of the runs, replaced by those merged.
+   * @param counts The number of values in each run, replaced likewise.
+   * @param pool The pool.
+   * @throws IOException if a run cannot be read or written.
+   */
+  private void mergePass(int pass, Path dir, List<Path> paths, List<Long> counts,
+      ExecutorService pool) throws IOException {
+    List<Path> merged = new ArrayList<>();
+    List<Long> mergedCounts = new ArrayList<>();
+    List<Future<?>> merges = new ArrayList<>();
+    int bufferSize = bufferSize(memory / threads / (fanIn + 1));
+    for (int from = 0; from < paths.size(); from += fanIn) {
+      int to = Math.min(from + fanIn, paths.size());
+      List<Path> group = new ArrayList<>(paths.subList(from, to));
+      List<Long> groupCounts = new ArrayList<>(counts.subList(from, to));
+      Path path = dir.resolve("pass" + pass + "-run" + merged.size());
+      merged.add(path);
+      mergedCounts.add(groupCounts.stream().mapToLong(Long::longValue).sum());
+      merges.add(pool.submit(() -> {
+        try (SortedRuns runs = new SortedRuns(group, groupCounts, bufferSize, null);
+            BinaryWriter out = new BinaryWriter(path, bufferSize)) {
+          while (runs.hasNext()) {
+            out.putDouble(runs.next());
+          }
+        } catch (IOException exception) {
+          throw new UncheckedIOException(exception);
+        }
+      }));
+    }
+    try {
+      join(merges);
+    } finally {
+      paths.addAll(merged);
+      counts.addAll(mergedCounts);
+    }
+    paths.subList(0, paths.size() - merged.size()).clear();
+    counts.subList(0, counts.size() - merged.size()).clear();
+  }
+
+  /**
+   * Return the size of a file buffer, kept between the smallest and the
+   * largest allowed.
+   * @param bytes The size wanted.
+   * @return The size in bytes.
+   */
+  private static int bufferSize(long bytes) {
+    return (int) Math.max(MIN_BUFFER, Math.min(MAX_BUFFER, bytes));
+  }
+
+  /**
+   * Take a chunk that has been spilled, waiting for one if need be.
+   * @param free The chunks spilled.
+   * @return The chunk.
+   * @throws IOException if interrupted while waiting.
+   */
+  private static double[] take(BlockingQueue<double[]> free) throws IOException {
+    try {
+      return free.take();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while sorting", exception);
+    }
+  }
+
+  /**
+   * Wait for tasks, and rethrow the first failure.
+   * @param tasks The tasks.
+   * @throws IOException if a task failed to read or write a run, or
+   *     interrupted while waiting.
+   */
+  private static void join(List<Future<?>> tasks) throws IOException {
+    try {
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while sorting", exception);
+    } catch (ExecutionException exception) {
+      Throwable cause = exception.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      throw new IOException(cause);
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package cs2030.util;
+
+import java.io.IOException;
+
+/**
+ * A log-linear histogram of non-negative values, in the style of
+ * HdrHistogram, from which percentiles can be read.  Each power of two
+ * from 2^-30 to 2^34 is split into equal sub-buckets, enough of them
+ * that any value is reported to the requested number of significant
+ * decimal digits.  The bucket of a value is read straight off the
+ * exponent and top mantissa bits of the double, so recording a value is
+ * a shift and an array increment, and allocates nothing once the first
+ * value is in.  The buckets, some 8,000 counts at 2 digits, are only
+ * allocated then, so an empty histogram costs a few fields: a program
+ * that keeps many statistics, one per station, replication or branch,
+ * pays for buckets only where there are waiting times.
+ *
+ * <p>Values below 2^-30, including 0, are counted as 0, and values above
+ * 2^34 in the last bucket.  The largest value recorded is kept exactly.
+ * Histograms of the same precision can be merged, and a histogram can
+ * be written to a binary file and read back.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class Histogram {
+  /** The exponent of the smallest value not counted as 0. */
+  private static final int MIN_EXPONENT = -30;
+
+  /** The exponent of the largest power of two with its own buckets. */
+  private static final int MAX_EXPONENT = 34;
+
+  /** The number of mantissa bits in a double. */
+  private static final int MANTISSA_BITS = 52;
+
+  /** The bias of the exponent of a double. */
+  private static final int EXPONENT_BIAS = 1023;
+
+  /** The number of significant decimal digits values are reported to. */
+  private final int significantDigits;
+
+  /** The number of mantissa bits that pick the sub-bucket. */
+  private final int subBucketBits;
+
+  /** The top bits of the smallest value not counted as 0. */
+  private final long base;
+
+  /**
+   * The count of each bucket.  Bucket 0 counts the values taken as 0;
+   * bucket i above 0 counts the values whose top bits are
+   * {@code base + i - 1}.  Null until a value is counted.
+   */
+  private long[] counts;
+
+  /** The number of buckets. */
+  private final int numOfBuckets;
+
+  /** The number of values recorded. */
+  private long totalCount;
+
+  /** The largest value recorded. */
+  private double max;
+
+  /** Create a histogram that reports values to 2 significant digits. */
+  public Histogram() {
+    this(2);
+  }
+
+  /**
+   * Create a histogram.
+   *
+   * @param significantDigits The number of significant decimal digits
+   *     values are reported to, from 1 to 3.
+   * @throws IllegalArgumentException if the number of digits is out of
+   *     range.
+   */
+  public Histogram(int significantDigits) {
+    if (significantDigits < 1 || significantDigits > 3) {
+      throw new IllegalArgumentException("Significant digits must be from 1 to 3: "
+          + significantDigits);
+    }
+    this.significantDigits = significantDigits;
+    // A bucket spans at most 2^-bits of its values, so the top of the
+    // bucket is within 10^-digits of any value in it.
+    this.subBucketBits = (int) Math.ceil(significantDigits * Math.log(10) / Math.log(2));
+    this.base = (long) (MIN_EXPONENT + EXPONENT_BIAS) << subBucketBits;
+    this.numOfBuckets = ((MAX_EXPONENT - MIN_EXPONENT + 1) << subBucketBits) + 1;
+    this.totalCount = 0;
+    this.max = 0;
+  }
+
+  /**
+   * Record a value.
+   *
+   * @param value The value; negative values are counted as 0.
+   */
+  public void record(double value) {
+    long top = Double.doubleToRawLongBits(value) >>> (MANTISSA_BITS - subBucketBits);
+    int index;
+    if (!(value >= Double.MIN_NORMAL) || top < base) {
+      index = 0;
+    } else {
+      index = (int) Math.min(top - base + 1, numOfBuckets - 1);
+    }
+    if (counts == null) {
+      counts = new long[numOfBuckets];
+    }
+    counts[index]++;
+    totalCount++;
+    if (value > max) {
+      max = value;
+    }
+  }
+
+  /**
+   * Combine this histogram with another of the same precision.
+   *
+   * @param other The other histogram.
+   * @return A new histogram holding the values of both.
+   * @throws IllegalArgumentException if the precisions differ.
+   */
+  public Histogram merge(Histogram other) {
+    if (other.significantDigits != significantDigits) {
+      throw new IllegalArgumentException("Cannot merge histograms of "
+          + significantDigits + " and " + other.significantDigits + " significant digits");
+    }
+    Histogram merged = new Histogram(significantDigits);
+    if (counts != null || other.counts != null) {
+      merged.counts = new long[numOfBuckets];
+      for (int i = 0; i < numOfBuckets; i++) {
+        merged.counts[i] = count(i) + other.count(i);
+      }
+    }
+    merged.totalCount = totalCount + other.totalCount;
+    merged.max = Math.max(max, other.max);
+    return merged;
+  }
+
+  /**
+   * Return a histogram with the same values, which then changes
+   * independently of this one.
+   *
+   * @return The copy.
+   */
+  public Histogram copy() {
+    return merge(new Histogram(significantDigits));
+  }
+
+  /**
+   * Return the count of a bucket.
+   *
+   * @param i The index of the bucket.
+   * @return The count, 0 if no value has been counted.
+   */
+  private long count(int i) {
+    return counts == null ? 0 : counts[i];
+  }
+
+  /**
+   * Return the number of values recorded.
+   *
+   * @return The number of values.
+   */
+  public long count() {
+    return totalCount;
+  }
+
+  /**
+   * Return the largest value recorded.
+   *
+   * @return The largest value, or 0 if there is none.
+   */
+  public double max() {
+    return max;
+  }
+
+  /**
+   * Return the value below which the given percentage of values fall.
+   * The value reported is the top of the bucket the percentile falls in,
+   * but no more than the largest value recorded.
+   *
+   * @param percentile The percentage, from 0 to 100.
+   * @return The value at the percentile, or 0 if no value is recorded.
+   */
+  public double valueAt(double percentile) {
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+    long seen = 0;
+    for (int i = 0; counts != null && i < numOfBuckets; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return i == 0 ? 0 : Math.min(max, Double.longBitsToDouble(
+            (base + i) << (MANTISSA_BITS - subBucketBits)));
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Write this histogram: its precision, count and largest value, then
+   * the index and count of each bucket that is not empty.
+   *
+   * @param out The writer.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeTo(BinaryWriter out) throws IOException {
+    int used = 0;
+    for (int i = 0; i < numOfBuckets; i++) {
+      if (count(i) != 0) {
+        used++;
+      }
+    }
+    out.putInt(significantDigits).putLong(totalCount).putDouble(max).putInt(used);
+    for (int i = 0; i < numOfBuckets; i++) {
+      if (count(i) != 0) {
+        out.putInt(i).putLong(counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Read a histogram written by {@code writeTo}.
+   *
+   * @param in The reader.
+   * @return The histogram.
+   * @throws IOException if the file cannot be read or is malformed.
+   */
+  public static Histogram readFrom(BinaryReader in) throws IOException {
+    int significantDigits = in.getInt();
+    if (significantDigits < 1 || significantDigits > 3) {
+      throw new IOException("Malformed histogram");
+    }
+    Histogram histogram = new Histogram(significantDigits);
+    histogram.totalCount = in.getLong();
+    histogram.max = in.getDouble();
+    int used = in.getInt();
+    if (used > 0) {
+      histogram.counts = new long[histogram.numOfBuckets];
+    }
+    for (int k = 0; k < used; k++) {
+      int i = in.getInt();
+      if (i < 0 || i >= histogram.numOfBuckets) {
+        throw new IOException("Malformed histogram");
+      }
+      histogram.counts[i] = in.getLong();
+    }
+    return histogram;
+  }
+
+  /**
+   * Return a string representation of this histogram.
+   *
+   * @return The 50th, 90th, 99th and 99.9th percentiles and the maximum.
+   */
+  public String toString() {
+    return String.format("p50 %.3f p90 %.3f p99 %.3f p99.9 %.3f max %.3f",
+        valueAt(50), valueAt(90), valueAt(99), valueAt(99.9), max);
+  }
+}
@@ -0,0 +1,117 @@
+package cs2030.util;
+
+/**
+ * A set of small non-negative ints that can return its smallest member
+ * quickly.  Members are kept in a bitset, with a summary bitset above it
+ * marking which words are non-empty, and so on up to a single word.
+ * {@code set}, {@code clear} and {@code first} take O(log_64 n) time.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class IdSet {
+  /** The bit levels; level 0 holds the members, the last level is one word. */
+  private final long[][] levels;
+
+  /**
+   * Create an empty set that can hold ids from 0 to capacity - 1.
+   *
+   * @param capacity The number of ids the set can hold.
+   */
+  public IdSet(int capacity) {
+    int depth = 1;
+    for (int n = words(capacity); n > 1; n = words(n)) {
+      depth++;
+    }
+    this.levels = new long[depth][];
+    int n = Math.max(capacity, 1);
+    for (int i = 0; i < depth; i++) {
+      n = words(n);
+      this.levels[i] = new long[n];
+    }
+  }
+
+  /**
+   * Return the number of 64-bit words needed for n bits.
+   *
+   * @param n The number of bits.
+   * @return The number of words, at least 1.
+   */
+  private static int words(int n) {
+    return Math.max(1, (n + 63) >>> 6);
+  }
+
+  /**
+   * Add an id to the set.
+   *
+   * @param id The id to add.
+   */
+  public void set(int id) {
+    for (long[] level : levels) {
+      int word = id >>> 6;
+      boolean wasEmpty = level[word] == 0;
+      level[word] |= 1L << id;
+      if (!wasEmpty) {
+        return;
+      }
+      id = word;
+    }
+  }
+
+  /**
+   * Remove an id from the set.
+   *
+   * @param id The id to remove.
+   */
+  public void clear(int id) {
+    for (long[] level : levels) {
+      int word = id >>> 6;
+      level[word] &= ~(1L << id);
+      if (level[word] != 0) {
+        return;
+      }
+      id = word;
+    }
+  }
+
+  /**
+   * Add or remove an id from the set.
+   *
+   * @param id The id.
+   * @param member true to add the id; false to remove it.
+   */
+  public void set(int id, boolean member) {
+    if (member) {
+      set(id);
+    } else {
+      clear(id);
+    }
+  }
+
+  /**
+   * Check if an id is in the set.
+   *
+   * @param id The id.
+   * @return true if the id is in the set; false otherwise.
+   */
+  public boolean contains(int id) {
+    return (levels[0][id >>> 6] & (1L << id)) != 0;
+  }
+
+  /**
+   * Return the smallest id in the set.
+   *
+   * @return The smallest id, or -1 if the set is empty.
+   */
+  public int first() {
+    int top = levels.length - 1;
+    if (levels[top][0] == 0) {
+      return -1;
+    }
+    int index = 0;
+    for (int i = top; i >= 0; i--) {
+      index = (index << 6) + Long.numberOfTrailingZeros(levels[i][index]);
+    }
+    return index;
+  }
+}
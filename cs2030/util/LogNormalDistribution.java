@@ -0,0 +1,85 @@
+package cs2030.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * A log-normal Distribution: {@code exp(mu + sigma * z)} for a standard
+ * normal {@code z}.  Normal values are drawn with Marsaglia's polar
+ * method, which makes them in pairs; {@code sample} keeps one of the
+ * pair, while {@code fill} uses both, so a batch costs about half the
+ * uniforms and logarithms per value.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class LogNormalDistribution implements Distribution {
+  /** The mean of the logarithm of the values. */
+  private final double mu;
+
+  /** The standard deviation of the logarithm of the values. */
+  private final double sigma;
+
+  /**
+   * Create a log-normal distribution.
+   *
+   * @param mu The mean of the logarithm of the values.
+   * @param sigma The standard deviation of the logarithm of the values,
+   *     which must not be negative.
+   * @throws IllegalArgumentException if a parameter is out of range.
+   */
+  public LogNormalDistribution(double mu, double sigma) {
+    if (Double.isNaN(mu) || Double.isInfinite(mu)) {
+      throw new IllegalArgumentException("Mu must be finite: " + mu);
+    }
+    if (!(sigma >= 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("Sigma must not be negative: " + sigma);
+    }
+    this.mu = mu;
+    this.sigma = sigma;
+  }
+
+  @Override
+  public double sample(SplittableRandom random) {
+    double u;
+    double v;
+    double s;
+    do {
+      u = 2 * random.nextDouble() - 1;
+      v = 2 * random.nextDouble() - 1;
+      s = u * u + v * v;
+    } while (s >= 1 || s == 0);
+    return Math.exp(mu + sigma * u * Math.sqrt(-2 * Math.log(s) / s));
+  }
+
+  @Override
+  public void fill(SplittableRandom random, double[] values) {
+    int i = 0;
+    while (i < values.length) {
+      double u = 2 * random.nextDouble() - 1;
+      double v = 2 * random.nextDouble() - 1;
+      double s = u * u + v * v;
+      if (s >= 1 || s == 0) {
+        continue;
+      }
+      double scale = sigma * Math.sqrt(-2 * Math.log(s) / s);
+      values[i++] = Math.exp(mu + u * scale);
+      if (i < values.length) {
+        values[i++] = Math.exp(mu + v * scale);
+      }
+    }
+  }
+
+  @Override
+  public double mean() {
+    return Math.exp(mu + sigma * sigma / 2);
+  }
+
+  /**
+   * Return a string representation of this distribution.
+   *
+   * @return The description {@code Distribution.parse} reads.
+   */
+  public String toString() {
+    return "lognormal:" + mu + ":" + sigma;
+  }
+}
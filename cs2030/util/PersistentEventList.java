@@ -0,0 +1,116 @@
+package cs2030.util;
+
+import java.util.Comparator;
+import java.util.Optional;
+
+/**
+ * An EventList kept in the persistent {@code PriorityQueue}.  Each
+ * operation replaces the queue with a new version that shares all but
+ * O(log n) nodes with the old, so {@code copy} takes O(1) and the copy
+ * and the original can then change independently.  This costs an
+ * allocation per operation, which {@code EventHeap} does not.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class PersistentEventList implements EventList {
+  /** Orders entries by timestamp, then sequence number. */
+  private static final Comparator<Entry> ORDER = (a, b) -> a.time != b.time
+      ? Double.compare(a.time, b.time) : Long.compare(a.seq, b.seq);
+
+  /** An entry of the list. */
+  private static class Entry {
+    /** The timestamp. */
+    final double time;
+    /** The rank, then the insertion count. */
+    final long seq;
+    /** The handle. */
+    final int handle;
+
+    /**
+     * Create an entry.
+     *
+     * @param time The timestamp.
+     * @param seq The rank, then the insertion count.
+     * @param handle The handle.
+     */
+    Entry(double time, long seq, int handle) {
+      this.time = time;
+      this.seq = seq;
+      this.handle = handle;
+    }
+  }
+
+  /** The current version of the queue. */
+  private PriorityQueue<Entry> queue;
+
+  /** The insertion count given to the next entry added. */
+  private long nextSeq;
+
+  /** Create an empty list. */
+  public PersistentEventList() {
+    this(new PriorityQueue<>(ORDER), 0);
+  }
+
+  /**
+   * Create a list holding a version of the queue.
+   *
+   * @param queue The queue.
+   * @param nextSeq The insertion count given to the next entry added.
+   */
+  private PersistentEventList(PriorityQueue<Entry> queue, long nextSeq) {
+    this.queue = queue;
+    this.nextSeq = nextSeq;
+  }
+
+  /**
+   * Return a list with the same entries, which shares every node with this
+   * one until either changes.
+   *
+   * @return The copy.
+   */
+  @Override
+  public PersistentEventList copy() {
+    return new PersistentEventList(queue, nextSeq);
+  }
+
+  @Override
+  public void add(double time, int handle, int rank) {
+    queue = queue.add(new Entry(time, EventList.seq(rank, nextSeq++), handle));
+  }
+
+  @Override
+  public void restore(double time, int handle, long seq) {
+    queue = queue.add(new Entry(time, seq, handle));
+    nextSeq = Math.max(nextSeq, EventList.countOf(seq) + 1);
+  }
+
+  @Override
+  public void forEach(Visitor visitor) {
+    queue.forEach(e -> visitor.visit(e.time, e.handle, e.seq));
+  }
+
+  @Override
+  public int poll() {
+    Pair<Optional<Entry>, PriorityQueue<Entry>> p = queue.poll();
+    queue = p.second;
+    return p.first.isPresent() ? p.first.get().handle : -1;
+  }
+
+  @Override
+  public double peekTime() {
+    Optional<Entry> first = queue.peek();
+    return first.isPresent() ? first.get().time : Double.NaN;
+  }
+
+  @Override
+  public int peek() {
+    Optional<Entry> first = queue.peek();
+    return first.isPresent() ? first.get().handle : -1;
+  }
+
+  @Override
+  public int size() {
+    return queue.size();
+  }
+}
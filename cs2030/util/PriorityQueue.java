@@ -1,45 +1,237 @@
 package cs2030.util;
 
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+/**
+ * An immutable priority queue backed by a persistent leftist heap.
+ * {@code add} and {@code poll} return a new queue and leave the old one
+ * untouched; the two share every node except the O(log n) nodes on the
+ * merge path.  Elements that compare equal come out in the order they
+ * were added.
+ *
+ * <p>The simulation does not schedule its events here directly; the
+ * primitive {@code EventHeap} is faster when old versions are not kept.
+ * Runs that keep old versions, such as forks, use this queue through
+ * {@code PersistentEventList}.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
 public class PriorityQueue<T> {
-  /** The priorityqueue in the java.util package. */
-  java.util.PriorityQueue<T> pq;
+  /**
+   * A node of the leftist heap.  The rank is the length of the right
+   * spine, which is kept no longer than the left one.
+   */
+  private static class Node<T> {
+    /** The element stored in this node. */
+    final T value;
+    /** The insertion sequence number, used to break ties. */
+    final long seq;
+    /** The length of the right spine from this node. */
+    final int rank;
+    /** The left subtree. */
+    final Node<T> left;
+    /** The right subtree. */
+    final Node<T> right;
+
+    /**
+     * Create a node, swapping the children if needed to keep the
+     * leftist property.
+     *
+     * @param value The element.
+     * @param seq The insertion sequence number.
+     * @param a One subtree.
+     * @param b The other subtree.
+     */
+    Node(T value, long seq, Node<T> a, Node<T> b) {
+      this.value = value;
+      this.seq = seq;
+      if (rank(a) >= rank(b)) {
+        this.left = a;
+        this.right = b;
+      } else {
+        this.left = b;
+        this.right = a;
+      }
+      this.rank = rank(this.right) + 1;
+    }
+
+    /**
+     * Return the rank of a possibly empty subtree.
+     *
+     * @param node The subtree.
+     * @return 0 for an empty subtree; its rank otherwise.
+     */
+    static int rank(Node<?> node) {
+      return node == null ? 0 : node.rank;
+    }
+  }
+
+  /** The root of the heap, or null if the queue is empty. */
+  private final Node<T> root;
+
+  /** The number of elements in the queue. */
+  private final int size;
 
-  /** The Constructor of the priorityqueue. */
+  /** The sequence number given to the next element added. */
+  private final long nextSeq;
+
+  /** The ordering of the elements, or null for natural ordering. */
+  private final Comparator<? super T> comparator;
+
+  /** The Constructor of the priorityqueue, using natural ordering. */
   public PriorityQueue() {
-    pq = new java.util.PriorityQueue<T>();
+    this(null, null, 0, 0);
   }
 
   /**
-   * Come up a new Priorityqueue with the old one.
+   * Create an empty priorityqueue ordered by the given comparator.
+   *
+   * @param comparator The ordering of the elements.
+   */
+  public PriorityQueue(Comparator<? super T> comparator) {
+    this(comparator, null, 0, 0);
+  }
+
+  /**
+   * Come up a new Priorityqueue with the old one.  Since the queue is
+   * immutable, the two share all of their nodes.
    *
    * @param old The old priorityqueue.
    */
   public PriorityQueue(PriorityQueue<T> old) {
-    this.pq = new java.util.PriorityQueue<T>();
-    this.pq.addAll(old.pq);
+    this(old.comparator, old.root, old.size, old.nextSeq);
+  }
+
+  /**
+   * Create a priorityqueue around an existing heap.
+   *
+   * @param comparator The ordering of the elements.
+   * @param root The root of the heap.
+   * @param size The number of elements in the heap.
+   * @param nextSeq The sequence number of the next element added.
+   */
+  private PriorityQueue(Comparator<? super T> comparator, Node<T> root,
+      int size, long nextSeq) {
+    this.comparator = comparator;
+    this.root = root;
+    this.size = size;
+    this.nextSeq = nextSeq;
   }
 
   /**
-   * Add a server to the PQ.
+   * Add an element to the PQ.
    *
-   * @param object New server.
-   * @return A new PQ.
+   * @param object New element.
+   * @return A new PQ containing the element.
    */
   public PriorityQueue<T> add(T object) {
-    this.pq.add(object);
-    return this;
+    Node<T> node = new Node<>(object, nextSeq, null, null);
+    return new PriorityQueue<>(comparator, merge(root, node), size + 1, nextSeq + 1);
   }
 
   /**
-   * Poll a server from a PQ.
+   * Poll the smallest element from a PQ.
    *
-   * @return A Pair with type {@code Pair<Optional<T>, PriorityQueue<T>>}.
+   * @return A Pair with type {@code Pair<Optional<T>, PriorityQueue<T>>},
+   *     holding the element (if any) and the PQ without it.
    */
   public Pair<Optional<T>, PriorityQueue<T>> poll() {
-    Optional<T> t = Optional.ofNullable(this.pq.poll());
-    return new Pair<>(t, this); 
-    // <T,U> = < Optional<Event>, PriorityQueue<Event> >
+    if (root == null) {
+      return new Pair<>(Optional.empty(), this);
+    }
+    return new Pair<>(Optional.of(root.value),
+        new PriorityQueue<>(comparator, merge(root.left, root.right), size - 1, nextSeq));
+  }
+
+  /**
+   * Return the smallest element without removing it.
+   *
+   * @return The smallest element, or {@code Optional.empty()} if the PQ is empty.
+   */
+  public Optional<T> peek() {
+    return root == null ? Optional.empty() : Optional.of(root.value);
+  }
+
+  /**
+   * Return the number of elements in the PQ.
+   *
+   * @return The number of elements.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Perform an action on every element, in no particular order.
+   *
+   * @param action The action.
+   */
+  public void forEach(Consumer<? super T> action) {
+    Deque<Node<T>> pending = new ArrayDeque<>();
+    if (root != null) {
+      pending.push(root);
+    }
+    while (!pending.isEmpty()) {
+      Node<T> node = pending.pop();
+      action.accept(node.value);
+      if (node.left != null) {
+        pending.push(node.left);
+      }
+      if (node.right != null) {
+        pending.push(node.right);
+      }
+    }
+  }
+
+  /**
+   * Check if the PQ has no elements.
+   *
+   * @return true if the PQ is empty; false otherwise.
+   */
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  /**
+   * Merge two heaps along their right spines.  Only the nodes on the
+   * merge path are copied.
+   *
+   * @param a One heap.
+   * @param b The other heap.
+   * @return The merged heap.
+   */
+  private Node<T> merge(Node<T> a, Node<T> b) {
+    if (a == null) {
+      return b;
+    }
+    if (b == null) {
+      return a;
+    }
+    if (before(b, a)) {
+      Node<T> tmp = a;
+      a = b;
+      b = tmp;
+    }
+    return new Node<>(a.value, a.seq, a.left, merge(a.right, b));
+  }
+
+  /**
+   * Check if node a should come out before node b.
+   *
+   * @param a One node.
+   * @param b The other node.
+   * @return true if a is smaller, or equal and added earlier.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean before(Node<T> a, Node<T> b) {
+    int c = comparator == null
+        ? ((Comparable<? super T>) a.value).compareTo(b.value)
+        : comparator.compare(a.value, b.value);
+    return c < 0 || (c == 0 && a.seq < b.seq);
   }
 }
@@ -0,0 +1,222 @@
+package cs2030.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * A RandomStream hands out values of a distribution one at a time, but
+ * draws them in batches of {@code BATCH} into a primitive array, so the
+ * caller pays an array read per value and the sampling loop runs
+ * uninterrupted.  It allocates one small generator per batch and nothing
+ * else after it is created.
+ *
+ * <p>A stream is fixed by its seed and its stream number.  Stream
+ * {@code k} of a seed takes its key from the {@code k + 1}-th generator
+ * split from {@code new SplittableRandom(seed)}, so streams of the same
+ * seed are independent of each other, and the same seed and stream always
+ * give the same values.  A simulation takes stream 0 for its arrivals and
+ * stream 1 for its service times.
+ *
+ * <p>Batch {@code b} of a stream is drawn from a generator of its own,
+ * seeded by mixing the key with {@code b}, rather than from one generator
+ * that runs on.  The whole state of a stream is then its key, its batch
+ * number and its place in the batch, so a stream can be copied, or
+ * brought to any position, by drawing one batch.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class RandomStream {
+  /** The number of values drawn at once. */
+  public static final int BATCH = 256;
+
+  /** The stream number of arrival gaps. */
+  public static final int ARRIVALS = 0;
+
+  /** The stream number of service times. */
+  public static final int SERVICE_TIMES = 1;
+
+  /** The distribution the values come from. */
+  private final Distribution distribution;
+
+  /** The odd constant the key is stepped by from one batch to the next. */
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /** The seed the stream was created from. */
+  private final long seed;
+
+  /** The key the generator of each batch is seeded from. */
+  private final long key;
+
+  /** The values drawn and not yet handed out. */
+  private final double[] batch;
+
+  /** The index of the next value in the batch. */
+  private int next;
+
+  /** The number of batches drawn. */
+  private long numOfBatches;
+
+  /**
+   * Create stream 0 of a seed.
+   *
+   * @param distribution The distribution the values come from.
+   * @param seed The seed.
+   */
+  public RandomStream(Distribution distribution, long seed) {
+    this(distribution, seed, 0);
+  }
+
+  /**
+   * Create a stream.
+   *
+   * @param distribution The distribution the values come from.
+   * @param seed The seed.
+   * @param stream The stream number, from 0.
+   * @throws IllegalArgumentException if the stream number is negative.
+   */
+  public RandomStream(Distribution distribution, long seed, int stream) {
+    this(distribution, seed, generator(seed, stream).nextLong(), new double[BATCH], BATCH,
+        0);
+  }
+
+  /**
+   * Create a stream at a given position.
+   *
+   * @param distribution The distribution the values come from.
+   * @param seed The seed the stream was created from.
+   * @param key The key the generator of each batch is seeded from.
+   * @param batch The values of the current batch.
+   * @param next The index of the next value in the batch.
+   * @param numOfBatches The number of batches drawn.
+   */
+  private RandomStream(Distribution distribution, long seed, long key, double[] batch,
+      int next, long numOfBatches) {
+    this.distribution = distribution;
+    this.seed = seed;
+    this.key = key;
+    this.batch = batch;
+    this.next = next;
+    this.numOfBatches = numOfBatches;
+  }
+
+  /**
+   * Return the generator of a stream, for callers that draw from it
+   * directly rather than from a distribution.
+   *
+   * @param seed The seed.
+   * @param stream The stream number, from 0.
+   * @return The generator.
+   * @throws IllegalArgumentException if the stream number is negative.
+   */
+  public static SplittableRandom generator(long seed, int stream) {
+    if (stream < 0) {
+      throw new IllegalArgumentException("Stream must not be negative: " + stream);
+    }
+    SplittableRandom root = new SplittableRandom(seed);
+    SplittableRandom random = root.split();
+    for (int i = 0; i < stream; i++) {
+      random = root.split();
+    }
+    return random;
+  }
+
+  /**
+   * Return the next value.
+   *
+   * @return The value.
+   */
+  public double next() {
+    if (next == BATCH) {
+      draw(numOfBatches);
+      next = 0;
+    }
+    return batch[next++];
+  }
+
+  /**
+   * Draw a batch into the array, making it the current one.
+   *
+   * @param index The number of the batch, from 0.
+   */
+  private void draw(long index) {
+    long z = key + (index + 1) * GOLDEN_GAMMA;
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    distribution.fill(new SplittableRandom(z ^ (z >>> 33)), batch);
+    numOfBatches = index + 1;
+  }
+
+  /**
+   * Return the number of values handed out so far.
+   *
+   * @return The number of values.
+   */
+  public long position() {
+    return numOfBatches == 0 ? 0 : (numOfBatches - 1) * BATCH + next;
+  }
+
+  /**
+   * Drop values, to bring a new stream to the position of another with
+   * the same distribution, seed and stream number.  Only the batch the
+   * stream lands in is drawn, so this takes O(1) however far it goes.
+   *
+   * @param count The number of values to drop.
+   */
+  public void skip(long count) {
+    if (count <= 0) {
+      return;
+    }
+    long target = position() + count;
+    long index = (target - 1) / BATCH;
+    if (index != numOfBatches - 1) {
+      draw(index);
+    }
+    next = (int) (target - index * BATCH);
+  }
+
+  /**
+   * Return a stream at the same position as this one, which hands out
+   * the same values from here on, and then changes independently.
+   *
+   * @return The copy.
+   */
+  public RandomStream copy() {
+    return new RandomStream(distribution, seed, key, batch.clone(), next, numOfBatches);
+  }
+
+  /**
+   * Return a stream at the same position as this one, but whose values
+   * come from another distribution.  Its batches are drawn from the same
+   * generators as this one's, so the two streams use common random
+   * numbers, and how they differ is down to the distributions.
+   *
+   * @param distribution The distribution the values come from.
+   * @return The copy.
+   */
+  public RandomStream copy(Distribution distribution) {
+    RandomStream copy = new RandomStream(distribution, seed, key, new double[BATCH], next,
+        numOfBatches);
+    if (numOfBatches > 0) {
+      copy.draw(numOfBatches - 1);
+    }
+    return copy;
+  }
+
+  /**
+   * Return the distribution the values come from.
+   *
+   * @return The distribution.
+   */
+  public Distribution distribution() {
+    return distribution;
+  }
+
+  /**
+   * Return the seed the stream was created from.
+   *
+   * @return The seed.
+   */
+  public long seed() {
+    return seed;
+  }
+}
@@ -0,0 +1,259 @@
+package cs2030.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Sorted runs of doubles in binary files, as {@code ExternalSorter}
+ * spills them, read back as one sorted stream by a k-way merge.  The
+ * next value of each run is kept in a binary min-heap of run indices, so
+ * each value costs O(log k) comparisons.  A run is closed once it is
+ * read to its end, and the runs are deleted when the stream is closed.
+ * A stream can be copied, to read on from the same place twice.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class SortedRuns implements Closeable {
+  /** The files of the runs. */
+  private final Path[] paths;
+
+  /** A reader on each run. */
+  private final BinaryReader[] readers;
+
+  /** The number of values in each run. */
+  private final long[] counts;
+
+  /** The number of values of each run not yet read. */
+  private final long[] left;
+
+  /** The next value of each run in the heap. */
+  private final double[] heads;
+
+  /** The indices of the runs with values left, a min-heap by head. */
+  private final int[] heap;
+
+  /** The number of runs in the heap. */
+  private int size;
+
+  /** The number of values in all the runs. */
+  private final long count;
+
+  /** A directory deleted with the runs, or null. */
+  private final Path dir;
+
+  /** The size of the read buffer of each run in bytes. */
+  private final int bufferSize;
+
+  /** Whether closing deletes the runs, as it does unless this is a copy. */
+  private final boolean owner;
+
+  /**
+   * Open runs to merge.
+   * @param paths The files of the runs, each holding doubles in order.
+   * @param counts The number of values in each run.
+   * @param bufferSize The size of the read buffer of each run in bytes.
+   * @param dir A directory to delete with the runs, or null.
+   * @throws IOException if a run cannot be opened or read.
+   */
+  SortedRuns(List<Path> paths, List<Long> counts, int bufferSize, Path dir)
+      throws IOException {
+    int k = paths.size();
+    this.paths = paths.toArray(new Path[k]);
+    this.readers = new BinaryReader[k];
+    this.counts = new long[k];
+    this.left = new long[k];
+    this.heads = new double[k];
+    this.heap = new int[k];
+    this.size = 0;
+    this.dir = dir;
+    this.bufferSize = bufferSize;
+    this.owner = true;
+    long total = 0;
+    try {
+      for (int i = 0; i < k; i++) {
+        readers[i] = new BinaryReader(this.paths[i], bufferSize);
+        this.counts[i] = counts.get(i);
+        left[i] = counts.get(i);
+        total += left[i];
+        if (advance(i)) {
+          siftUp(i);
+        }
+      }
+    } catch (IOException exception) {
+      close();
+      throw exception;
+    }
+    this.count = total;
+  }
+
+  /**
+   * Open the runs of another stream again, at the place it is.
+   * @param other The stream.
+   * @throws IOException if a run cannot be opened.
+   */
+  private SortedRuns(SortedRuns other) throws IOException {
+    int k = other.paths.length;
+    this.paths = other.paths;
+    this.readers = new BinaryReader[k];
+    this.counts = other.counts;
+    this.left = other.left.clone();
+    this.heads = other.heads.clone();
+    this.heap = other.heap.clone();
+    this.size = other.size;
+    this.count = other.count;
+    this.dir = null;
+    this.bufferSize = other.bufferSize;
+    this.owner = false;
+    try {
+      for (int i = 0; i < k; i++) {
+        if (other.readers[i] != null) {
+          readers[i] = new BinaryReader(paths[i], bufferSize,
+              (counts[i] - left[i]) * Double.BYTES);
+        }
+      }
+    } catch (IOException exception) {
+      close();
+      throw exception;
+    }
+  }
+
+  /**
+   * Return a stream that gives the same values as this one from here on,
+   * and then reads on independently.  It reads the runs of this stream,
+   * opened again at the places this one is, and does not delete them;
+   * it can go on reading them after this stream is closed, on systems
+   * where an open file outlives its deletion.  A copy holds its files
+   * open until it is read to its end or closed.
+   * @return The copy.
+   * @throws IOException if a run cannot be opened.
+   */
+  public SortedRuns copy() throws IOException {
+    return new SortedRuns(this);
+  }
+
+  /**
+   * Return the number of values in all the runs.
+   * @return The number of values.
+   */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * Return the number of runs merged.
+   * @return The number of runs.
+   */
+  public int numOfRuns() {
+    return paths.length;
+  }
+
+  /**
+   * Check if there is another value.
+   * @return true if a run has values left.
+   */
+  public boolean hasNext() {
+    return size > 0;
+  }
+
+  /**
+   * Return the next value, the least of those left.  Must only be called
+   * if {@code hasNext} returned true.
+   * @return The value.
+   * @throws IOException if a run cannot be read.
+   */
+  public double next() throws IOException {
+    int run = heap[0];
+    double value = heads[run];
+    if (advance(run)) {
+      siftDown(run);
+    } else {
+      readers[run].close();
+      readers[run] = null;
+      int last = heap[--size];
+      if (size > 0) {
+        siftDown(last);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Read the next value of a run into its head.
+   * @param run The index of the run.
+   * @return true if the run had a value left; false otherwise.
+   * @throws IOException if the run cannot be read.
+   */
+  private boolean advance(int run) throws IOException {
+    if (left[run] == 0) {
+      return false;
+    }
+    left[run]--;
+    heads[run] = readers[run].getDouble();
+    return true;
+  }
+
+  /**
+   * Add a run to the heap.
+   * @param run The index of the run.
+   */
+  private void siftUp(int run) {
+    int i = size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heads[heap[parent]] <= heads[run]) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = run;
+  }
+
+  /**
+   * Put a run in place of the root of the heap, and move it down.
+   * @param run The index of the run.
+   */
+  private void siftDown(int run) {
+    double head = heads[run];
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heads[heap[child + 1]] < heads[heap[child]]) {
+        child++;
+      }
+      if (head <= heads[heap[child]]) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = run;
+  }
+
+  /**
+   * Close and delete the runs, and the directory they were in if the
+   * sorter made one.  A copy only closes its runs.
+   * @throws IOException if a run cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    size = 0;
+    for (int i = 0; i < paths.length; i++) {
+      if (readers[i] != null) {
+        readers[i].close();
+        readers[i] = null;
+      }
+      if (owner) {
+        Files.deleteIfExists(paths[i]);
+      }
+    }
+    if (dir != null) {
+      Files.deleteIfExists(dir);
+    }
+  }
+}
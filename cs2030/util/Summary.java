@@ -0,0 +1,139 @@
+package cs2030.util;
+
+/**
+ * An immutable summary of a sample: its size, mean and variance, kept
+ * with Welford's update so that it is accurate for long runs.  Two
+ * summaries of disjoint samples can be merged, so samples can be
+ * summarised in parallel and combined afterwards.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class Summary {
+  /** Two-sided 95% Student t quantiles for 1 to 30 degrees of freedom. */
+  private static final double[] T95 = {
+    12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+    2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+    2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+  };
+
+  /** The two-sided 95% normal quantile. */
+  private static final double Z95 = 1.959964;
+
+  /** The number of values. */
+  private final long count;
+
+  /** The mean of the values. */
+  private final double mean;
+
+  /** The sum of squared differences from the mean. */
+  private final double m2;
+
+  /** Create the summary of an empty sample. */
+  public Summary() {
+    this(0, 0, 0);
+  }
+
+  /**
+   * Create a summary.
+   * @param count The number of values.
+   * @param mean The mean of the values.
+   * @param m2 The sum of squared differences from the mean.
+   */
+  private Summary(long count, double mean, double m2) {
+    this.count = count;
+    this.mean = mean;
+    this.m2 = m2;
+  }
+
+  /**
+   * Add a value to the sample.
+   * @param x The value.
+   * @return A new summary that includes x.
+   */
+  public Summary add(double x) {
+    long n = count + 1;
+    double delta = x - mean;
+    double newMean = mean + delta / n;
+    return new Summary(n, newMean, m2 + delta * (x - newMean));
+  }
+
+  /**
+   * Combine this summary with that of a disjoint sample.
+   * @param other The summary of the other sample.
+   * @return A new summary of both samples together.
+   */
+  public Summary merge(Summary other) {
+    if (other.count == 0) {
+      return this;
+    }
+    if (count == 0) {
+      return other;
+    }
+    long n = count + other.count;
+    double delta = other.mean - mean;
+    double newMean = mean + delta * other.count / n;
+    double newM2 = m2 + other.m2 + delta * delta * ((double) count * other.count / n);
+    return new Summary(n, newMean, newM2);
+  }
+
+  /**
+   * Return the number of values.
+   * @return The sample size.
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Return the mean of the values.
+   * @return The mean, or NaN if the sample is empty.
+   */
+  public double mean() {
+    return count == 0 ? Double.NaN : mean;
+  }
+
+  /**
+   * Return the sample variance, with n - 1 in the denominator.
+   * @return The variance, or NaN if there are fewer than two values.
+   */
+  public double variance() {
+    return count < 2 ? Double.NaN : m2 / (count - 1);
+  }
+
+  /**
+   * Return the half-width of the 95% confidence interval of the mean,
+   * using the Student t distribution.
+   * @return The half-width, or NaN if there are fewer than two values.
+   */
+  public double halfWidth() {
+    if (count < 2) {
+      return Double.NaN;
+    }
+    return t95(count - 1) * Math.sqrt(variance() / count);
+  }
+
+  /**
+   * Return the two-sided 95% Student t quantile.  Beyond the table, a
+   * two-term expansion around the normal quantile is used.
+   * @param df The degrees of freedom.
+   * @return The quantile.
+   */
+  private static double t95(long df) {
+    if (df <= T95.length) {
+      return T95[(int) df - 1];
+    }
+    double z = Z95;
+    double z3 = z * z * z;
+    double z5 = z3 * z * z;
+    return z + (z3 + z) / (4.0 * df) + (5 * z5 + 16 * z3 + 3 * z) / (96.0 * df * df);
+  }
+
+  /**
+   * Return a string representation of this summary.
+   * @return The mean and the 95% half-width.
+   */
+  public String toString() {
+    return String.format("%.3f +/- %.3f", mean(), halfWidth());
+  }
+}
@@ -0,0 +1,119 @@
+package cs2030.jmh;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The entry point of the benchmark jar.  It takes the usual JMH options,
+ * but unless others are given it profiles allocation with {@code -prof gc}
+ * and writes the results to {@code jmh-result.json}, so that runs of
+ * different releases can be compared.  After the run it prints the time
+ * and bytes per arrival of every benchmark whose operation processes a
+ * whole set of arrivals.
+ *
+ * <p>Usage: {@code java -jar jmh/target/benchmarks.jar [JMH options]}
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+public class BenchmarkMain {
+  /** The benchmarks whose one operation processes {@code arrivals} arrivals. */
+  private static final List<String> PER_RUN = Arrays.asList(
+    "cs2030.simulator.SimulatorBenchmark.run",
+    "cs2030.jmh.LabFourABenchmark.parse",
+    "cs2030.jmh.LabFourABenchmark.load");
+
+  /** The name of the bytes allocated per operation by the GC profiler. */
+  private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+  /**
+   * Run the benchmarks.
+   *
+   * @param args JMH command line options.
+   * @throws Exception if the options are malformed or a benchmark fails.
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+        || options.shouldListProfilers() || options.shouldListResultFormats()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+    if (options.getProfilers().isEmpty()) {
+      builder.addProfiler(GCProfiler.class);
+    }
+    if (!options.getResult().hasValue() && !options.getResultFormat().hasValue()) {
+      builder.result("jmh-result.json").resultFormat(ResultFormatType.JSON);
+    }
+    printPerArrival(new Runner(builder.build()).run());
+  }
+
+  /**
+   * Print the time and bytes per arrival of the benchmarks that process
+   * a whole set of arrivals in one operation.
+   *
+   * @param results The results of the run.
+   */
+  private static void printPerArrival(Collection<RunResult> results) {
+    boolean header = false;
+    for (RunResult result : results) {
+      String name = result.getParams().getBenchmark();
+      String arrivals = result.getParams().getParam("arrivals");
+      if (arrivals == null || !PER_RUN.contains(name)) {
+        continue;
+      }
+      if (!header) {
+        System.out.printf("\n%-40s %-24s %12s %12s\n", "Benchmark", "Params",
+            "ns/arrival", "B/arrival");
+        header = true;
+      }
+      double n = Double.parseDouble(arrivals);
+      Result<?> primary = result.getPrimaryResult();
+      Result<?> alloc = result.getSecondaryResults().get(ALLOC_NORM);
+      System.out.printf("%-40s %-24s %12.1f %12s\n",
+          name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1),
+          params(result), nanos(primary) / n,
+          alloc == null ? "-" : String.format("%.1f", alloc.getScore() / n));
+    }
+  }
+
+  /**
+   * Return the parameters of a result as {@code name=value} pairs.
+   *
+   * @param result The result.
+   * @return The parameters.
+   */
+  private static String params(RunResult result) {
+    StringBuilder sb = new StringBuilder();
+    for (String key : result.getParams().getParamsKeys()) {
+      sb.append(sb.length() == 0 ? "" : " ").append(key).append('=')
+          .append(result.getParams().getParam(key));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Return the score of an average-time result in nanoseconds per operation.
+   *
+   * @param primary The result.
+   * @return The score in nanoseconds.
+   */
+  private static double nanos(Result<?> primary) {
+    String unit = primary.getScoreUnit();
+    double scale = unit.startsWith("ns/") ? 1
+        : unit.startsWith("us/") ? 1e3
+        : unit.startsWith("ms/") ? 1e6
+        : 1e9;
+    return primary.getScore() * scale;
+  }
+}
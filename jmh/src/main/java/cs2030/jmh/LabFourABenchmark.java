@@ -0,0 +1,112 @@
+package cs2030.jmh;
+
+import cs2030.simulator.QuietLogSink;
+import cs2030.simulator.SimState;
+import cs2030.util.ArrivalReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@code LabFourA} reads an arrival file: parsing alone, and
+ * parsing with every arrival added to the state, as {@code LabFourA} does
+ * unless given {@code --sorted}.  {@code LabFourA} is in the unnamed
+ * package, so its loop is repeated here rather than called.  One operation
+ * reads the whole file.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LabFourABenchmark {
+  /** The number of arrivals in the file. */
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int arrivals;
+
+  /** The number of servers named on the first line of the file. */
+  @Param({"100"})
+  public int servers;
+
+  /** The arrival file. */
+  private Path file;
+
+  /**
+   * Write the arrival file.
+   * @throws IOException if the file cannot be written.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    file = Files.createTempFile("arrivals", ".txt");
+    SplittableRandom random = new SplittableRandom(2030);
+    try (BufferedWriter out = Files.newBufferedWriter(file)) {
+      out.write(servers + "\n");
+      double time = 0;
+      for (int i = 0; i < arrivals; i++) {
+        time += random.nextDouble() / servers;
+        out.write(String.format("%.6f\n", time));
+      }
+    }
+  }
+
+  /**
+   * Delete the arrival file.
+   * @throws IOException if the file cannot be deleted.
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(file);
+  }
+
+  /**
+   * Parse the file.
+   * @return The sum of the arrival times.
+   * @throws IOException if the file cannot be read.
+   */
+  @Benchmark
+  public double parse() throws IOException {
+    try (ArrivalReader reader = new ArrivalReader(file)) {
+      reader.nextInt();
+      double sum = 0;
+      while (reader.hasNext()) {
+        sum += reader.nextDouble();
+      }
+      return sum;
+    }
+  }
+
+  /**
+   * Parse the file and add every arrival to a new state.
+   * @return The state.
+   * @throws IOException if the file cannot be read.
+   */
+  @Benchmark
+  public SimState load() throws IOException {
+    try (ArrivalReader reader = new ArrivalReader(file)) {
+      SimState state = new SimState(reader.nextInt(), QuietLogSink.INSTANCE);
+      while (reader.hasNext()) {
+        state = state.addArrival(reader.nextDouble());
+      }
+      return state;
+    }
+  }
+}
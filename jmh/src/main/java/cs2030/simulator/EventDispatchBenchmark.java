@@ -0,0 +1,58 @@
+package cs2030.simulator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one step of a simulation in steady state: a shop loaded to
+ * 90% by an endless stream of Poisson arrivals, where each operation
+ * simulates one arrival or done event.  With the GC profiler,
+ * {@code gc.alloc.rate.norm} is the number of bytes allocated per event,
+ * which should be zero.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventDispatchBenchmark {
+  /** The number of servers in the shop. */
+  @Param({"1", "10", "100", "1000"})
+  public int servers;
+
+  /** The simulator being stepped. */
+  private Simulator simulator;
+
+  /** Start the simulation and let it reach steady state. */
+  @Setup
+  public void setUp() {
+    simulator = Simulator.builder(servers).log(QuietLogSink.INSTANCE)
+        .arrivals(new PoissonArrivalSource(0.9 * servers, 2030, Long.MAX_VALUE)).build();
+    for (int i = 0; i < 1000000; i++) {
+      simulator.step();
+    }
+  }
+
+  /**
+   * Simulate one event.
+   * @return true, since the arrivals never end.
+   */
+  @Benchmark
+  public boolean step() {
+    return simulator.step();
+  }
+}
@@ -0,0 +1,91 @@
+package cs2030.simulator;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code Shop.update} and the ways of finding a server, in a
+ * shop where every server is busy but the last, which is the worst case
+ * for a search from the lowest id.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShopBenchmark {
+  /** The number of servers in the shop. */
+  @Param({"10", "100", "1000", "10000", "100000"})
+  public int servers;
+
+  /** The shop. */
+  private Shop shop;
+
+  /** The servers of the shop, by id. */
+  private Server[] byId;
+
+  /** The customer every busy server serves. */
+  private Optional<Customer> customer;
+
+  /** The id of the server the next update changes. */
+  private int next;
+
+  /** Make every server busy but the last. */
+  @Setup
+  public void setUp() {
+    shop = new Shop(servers);
+    byId = new Server[servers];
+    customer = Optional.of(new Customer(0, 0));
+    for (int i = 0; i < servers; i++) {
+      byId[i] = shop.findIdleServer().get();
+      if (i < servers - 1) {
+        shop.update(byId[i].serve(customer));
+      }
+    }
+  }
+
+  /**
+   * Free a busy server and make it busy again, which is two updates.
+   * @return The shop.
+   */
+  @Benchmark
+  public Shop update() {
+    Server server = byId[next];
+    next = next + 1 < servers - 1 ? next + 1 : 0;
+    shop.update(server.makeIdle());
+    return shop.update(server.serve(customer));
+  }
+
+  /**
+   * Find the idle server with the index the shop keeps.
+   * @return The idle server.
+   */
+  @Benchmark
+  public Optional<Server> findIdleServer() {
+    return shop.findIdleServer();
+  }
+
+  /**
+   * Find the idle server by testing every server in turn.
+   * @return The idle server.
+   */
+  @Benchmark
+  public Optional<Server> findServer() {
+    return shop.findServer(s -> s.get().isIdle());
+  }
+}
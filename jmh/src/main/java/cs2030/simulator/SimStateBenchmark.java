@@ -0,0 +1,81 @@
+package cs2030.simulator;
+
+import cs2030.util.Pair;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code SimState.addEvent} and {@code SimState.nextEvent} with
+ * the hold model: the queue starts with {@code arrivals} pending events,
+ * as it does when {@code LabFourA} loads an arrival file, and each
+ * operation takes the earliest event and schedules a new one a random
+ * time after it, so the queue keeps its size.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimStateBenchmark {
+  /** The number of increments drawn up front; a power of two. */
+  private static final int INCREMENTS = 1 << 16;
+
+  /** The action of every event; the benchmark never simulates them. */
+  private static final Function<SimState, SimState> NOTHING = s -> s;
+
+  /** The number of pending events. */
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int arrivals;
+
+  /** The state whose queue is measured. */
+  private SimState state;
+
+  /** Random gaps between an event and the one it schedules. */
+  private double[] increments;
+
+  /** The index of the next increment. */
+  private int next;
+
+  /** Fill the queue with events at random times. */
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(2030);
+    increments = new double[INCREMENTS];
+    for (int i = 0; i < INCREMENTS; i++) {
+      increments[i] = random.nextDouble() * arrivals;
+    }
+    state = new SimState(1, QuietLogSink.INSTANCE);
+    for (int i = 0; i < arrivals; i++) {
+      state = state.addEvent(random.nextDouble() * arrivals, NOTHING);
+    }
+  }
+
+  /**
+   * Take the earliest event and schedule another after it.
+   * @return The state, changed in place.
+   */
+  @Benchmark
+  public SimState hold() {
+    Pair<Optional<Event>, SimState> p = state.nextEvent();
+    double time = p.first.get().time() + increments[next++ & (INCREMENTS - 1)];
+    state = p.second.addEvent(time, NOTHING);
+    return state;
+  }
+}
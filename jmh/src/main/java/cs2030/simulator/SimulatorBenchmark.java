@@ -0,0 +1,49 @@
+package cs2030.simulator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code Simulator.run} end to end: a shop loaded to 90% by
+ * Poisson arrivals, with the arrivals generated as the simulation reaches
+ * them and nothing logged.  One operation is one whole simulation, so the
+ * time and bytes per arrival are the score and the allocation divided by
+ * {@code arrivals}.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulatorBenchmark {
+  /** The number of arrivals in one simulation. */
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public long arrivals;
+
+  /** The number of servers in the shop. */
+  @Param({"1", "10", "100", "1000"})
+  public int servers;
+
+  /**
+   * Run one simulation.
+   * @return The final state, so that the simulation is not optimised away.
+   */
+  @Benchmark
+  public SimState run() {
+    return Simulator.builder(servers).log(QuietLogSink.INSTANCE)
+        .arrivals(new PoissonArrivalSource(0.9 * servers, 2030, arrivals)).build().run();
+  }
+}
@@ -0,0 +1,108 @@
+package cs2030.util;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares ways of drawing exponential values: inverting the
+ * distribution function with {@code -Math.log(1 - u) / rate}, one
+ * ziggurat sample at a time, and ziggurat samples drawn in batches, both
+ * through a {@code RandomStream} and by filling an array directly.  Every
+ * result is per value.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DistributionBenchmark {
+  /** The rate of the exponential values. */
+  private static final double RATE = 0.9;
+
+  /** The generator of the unbatched samplers. */
+  private SplittableRandom random;
+
+  /** The exponential distribution. */
+  private ExponentialDistribution exponential;
+
+  /** A stream of exponential values. */
+  private RandomStream stream;
+
+  /** The array filled in batches. */
+  private double[] batch;
+
+  /** Create the generators. */
+  @Setup
+  public void setUp() {
+    random = new SplittableRandom(2030);
+    exponential = new ExponentialDistribution(RATE);
+    stream = new RandomStream(exponential, 2030);
+    batch = new double[RandomStream.BATCH];
+  }
+
+  /**
+   * Draw a value by inverting the distribution function.
+   * @return The value.
+   */
+  @Benchmark
+  public double inversion() {
+    return -Math.log(1 - random.nextDouble()) / RATE;
+  }
+
+  /**
+   * Draw a value with the ziggurat sampler.
+   * @return The value.
+   */
+  @Benchmark
+  public double ziggurat() {
+    return exponential.sample(random);
+  }
+
+  /**
+   * Take a value from a stream that draws them in batches.
+   * @return The value.
+   */
+  @Benchmark
+  public double stream() {
+    return stream.next();
+  }
+
+  /**
+   * Fill a batch of values with the ziggurat sampler.
+   * @return The batch.
+   */
+  @Benchmark
+  @OperationsPerInvocation(RandomStream.BATCH)
+  public double[] fill() {
+    exponential.fill(random, batch);
+    return batch;
+  }
+
+  /**
+   * Fill a batch of values by inverting the distribution function.
+   * @return The batch.
+   */
+  @Benchmark
+  @OperationsPerInvocation(RandomStream.BATCH)
+  public double[] fillInversion() {
+    for (int i = 0; i < batch.length; i++) {
+      batch[i] = -Math.log(1 - random.nextDouble()) / RATE;
+    }
+    return batch;
+  }
+}
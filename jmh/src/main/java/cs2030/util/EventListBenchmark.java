@@ -0,0 +1,101 @@
+package cs2030.util;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@code EventList} implementations with the hold model:
+ * the list starts with {@code size} entries, and each operation polls
+ * the earliest and adds one a random increment later, so the list keeps
+ * its size.  Increments are exponential, uniform on [0, 2), or bimodal,
+ * where half are 0 and half exponential with mean 100, which gives many
+ * ties and a long spread of pending times.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventListBenchmark {
+  /** The number of increments drawn up front; a power of two. */
+  private static final int INCREMENTS = 1 << 16;
+
+  /** The kind of event list, as {@code EventList.create} reads it. */
+  @Param({"heap", "calendar", "persistent"})
+  public String kind;
+
+  /** The number of entries held. */
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int size;
+
+  /** The distribution of the increments. */
+  @Param({"exponential", "uniform", "bimodal"})
+  public String increment;
+
+  /** The list. */
+  private EventList list;
+
+  /** The increments. */
+  private double[] increments;
+
+  /** The index of the next increment. */
+  private int next;
+
+  /** Fill the list with random times. */
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(2030);
+    increments = new double[INCREMENTS];
+    for (int i = 0; i < INCREMENTS; i++) {
+      increments[i] = draw(random);
+    }
+    list = EventList.create(kind);
+    for (int i = 0; i < size; i++) {
+      list.add(draw(random), i);
+    }
+  }
+
+  /**
+   * Draw an increment.
+   * @param random The generator.
+   * @return The increment.
+   */
+  private double draw(SplittableRandom random) {
+    double exponential = -Math.log(1 - random.nextDouble());
+    switch (increment) {
+      case "uniform":
+        return 2 * random.nextDouble();
+      case "bimodal":
+        return random.nextBoolean() ? 0 : 100 * exponential;
+      default:
+        return exponential;
+    }
+  }
+
+  /**
+   * Poll the earliest entry and add it back a random increment later.
+   * @return The handle held.
+   */
+  @Benchmark
+  public int hold() {
+    double time = list.peekTime();
+    int handle = list.poll();
+    list.add(time + increments[next++ & (INCREMENTS - 1)], handle);
+    return handle;
+  }
+}
@@ -0,0 +1,74 @@
+package cs2030.util;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code add} and {@code poll} of the persistent
+ * {@code PriorityQueue} with the hold model: the queue starts with
+ * {@code arrivals} times, and each operation polls the earliest and adds
+ * a later one, so the queue keeps its size.
+ *
+ * @author Kirsten
+ * @version CS2030 AY17/18 Sem 2 Lab 4b
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PriorityQueueBenchmark {
+  /** The number of increments drawn up front; a power of two. */
+  private static final int INCREMENTS = 1 << 16;
+
+  /** The number of queued times. */
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int arrivals;
+
+  /** The queue. */
+  private PriorityQueue<Double> queue;
+
+  /** Random gaps between a polled time and the one added after it. */
+  private double[] increments;
+
+  /** The index of the next increment. */
+  private int next;
+
+  /** Fill the queue with random times. */
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(2030);
+    increments = new double[INCREMENTS];
+    for (int i = 0; i < INCREMENTS; i++) {
+      increments[i] = random.nextDouble() * arrivals;
+    }
+    queue = new PriorityQueue<>();
+    for (int i = 0; i < arrivals; i++) {
+      queue = queue.add(random.nextDouble() * arrivals);
+    }
+  }
+
+  /**
+   * Poll the earliest time and add a later one.
+   * @return The new queue.
+   */
+  @Benchmark
+  public PriorityQueue<Double> hold() {
+    Pair<Optional<Double>, PriorityQueue<Double>> p = queue.poll();
+    queue = p.second.add(p.first.get() + increments[next++ & (INCREMENTS - 1)]);
+    return queue;
+  }
+}